@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Время до первого обслуженного запроса (docker run -> первый 200 от /actuator/health)
+# для стандартного образа (Dockerfile) и образа с быстрым стартом (Dockerfile.faststart).
+#
+# Требуется запущенная БД (docker compose up -d db) и переменные POSTGRES_DB, POSTGRES_USER, POSTGRES_PASSWORD.
+# Использование: scripts/startup-benchmark.sh [число запусков, по умолчанию 5]
+set -euo pipefail
+
+RUNS="${1:-5}"
+NETWORK="${BENCH_NETWORK:-$(docker network ls --format '{{.Name}}' | grep metapostgresnetwork | head -n 1)}"
+PORT="${BENCH_PORT:-18080}"
+
+now_ms() {
+  date +%s%3N
+}
+
+build() {
+  docker build -q -f "$2" -t "$1" . >/dev/null
+}
+
+measure() {
+  local image="$1" migrations="$2"
+  local start container elapsed
+  start=$(now_ms)
+  container=$(docker run -d --rm --network "$NETWORK" -p "$PORT:8080" \
+    -e SPRING_DATASOURCE_URL="jdbc:postgresql://db:5432/${POSTGRES_DB}" \
+    -e SPRING_DATASOURCE_USERNAME="${POSTGRES_USER}" \
+    -e SPRING_DATASOURCE_PASSWORD="${POSTGRES_PASSWORD}" \
+    -e METADATA_MIGRATIONS_ENABLED="$migrations" \
+    "$image")
+  until curl -sf -o /dev/null "http://localhost:$PORT/actuator/health"; do
+    if ! docker ps -q --no-trunc | grep -q "$container"; then
+      echo "container for $image exited before serving a request" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  elapsed=$(( $(now_ms) - start ))
+  docker stop -t 5 "$container" >/dev/null
+  echo "$elapsed"
+}
+
+report() {
+  local label="$1" image="$2" migrations="$3"
+  local samples=()
+  for _ in $(seq "$RUNS"); do
+    samples+=("$(measure "$image" "$migrations")")
+  done
+  printf '%s\n' "${samples[@]}" | sort -n | awk -v label="$label" '
+    { v[NR] = $1 }
+    END { printf "%-32s median %6d ms   min %6d ms   max %6d ms   (%d runs)\n", label, v[int((NR + 1) / 2)], v[1], v[NR], NR }'
+}
+
+build metadata-service:standard Dockerfile
+build metadata-service:faststart Dockerfile.faststart
+
+report "standard" metadata-service:standard true
+report "standard, no migrations" metadata-service:standard false
+report "faststart (AOT + CDS)" metadata-service:faststart true
+report "faststart, no migrations" metadata-service:faststart false
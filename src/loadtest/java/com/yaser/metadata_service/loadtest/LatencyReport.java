@@ -0,0 +1,96 @@
+package com.yaser.metadata_service.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки по операциям (HdrHistogram, микросекунды, 3 значащие цифры) и проверка бюджетов
+ */
+final class LatencyReport {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    String format(double seconds) {
+        StringBuilder out = new StringBuilder(String.format("%-12s %10s %10s %10s %10s %10s %10s %8s%n",
+                "operation", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+        for (Operation operation : operations.values()) {
+            Histogram histogram = operation.histogram;
+            out.append(String.format("%-12s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                    operation.name,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()),
+                    operation.errors.sum()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Нарушения бюджетов budget.&lt;operation&gt;.p99-ms / p999-ms и ошибки операций
+     */
+    List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        for (Operation operation : operations.values()) {
+            if (operation.errors.sum() > 0) {
+                violations.add(String.format("%s: %d errors, first: %s",
+                        operation.name, operation.errors.sum(), operation.firstError.get()));
+            }
+            if (operation.histogram.getTotalCount() == 0) {
+                violations.add(operation.name + ": no successful operations recorded");
+                continue;
+            }
+            checkBudget(violations, operation, "p99", 99);
+            checkBudget(violations, operation, "p999", 99.9);
+        }
+        return violations;
+    }
+
+    private static void checkBudget(List<String> violations, Operation operation, String label, double percentile) {
+        double budget = LoadTestSettings.decimal("budget." + operation.name + "." + label + "-ms");
+        double actual = millis(operation.histogram.getValueAtPercentile(percentile));
+        if (actual > budget) {
+            violations.add(String.format("%s: %s %.2f ms exceeds budget %.2f ms", operation.name, label, actual, budget));
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    static final class Operation {
+        private final String name;
+        private final Histogram histogram = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+        private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_TRACKABLE_MICROS));
+        }
+
+        void error(Throwable error) {
+            errors.increment();
+            firstError.compareAndSet(null, error);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.yaser.metadata_service.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * БД для нагрузочного теста: встроенный Postgres 15 (бинарники из Maven-артефакта, сеть не нужна)
+ * либо внешняя БД из loadtest.jdbc-url. Встроенный Postgres не запускается от root.
+ */
+final class LoadTestDatabase {
+
+    private static EmbeddedPostgres embedded;
+
+    private LoadTestDatabase() {
+    }
+
+    static synchronized String jdbcUrl() {
+        String external = LoadTestSettings.string("loadtest.jdbc-url");
+        if (!external.isEmpty()) {
+            return external;
+        }
+        if (embedded == null) {
+            try {
+                embedded = EmbeddedPostgres.builder()
+                        // Тестовые данные не нужно переживать сбой: ускоряем запись сида
+                        .setServerConfig("fsync", "off")
+                        .setServerConfig("synchronous_commit", "off")
+                        .setServerConfig("full_page_writes", "off")
+                        .setServerConfig("max_wal_size", "4GB")
+                        .setServerConfig("shared_buffers", "512MB")
+                        .start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start embedded Postgres", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(LoadTestDatabase::close));
+        }
+        return embedded.getJdbcUrl("postgres", "postgres");
+    }
+
+    static String username() {
+        String external = LoadTestSettings.string("loadtest.jdbc-username");
+        return external.isEmpty() ? "postgres" : external;
+    }
+
+    static String password() {
+        return LoadTestSettings.string("loadtest.jdbc-password");
+    }
+
+    private static synchronized void close() {
+        if (embedded != null) {
+            try {
+                embedded.close();
+            } catch (IOException ignored) {
+                // Процесс завершается, каталог встроенной БД временный
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.yaser.metadata_service.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сид данных прямо в БД (generate_series пачками): владелец-"кит" с whale-files файлами и owners владельцев
+ * с перекосом r^skew; размеры - логнормальные (медиана ~60 КБ), типы и статусы - в реалистичных долях.
+ * Уже засеянная внешняя БД используется повторно.
+ */
+final class LoadTestSeeder {
+
+    private static final int BATCH = 100_000;
+
+    private static final String INSERT_FILES = """
+            INSERT INTO file_metadata (id, file_name, content_type, size, owner_id, status, storage_key,
+                                       created_at, updated_at, version)
+            SELECT gen_random_uuid(), 'file_' || g, t.content_type, x.size, o.id, s.status, 'seed/' || g,
+                   x.ts, x.ts, 0
+            FROM generate_series(?::bigint, ?::bigint) g
+            CROSS JOIN LATERAL (
+                SELECT CASE WHEN g < ? THEN 0 ELSE 1 + floor(power(random(), ?) * ?)::int END AS idx,
+                       greatest(1, exp(11 + 2 * sqrt(-2 * ln(1 - random())) * cos(2 * pi() * random())))::bigint AS size,
+                       random() AS r_type,
+                       random() AS r_status,
+                       now() - random() * interval '365 days' AS ts
+                WHERE g IS NOT NULL
+            ) x
+            JOIN lt_owners o ON o.idx = x.idx
+            CROSS JOIN LATERAL (
+                SELECT CASE WHEN x.r_type < 0.4 THEN 'image/jpeg'
+                            WHEN x.r_type < 0.6 THEN 'application/pdf'
+                            WHEN x.r_type < 0.8 THEN 'text/plain'
+                            WHEN x.r_type < 0.95 THEN 'image/png'
+                            ELSE 'video/mp4' END AS content_type
+            ) t
+            CROSS JOIN LATERAL (
+                SELECT CASE WHEN x.r_status < 0.80 THEN 'READY'
+                            WHEN x.r_status < 0.85 THEN 'FAILED'
+                            WHEN x.r_status < 0.90 THEN 'PROCESSING'
+                            ELSE 'UPLOADED' END AS status
+            ) s
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    LoadTestSeeder(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Id владельцев по индексу распределения: [0] - "кит"
+     */
+    List<UUID> seed(int owners, long files, long whaleFiles, double skew) {
+        Integer seeded = jdbc.queryForObject("SELECT count(*) FROM users WHERE username LIKE 'lt\\_%'", Integer.class);
+        if (seeded == null || seeded == 0) {
+            long started = System.nanoTime();
+            jdbc.update("""
+                    INSERT INTO users (id, username, email, password_hash, created_at, updated_at, version)
+                    SELECT gen_random_uuid(), 'lt_' || g, 'lt_' || g || '@load.test', 'x', now(), now(), 0
+                    FROM generate_series(0, ?) g
+                    """, owners);
+            jdbc.execute("""
+                    CREATE TABLE lt_owners AS
+                    SELECT substring(username FROM 4)::int AS idx, id FROM users WHERE username LIKE 'lt\\_%'
+                    """);
+            jdbc.execute("ALTER TABLE lt_owners ADD PRIMARY KEY (idx)");
+
+            long total = whaleFiles + files;
+            for (long from = 0; from < total; from += BATCH) {
+                long to = Math.min(from + BATCH, total) - 1;
+                jdbc.update(INSERT_FILES, from, to, whaleFiles, skew, owners);
+            }
+
+            // Сид идет в обход резервирования квоты
+            jdbc.update("""
+                    INSERT INTO owner_quota_usage (owner_id, used_bytes)
+                    SELECT owner_id, sum(size) FROM file_metadata GROUP BY owner_id
+                    ON CONFLICT (owner_id) DO UPDATE SET used_bytes = EXCLUDED.used_bytes
+                    """);
+            jdbc.execute("ANALYZE");
+            System.out.printf("Seeded %d owners and %d files in %d s%n",
+                    owners + 1, total, (System.nanoTime() - started) / 1_000_000_000L);
+        }
+
+        List<UUID> ids = new ArrayList<>();
+        jdbc.query("SELECT id FROM lt_owners ORDER BY idx", rs -> {
+            ids.add(rs.getObject(1, UUID.class));
+        });
+        return ids;
+    }
+}
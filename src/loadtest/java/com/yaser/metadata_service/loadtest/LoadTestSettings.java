@@ -0,0 +1,46 @@
+package com.yaser.metadata_service.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Параметры из loadtest.properties с переопределением системными свойствами (-D)
+ */
+final class LoadTestSettings {
+
+    private static final Properties PROPERTIES = load();
+
+    private LoadTestSettings() {
+    }
+
+    static String string(String key) {
+        String value = System.getProperty(key, PROPERTIES.getProperty(key));
+        if (value == null) {
+            throw new IllegalStateException("Missing load test setting: " + key);
+        }
+        return value.trim();
+    }
+
+    static int integer(String key) {
+        return Integer.parseInt(string(key));
+    }
+
+    static double decimal(String key) {
+        return Double.parseDouble(string(key));
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = LoadTestSettings.class.getResourceAsStream("/loadtest.properties")) {
+            if (in == null) {
+                throw new IllegalStateException("loadtest.properties not found on the test classpath");
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+}
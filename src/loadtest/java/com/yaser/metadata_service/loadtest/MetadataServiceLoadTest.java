@@ -0,0 +1,193 @@
+package com.yaser.metadata_service.loadtest;
+
+import com.yaser.metadata_service.application.admin.AdminFileMetadataService;
+import com.yaser.metadata_service.application.user.UserFileMetadataService;
+import com.yaser.metadata_service.dto.FileUploadRequestDTO;
+import com.yaser.metadata_service.dto.UpdateFileStatusRequestDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Смешанная нагрузка на application-сервисы: создание, список, переходы статусов, статистика пользователя
+ * и администратора одновременно. Отчет - target/loadtest-report.txt; превышение бюджетов проваливает сборку.
+ */
+@SpringBootTest
+@ActiveProfiles("loadtest")
+class MetadataServiceLoadTest {
+
+    private static final Path REPORT = Path.of("target", "loadtest-report.txt");
+
+    @Autowired
+    private UserFileMetadataService userFileMetadataService;
+
+    @Autowired
+    private AdminFileMetadataService adminFileMetadataService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", LoadTestDatabase::jdbcUrl);
+        registry.add("spring.datasource.username", LoadTestDatabase::username);
+        registry.add("spring.datasource.password", LoadTestDatabase::password);
+        registry.add("spring.datasource.hikari.maximum-pool-size",
+                () -> Math.max(10, LoadTestSettings.integer("loadtest.threads-per-operation") * 5));
+    }
+
+    @Test
+    void mixedWorkloadStaysWithinLatencyBudgets() throws Exception {
+        int owners = LoadTestSettings.integer("loadtest.owners");
+        long files = LoadTestSettings.integer("loadtest.files");
+        long whaleFiles = LoadTestSettings.integer("loadtest.whale-files");
+        double skew = LoadTestSettings.decimal("loadtest.skew");
+        int listMaxFiles = LoadTestSettings.integer("loadtest.list-max-files");
+        int threads = LoadTestSettings.integer("loadtest.threads-per-operation");
+        int warmupSeconds = LoadTestSettings.integer("loadtest.warmup-seconds");
+        int durationSeconds = LoadTestSettings.integer("loadtest.duration-seconds");
+
+        List<UUID> ownerIds = new LoadTestSeeder(jdbc).seed(owners, files, whaleFiles, skew);
+        double whaleShare = (double) whaleFiles / (whaleFiles + files);
+
+        // Владельцы, чьи файлы можно читать целиком (список и статистика пользователя без пагинации)
+        List<UUID> listableOwners = jdbc.queryForList("""
+                SELECT o.id FROM lt_owners o JOIN storage_usage_by_owner u ON u.owner_id = o.id
+                WHERE u.file_count BETWEEN 1 AND ? ORDER BY o.idx
+                """, UUID.class, listMaxFiles);
+        Queue<UUID[]> uploaded = new ConcurrentLinkedQueue<>();
+        jdbc.query("SELECT id, owner_id FROM file_metadata WHERE status = 'UPLOADED' LIMIT 500000", rs -> {
+            uploaded.add(new UUID[]{rs.getObject(1, UUID.class), rs.getObject(2, UUID.class)});
+        });
+        Queue<UUID[]> processing = new ConcurrentLinkedQueue<>();
+        UUID adminId = ownerIds.get(1);
+
+        LatencyReport report = new LatencyReport();
+        List<Workload> workloads = List.of(
+                new Workload(report.operation("create"), () -> {
+                    FileUploadRequestDTO request = new FileUploadRequestDTO();
+                    UUID ownerId = skewedOwner(ownerIds, whaleShare, skew);
+                    request.setOwnerId(ownerId);
+                    request.setFileName("load_" + ThreadLocalRandom.current().nextLong() + ".jpg");
+                    request.setContentType("image/jpeg");
+                    request.setSize(1 + (long) Math.exp(11 + 2 * ThreadLocalRandom.current().nextGaussian()));
+                    userFileMetadataService.createFile(request, ownerId);
+                    return true;
+                }),
+                new Workload(report.operation("list"), () -> {
+                    userFileMetadataService.getMyFiles(skewed(listableOwners, skew));
+                    return true;
+                }),
+                new Workload(report.operation("status"), () -> {
+                    boolean finish = ThreadLocalRandom.current().nextBoolean();
+                    UUID[] file = finish ? processing.poll() : uploaded.poll();
+                    if (file == null) {
+                        file = finish ? uploaded.poll() : processing.poll();
+                        finish = !finish;
+                    }
+                    if (file == null) {
+                        return false;
+                    }
+                    UpdateFileStatusRequestDTO request = new UpdateFileStatusRequestDTO();
+                    request.setStatus(finish ? "READY" : "PROCESSING");
+                    userFileMetadataService.updateFileStatus(file[0], request, file[1]);
+                    if (!finish) {
+                        processing.add(file);
+                    }
+                    return true;
+                }),
+                new Workload(report.operation("user-stats"), () -> {
+                    userFileMetadataService.getUserFileStatistics(skewed(listableOwners, skew));
+                    return true;
+                }),
+                new Workload(report.operation("admin-stats"), () -> {
+                    adminFileMetadataService.getFileStatistics(adminId);
+                    return true;
+                }));
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService executor = Executors.newFixedThreadPool(workloads.size() * threads);
+        List<Future<?>> running = new ArrayList<>();
+        for (Workload workload : workloads) {
+            for (int i = 0; i < threads; i++) {
+                running.add(executor.submit(() -> workload.run(measureFrom, measureTo)));
+            }
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        executor.shutdown();
+
+        String table = String.format("Load test: %d owners, %d + %d (whale) seeded files, %d threads per operation, %d s%n%s",
+                owners + 1, files, whaleFiles, threads, durationSeconds, report.format(durationSeconds));
+        List<String> violations = report.violations();
+        writeReport(table, violations);
+        System.out.println(table);
+
+        assertTrue(violations.isEmpty(), "Latency budget regressions:\n" + String.join("\n", violations));
+    }
+
+    private static UUID skewedOwner(List<UUID> ownerIds, double whaleShare, double skew) {
+        if (ThreadLocalRandom.current().nextDouble() < whaleShare) {
+            return ownerIds.get(0);
+        }
+        return skewed(ownerIds.subList(1, ownerIds.size()), skew);
+    }
+
+    private static UUID skewed(List<UUID> ids, double skew) {
+        return ids.get((int) (Math.pow(ThreadLocalRandom.current().nextDouble(), skew) * ids.size()));
+    }
+
+    private static void writeReport(String table, List<String> violations) throws IOException {
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, violations.isEmpty()
+                ? table
+                : table + "\nBudget regressions:\n" + String.join("\n", violations) + "\n");
+    }
+
+    /**
+     * Цикл одной операции: задержки пишутся только в окне замера, ошибки - все
+     */
+    private record Workload(LatencyReport.Operation operation, Step step) {
+
+        void run(long measureFrom, long measureTo) {
+            long started;
+            while ((started = System.nanoTime()) < measureTo) {
+                try {
+                    boolean executed = step.execute();
+                    if (executed && started >= measureFrom) {
+                        operation.record(System.nanoTime() - started);
+                    }
+                } catch (Exception e) {
+                    operation.error(e);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        boolean execute() throws Exception;
+    }
+}
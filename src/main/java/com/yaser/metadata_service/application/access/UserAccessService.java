@@ -5,21 +5,34 @@ import com.yaser.metadata_service.exception.AccessDeniedException;
 import com.yaser.metadata_service.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional(readOnly = true)
 public class UserAccessService {
 
+    private static final List<String> PROCESSING_ROLES = List.of("ROLE_PROCESSING", "ROLE_ADMIN");
+
     private final UserRepository userRepository;
+    private final long roleCacheTtlNanos;
+    // Пользователи с подтвержденной ролью процессинга -> момент (nanoTime), до которого проверка не повторяется
+    private final ConcurrentHashMap<UUID, Long> processingGrants = new ConcurrentHashMap<>();
 
     // Конструктор с зависимостью
     @Autowired
-    public UserAccessService(UserRepository userRepository) {
+    public UserAccessService(
+            UserRepository userRepository,
+            @Value("${metadata.access.role-cache-ttl-ms:30000}") long roleCacheTtlMs) {
         this.userRepository = userRepository;
+        this.roleCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(roleCacheTtlMs);
     }
 
     /**
@@ -63,11 +76,35 @@ public class UserAccessService {
      * Проверка, является ли пользователь администратором
      */
     public void validateIsAdmin(User user) {
-        // Временно упрощаем для тестирования
-        // Разрешаем всем быть админами
         if (user == null) {
             throw new AccessDeniedException("User is null");
         }
+        // Роли читаются запросом: user мог быть загружен в уже закрытой сессии (open-in-view выключен)
+        if (user.getId() == null || !userRepository.existsByIdAndRoles_Name(user.getId(), "ROLE_ADMIN")) {
+            throw new AccessDeniedException(
+                    String.format("User %s is not an administrator", user.getId())
+            );
+        }
+    }
+
+    /**
+     * Проверка, может ли пользователь выполнять операции процессинга (отчеты о статусе, результаты обработки):
+     * роль ROLE_PROCESSING или ROLE_ADMIN. Положительный результат кэшируется на role-cache-ttl-ms, поэтому
+     * частые отчеты процессинга не обращаются к БД; отказ не кэшируется
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void validateIsProcessing(UUID userId) {
+        Long validUntil = processingGrants.get(userId);
+        if (validUntil != null && validUntil - System.nanoTime() > 0) {
+            return;
+        }
+        if (!userRepository.existsByIdAndRoles_NameIn(userId, PROCESSING_ROLES)) {
+            processingGrants.remove(userId);
+            throw new AccessDeniedException(
+                    String.format("User %s is not allowed to perform processing operations", userId)
+            );
+        }
+        processingGrants.put(userId, System.nanoTime() + roleCacheTtlNanos);
     }
 
     /**
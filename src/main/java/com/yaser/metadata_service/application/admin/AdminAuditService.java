@@ -0,0 +1,71 @@
+package com.yaser.metadata_service.application.admin;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.dto.AuditLogEntryDTO;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.mapper.AuditLogMapper;
+import com.yaser.metadata_service.repository.AuditLogRepository;
+import com.yaser.metadata_service.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Просмотр журнала аудита администратором. События попадают в таблицу асинхронно,
+ * поэтому последние действия видны с задержкой до metadata.audit.flush-interval-ms.
+ * При шардировании журнал пишется на шард 0.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AdminAuditService {
+
+    private static final int MAX_LIMIT = 10_000;
+    private static final OffsetDateTime EPOCH = Instant.EPOCH.atOffset(ZoneOffset.UTC);
+
+    private final UserAccessService userAccessService;
+    private final AuditLogRepository auditLogRepository;
+    private final AuditLogMapper auditLogMapper;
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public AdminAuditService(
+            UserAccessService userAccessService,
+            AuditLogRepository auditLogRepository,
+            AuditLogMapper auditLogMapper,
+            ShardRouter shardRouter) {
+        this.userAccessService = userAccessService;
+        this.auditLogRepository = auditLogRepository;
+        this.auditLogMapper = auditLogMapper;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Поиск событий по исполнителю, файлу и интервалу [from, to), от новых к старым
+     */
+    public List<AuditLogEntryDTO> search(UUID actorId, UUID fileId, OffsetDateTime from, OffsetDateTime to,
+                                         int limit, UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
+
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        OffsetDateTime fromTime = from != null ? from : EPOCH;
+        OffsetDateTime toTime = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC).plusSeconds(1);
+        if (!fromTime.isBefore(toTime)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+
+        return shardRouter.onShard(ShardRouter.DIRECTORY_SHARD, () ->
+                auditLogRepository.search(actorId, fileId, fromTime, toTime, Limit.of(limit)).stream()
+                        .map(auditLogMapper::toDTO)
+                        .toList());
+    }
+}
@@ -0,0 +1,200 @@
+package com.yaser.metadata_service.application.admin;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.dto.ContentTypeUsageDTO;
+import com.yaser.metadata_service.dto.DailyGrowthDTO;
+import com.yaser.metadata_service.dto.FileSizeEntryDTO;
+import com.yaser.metadata_service.dto.OwnerUsageDTO;
+import com.yaser.metadata_service.dto.SizeBucketDTO;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.index.FileMetadataIndex;
+import com.yaser.metadata_service.index.FileMetadataIndexService;
+import com.yaser.metadata_service.repository.StorageUsageRepository.UsageTotalsView;
+import com.yaser.metadata_service.service.StorageUsageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Аналитика по всем файлам для администратора: из in-memory индекса (metadata.index.enabled),
+ * агрегаты объема - из индекса, если он загружен, иначе из таблиц агрегатов
+ */
+@Service
+public class AdminFileAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminFileAnalyticsService.class);
+
+    private static final int MAX_LIMIT = 10_000;
+
+    private final UserAccessService userAccessService;
+    private final StorageUsageService storageUsageService;
+    private final FileMetadataIndexService indexService;
+
+    @Autowired
+    public AdminFileAnalyticsService(
+            UserAccessService userAccessService,
+            StorageUsageService storageUsageService,
+            ObjectProvider<FileMetadataIndexService> indexService) {
+        this.userAccessService = userAccessService;
+        this.storageUsageService = storageUsageService;
+        this.indexService = indexService.getIfAvailable();
+    }
+
+    /**
+     * Самые большие файлы (опционально с фильтром по статусу)
+     */
+    public List<FileSizeEntryDTO> getLargestFiles(int limit, String status, UUID currentUserId) {
+        validateAdmin(currentUserId);
+        Status statusFilter = status != null ? parseStatus(status) : null;
+
+        return requireIndex().largestFiles(validateLimit(limit), statusFilter).stream()
+                .map(file -> FileSizeEntryDTO.builder()
+                        .id(file.id())
+                        .ownerId(file.ownerId())
+                        .status(file.status())
+                        .size(file.size())
+                        .contentType(file.contentType())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Id файлов с указанным статусом
+     */
+    public List<UUID> getFileIdsByStatus(String status, int limit, UUID currentUserId) {
+        validateAdmin(currentUserId);
+        return requireIndex().findIdsByStatus(parseStatus(status), validateLimit(limit));
+    }
+
+    /**
+     * Владельцы с наибольшим объемом файлов
+     */
+    public List<OwnerUsageDTO> getTopOwnersByBytes(int limit, UUID currentUserId) {
+        validateAdmin(currentUserId);
+        int validLimit = validateLimit(limit);
+
+        if (isIndexReady()) {
+            return indexService.topOwnersByBytes(validLimit).stream()
+                    .map(usage -> OwnerUsageDTO.builder()
+                            .ownerId(usage.ownerId())
+                            .files(usage.files())
+                            .bytes(usage.bytes())
+                            .build())
+                    .toList();
+        }
+        return storageUsageService.getTopOwnersByBytes(validLimit).stream()
+                .map(usage -> OwnerUsageDTO.builder()
+                        .ownerId(usage.getOwnerId())
+                        .files(usage.getFileCount())
+                        .bytes(usage.getTotalBytes())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Объем по типам контента, по убыванию
+     */
+    public List<ContentTypeUsageDTO> getContentTypeBreakdown(UUID currentUserId) {
+        validateAdmin(currentUserId);
+
+        return storageUsageService.getContentTypeBreakdown().stream()
+                .map(totals -> ContentTypeUsageDTO.builder()
+                        .contentType(totals.getKey())
+                        .files(totals.getFiles())
+                        .bytes(totals.getBytes())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Суточный прирост за период (дни без изменений опускаются)
+     */
+    public List<DailyGrowthDTO> getDailyGrowth(LocalDate from, LocalDate to, UUID currentUserId) {
+        validateAdmin(currentUserId);
+
+        return storageUsageService.getDailyGrowth(from, to).stream()
+                .map(day -> DailyGrowthDTO.builder()
+                        .day(day.getDay())
+                        .filesAdded(day.getFilesAdded())
+                        .bytesAdded(day.getBytesAdded())
+                        .filesRemoved(day.getFilesRemoved())
+                        .bytesRemoved(day.getBytesRemoved())
+                        .netBytes(day.getBytesAdded() - day.getBytesRemoved())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Распределение размеров файлов по степеням двойки (пустые корзины опускаются)
+     */
+    public List<SizeBucketDTO> getSizeHistogram(UUID currentUserId) {
+        validateAdmin(currentUserId);
+
+        List<SizeBucketDTO> buckets = new ArrayList<>();
+        if (isIndexReady()) {
+            FileMetadataIndex.SizeHistogram histogram = indexService.sizeHistogram();
+            for (int bucket = 0; bucket < histogram.files().length; bucket++) {
+                if (histogram.files()[bucket] != 0) {
+                    buckets.add(toSizeBucket(bucket, histogram.files()[bucket], histogram.bytes()[bucket]));
+                }
+            }
+        } else {
+            UsageTotalsView[] histogram = storageUsageService.getSizeHistogram();
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                if (histogram[bucket] != null) {
+                    buckets.add(toSizeBucket(bucket, histogram[bucket].getFiles(), histogram[bucket].getBytes()));
+                }
+            }
+        }
+        log.debug("AnalyticsService: Size histogram with {} buckets", buckets.size());
+        return buckets;
+    }
+
+    private static SizeBucketDTO toSizeBucket(int bucket, long files, long bytes) {
+        return SizeBucketDTO.builder()
+                .minSize(1L << bucket)
+                .maxSize(bucket == 62 ? Long.MAX_VALUE : 1L << (bucket + 1))
+                .files(files)
+                .bytes(bytes)
+                .build();
+    }
+
+    private boolean isIndexReady() {
+        return indexService != null && indexService.isReady();
+    }
+
+    private FileMetadataIndexService requireIndex() {
+        if (indexService == null) {
+            throw new IllegalStateException("File metadata index is disabled (metadata.index.enabled=false)");
+        }
+        return indexService;
+    }
+
+    private void validateAdmin(UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
+    }
+
+    private static int validateLimit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    private static Status parseStatus(String status) {
+        try {
+            return Status.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid status value: " + status);
+        }
+    }
+}
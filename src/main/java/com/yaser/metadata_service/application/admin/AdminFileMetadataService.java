@@ -1,23 +1,39 @@
 package com.yaser.metadata_service.application.admin;
 
 import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.audit.AuditAction;
+import com.yaser.metadata_service.audit.AuditLog;
 import com.yaser.metadata_service.dto.FileMetadataResponseDTO;
+import com.yaser.metadata_service.dto.OwnerPurgeJobDTO;
+import com.yaser.metadata_service.dto.StorageQuotaDTO;
+import com.yaser.metadata_service.dto.UpdateStorageQuotaRequestDTO;
 import com.yaser.metadata_service.dto.UpdateFileStatusRequestDTO;
 import com.yaser.metadata_service.entity.FileMetadata;
 import com.yaser.metadata_service.entity.Status;
 import com.yaser.metadata_service.entity.User;
 import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.index.FileMetadataIndexService;
+import com.yaser.metadata_service.entity.OwnerPurgeJob;
 import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import com.yaser.metadata_service.mapper.OwnerPurgeJobMapper;
 import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.repository.StorageUsageRepository.UsageTotalsView;
+import com.yaser.metadata_service.service.OwnerPurgeService;
+import com.yaser.metadata_service.service.StorageQuotaService;
+import com.yaser.metadata_service.service.StorageUsageService;
+import com.yaser.metadata_service.shard.ShardRouter;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -25,20 +41,39 @@ import java.util.UUID;
 @Transactional
 public class AdminFileMetadataService {
 
-    private static final Logger log = LoggerFactory.getLogger(AdminFileMetadataService.class);
-
     private final FileMetadataService fileMetadataService;
     private final FileMetadataMapper fileMetadataMapper;
     private final UserAccessService userAccessService;
+    private final OwnerPurgeService ownerPurgeService;
+    private final OwnerPurgeJobMapper ownerPurgeJobMapper;
+    private final StorageUsageService storageUsageService;
+    private final StorageQuotaService storageQuotaService;
+    private final FileMetadataIndexService indexService;
+    private final AuditLog auditLog;
+    private final ShardRouter shardRouter;
 
     @Autowired
     public AdminFileMetadataService(
             FileMetadataService fileMetadataService,
             FileMetadataMapper fileMetadataMapper,
-            UserAccessService userAccessService) {
+            UserAccessService userAccessService,
+            OwnerPurgeService ownerPurgeService,
+            OwnerPurgeJobMapper ownerPurgeJobMapper,
+            StorageUsageService storageUsageService,
+            StorageQuotaService storageQuotaService,
+            ObjectProvider<FileMetadataIndexService> indexService,
+            AuditLog auditLog,
+            ShardRouter shardRouter) {
         this.fileMetadataService = fileMetadataService;
         this.fileMetadataMapper = fileMetadataMapper;
         this.userAccessService = userAccessService;
+        this.ownerPurgeService = ownerPurgeService;
+        this.ownerPurgeJobMapper = ownerPurgeJobMapper;
+        this.storageUsageService = storageUsageService;
+        this.storageQuotaService = storageQuotaService;
+        this.indexService = indexService.getIfAvailable();
+        this.auditLog = auditLog;
+        this.shardRouter = shardRouter;
     }
 
     /**
@@ -46,45 +81,28 @@ public class AdminFileMetadataService {
      */
     @Transactional(readOnly = true)
     public List<FileMetadataResponseDTO> getFilesByOwner(UUID ownerId, UUID currentUserId) {
-        log.info("AdminService: Getting files for owner: {} by admin: {}", ownerId, currentUserId);
-
         // Получаем текущего пользователя
         User currentUser = userAccessService.getUserOrThrow(currentUserId);
 
-        // Упрощенная проверка прав (временно)
-        if (!ownerId.equals(currentUserId)) {
-            // В реальном проекте здесь должна быть проверка роли ADMIN
-            log.warn("User {} is accessing files of another user {}", currentUserId, ownerId);
-        }
+        // Вызов Domain Service на шарде владельца; доступ к чужим файлам фиксируется в журнале аудита
+        List<FileMetadataResponseDTO> files = shardRouter.onOwnerShard(ownerId, () ->
+                fileMetadataService.getFilesByOwner(ownerId).stream()
+                        .map(fileMetadataMapper::toResponseDTO)
+                        .toList());
 
-        // Вызов Domain Service
-        List<FileMetadata> files = fileMetadataService.getFilesByOwner(ownerId);
+        auditLog.record(AuditAction.LIST_OWNER_FILES, currentUserId, null, ownerId, null);
 
-        log.info("AdminService: Retrieved {} files for owner: {}", files.size(), ownerId);
-
-        // Маппинг результата
-        return files.stream()
-                .map(fileMetadataMapper::toResponseDTO)
-                .toList();
+        return files;
     }
 
     /**
      * Административное обновление статуса файла
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public FileMetadataResponseDTO updateFileStatus(UUID fileId, @Valid UpdateFileStatusRequestDTO request, UUID currentUserId) {
-        log.info("AdminService: Admin updating file {} status to {}", fileId, request.getStatus());
-
         // Получаем текущего пользователя
         User currentUser = userAccessService.getUserOrThrow(currentUserId);
 
-        // Упрощенная проверка прав (временно)
-        log.info("User {} is updating file {} status", currentUserId, fileId);
-
-        // Проверка существования файла
-        if (!fileMetadataService.existsById(fileId)) {
-            throw new jakarta.persistence.EntityNotFoundException("File not found with id: " + fileId);
-        }
-
         // Конвертация статуса
         Status newStatus;
         try {
@@ -93,28 +111,23 @@ public class AdminFileMetadataService {
             throw new IllegalArgumentException("Invalid status value: " + request.getStatus());
         }
 
-        // Вызов Domain Service
-        FileMetadata updatedFile = fileMetadataService.updateFileStatus(fileId, newStatus);
+        // Вызов Domain Service на шарде файла (EntityNotFoundException, если файла нет)
+        FileMetadataResponseDTO updatedFile = shardRouter.onFileShard(fileId, () ->
+                fileMetadataMapper.toResponseDTO(fileMetadataService.updateFileStatus(fileId, newStatus)));
 
-        log.info("AdminService: Admin file status updated - ID: {}, Status: {}", fileId, newStatus);
+        auditLog.record(AuditAction.UPDATE_FILE_STATUS, currentUserId, fileId, null, newStatus.name());
 
-        // Маппинг результата
-        return fileMetadataMapper.toResponseDTO(updatedFile);
+        return updatedFile;
     }
 
     /**
      * Получение файлов по статусу
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<FileMetadataResponseDTO> getFilesByStatus(String status, UUID currentUserId) {
-        log.info("AdminService: Getting files by status: {}", status);
-
         // Получаем текущего пользователя
         User currentUser = userAccessService.getUserOrThrow(currentUserId);
 
-        // Упрощенная проверка прав (временно)
-        log.info("User {} is getting files by status {}", currentUserId, status);
-
         // Конвертация статуса
         Status statusEnum;
         try {
@@ -123,39 +136,50 @@ public class AdminFileMetadataService {
             throw new IllegalArgumentException("Invalid status value: " + status);
         }
 
-        // Вызов Domain Service
-        List<FileMetadata> files = fileMetadataService.getFilesByStatus(statusEnum);
+        // Вызов Domain Service на всех шардах параллельно
+        List<List<FileMetadataResponseDTO>> perShard = shardRouter.onAllShards(() ->
+                fileMetadataService.getFilesByStatus(statusEnum).stream()
+                        .map(fileMetadataMapper::toResponseDTO)
+                        .toList());
 
-        log.info("AdminService: Retrieved {} files with status: {}", files.size(), status);
+        auditLog.record(AuditAction.LIST_FILES_BY_STATUS, currentUserId, null, null, statusEnum.name());
 
-        // Маппинг результата
-        return files.stream()
-                .map(fileMetadataMapper::toResponseDTO)
-                .toList();
+        return perShard.size() == 1
+                ? perShard.get(0)
+                : perShard.stream().flatMap(List::stream).toList();
     }
 
     /**
      * Получение общей статистики файлов
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AdminFileStatisticsDTO getFileStatistics(UUID currentUserId) {
-        log.info("AdminService: Getting file statistics");
-
         // Получаем текущего пользователя
         User currentUser = userAccessService.getUserOrThrow(currentUserId);
 
-        // Упрощенная проверка прав (временно)
-        log.info("User {} is getting file statistics", currentUserId);
-
-        // Сбор статистики через Domain Service
-        long totalFiles = fileMetadataService.countAllFiles();
-        long uploadedFiles = fileMetadataService.countFilesByStatus(Status.UPLOADED);
-        long processingFiles = fileMetadataService.countFilesByStatus(Status.PROCESSING);
-        long readyFiles = fileMetadataService.countFilesByStatus(Status.READY);
-        long failedFiles = fileMetadataService.countFilesByStatus(Status.FAILED);
+        // Сбор статистики: из in-memory индекса, если он включен и загружен, иначе из агрегата по статусам
+        long totalFiles;
+        long uploadedFiles;
+        long processingFiles;
+        long readyFiles;
+        long failedFiles;
+        if (indexService != null && indexService.isReady()) {
+            long[] counts = indexService.countByStatus();
+            uploadedFiles = counts[Status.UPLOADED.ordinal()];
+            processingFiles = counts[Status.PROCESSING.ordinal()];
+            readyFiles = counts[Status.READY.ordinal()];
+            failedFiles = counts[Status.FAILED.ordinal()];
+            totalFiles = Arrays.stream(counts).sum();
+        } else {
+            Map<Status, UsageTotalsView> byStatus = storageUsageService.getStatusBreakdown();
+            uploadedFiles = filesWithStatus(byStatus, Status.UPLOADED);
+            processingFiles = filesWithStatus(byStatus, Status.PROCESSING);
+            readyFiles = filesWithStatus(byStatus, Status.READY);
+            failedFiles = filesWithStatus(byStatus, Status.FAILED);
+            totalFiles = byStatus.values().stream().mapToLong(UsageTotalsView::getFiles).sum();
+        }
 
-        log.info("AdminService: Statistics retrieved - Total: {}, UPLOADED: {}, PROCESSING: {}, READY: {}, FAILED: {}",
-                totalFiles, uploadedFiles, processingFiles, readyFiles, failedFiles);
+        auditLog.record(AuditAction.VIEW_STATISTICS, currentUserId, null, null, null);
 
         // Возврат DTO со статистикой
         return AdminFileStatisticsDTO.builder()
@@ -167,46 +191,74 @@ public class AdminFileMetadataService {
                 .build();
     }
 
+    private static long filesWithStatus(Map<Status, UsageTotalsView> byStatus, Status status) {
+        UsageTotalsView totals = byStatus.get(status);
+        return totals != null ? totals.getFiles() : 0;
+    }
+
     /**
      * Административное удаление файла
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void deleteFile(UUID fileId, UUID currentUserId) {
-        log.info("AdminService: Admin deleting file: {}", fileId);
-
         // Получаем текущего пользователя
         User currentUser = userAccessService.getUserOrThrow(currentUserId);
 
-        // Упрощенная проверка прав (временно)
-        log.info("User {} is deleting file {}", currentUserId, fileId);
-
-        // Получаем информацию о файле для логирования
-        FileMetadata fileMetadata = fileMetadataService.getFileById(fileId);
+        // Вызов Domain Service на шарде файла (EntityNotFoundException, если файла нет)
+        shardRouter.onFileShard(fileId, () -> {
+            fileMetadataService.deleteFile(fileId);
+            return null;
+        });
 
-        // Вызов Domain Service
-        fileMetadataService.deleteFile(fileId);
-
-        log.info("AdminService: File deleted by admin - ID: {}, Name: {}", fileId, fileMetadata.getFileName());
+        auditLog.record(AuditAction.DELETE_FILE, currentUserId, fileId, null, null);
     }
 
     /**
      * Обновление storage key (административная функция)
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public FileMetadataResponseDTO updateStorageKey(UUID fileId, String newStorageKey, UUID currentUserId) {
-        log.info("AdminService: Admin updating storage key for file: {}", fileId);
+        // Получаем текущего пользователя
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+
+        // Вызов Domain Service
+        FileMetadataResponseDTO updatedFile = shardRouter.onFileShard(fileId, () ->
+                fileMetadataMapper.toResponseDTO(fileMetadataService.updateStorageKey(fileId, newStorageKey)));
+
+        auditLog.record(AuditAction.UPDATE_STORAGE_KEY, currentUserId, fileId, null, newStorageKey);
+
+        return updatedFile;
+    }
 
+    /**
+     * Постановка задачи удаления всех файлов владельца (и, опционально, его аккаунта)
+     */
+    public OwnerPurgeJobDTO requestOwnerPurge(UUID ownerId, boolean deleteOwner, UUID currentUserId) {
         // Получаем текущего пользователя
         User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
 
-        // Упрощенная проверка прав (временно)
-        log.info("User {} is updating storage key for file {}", currentUserId, fileId);
+        // Вызов Domain Service: удаление выполняется в фоне порциями
+        OwnerPurgeJob job = shardRouter.onOwnerShard(ownerId, () -> ownerPurgeService.requestPurge(ownerId, deleteOwner));
 
-        // Вызов Domain Service
-        FileMetadata updatedFile = fileMetadataService.updateStorageKey(fileId, newStorageKey);
+        auditLog.record(AuditAction.REQUEST_OWNER_PURGE, currentUserId, null, ownerId,
+                "job=" + job.getId() + " deleteOwner=" + deleteOwner);
 
-        log.info("AdminService: Storage key updated for file {}", fileId);
+        return ownerPurgeJobMapper.toDTO(job);
+    }
+
+    /**
+     * Получение прогресса задачи удаления
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OwnerPurgeJobDTO getOwnerPurgeJob(UUID jobId, UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
 
-        // Маппинг результата
-        return fileMetadataMapper.toResponseDTO(updatedFile);
+        // Задача хранится на шарде владельца
+        OwnerPurgeJob job = shardRouter.findOnAnyShard(() -> ownerPurgeService.findJob(jobId))
+                .orElseThrow(() -> new EntityNotFoundException("Purge job not found with id: " + jobId));
+        return ownerPurgeJobMapper.toDTO(job);
     }
 
     /**
@@ -274,4 +326,43 @@ public class AdminFileMetadataService {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Установка индивидуальной квоты пользователя
+     */
+    public StorageQuotaDTO setUserQuota(UUID userId, @Valid UpdateStorageQuotaRequestDTO request, UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
+
+        StorageQuotaDTO quota = shardRouter.onOwnerShard(userId, () -> {
+            storageQuotaService.setUserQuota(userId, request.getLimitBytes());
+
+            long limit = storageQuotaService.getLimitBytes(userId);
+            long used = storageQuotaService.getUsedBytes(userId);
+            return StorageQuotaDTO.builder()
+                    .limitBytes(limit)
+                    .usedBytes(used)
+                    .remainingBytes(Math.max(limit - used, 0))
+                    .build();
+        });
+        auditLog.record(AuditAction.SET_USER_QUOTA, currentUserId, null, userId, String.valueOf(request.getLimitBytes()));
+        return quota;
+    }
+
+    /**
+     * Установка квоты роли (для пользователей без индивидуальной квоты)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void setRoleQuota(String roleName, @Valid UpdateStorageQuotaRequestDTO request, UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
+
+        // Роли есть на каждом шарде
+        shardRouter.onAllShards(() -> {
+            storageQuotaService.setRoleQuota(roleName, request.getLimitBytes());
+            return null;
+        });
+        auditLog.record(AuditAction.SET_ROLE_QUOTA, currentUserId, null, null,
+                roleName + "=" + request.getLimitBytes());
+    }
+}
@@ -0,0 +1,64 @@
+package com.yaser.metadata_service.application.admin;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.audit.AuditAction;
+import com.yaser.metadata_service.audit.AuditLog;
+import com.yaser.metadata_service.dto.ReconciliationReportDTO;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.job.StorageReconciliationJob;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Сверка хранилища с метаданными: запуск вне расписания и последний отчет
+ */
+@Service
+public class AdminReconciliationService {
+
+    private final UserAccessService userAccessService;
+    private final StorageReconciliationJob reconciliationJob;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public AdminReconciliationService(
+            UserAccessService userAccessService,
+            ObjectProvider<StorageReconciliationJob> reconciliationJob,
+            AuditLog auditLog) {
+        this.userAccessService = userAccessService;
+        this.reconciliationJob = reconciliationJob.getIfAvailable();
+        this.auditLog = auditLog;
+    }
+
+    public ReconciliationReportDTO getLastReport(UUID currentUserId) {
+        validateAdmin(currentUserId);
+        ReconciliationReportDTO report = requireJob().getLastReport();
+        if (report == null) {
+            throw new EntityNotFoundException("Reconciliation has not run yet");
+        }
+        return report;
+    }
+
+    public ReconciliationReportDTO start(UUID currentUserId) {
+        validateAdmin(currentUserId);
+        ReconciliationReportDTO report = requireJob().start();
+        auditLog.record(AuditAction.RUN_RECONCILIATION, currentUserId, null, null,
+                report.isRepair() ? "repair" : "report");
+        return report;
+    }
+
+    private StorageReconciliationJob requireJob() {
+        if (reconciliationJob == null) {
+            throw new IllegalStateException("Reconciliation is disabled (metadata.reconciliation.enabled=false)");
+        }
+        return reconciliationJob;
+    }
+
+    private void validateAdmin(UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
+    }
+}
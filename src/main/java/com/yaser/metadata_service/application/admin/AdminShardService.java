@@ -0,0 +1,75 @@
+package com.yaser.metadata_service.application.admin;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.audit.AuditAction;
+import com.yaser.metadata_service.audit.AuditLog;
+import com.yaser.metadata_service.dto.OwnerShardDTO;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.shard.ShardRebalancer;
+import com.yaser.metadata_service.shard.ShardRouter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Размещение владельцев по шардам и перенос владельца (ребалансировка по одному владельцу)
+ */
+@Service
+public class AdminShardService {
+
+    private final UserAccessService userAccessService;
+    private final ShardRouter shardRouter;
+    private final ShardRebalancer shardRebalancer;
+    private final AuditLog auditLog;
+
+    @Autowired
+    public AdminShardService(
+            UserAccessService userAccessService,
+            ShardRouter shardRouter,
+            ObjectProvider<ShardRebalancer> shardRebalancer,
+            AuditLog auditLog) {
+        this.userAccessService = userAccessService;
+        this.shardRouter = shardRouter;
+        this.shardRebalancer = shardRebalancer.getIfAvailable();
+        this.auditLog = auditLog;
+    }
+
+    public OwnerShardDTO getOwnerShard(UUID ownerId, UUID currentUserId) {
+        validateAdmin(currentUserId);
+        return OwnerShardDTO.builder()
+                .ownerId(ownerId)
+                .shard(shardRouter.shardOf(ownerId))
+                .homeShard(shardRouter.homeShardOf(ownerId))
+                .shardCount(shardRouter.shardCount())
+                .build();
+    }
+
+    /**
+     * Перенос всех данных владельца на целевой шард; повторный вызов после сбоя доводит перенос до конца
+     */
+    public OwnerShardDTO moveOwner(UUID ownerId, int targetShard, UUID currentUserId) {
+        validateAdmin(currentUserId);
+        if (shardRebalancer == null) {
+            throw new IllegalStateException("Sharding is disabled (metadata.sharding.enabled=false)");
+        }
+
+        ShardRebalancer.OwnerMove move = shardRebalancer.moveOwner(ownerId, targetShard);
+        auditLog.record(AuditAction.MOVE_OWNER_SHARD, currentUserId, null, ownerId,
+                move.fromShard() + "->" + move.toShard());
+
+        return OwnerShardDTO.builder()
+                .ownerId(ownerId)
+                .shard(move.toShard())
+                .homeShard(shardRouter.homeShardOf(ownerId))
+                .shardCount(shardRouter.shardCount())
+                .movedFiles(move.movedFiles())
+                .build();
+    }
+
+    private void validateAdmin(UUID currentUserId) {
+        User currentUser = userAccessService.getUserOrThrow(currentUserId);
+        userAccessService.validateIsAdmin(currentUser);
+    }
+}
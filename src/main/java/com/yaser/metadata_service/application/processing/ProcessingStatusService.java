@@ -0,0 +1,92 @@
+package com.yaser.metadata_service.application.processing;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.dto.FileProcessingResultDTO;
+import com.yaser.metadata_service.dto.UpdateFileStatusRequestDTO;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.mapper.FileProcessingResultMapper;
+import com.yaser.metadata_service.repository.FileProcessingResultRepository;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.service.StatusWriteBehindBuffer;
+import com.yaser.metadata_service.shard.ShardRouter;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Прием отчетов о статусе от процессинга.
+ * При включенном write-behind отчет только буферизуется, иначе - обычная транзакция updateFileStatus.
+ * Вызывающий - пользователь с ролью ROLE_PROCESSING или ROLE_ADMIN.
+ */
+@Service
+@Validated
+public class ProcessingStatusService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessingStatusService.class);
+
+    private final FileMetadataService fileMetadataService;
+    private final UserAccessService userAccessService;
+    private final StatusWriteBehindBuffer writeBehindBuffer;
+    private final ShardRouter shardRouter;
+    private final FileProcessingResultRepository processingResultRepository;
+    private final FileProcessingResultMapper processingResultMapper;
+
+    @Autowired
+    public ProcessingStatusService(
+            FileMetadataService fileMetadataService,
+            UserAccessService userAccessService,
+            ObjectProvider<StatusWriteBehindBuffer> writeBehindBuffer,
+            ShardRouter shardRouter,
+            FileProcessingResultRepository processingResultRepository,
+            FileProcessingResultMapper processingResultMapper) {
+        this.fileMetadataService = fileMetadataService;
+        this.userAccessService = userAccessService;
+        this.writeBehindBuffer = writeBehindBuffer.getIfAvailable();
+        this.shardRouter = shardRouter;
+        this.processingResultRepository = processingResultRepository;
+        this.processingResultMapper = processingResultMapper;
+    }
+
+    public void reportStatus(UUID fileId, @Valid UpdateFileStatusRequestDTO request, UUID currentUserId) {
+        userAccessService.validateIsProcessing(currentUserId);
+
+        Status newStatus;
+        try {
+            newStatus = Status.valueOf(request.getStatus().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid status value: " + request.getStatus());
+        }
+
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.submit(fileId, newStatus);
+            return;
+        }
+
+        shardRouter.onFileShard(fileId, () -> fileMetadataService.updateFileStatus(fileId, newStatus));
+        log.debug("ProcessingService: File {} status updated to {}", fileId, newStatus);
+    }
+
+    /**
+     * Результаты обработчиков содержимого (пусто, пока файл не обработан)
+     */
+    public List<FileProcessingResultDTO> getResults(UUID fileId, UUID currentUserId) {
+        userAccessService.validateIsProcessing(currentUserId);
+
+        return shardRouter.onFileShard(fileId, () -> {
+            if (!fileMetadataService.existsById(fileId)) {
+                throw new EntityNotFoundException("File not found with id: " + fileId);
+            }
+            return processingResultRepository.findByFileIdOrderByIdAsc(fileId).stream()
+                    .map(processingResultMapper::toDTO)
+                    .toList();
+        });
+    }
+}
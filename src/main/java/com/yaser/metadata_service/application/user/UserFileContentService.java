@@ -0,0 +1,273 @@
+package com.yaser.metadata_service.application.user;
+
+import com.yaser.metadata_service.content.CompressionPolicy;
+import com.yaser.metadata_service.content.ContentCodec;
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.download.DownloadToken;
+import com.yaser.metadata_service.download.DownloadTokenRevocations;
+import com.yaser.metadata_service.download.DownloadTokenSigner;
+import com.yaser.metadata_service.dto.DownloadTokenDTO;
+import com.yaser.metadata_service.dto.FileMetadataResponseDTO;
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.tiering.FileAccessTracker;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Содержимое файлов пользователя. Методы не транзакционные: поток байт не держит соединение с БД,
+ * запросы к метаданным выполняются отдельными короткими транзакциями.
+ */
+@Service
+public class UserFileContentService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserFileContentService.class);
+
+    private final FileMetadataService fileMetadataService;
+    private final UserFileMetadataService userFileMetadataService;
+    private final ContentStore contentStore;
+    private final CompressionPolicy compressionPolicy;
+    private final FileAccessTracker fileAccessTracker;
+    private final DownloadTokenSigner downloadTokenSigner;
+    private final DownloadTokenRevocations downloadTokenRevocations;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public UserFileContentService(
+            FileMetadataService fileMetadataService,
+            UserFileMetadataService userFileMetadataService,
+            ContentStore contentStore,
+            CompressionPolicy compressionPolicy,
+            ObjectProvider<FileAccessTracker> fileAccessTracker,
+            ObjectProvider<DownloadTokenSigner> downloadTokenSigner,
+            ObjectProvider<DownloadTokenRevocations> downloadTokenRevocations,
+            PlatformTransactionManager transactionManager) {
+        this.fileMetadataService = fileMetadataService;
+        this.userFileMetadataService = userFileMetadataService;
+        this.contentStore = contentStore;
+        this.compressionPolicy = compressionPolicy;
+        this.fileAccessTracker = fileAccessTracker.getIfAvailable();
+        this.downloadTokenSigner = downloadTokenSigner.getIfAvailable();
+        this.downloadTokenRevocations = downloadTokenRevocations.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Загрузка содержимого: потоковое сжатие кодеком по content_type, объем должен совпасть с заявленным size.
+     * Повторная загрузка заменяет содержимое, пока файл в статусе UPLOADED.
+     * Байты пишутся во временный объект и публикуются по storage_key только после условного UPDATE, пока строка
+     * файла заблокирована им: параллельная загрузка или переход в PROCESSING ждут коммита, поэтому объект
+     * по ключу всегда соответствует stored_size и content_encoding строки. При отказе временный объект удаляется.
+     */
+    public FileMetadataResponseDTO uploadContent(UUID fileId, InputStream content, UUID currentUserId) throws IOException {
+        FileMetadata file = fileMetadataService.getFileById(fileId);
+        if (!file.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException("You can only upload content of your own files");
+        }
+        if (file.getStatus() != Status.UPLOADED) {
+            throw new IllegalStateException("Content can only be uploaded while the file is UPLOADED, current status: "
+                    + file.getStatus());
+        }
+
+        ContentCodec codec = compressionPolicy.codecFor(file.getContentType(), file.getSize());
+        ContentStore.StagedObject staged = contentStore.stage(
+                file.getStorageKey(), content, codec, compressionPolicy.level(), file.getSize());
+        ContentStore.StoredObject stored = staged.stored();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                fileMetadataService.recordStoredContent(fileId, currentUserId, stored.storedSize(), codec.encoding());
+                try {
+                    contentStore.promote(staged);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            contentStore.discard(staged);
+        }
+
+        log.info("UserService: Content of file {} stored with {}: {} -> {} bytes",
+                fileId, codec.encoding(), stored.originalSize(), stored.storedSize());
+        return userFileMetadataService.getFileById(fileId, currentUserId);
+    }
+
+    /**
+     * Поток содержимого для отдачи: хранимые байты как есть, если клиент принимает кодировку хранения,
+     * иначе распаковка на лету. Если объект перенесен между hot и cold после чтения метаданных,
+     * открытие повторяется по новому storage_key.
+     */
+    public FileContent openContent(UUID fileId, UUID currentUserId, String acceptEncoding) throws IOException {
+        FileMetadata file = fileMetadataService.getFileById(fileId);
+        if (!file.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException("You can only access your own files");
+        }
+        if (file.getStoredSize() == null) {
+            throw new EntityNotFoundException("Content is not uploaded for file: " + fileId);
+        }
+
+        FileContent content;
+        try {
+            content = open(file, acceptEncoding);
+        } catch (NoSuchFileException e) {
+            String storageKey = file.getStorageKey();
+            file = fileMetadataService.getFileById(fileId);
+            if (storageKey.equals(file.getStorageKey())) {
+                throw e;
+            }
+            content = open(file, acceptEncoding);
+        }
+        if (fileAccessTracker != null) {
+            fileAccessTracker.recordAccess(fileId, currentUserId);
+        }
+        return content;
+    }
+
+    /**
+     * Токен скачивания после обычной проверки владения: последующие запросы (в том числе запросы диапазонов)
+     * по токену не обращаются к БД
+     */
+    public DownloadTokenDTO issueDownloadToken(UUID fileId, UUID currentUserId) {
+        DownloadTokenSigner signer = requireDownloadTokens();
+        FileMetadata file = fileMetadataService.getFileById(fileId);
+        if (!file.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException("You can only access your own files");
+        }
+        if (file.getStoredSize() == null) {
+            throw new EntityNotFoundException("Content is not uploaded for file: " + fileId);
+        }
+
+        Instant expiresAt = Instant.now().plus(signer.ttl());
+        String token = signer.issue(new DownloadToken(fileId, currentUserId, file.getVersion(), file.getStorageKey(),
+                file.getContentType(), file.getContentEncoding(), file.getSize(), file.getStoredSize(), expiresAt));
+        return DownloadTokenDTO.builder()
+                .fileId(fileId)
+                .version(file.getVersion())
+                .token(token)
+                .url("/api/downloads/" + token)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * Отзыв всех выданных токенов файла: версия файла увеличивается
+     */
+    public void revokeDownloadTokens(UUID fileId, UUID currentUserId) {
+        requireDownloadTokens();
+        long version = fileMetadataService.incrementFileVersionOfOwner(fileId, currentUserId);
+        downloadTokenRevocations.revoke(fileId, version);
+        log.info("UserService: Download tokens of file {} revoked below version {}", fileId, version);
+    }
+
+    /**
+     * Содержимое по токену без обращения к БД. Несжатое содержимое (и хранимые байты, если клиент принимает
+     * кодировку хранения) отдается файлом - с поддержкой запросов диапазонов; иначе - распакованным потоком.
+     */
+    public SignedContent openSignedContent(String token, String acceptEncoding) throws IOException {
+        DownloadTokenSigner signer = requireDownloadTokens();
+        DownloadToken download = signer.verify(token);
+        if (downloadTokenRevocations.isRevoked(download.fileId(), download.version())) {
+            throw new AccessDeniedException("Download token has been revoked");
+        }
+
+        ContentCodec codec = ContentCodec.fromEncoding(download.contentEncoding());
+        SignedContent content;
+        if (codec == ContentCodec.NONE || accepts(acceptEncoding, codec.encoding())) {
+            Path path = contentStore.resolve(download.storageKey());
+            if (!Files.isRegularFile(path)) {
+                // Объект перенесен или удален после выдачи токена
+                throw new EntityNotFoundException("Content is no longer available, request a new download token");
+            }
+            content = new SignedContent(download, path, null, download.storedSize(),
+                    codec == ContentCodec.NONE ? null : codec.encoding());
+        } else {
+            content = new SignedContent(download, null, contentStore.open(download.storageKey(), codec),
+                    download.size(), null);
+        }
+        if (fileAccessTracker != null) {
+            fileAccessTracker.recordAccess(download.fileId(), download.ownerId());
+        }
+        return content;
+    }
+
+    private DownloadTokenSigner requireDownloadTokens() {
+        if (downloadTokenSigner == null) {
+            throw new IllegalStateException("Signed downloads are disabled (metadata.download-tokens.enabled)");
+        }
+        return downloadTokenSigner;
+    }
+
+    private FileContent open(FileMetadata file, String acceptEncoding) throws IOException {
+        ContentCodec codec = ContentCodec.fromEncoding(file.getContentEncoding());
+        if (codec != ContentCodec.NONE && accepts(acceptEncoding, codec.encoding())) {
+            return new FileContent(contentStore.openStored(file.getStorageKey()), file.getContentType(),
+                    file.getStoredSize(), codec.encoding());
+        }
+        return new FileContent(contentStore.open(file.getStorageKey(), codec), file.getContentType(),
+                file.getSize(), null);
+    }
+
+    /**
+     * Разбор Accept-Encoding: кодировка принимается, если указана (или "*") без q=0
+     */
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim();
+            boolean allowed = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase(encoding)) {
+                return allowed;
+            }
+            if (coding.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * contentEncoding - null, если поток уже распакован
+     */
+    public record FileContent(InputStream stream, String contentType, long contentLength, String contentEncoding) {
+    }
+
+    /**
+     * Содержимое по токену: path - файл хранимых байт (отдается с поддержкой диапазонов), иначе stream -
+     * распакованный поток. contentEncoding - null, если отдаются исходные байты.
+     */
+    public record SignedContent(DownloadToken token, Path path, InputStream stream, long contentLength,
+                                String contentEncoding) {
+    }
+}
@@ -0,0 +1,210 @@
+package com.yaser.metadata_service.application.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.content.CompressionPolicy;
+import com.yaser.metadata_service.content.ContentCodec;
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.dto.FileExportManifestEntryDTO;
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.shard.ShardRouter;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Экспорт файлов владельца одним ZIP: первая запись - manifest.ndjson (строка на файл), затем содержимое
+ * файлов в записях files/{id}/{имя}, в порядке id. Архив пишется прямо в ответ без временных файлов:
+ * строки читаются страницами по page-size короткими транзакциями на шарде владельца, содержимое - потоком
+ * из хранилища с распаковкой на лету.
+ * <p>
+ * Память не зависит от объема файлов. Оглавление ZIP растет с числом записей, поэтому одна часть архива -
+ * не больше max-entries файлов: следующая часть (и продолжение прерванной загрузки с последней полностью
+ * полученной записи) запрашивается с after = id файла. В часть попадают живые файлы, созданные до ее начала;
+ * файл, удаленный во время экспорта, остается в манифесте без записи.
+ */
+@Service
+public class UserFileExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserFileExportService.class);
+
+    public static final String MANIFEST_ENTRY = "manifest.ndjson";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private final FileMetadataService fileMetadataService;
+    private final FileMetadataMapper fileMetadataMapper;
+    private final UserAccessService userAccessService;
+    private final ContentStore contentStore;
+    private final CompressionPolicy compressionPolicy;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final int pageSize;
+
+    @Autowired
+    public UserFileExportService(
+            FileMetadataService fileMetadataService,
+            FileMetadataMapper fileMetadataMapper,
+            UserAccessService userAccessService,
+            ContentStore contentStore,
+            CompressionPolicy compressionPolicy,
+            ShardRouter shardRouter,
+            ObjectMapper objectMapper,
+            @Value("${metadata.export.max-entries:10000}") int maxEntries,
+            @Value("${metadata.export.page-size:500}") int pageSize) {
+        this.fileMetadataService = fileMetadataService;
+        this.fileMetadataMapper = fileMetadataMapper;
+        this.userAccessService = userAccessService;
+        this.contentStore = contentStore;
+        this.compressionPolicy = compressionPolicy;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Границы части экспорта после файла after (null - с начала). Выполняется до начала ответа,
+     * чтобы id для следующей части попал в заголовки
+     */
+    public FileExport prepareExport(UUID after, UUID currentUserId) {
+        userAccessService.getUserOrThrow(currentUserId);
+
+        OffsetDateTime asOf = OffsetDateTime.now();
+        UUID afterId = after != null ? after : FIRST_ID;
+        List<UUID> bound = shardRouter.onOwnerShard(currentUserId,
+                () -> fileMetadataService.getExportBound(currentUserId, asOf, afterId, maxEntries - 1));
+        // Меньше max-entries файлов - часть последняя и идет до конца
+        UUID untilId = bound.isEmpty() ? new UUID(-1L, -1L) : bound.get(0);
+        UUID nextAfter = bound.size() > 1 ? untilId : null;
+
+        log.info("UserService: Exporting files of user {} after {}, more parts: {}",
+                currentUserId, after, nextAfter != null);
+        return new FileExport(currentUserId, asOf, afterId, untilId, nextAfter);
+    }
+
+    /**
+     * Запись части архива в поток ответа. Вызывается вне транзакции: соединение с БД берется
+     * только на время чтения страницы
+     */
+    public void writeExport(FileExport export, OutputStream output) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+
+        // Проход 1: манифест
+        zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+        for (UUID afterId = export.afterId(); ; ) {
+            List<FileMetadataRowView> rows = page(export, afterId);
+            for (FileMetadataRowView row : rows) {
+                FileExportManifestEntryDTO entry = FileExportManifestEntryDTO.builder()
+                        .entry(row.getStoredSize() != null ? entryName(row.getId(), row.getFileName()) : null)
+                        .file(fileMetadataMapper.toResponseDTO(row))
+                        .build();
+                zip.write(objectMapper.writeValueAsBytes(entry));
+                zip.write('\n');
+            }
+            if (rows.size() < pageSize) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+        zip.closeEntry();
+
+        // Проход 2: содержимое
+        int written = 0;
+        for (UUID afterId = export.afterId(); ; ) {
+            List<FileMetadataRowView> rows = page(export, afterId);
+            for (FileMetadataRowView row : rows) {
+                if (row.getStoredSize() != null && writeContent(zip, export.ownerId(), row)) {
+                    written++;
+                }
+            }
+            if (rows.size() < pageSize) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+
+        zip.finish();
+        zip.flush();
+        log.info("UserService: Export of user {} written - {} files with content", export.ownerId(), written);
+    }
+
+    private List<FileMetadataRowView> page(FileExport export, UUID afterId) {
+        return shardRouter.onOwnerShard(export.ownerId(), () -> fileMetadataService.getExportPage(
+                export.ownerId(), export.asOf(), afterId, export.untilId(), pageSize));
+    }
+
+    /**
+     * Запись содержимого файла; false - файл удален или его содержимое пропало после чтения страницы.
+     * Если объект перенесен между hot и cold, открытие повторяется по новому storage_key
+     */
+    private boolean writeContent(ZipOutputStream zip, UUID ownerId, FileMetadataRowView row) throws IOException {
+        String storageKey = row.getStorageKey();
+        ContentCodec codec = ContentCodec.fromEncoding(row.getContentEncoding());
+        InputStream content;
+        try {
+            content = contentStore.open(storageKey, codec);
+        } catch (NoSuchFileException e) {
+            FileMetadata file;
+            try {
+                file = shardRouter.onOwnerShard(ownerId, () -> fileMetadataService.getFileById(row.getId()));
+            } catch (EntityNotFoundException notFound) {
+                return false;
+            }
+            if (storageKey.equals(file.getStorageKey()) || file.getStoredSize() == null) {
+                log.warn("UserService: Content of file {} is missing, skipped in export", row.getId());
+                return false;
+            }
+            content = contentStore.open(file.getStorageKey(), ContentCodec.fromEncoding(file.getContentEncoding()));
+        }
+
+        try (InputStream stream = content) {
+            ZipEntry entry = new ZipEntry(entryName(row.getId(), row.getFileName()));
+            entry.setTime(row.getUpdatedAt().toEpochMilli());
+            // Типы, которые политика хранения не сжимает, не сжимаются и в архиве
+            zip.setLevel(compressionPolicy.codecFor(row.getContentType(), row.getSize()) == ContentCodec.NONE
+                    ? Deflater.NO_COMPRESSION
+                    : Deflater.BEST_SPEED);
+            zip.putNextEntry(entry);
+            stream.transferTo(zip);
+            zip.closeEntry();
+        }
+        return true;
+    }
+
+    // Имя файла - последний элемент пути записи: разделители и "." / ".." заменяются
+    static String entryName(UUID fileId, String fileName) {
+        String name = fileName.replace('/', '_').replace('\\', '_');
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            name = "_";
+        }
+        return "files/" + fileId + "/" + name;
+    }
+
+    /**
+     * Часть экспорта: файлы с id в (afterId, untilId], созданные до asOf. nextAfter - after следующей части,
+     * null - часть последняя
+     */
+    public record FileExport(UUID ownerId, OffsetDateTime asOf, UUID afterId, UUID untilId, UUID nextAfter) {
+    }
+}
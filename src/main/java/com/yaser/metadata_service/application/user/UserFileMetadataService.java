@@ -1,26 +1,41 @@
 package com.yaser.metadata_service.application.user;
 
 import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.dto.FileBatchLookupRequestDTO;
+import com.yaser.metadata_service.dto.FileIdsRequestDTO;
+import com.yaser.metadata_service.dto.FileLookupResultDTO;
 import com.yaser.metadata_service.dto.FileMetadataResponseDTO;
+import com.yaser.metadata_service.dto.FileSearchPageDTO;
+import com.yaser.metadata_service.dto.RemoveFileAttributesRequestDTO;
+import com.yaser.metadata_service.dto.SetFileAttributesRequestDTO;
 import com.yaser.metadata_service.dto.FileUploadRequestDTO;
+import com.yaser.metadata_service.dto.StorageQuotaDTO;
 import com.yaser.metadata_service.dto.UpdateFileStatusRequestDTO;
 import com.yaser.metadata_service.entity.FileMetadata;
 import com.yaser.metadata_service.entity.Status;
 import com.yaser.metadata_service.entity.User;
 import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.job.TrashPurgeJob;
 import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
 import com.yaser.metadata_service.repository.UserRepository;
+import com.yaser.metadata_service.service.FileAttributeService;
 import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.service.StorageQuotaService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -34,17 +49,32 @@ public class UserFileMetadataService {
     private final FileMetadataMapper fileMetadataMapper;
     private final UserAccessService userAccessService;
     private final UserRepository userRepository;
+    private final StorageQuotaService storageQuotaService;
+    private final FileAttributeService fileAttributeService;
+    private final TrashPurgeJob trashPurgeJob;
+    private final int batchLookupMaxIds;
+    private final int searchMaxPageSize;
 
     @Autowired
     public UserFileMetadataService(
             FileMetadataService fileMetadataService,
             FileMetadataMapper fileMetadataMapper,
             UserAccessService userAccessService,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            StorageQuotaService storageQuotaService,
+            FileAttributeService fileAttributeService,
+            TrashPurgeJob trashPurgeJob,
+            @Value("${metadata.batch-lookup.max-ids:500}") int batchLookupMaxIds,
+            @Value("${metadata.attributes.max-page-size:1000}") int searchMaxPageSize) {
         this.fileMetadataService = fileMetadataService;
         this.fileMetadataMapper = fileMetadataMapper;
         this.userAccessService = userAccessService;
         this.userRepository = userRepository;
+        this.storageQuotaService = storageQuotaService;
+        this.fileAttributeService = fileAttributeService;
+        this.trashPurgeJob = trashPurgeJob;
+        this.batchLookupMaxIds = batchLookupMaxIds;
+        this.searchMaxPageSize = searchMaxPageSize;
     }
 
     public FileMetadataResponseDTO createFile(@Valid FileUploadRequestDTO requestDTO, UUID currentUserId) {
@@ -82,6 +112,125 @@ public class UserFileMetadataService {
         return fileMetadataMapper.toResponseDTO(fileMetadata);
     }
 
+    /**
+     * Пакетное чтение файлов одним запросом. Результаты - в порядке запрошенных id (повторы сохраняются),
+     * для каждого id - файл либо признак NOT_FOUND / ACCESS_DENIED (та же проверка владения, что в getFileById).
+     */
+    @Transactional(readOnly = true)
+    public List<FileLookupResultDTO> getFilesByIds(@Valid FileBatchLookupRequestDTO request, UUID currentUserId) {
+        List<UUID> ids = request.getIds();
+        if (ids.size() > batchLookupMaxIds) {
+            throw new IllegalArgumentException("Cannot look up more than " + batchLookupMaxIds + " files at once");
+        }
+        log.info("UserService: Getting {} files by ID", ids.size());
+
+        Map<UUID, FileMetadataRowView> found = new HashMap<>();
+        for (FileMetadataRowView row : fileMetadataService.getFilesByIds(ids)) {
+            found.put(row.getId(), row);
+        }
+
+        return ids.stream()
+                .map(fileId -> lookupResult(fileId, found.get(fileId), currentUserId))
+                .toList();
+    }
+
+    private FileLookupResultDTO lookupResult(UUID fileId, FileMetadataRowView row, UUID currentUserId) {
+        FileLookupResultDTO.FileLookupResultDTOBuilder result = FileLookupResultDTO.builder().id(fileId);
+        if (row == null) {
+            return result.result(FileLookupResultDTO.Result.NOT_FOUND).build();
+        }
+        if (!row.getOwnerId().equals(currentUserId)) {
+            return result.result(FileLookupResultDTO.Result.ACCESS_DENIED).build();
+        }
+        return result.result(FileLookupResultDTO.Result.FOUND)
+                .file(fileMetadataMapper.toResponseDTO(row))
+                .build();
+    }
+
+    /**
+     * Установка меток сразу нескольким файлам; возвращает id измененных файлов (чужие и несуществующие пропускаются)
+     */
+    public List<UUID> setFileAttributes(@Valid SetFileAttributesRequestDTO request, UUID currentUserId) {
+        checkBulkSize(request.getFileIds());
+        log.info("UserService: Setting {} attributes on {} files", request.getAttributes().size(), request.getFileIds().size());
+
+        List<UUID> updated = fileAttributeService.setAttributes(currentUserId, request.getFileIds(), request.getAttributes());
+        log.info("UserService: Attributes set on {} files", updated.size());
+        return updated;
+    }
+
+    public List<UUID> removeFileAttributes(@Valid RemoveFileAttributesRequestDTO request, UUID currentUserId) {
+        checkBulkSize(request.getFileIds());
+        log.info("UserService: Removing {} attributes from {} files", request.getKeys().size(), request.getFileIds().size());
+
+        List<UUID> updated = fileAttributeService.removeAttributes(currentUserId, request.getFileIds(), request.getKeys());
+        log.info("UserService: Attributes removed from {} files", updated.size());
+        return updated;
+    }
+
+    /**
+     * Поиск файлов текущего пользователя по меткам ("ключ:значение", все должны совпасть), типу и статусу.
+     * Страницы по id: следующая запрашивается с after = nextAfter
+     */
+    @Transactional(readOnly = true)
+    public FileSearchPageDTO searchFiles(List<String> attributeFilters, String contentType, String status,
+                                         UUID after, int limit, UUID currentUserId) {
+        if (limit < 1 || limit > searchMaxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + searchMaxPageSize);
+        }
+
+        Map<String, String> filter = new HashMap<>();
+        for (String attribute : attributeFilters) {
+            int separator = attribute.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Attribute filter must be key:value: " + attribute);
+            }
+            String key = attribute.substring(0, separator);
+            if (filter.put(key, attribute.substring(separator + 1)) != null) {
+                throw new IllegalArgumentException("Duplicate attribute filter: " + key);
+            }
+        }
+        Status statusFilter = null;
+        if (status != null) {
+            try {
+                statusFilter = Status.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid status value: " + status);
+            }
+        }
+
+        FileAttributeService.FilePage page = fileAttributeService.findFiles(currentUserId, filter, contentType,
+                statusFilter, after, limit);
+        return FileSearchPageDTO.builder()
+                .files(page.files().stream().map(fileMetadataMapper::toResponseDTO).toList())
+                .nextAfter(page.nextAfterId())
+                .build();
+    }
+
+    private void checkBulkSize(List<UUID> fileIds) {
+        if (fileIds.size() > batchLookupMaxIds) {
+            throw new IllegalArgumentException("Cannot update more than " + batchLookupMaxIds + " files at once");
+        }
+    }
+
+    /**
+     * ETag файла по версии: проверка владения без загрузки сущности
+     */
+    @Transactional(readOnly = true)
+    public String getFileETag(UUID fileId, UUID currentUserId) {
+        return "v" + fileMetadataService.getFileVersionOfOwner(fileId, currentUserId);
+    }
+
+    /**
+     * ETag списка файлов по поколению владельца (увеличивается при любом изменении его файлов)
+     */
+    @Transactional(readOnly = true)
+    public String getMyFilesETag(UUID currentUserId) {
+        long generation = userRepository.findFilesGenerationById(currentUserId)
+                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + currentUserId));
+        return "g" + generation;
+    }
+
     @Transactional(readOnly = true)
     public List<FileMetadataResponseDTO> getMyFiles(UUID currentUserId) {
         log.info("UserService: Getting files for current user: {}", currentUserId);
@@ -94,28 +243,89 @@ public class UserFileMetadataService {
                 .toList();
     }
 
+    /**
+     * Удаление - перенос в корзину (восстанавливается через restoreFiles до окончательной очистки)
+     */
     public void deleteFile(UUID fileId, UUID currentUserId) {
         log.info("UserService: Deleting file: {}", fileId);
 
-        FileMetadata fileMetadata = fileMetadataService.getFileById(fileId);
+        // Проверка владения выполняется в самом UPDATE
+        fileMetadataService.deleteFileOfOwner(fileId, currentUserId);
+        log.info("UserService: File moved to trash");
+    }
 
-        if (!fileMetadata.getOwner().getId().equals(currentUserId)) {
-            throw new AccessDeniedException("You can only delete your own files");
-        }
+    /**
+     * Массовое удаление в корзину одним запросом; возвращает id перенесенных файлов
+     */
+    public List<UUID> trashFiles(@Valid FileIdsRequestDTO request, UUID currentUserId) {
+        checkBulkSize(request.getFileIds());
+        log.info("UserService: Moving {} files to trash", request.getFileIds().size());
 
-        fileMetadataService.deleteFile(fileId);
-        log.info("UserService: File deleted successfully");
+        List<UUID> trashed = fileMetadataService.trashFilesOfOwner(currentUserId, request.getFileIds());
+        log.info("UserService: {} files moved to trash", trashed.size());
+        return trashed;
     }
 
-    public FileMetadataResponseDTO updateFileStatus(UUID fileId, @Valid UpdateFileStatusRequestDTO request, UUID currentUserId) {
-        log.info("UserService: Updating file {} status to {}", fileId, request.getStatus());
+    public List<FileMetadataResponseDTO> restoreFiles(@Valid FileIdsRequestDTO request, UUID currentUserId) {
+        checkBulkSize(request.getFileIds());
+        log.info("UserService: Restoring {} files from trash", request.getFileIds().size());
 
-        FileMetadata fileMetadata = fileMetadataService.getFileById(fileId);
+        List<FileMetadata> restored = fileMetadataService.restoreFilesOfOwner(currentUserId, request.getFileIds());
+        log.info("UserService: {} files restored", restored.size());
+        return restored.stream()
+                .map(fileMetadataMapper::toResponseDTO)
+                .toList();
+    }
 
-        if (!fileMetadata.getOwner().getId().equals(currentUserId)) {
-            throw new AccessDeniedException("You can only update your own files");
+    /**
+     * Окончательное удаление выбранных файлов из корзины: строки, содержимое и занятая ими квота.
+     * Без общей транзакции: содержимое удаляется после коммита DELETE (TrashPurgeJob)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<UUID> purgeFiles(@Valid FileIdsRequestDTO request, UUID currentUserId) {
+        checkBulkSize(request.getFileIds());
+        log.info("UserService: Purging {} files from trash", request.getFileIds().size());
+
+        List<UUID> purged = trashPurgeJob.purgeOwnerFiles(currentUserId, request.getFileIds());
+        log.info("UserService: {} files purged", purged.size());
+        return purged;
+    }
+
+    /**
+     * Очистка всей корзины текущего пользователя; возвращает число удаленных файлов
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long emptyTrash(UUID currentUserId) {
+        long purged = trashPurgeJob.emptyOwnerTrash(currentUserId);
+        log.info("UserService: Trash emptied - {} files purged", purged);
+        return purged;
+    }
+
+    /**
+     * Корзина текущего пользователя постранично по id: следующая страница - с after = nextAfter
+     */
+    @Transactional(readOnly = true)
+    public FileSearchPageDTO getTrash(UUID after, int limit, UUID currentUserId) {
+        if (limit < 1 || limit > searchMaxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + searchMaxPageSize);
         }
 
+        List<FileMetadataRowView> rows = fileMetadataService.getTrashPage(currentUserId,
+                after != null ? after : new UUID(0L, 0L), limit + 1);
+        UUID nextAfter = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextAfter = rows.get(limit - 1).getId();
+        }
+        return FileSearchPageDTO.builder()
+                .files(rows.stream().map(fileMetadataMapper::toResponseDTO).toList())
+                .nextAfter(nextAfter)
+                .build();
+    }
+
+    public FileMetadataResponseDTO updateFileStatus(UUID fileId, @Valid UpdateFileStatusRequestDTO request, UUID currentUserId) {
+        log.info("UserService: Updating file {} status to {}", fileId, request.getStatus());
+
         Status newStatus;
         try {
             newStatus = Status.valueOf(request.getStatus().toUpperCase());
@@ -123,12 +333,28 @@ public class UserFileMetadataService {
             throw new IllegalArgumentException("Invalid status value: " + request.getStatus());
         }
 
-        FileMetadata updatedFile = fileMetadataService.updateFileStatus(fileId, newStatus);
+        // Проверка владения и исходного статуса выполняется в самом UPDATE
+        FileMetadata updatedFile = fileMetadataService.updateFileStatusOfOwner(fileId, currentUserId, newStatus);
         log.info("UserService: File status updated");
 
         return fileMetadataMapper.toResponseDTO(updatedFile);
     }
 
+    /**
+     * Квота и занятый объем текущего пользователя
+     */
+    @Transactional(readOnly = true)
+    public StorageQuotaDTO getMyQuota(UUID currentUserId) {
+        long limit = storageQuotaService.getLimitBytes(currentUserId);
+        long used = storageQuotaService.getUsedBytes(currentUserId);
+
+        return StorageQuotaDTO.builder()
+                .limitBytes(limit)
+                .usedBytes(used)
+                .remainingBytes(Math.max(limit - used, 0))
+                .build();
+    }
+
     /**
      * Получение статистики файлов пользователя
      */
@@ -0,0 +1,119 @@
+package com.yaser.metadata_service.application.user;
+
+import com.yaser.metadata_service.dto.CreateFolderRequestDTO;
+import com.yaser.metadata_service.dto.FolderDTO;
+import com.yaser.metadata_service.dto.FolderListingDTO;
+import com.yaser.metadata_service.dto.FolderSummaryDTO;
+import com.yaser.metadata_service.dto.MoveFilesRequestDTO;
+import com.yaser.metadata_service.dto.MoveFolderRequestDTO;
+import com.yaser.metadata_service.entity.Folder;
+import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import com.yaser.metadata_service.mapper.FolderMapper;
+import com.yaser.metadata_service.service.FolderService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Validated
+@Transactional
+public class UserFolderService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserFolderService.class);
+
+    private final FolderService folderService;
+    private final FolderMapper folderMapper;
+    private final FileMetadataMapper fileMetadataMapper;
+    private final int maxPageSize;
+
+    @Autowired
+    public UserFolderService(
+            FolderService folderService,
+            FolderMapper folderMapper,
+            FileMetadataMapper fileMetadataMapper,
+            @Value("${metadata.folders.max-page-size:1000}") int maxPageSize) {
+        this.folderService = folderService;
+        this.folderMapper = folderMapper;
+        this.fileMetadataMapper = fileMetadataMapper;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public FolderDTO createFolder(@Valid CreateFolderRequestDTO request, UUID currentUserId) {
+        log.info("UserService: Creating folder '{}' for user: {}", request.getName(), currentUserId);
+
+        Folder folder = folderService.createFolder(currentUserId, request.getParentId(), request.getName());
+        log.info("UserService: Folder created successfully - ID: {}", folder.getId());
+
+        return folderMapper.toDTO(folder);
+    }
+
+    @Transactional(readOnly = true)
+    public FolderDTO getFolder(UUID folderId, UUID currentUserId) {
+        return folderMapper.toDTO(folderService.getFolder(folderId, currentUserId));
+    }
+
+    /**
+     * Страница содержимого папки (folderId == null - корень); следующая страница - по nextCursor
+     */
+    @Transactional(readOnly = true)
+    public FolderListingDTO listChildren(UUID folderId, String cursor, int limit, UUID currentUserId) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        FolderService.FolderChildren children = folderService.listChildren(currentUserId, folderId, cursor, limit);
+        return FolderListingDTO.builder()
+                .folders(folderMapper.toDTOList(children.folders()))
+                .files(children.files().stream().map(fileMetadataMapper::toResponseDTO).toList())
+                .nextCursor(children.nextCursor())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public FolderSummaryDTO getFolderSummary(UUID folderId, UUID currentUserId) {
+        FolderService.FolderUsage usage = folderService.getSubtreeUsage(folderId, currentUserId);
+        return FolderSummaryDTO.builder()
+                .folderId(folderId)
+                .folders(usage.folders())
+                .files(usage.files())
+                .size(usage.size())
+                .storedSize(usage.storedSize())
+                .build();
+    }
+
+    public FolderDTO moveFolder(UUID folderId, @Valid MoveFolderRequestDTO request, UUID currentUserId) {
+        log.info("UserService: Moving folder {} to parent {}", folderId, request.getParentId());
+
+        Folder folder = folderService.moveFolder(folderId, currentUserId, request.getParentId(), request.getName());
+        return folderMapper.toDTO(folder);
+    }
+
+    /**
+     * Удаление папки вместе со всеми вложенными папками; файлы уходят в корзину. Возвращает их число
+     */
+    public long deleteFolder(UUID folderId, UUID currentUserId) {
+        log.info("UserService: Deleting folder: {}", folderId);
+
+        long deletedFiles = folderService.deleteFolder(folderId, currentUserId);
+        log.info("UserService: Folder deleted, {} files moved to trash", deletedFiles);
+        return deletedFiles;
+    }
+
+    /**
+     * Перенос файлов текущего пользователя; чужие и несуществующие id пропускаются.
+     * Возвращает id перенесенных файлов
+     */
+    public List<UUID> moveFiles(@Valid MoveFilesRequestDTO request, UUID currentUserId) {
+        log.info("UserService: Moving {} files to folder {}", request.getFileIds().size(), request.getFolderId());
+
+        return folderService.moveFiles(currentUserId, request.getFileIds(), request.getFolderId());
+    }
+}
@@ -0,0 +1,15 @@
+package com.yaser.metadata_service.audit;
+
+public enum AuditAction {
+    LIST_OWNER_FILES,
+    LIST_FILES_BY_STATUS,
+    VIEW_STATISTICS,
+    UPDATE_FILE_STATUS,
+    UPDATE_STORAGE_KEY,
+    DELETE_FILE,
+    REQUEST_OWNER_PURGE,
+    SET_USER_QUOTA,
+    SET_ROLE_QUOTA,
+    MOVE_OWNER_SHARD,
+    RUN_RECONCILIATION
+}
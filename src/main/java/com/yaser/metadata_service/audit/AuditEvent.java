@@ -0,0 +1,16 @@
+package com.yaser.metadata_service.audit;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Событие аудита фиксированной формы; fileId, targetUserId и detail необязательны
+ */
+public record AuditEvent(
+        Instant occurredAt,
+        UUID actorId,
+        AuditAction action,
+        UUID fileId,
+        UUID targetUserId,
+        String detail) {
+}
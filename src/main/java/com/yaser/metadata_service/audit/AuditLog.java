@@ -0,0 +1,159 @@
+package com.yaser.metadata_service.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный журнал аудита. Вызывающий поток только кладет событие в кольцевой буфер;
+ * фоновый поток пакетами пишет события в audit_log.
+ * <p>
+ * При заполнении буфера (БД недоступна или не успевает) действует metadata.audit.overflow:
+ * block - писатель ждет места до block-timeout-ms, drop - событие сразу отбрасывается.
+ * Отброшенные события учитываются метрикой metadata.audit.dropped. Пакет, который не удалось записать,
+ * повторяется, пока буфер копится. При штатной остановке буфер дописывается, при аварийной - теряется.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final String INSERT = "INSERT INTO audit_log " +
+            "(occurred_at, actor_id, action, file_id, target_user_id, detail) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int MAX_DETAIL_LENGTH = 500;
+    private static final long RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean blockOnOverflow;
+    private final long blockTimeoutNanos;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Timer batchDuration;
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    @Autowired
+    public AuditLog(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.audit.capacity:65536}") int capacity,
+            @Value("${metadata.audit.batch-size:500}") int batchSize,
+            @Value("${metadata.audit.flush-interval-ms:100}") long flushIntervalMillis,
+            @Value("${metadata.audit.overflow:block}") String overflow,
+            @Value("${metadata.audit.block-timeout-ms:1000}") long blockTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new AuditRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.blockOnOverflow = switch (overflow.toLowerCase()) {
+            case "block" -> true;
+            case "drop" -> false;
+            default -> throw new IllegalArgumentException("metadata.audit.overflow must be 'block' or 'drop': " + overflow);
+        };
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+
+        Gauge.builder("metadata.audit.pending", buffer, AuditRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        this.written = Counter.builder("metadata.audit.written").register(meterRegistry);
+        this.dropped = Counter.builder("metadata.audit.dropped").register(meterRegistry);
+        this.batchDuration = Timer.builder("metadata.audit.batch.duration").register(meterRegistry);
+    }
+
+    /**
+     * Регистрация действия администратора: одна постановка в буфер
+     */
+    public void record(AuditAction action, UUID actorId, UUID fileId, UUID targetUserId, String detail) {
+        AuditEvent event = new AuditEvent(Instant.now(), actorId, action, fileId, targetUserId, detail);
+        if (buffer.offer(event)) {
+            return;
+        }
+        if (blockOnOverflow) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                if (buffer.offer(event)) {
+                    return;
+                }
+            }
+        }
+        dropped.increment();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriter() {
+        writer = Thread.ofPlatform().name("audit-log-writer").daemon().start(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void writeLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0 || !batch.isEmpty()) {
+            if (batch.isEmpty() && buffer.drainTo(batch, batchSize) == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            try {
+                batchDuration.record(() -> insert(batch));
+                written.increment(batch.size());
+                batch.clear();
+            } catch (RuntimeException e) {
+                log.warn("AuditLog: Failed to write {} audit events, retrying", batch.size(), e);
+                if (!running) {
+                    dropped.increment(batch.size() + buffer.size());
+                    break;
+                }
+                LockSupport.parkNanos(RETRY_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    private void insert(List<AuditEvent> batch) {
+        jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (statement, event) -> {
+            statement.setTimestamp(1, Timestamp.from(event.occurredAt()));
+            statement.setObject(2, event.actorId());
+            statement.setString(3, event.action().name());
+            statement.setObject(4, event.fileId(), Types.OTHER);
+            statement.setObject(5, event.targetUserId(), Types.OTHER);
+            String detail = event.detail();
+            statement.setString(6, detail != null && detail.length() > MAX_DETAIL_LENGTH
+                    ? detail.substring(0, MAX_DETAIL_LENGTH)
+                    : detail);
+        });
+    }
+}
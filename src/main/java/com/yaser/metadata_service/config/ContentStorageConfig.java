@@ -0,0 +1,20 @@
+package com.yaser.metadata_service.config;
+
+import com.yaser.metadata_service.content.CompressionPolicy;
+import com.yaser.metadata_service.content.StorageProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Политика сжатия содержимого из metadata.storage.compression; без настройки содержимое хранится как есть
+ */
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class ContentStorageConfig {
+
+    @Bean
+    public CompressionPolicy compressionPolicy(StorageProperties properties) {
+        return new CompressionPolicy(properties.compression());
+    }
+}
@@ -0,0 +1,22 @@
+package com.yaser.metadata_service.config;
+
+import com.yaser.metadata_service.download.DownloadTokenProperties;
+import com.yaser.metadata_service.download.DownloadTokenSigner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Подписанные токены скачивания (metadata.download-tokens.enabled); ключи проверяются при старте
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "metadata.download-tokens", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DownloadTokenProperties.class)
+public class DownloadTokenConfig {
+
+    @Bean
+    public DownloadTokenSigner downloadTokenSigner(DownloadTokenProperties properties) {
+        return new DownloadTokenSigner(properties);
+    }
+}
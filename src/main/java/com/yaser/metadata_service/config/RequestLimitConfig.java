@@ -0,0 +1,30 @@
+package com.yaser.metadata_service.config;
+
+import com.yaser.metadata_service.limit.RequestLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Лимиты запросов действуют на API; actuator (health, metrics) не ограничивается.
+ * Скачивания по подписанному токену не обращаются к БД и долго держат соединение - под лимит не попадают.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "metadata.limits", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestLimitConfig implements WebMvcConfigurer {
+
+    private final RequestLimitInterceptor requestLimitInterceptor;
+
+    @Autowired
+    public RequestLimitConfig(RequestLimitInterceptor requestLimitInterceptor) {
+        this.requestLimitInterceptor = requestLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestLimitInterceptor).addPathPatterns("/api/**")
+                .excludePathPatterns("/api/downloads/**");
+    }
+}
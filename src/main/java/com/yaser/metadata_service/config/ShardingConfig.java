@@ -0,0 +1,92 @@
+package com.yaser.metadata_service.config;
+
+import com.yaser.metadata_service.shard.ShardMigrations;
+import com.yaser.metadata_service.shard.ShardRoutingDataSource;
+import com.yaser.metadata_service.shard.ShardRoutingInterceptor;
+import com.yaser.metadata_service.shard.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шардирование по владельцу (metadata.sharding.enabled): DataSource приложения маршрутизирует соединения по шардам,
+ * все шарды мигрируются одним changelog. In-memory индекс, write-behind статусов и аренда квоты
+ * держат состояние одной базы и с шардированием не поддерживаются.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(prefix = "metadata.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig implements WebMvcConfigurer {
+
+    private static final List<String> UNSUPPORTED_FEATURES = List.of(
+            "metadata.index.enabled",
+            "metadata.status-write-behind.enabled",
+            "metadata.quota.lease.enabled");
+
+    private final ShardingProperties properties;
+    private final ObjectProvider<ShardRoutingInterceptor> shardRoutingInterceptor;
+
+    @Autowired
+    public ShardingConfig(
+            ShardingProperties properties,
+            ObjectProvider<ShardRoutingInterceptor> shardRoutingInterceptor,
+            Environment environment) {
+        if (properties.shards() == null || properties.shards().isEmpty()) {
+            throw new IllegalStateException("metadata.sharding.shards must list at least one shard");
+        }
+        for (String feature : UNSUPPORTED_FEATURES) {
+            if (environment.getProperty(feature, Boolean.class, false)) {
+                throw new IllegalStateException(feature + " is not supported with metadata.sharding.enabled");
+            }
+        }
+        this.properties = properties;
+        this.shardRoutingInterceptor = shardRoutingInterceptor;
+    }
+
+    @Bean
+    public ShardRoutingDataSource dataSource() {
+        List<DataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < properties.shards().size(); shard++) {
+            ShardingProperties.Shard config = properties.shards().get(shard);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(config.url())
+                    .username(config.username())
+                    .password(config.password())
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(properties.maxPoolSize());
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.liquibase", name = "enabled", matchIfMissing = true)
+    public ShardMigrations shardMigrations(
+            ShardRoutingDataSource dataSource,
+            @Value("${spring.liquibase.change-log}") String changeLog,
+            ResourceLoader resourceLoader) {
+        return new ShardMigrations(dataSource, changeLog, resourceLoader);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Маршрутизация раньше лимитов и контроллеров: транзакции запроса открываются уже на шарде пользователя
+        registry.addInterceptor(shardRoutingInterceptor.getObject()).addPathPatterns("/api/**").order(-1);
+    }
+}
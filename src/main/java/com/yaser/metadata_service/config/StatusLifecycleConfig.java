@@ -0,0 +1,22 @@
+package com.yaser.metadata_service.config;
+
+import com.yaser.metadata_service.lifecycle.StatusLifecycleProperties;
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Матрица переходов статусов из metadata.lifecycle.transitions; без настройки - правила по умолчанию
+ */
+@Configuration
+@EnableConfigurationProperties(StatusLifecycleProperties.class)
+public class StatusLifecycleConfig {
+
+    @Bean
+    public StatusTransitions statusTransitions(StatusLifecycleProperties properties) {
+        return properties.transitions() == null || properties.transitions().isEmpty()
+                ? StatusTransitions.defaults()
+                : StatusTransitions.of(properties.transitions());
+    }
+}
@@ -0,0 +1,37 @@
+package com.yaser.metadata_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Потоковые ответы (содержимое файлов, скачивания по токену, экспорт) пишутся асинхронно и блокируются на записи
+ * в сокет медленного клиента. Для них отдельный исполнитель на виртуальных потоках с пределом max-threads,
+ * чтобы они не занимали общий applicationTaskExecutor; при достижении предела новый поток ответа ждет свободного места.
+ * Таймаут асинхронной обработки задается явно: по умолчанию контейнер обрывает ответ через 30 с.
+ */
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+
+    private final Duration timeout;
+    private final SimpleAsyncTaskExecutor executor;
+
+    public StreamingConfig(
+            @Value("${spring.mvc.async.request-timeout:30m}") Duration timeout,
+            @Value("${metadata.streaming.max-threads:256}") int maxThreads) {
+        this.timeout = timeout;
+        this.executor = new SimpleAsyncTaskExecutor("content-stream-");
+        this.executor.setVirtualThreads(true);
+        this.executor.setConcurrencyLimit(maxThreads);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeout.toMillis());
+        configurer.setTaskExecutor(executor);
+    }
+}
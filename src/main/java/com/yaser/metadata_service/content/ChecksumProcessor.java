@@ -0,0 +1,31 @@
+package com.yaser.metadata_service.content;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 содержимого; digest читает отображенные сегменты напрямую, без копирования в heap
+ */
+@Component
+@Order(0)
+@ConditionalOnProperty(prefix = "metadata.processing", name = "enabled", havingValue = "true")
+public class ChecksumProcessor implements ContentProcessor {
+
+    @Override
+    public String name() {
+        return "checksum";
+    }
+
+    @Override
+    public ProcessorResult process(ProcessingTarget file, MappedContent content) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < content.segmentCount(); i++) {
+            digest.update(content.segment(i));
+        }
+        return ProcessorResult.ok("sha256:" + HexFormat.of().formatHex(digest.digest()));
+    }
+}
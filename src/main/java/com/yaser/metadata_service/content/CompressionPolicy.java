@@ -0,0 +1,67 @@
+package com.yaser.metadata_service.content;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Выбор кодека хранения по content_type и размеру файла
+ */
+public class CompressionPolicy {
+
+    private final ContentCodec defaultCodec;
+    private final int level;
+    private final long minSizeBytes;
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    public CompressionPolicy(StorageProperties.Compression compression) {
+        this.defaultCodec = compression != null && compression.defaultCodec() != null
+                ? compression.defaultCodec()
+                : ContentCodec.NONE;
+        this.level = compression != null && compression.level() != null ? compression.level() : 3;
+        this.minSizeBytes = compression != null && compression.minSizeBytes() != null ? compression.minSizeBytes() : 0;
+        if (compression != null && compression.rules() != null) {
+            for (StorageProperties.Rule rule : compression.rules()) {
+                for (String type : rule.types()) {
+                    patterns.add(new Pattern(type.trim().toLowerCase(Locale.ROOT), rule.codec()));
+                }
+            }
+        }
+    }
+
+    public ContentCodec codecFor(String contentType, long size) {
+        if (size < minSizeBytes) {
+            return ContentCodec.NONE;
+        }
+        String type = baseType(contentType);
+        for (Pattern pattern : patterns) {
+            if (pattern.matches(type)) {
+                return pattern.codec();
+            }
+        }
+        return defaultCodec;
+    }
+
+    public int level() {
+        return level;
+    }
+
+    // "Text/CSV; charset=utf-8" -> "text/csv"
+    private static String baseType(String contentType) {
+        int parameters = contentType.indexOf(';');
+        return (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Pattern(String type, ContentCodec codec) {
+
+        boolean matches(String contentType) {
+            if (type.endsWith("/*")) {
+                return contentType.startsWith(type.substring(0, type.length() - 1));
+            }
+            if (type.startsWith("*")) {
+                return contentType.endsWith(type.substring(1));
+            }
+            return contentType.equals(type);
+        }
+    }
+}
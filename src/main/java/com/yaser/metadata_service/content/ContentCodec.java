@@ -0,0 +1,92 @@
+package com.yaser.metadata_service.content;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кодек хранения содержимого. Имя кодека совпадает с HTTP Content-Encoding, поэтому сжатые байты
+ * можно отдавать клиенту без распаковки.
+ */
+public enum ContentCodec {
+
+    NONE("identity") {
+        @Override
+        public OutputStream encode(OutputStream target, int level) {
+            return target;
+        }
+
+        @Override
+        public InputStream decode(InputStream source) {
+            return source;
+        }
+    },
+
+    ZSTD("zstd") {
+        @Override
+        public OutputStream encode(OutputStream target, int level) throws IOException {
+            return new ZstdOutputStream(target, level);
+        }
+
+        @Override
+        public InputStream decode(InputStream source) throws IOException {
+            return new ZstdInputStream(source);
+        }
+    },
+
+    GZIP("gzip") {
+        @Override
+        public OutputStream encode(OutputStream target, int level) throws IOException {
+            return new GZIPOutputStream(target, 64 * 1024) {
+                {
+                    def.setLevel(Math.max(Deflater.BEST_SPEED, Math.min(level, Deflater.BEST_COMPRESSION)));
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream source) throws IOException {
+            return new GZIPInputStream(source, 64 * 1024);
+        }
+    };
+
+    private final String encoding;
+
+    ContentCodec(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Значение HTTP Content-Encoding и колонки file_metadata.content_encoding
+     */
+    public String encoding() {
+        return encoding;
+    }
+
+    public abstract OutputStream encode(OutputStream target, int level) throws IOException;
+
+    public abstract InputStream decode(InputStream source) throws IOException;
+
+    /**
+     * Кодек по значению content_encoding; null - содержимое хранится как есть
+     */
+    public static ContentCodec fromEncoding(String encoding) {
+        if (encoding == null) {
+            return NONE;
+        }
+        String normalized = encoding.toLowerCase(Locale.ROOT);
+        for (ContentCodec codec : values()) {
+            if (codec.encoding.equals(normalized)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown content encoding: " + encoding);
+    }
+}
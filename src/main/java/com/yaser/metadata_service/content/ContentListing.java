@@ -0,0 +1,126 @@
+package com.yaser.metadata_service.content;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Листинг объектов хранилища в порядке storage_key (посимвольно по code point, как COLLATE "C" в UTF-8).
+ * <p>
+ * Обход в глубину, в памяти - только текущий путь от корня: содержимое каталога сортируется по имени
+ * с завершающим "/" у подкаталогов, поэтому порядок обхода совпадает с порядком полных ключей.
+ * Временные файлы незавершенных записей (имена с ".") пропускаются, как и объекты, удаленные во время обхода.
+ */
+final class ContentListing implements Iterator<ContentStore.ListedObject> {
+
+    static final Comparator<String> KEY_ORDER = ContentListing::compareKeys;
+
+    private final Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+    private ContentStore.ListedObject next;
+
+    /**
+     * mounts - каталоги, подставляемые вместо подкаталогов корня с тем же префиксом ключа ("cold/" -> cold-root)
+     */
+    ContentListing(Path root, Map<String, Path> mounts) {
+        List<Entry> top = new ArrayList<>(list(root, ""));
+        top.removeIf(entry -> mounts.containsKey(entry.key()));
+        mounts.forEach((prefix, path) -> {
+            if (Files.isDirectory(path)) {
+                top.add(new Entry(prefix, path, null));
+            }
+        });
+        top.sort(Comparator.comparing(Entry::key, KEY_ORDER));
+        stack.push(top.iterator());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !stack.isEmpty()) {
+            Iterator<Entry> current = stack.peek();
+            if (!current.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Entry entry = current.next();
+            if (entry.attributes() == null) {
+                stack.push(list(entry.path(), entry.key()).iterator());
+            } else {
+                next = new ContentStore.ListedObject(entry.key(), entry.attributes().size(),
+                        entry.attributes().lastModifiedTime().toInstant());
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public ContentStore.ListedObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ContentStore.ListedObject result = next;
+        next = null;
+        return result;
+    }
+
+    private static List<Entry> list(Path directory, String prefix) {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                String name = child.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    entries.add(new Entry(prefix + name + "/", child, null));
+                } else if (attributes.isRegularFile()) {
+                    entries.add(new Entry(prefix + name, child, attributes));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Каталог удален во время обхода
+            return List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entries.sort(Comparator.comparing(Entry::key, KEY_ORDER));
+        return entries;
+    }
+
+    // Сравнение по code point совпадает с побайтовым сравнением UTF-8 (String.compareTo сравнивает UTF-16)
+    static int compareKeys(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int a = left.codePointAt(i);
+            int b = right.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+        return Integer.compare(left.length() - i, right.length() - j);
+    }
+
+    // Ключ каталога заканчивается на "/"; attributes == null у каталога
+    private record Entry(String key, Path path, BasicFileAttributes attributes) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.yaser.metadata_service.content;
+
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.lifecycle.StatusTransitionHook;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.shard.ShardContext;
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка содержимого файлов в статусе PROCESSING (включается metadata.processing.enabled).
+ * <p>
+ * Запускается хуком перехода в PROCESSING после коммита транзакции. Содержимое отображается в память один раз
+ * (сжатое - предварительно распаковывается во временный файл),
+ * подходящие обработчики (ContentProcessor) выполняются параллельно на отдельном пуле processor-threads.
+ * Обработчики блокируются на вводе-выводе, поэтому файлы и обработчики идут на двух фиксированных пулах:
+ * поток файла только ждет результатов обработчиков, а задачи обработчиков ничего не ждут и не блокируют друг друга.
+ * Результаты всех обработчиков пишутся в file_processing_results в той же транзакции, что и переход
+ * PROCESSING -> READY (все успешны) или FAILED (хотя бы один неуспешен).
+ * <p>
+ * Backpressure: одновременно обрабатывается не больше max-in-flight файлов; при заполнении поток, сменивший
+ * статус, ждет свободного места до submit-timeout-ms. Файлы, которые не удалось поставить в очередь
+ * или не успели обработать до остановки, остаются в PROCESSING и подбираются периодическим обходом
+ * через stale-after-ms после последней смены статуса.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.processing", name = "enabled", havingValue = "true")
+public class ContentProcessingPipeline implements StatusTransitionHook {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentProcessingPipeline.class);
+
+    private static final String CONTENT_CHECK = "content";
+    private static final int MAX_DETAIL_LENGTH = 500;
+
+    private final FileMetadataRepository fileMetadataRepository;
+    // Через provider: FileMetadataService сам зависит от хуков переходов
+    private final ObjectProvider<FileMetadataService> fileMetadataService;
+    private final ContentStore contentStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final List<ContentProcessor> processors;
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService filePool;
+    private final ExecutorService processorPool;
+    private final Semaphore permits;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final long submitTimeoutMillis;
+    private final Duration staleAfter;
+
+    private final Counter readyFiles;
+    private final Counter failedFiles;
+    private final Counter rejected;
+    private final Timer fileDuration;
+
+    @Autowired
+    public ContentProcessingPipeline(
+            FileMetadataRepository fileMetadataRepository,
+            ObjectProvider<FileMetadataService> fileMetadataService,
+            ContentStore contentStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            ObjectProvider<ContentProcessor> processors,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.processing.parallelism:0}") int parallelism,
+            @Value("${metadata.processing.processor-threads:0}") int processorThreads,
+            @Value("${metadata.processing.max-in-flight:64}") int maxInFlight,
+            @Value("${metadata.processing.submit-timeout-ms:5000}") long submitTimeoutMillis,
+            @Value("${metadata.processing.stale-after-ms:600000}") long staleAfterMillis) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.fileMetadataService = fileMetadataService;
+        this.contentStore = contentStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.processors = processors.orderedStream().toList();
+        this.meterRegistry = meterRegistry;
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.filePool = Executors.newFixedThreadPool(parallelism > 0 ? parallelism : processors,
+                Thread.ofPlatform().name("content-file-", 0).factory());
+        this.processorPool = Executors.newFixedThreadPool(processorThreads > 0 ? processorThreads : 2 * processors,
+                Thread.ofPlatform().name("content-processor-", 0).factory());
+        this.permits = new Semaphore(maxInFlight);
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.staleAfter = Duration.ofMillis(staleAfterMillis);
+
+        Gauge.builder("metadata.processing.in_flight", inFlight, Set::size)
+                .description("Files queued or being processed")
+                .register(meterRegistry);
+        this.readyFiles = Counter.builder("metadata.processing.files").tag("outcome", "ready").register(meterRegistry);
+        this.failedFiles = Counter.builder("metadata.processing.files").tag("outcome", "failed").register(meterRegistry);
+        this.rejected = Counter.builder("metadata.processing.rejected")
+                .description("Files not queued because the pipeline was full")
+                .register(meterRegistry);
+        this.fileDuration = Timer.builder("metadata.processing.duration").register(meterRegistry);
+
+        log.info("ContentPipeline: Processors {}", this.processors.stream().map(ContentProcessor::name).toList());
+    }
+
+    @Override
+    public boolean appliesTo(Status from, Status to) {
+        return to == Status.PROCESSING;
+    }
+
+    @Override
+    public void onTransition(List<UUID> fileIds, Status from, Status to) {
+        int shard = currentShard();
+        List<UUID> submitted = List.copyOf(fileIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submitted.forEach(fileId -> submit(fileId, shard));
+            return;
+        }
+        // Обработчики читают файл в своей транзакции - ставим в очередь только закоммиченный переход
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submitted.forEach(fileId -> submit(fileId, shard));
+            }
+        });
+    }
+
+    /**
+     * Повторная постановка файлов, застрявших в PROCESSING (переполнение очереди, остановка экземпляра)
+     */
+    @Scheduled(fixedDelayString = "${metadata.processing.sweep-interval-ms:60000}",
+            initialDelayString = "${metadata.processing.sweep-interval-ms:60000}")
+    public void resubmitStale() {
+        shardRouter.forEachShard(() -> {
+            int free = permits.availablePermits();
+            if (free == 0) {
+                return;
+            }
+            int shard = currentShard();
+            List<UUID> stale = fileMetadataRepository.findIdsByStatusUpdatedBefore(
+                    Status.PROCESSING.name(), OffsetDateTime.now().minus(staleAfter), free);
+            if (!stale.isEmpty()) {
+                log.info("ContentPipeline: Resubmitting {} files stuck in PROCESSING on shard {}", stale.size(), shard);
+            }
+            stale.forEach(fileId -> submit(fileId, shard));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        filePool.shutdown();
+        if (!filePool.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("ContentPipeline: {} files still in flight at shutdown, left in PROCESSING", inFlight.size());
+        }
+        // Пул обработчиков нужен потокам файлов до их завершения
+        processorPool.shutdownNow();
+    }
+
+    private void submit(UUID fileId, int shard) {
+        if (!inFlight.add(fileId)) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(submitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            inFlight.remove(fileId);
+            rejected.increment();
+            log.warn("ContentPipeline: Pipeline is full, file {} left in PROCESSING until the next sweep", fileId);
+            return;
+        }
+
+        try {
+            filePool.execute(() -> {
+                try {
+                    fileDuration.record(() -> process(fileId, shard));
+                } catch (RuntimeException e) {
+                    log.error("ContentPipeline: Processing of file {} failed", fileId, e);
+                } finally {
+                    inFlight.remove(fileId);
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Пул остановлен
+            inFlight.remove(fileId);
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void process(UUID fileId, int shard) {
+        FileMetadata file = shardRouter.onShard(shard, () -> readOnlyTransaction.execute(status ->
+                fileMetadataRepository.findById(fileId)
+                        .filter(found -> found.getStatus() == Status.PROCESSING)
+                        .orElse(null)));
+        if (file == null) {
+            // Файл удален или уже обработан
+            return;
+        }
+
+        ProcessingTarget target = new ProcessingTarget(file.getId(), file.getFileName(), file.getContentType(),
+                file.getSize(), file.getStorageKey());
+        List<ProcessorOutcome> outcomes = file.getStoredSize() != null
+                ? runProcessors(target, ContentCodec.fromEncoding(file.getContentEncoding()))
+                : List.of(new ProcessorOutcome(CONTENT_CHECK, ProcessorResult.failed("content is not uploaded"), 0));
+        Status result = outcomes.stream().allMatch(ProcessorOutcome::success) ? Status.READY : Status.FAILED;
+
+        try {
+            shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                saveOutcomes(fileId, outcomes);
+                fileMetadataService.getObject().updateFileStatus(fileId, result);
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            // Статус изменили параллельно (или файл удалили) - результат обработки уже не актуален
+            log.info("ContentPipeline: File {} changed during processing, results discarded: {}", fileId, e.getMessage());
+            return;
+        }
+
+        (result == Status.READY ? readyFiles : failedFiles).increment();
+        log.debug("ContentPipeline: File {} processed -> {}", fileId, result);
+    }
+
+    private List<ProcessorOutcome> runProcessors(ProcessingTarget target, ContentCodec codec) {
+        try (MappedContent content = contentStore.map(target.storageKey(), codec)) {
+            if (content.size() != target.size()) {
+                return List.of(new ProcessorOutcome(CONTENT_CHECK, ProcessorResult.failed(
+                        "stored " + content.size() + " bytes, declared " + target.size()), 0));
+            }
+            List<Future<ProcessorOutcome>> tasks = new ArrayList<>();
+            for (ContentProcessor processor : processors) {
+                if (processor.supports(target)) {
+                    tasks.add(processorPool.submit(() -> runProcessor(processor, target, content)));
+                }
+            }
+            // Отображение закрывается только после завершения всех обработчиков
+            List<ProcessorOutcome> outcomes = new ArrayList<>(tasks.size());
+            for (Future<ProcessorOutcome> task : tasks) {
+                outcomes.add(await(task));
+            }
+            return outcomes;
+        } catch (IOException e) {
+            return List.of(new ProcessorOutcome(CONTENT_CHECK,
+                    ProcessorResult.failed("stored content is not readable: " + e.getMessage()), 0));
+        }
+    }
+
+    private ProcessorOutcome runProcessor(ContentProcessor processor, ProcessingTarget target, MappedContent content) {
+        long started = System.nanoTime();
+        ProcessorResult result;
+        try {
+            result = processor.process(target, content);
+        } catch (Exception e) {
+            result = ProcessorResult.failed(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - started;
+        Timer.builder("metadata.processing.processor.duration")
+                .tag("processor", processor.name())
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        return new ProcessorOutcome(processor.name(), result, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private static ProcessorOutcome await(Future<ProcessorOutcome> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            // Остановка: файл остается в PROCESSING до следующего обхода
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for content processors", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Content processor failed", e.getCause());
+        }
+    }
+
+    // Повторная обработка (после сбоя) заменяет результаты прошлой попытки целиком
+    private void saveOutcomes(UUID fileId, List<ProcessorOutcome> outcomes) {
+        jdbcTemplate.update("DELETE FROM file_processing_results WHERE file_id = ?", fileId);
+        jdbcTemplate.batchUpdate("INSERT INTO file_processing_results " +
+                        "(file_id, processor, success, detail, duration_ms, processed_at) VALUES (?, ?, ?, ?, ?, now())",
+                outcomes, outcomes.size(), (statement, outcome) -> {
+                    String detail = outcome.result().detail();
+                    statement.setObject(1, fileId);
+                    statement.setString(2, outcome.processor());
+                    statement.setBoolean(3, outcome.success());
+                    statement.setString(4, detail != null && detail.length() > MAX_DETAIL_LENGTH
+                            ? detail.substring(0, MAX_DETAIL_LENGTH)
+                            : detail);
+                    statement.setLong(5, outcome.durationMillis());
+                });
+    }
+
+    private static int currentShard() {
+        Integer shard = ShardContext.current();
+        return shard != null ? shard : ShardRouter.DIRECTORY_SHARD;
+    }
+
+    private record ProcessorOutcome(String processor, ProcessorResult result, long durationMillis) {
+
+        boolean success() {
+            return result.success();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.yaser.metadata_service.content;
+
+/**
+ * Обработчик содержимого файла в статусе PROCESSING. Бин с этим интерфейсом подключается к ContentProcessingPipeline
+ * автоматически (порядок - @Order, влияет только на порядок результатов).
+ * <p>
+ * Обработчики одного файла выполняются параллельно на пуле обработчиков конвейера и получают одно и то же отображение
+ * содержимого в память, поэтому не должны менять состояние MappedContent. Исключение считается неуспешным
+ * результатом; любой неуспешный результат переводит файл в FAILED.
+ */
+public interface ContentProcessor {
+
+    /**
+     * Ключ результата в file_processing_results (до 50 символов)
+     */
+    String name();
+
+    default boolean supports(ProcessingTarget file) {
+        return true;
+    }
+
+    ProcessorResult process(ProcessingTarget file, MappedContent content) throws Exception;
+}
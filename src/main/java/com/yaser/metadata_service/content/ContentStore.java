@@ -0,0 +1,222 @@
+package com.yaser.metadata_service.content;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Локальное хранилище содержимого: storage_key файла - путь относительно metadata.storage.root.
+ * Ключи с префиксом cold/ указывают на дешевое хранилище metadata.storage.cold-root (см. StorageTieringMover):
+ * уровень хранения определяется только ключом, отдельного признака нет.
+ * Содержимое хранится в кодеке, выбранном при записи (ContentCodec); кодек записывается в file_metadata.
+ */
+@Component
+public class ContentStore {
+
+    public static final String COLD_PREFIX = "cold/";
+    // Производные объекты (миниатюры): на них не ссылается storage_key файла
+    public static final String DERIVED_PREFIX = "thumbnails/";
+    // Порядок storage_key в листинге (совпадает с ORDER BY storage_key COLLATE "C")
+    public static final Comparator<String> KEY_ORDER = ContentListing.KEY_ORDER;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path coldRoot;
+
+    @Autowired
+    public ContentStore(
+            @Value("${metadata.storage.root:./storage}") String root,
+            @Value("${metadata.storage.cold-root:./storage-cold}") String coldRoot) {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.coldRoot = Path.of(coldRoot).toAbsolutePath().normalize();
+    }
+
+    public static boolean isCold(String storageKey) {
+        return storageKey.startsWith(COLD_PREFIX);
+    }
+
+    public static String coldKey(String storageKey) {
+        return isCold(storageKey) ? storageKey : COLD_PREFIX + storageKey;
+    }
+
+    public static String hotKey(String storageKey) {
+        return isCold(storageKey) ? storageKey.substring(COLD_PREFIX.length()) : storageKey;
+    }
+
+    public Path resolve(String storageKey) {
+        Path base = isCold(storageKey) ? coldRoot : root;
+        Path path = base.resolve(hotKey(storageKey)).normalize();
+        if (!path.startsWith(base)) {
+            throw new IllegalArgumentException("Storage key points outside of the storage root: " + storageKey);
+        }
+        return path;
+    }
+
+    /**
+     * Все объекты обоих уровней хранения в порядке KEY_ORDER; каталоги читаются по мере обхода
+     */
+    public Iterator<ListedObject> listObjects() {
+        return new ContentListing(root, Map.of(COLD_PREFIX, coldRoot));
+    }
+
+    public boolean exists(String storageKey) {
+        return Files.exists(resolve(storageKey));
+    }
+
+    /**
+     * Потоковая запись с кодированием: исходные байты не буферизуются целиком ни в памяти, ни на диске.
+     * Объект становится видимым атомарно после полной записи; при ошибке временный файл удаляется.
+     * Объем исходных байт должен совпасть с expectedBytes; более длинный поток отклоняется, не дочитываясь до конца.
+     */
+    public StoredObject store(String storageKey, InputStream content, ContentCodec codec, int level, long expectedBytes)
+            throws IOException {
+        StagedObject staged = stage(storageKey, content, codec, level, expectedBytes);
+        try {
+            promote(staged);
+        } finally {
+            discard(staged);
+        }
+        return staged.stored();
+    }
+
+    /**
+     * Запись как в store, но объект остается скрытым рядом с целевым ключом, пока его не опубликует promote.
+     * Не опубликованный объект удаляется discard.
+     */
+    public StagedObject stage(String storageKey, InputStream content, ContentCodec codec, int level, long expectedBytes)
+            throws IOException {
+        Path target = resolve(storageKey);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".write-", ".tmp");
+        try {
+            long originalSize = 0;
+            try (OutputStream encoded = codec.encode(Files.newOutputStream(temp), level)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    originalSize += read;
+                    if (originalSize > expectedBytes) {
+                        throw new IllegalArgumentException("Content is larger than the declared size of "
+                                + expectedBytes + " bytes");
+                    }
+                    encoded.write(buffer, 0, read);
+                }
+            }
+            if (originalSize != expectedBytes) {
+                throw new IllegalArgumentException("Content length " + originalSize
+                        + " does not match the declared size of " + expectedBytes + " bytes");
+            }
+            return new StagedObject(target, temp, new StoredObject(originalSize, Files.size(temp), codec));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Атомарная публикация подготовленного объекта по его ключу с заменой существующего
+     */
+    public void promote(StagedObject staged) throws IOException {
+        Files.move(staged.temp(), staged.target(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Удаление подготовленного объекта; после promote ничего не делает
+     */
+    public void discard(StagedObject staged) throws IOException {
+        Files.deleteIfExists(staged.temp());
+    }
+
+    /**
+     * Запись производного объекта (миниатюры и т.п.) без сжатия
+     */
+    public void write(String storageKey, byte[] bytes) throws IOException {
+        store(storageKey, new ByteArrayInputStream(bytes), ContentCodec.NONE, 0, bytes.length);
+    }
+
+    /**
+     * Копия хранимых байт под другим ключом без перекодирования (перенос между уровнями хранения).
+     * Объект по целевому ключу появляется атомарно и заменяет существующий; возвращает объем в байтах.
+     */
+    public long copy(String sourceKey, String targetKey) throws IOException {
+        Path source = resolve(sourceKey);
+        Path target = resolve(targetKey);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".copy-", ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void delete(String storageKey) throws IOException {
+        Files.deleteIfExists(resolve(storageKey));
+    }
+
+    /**
+     * Хранимые байты как есть (для отдачи клиенту, который принимает кодировку хранения)
+     */
+    public InputStream openStored(String storageKey) throws IOException {
+        return Files.newInputStream(resolve(storageKey));
+    }
+
+    /**
+     * Исходное содержимое с распаковкой на лету
+     */
+    public InputStream open(String storageKey, ContentCodec codec) throws IOException {
+        InputStream stored = openStored(storageKey);
+        try {
+            return codec.decode(new BufferedInputStream(stored, BUFFER_SIZE));
+        } catch (IOException | RuntimeException e) {
+            stored.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Исходное содержимое, отображенное в память. Сжатый объект один раз распаковывается во временный файл,
+     * который удаляется при закрытии MappedContent.
+     */
+    public MappedContent map(String storageKey, ContentCodec codec) throws IOException {
+        if (codec == ContentCodec.NONE) {
+            return MappedContent.map(resolve(storageKey));
+        }
+        Path temp = Files.createTempFile(resolve(storageKey).getParent(), ".decoded-", ".tmp");
+        try {
+            try (InputStream decoded = open(storageKey, codec)) {
+                Files.copy(decoded, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return MappedContent.mapTemporary(temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public record StoredObject(long originalSize, long storedSize, ContentCodec codec) {
+    }
+
+    public record StagedObject(Path target, Path temp, StoredObject stored) {
+    }
+
+    public record ListedObject(String storageKey, long size, Instant lastModified) {
+    }
+}
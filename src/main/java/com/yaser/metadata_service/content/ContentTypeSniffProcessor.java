@@ -0,0 +1,104 @@
+package com.yaser.metadata_service.content;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Проверка заявленного content_type по сигнатуре (magic bytes) в начале содержимого.
+ * Неизвестная сигнатура не считается ошибкой: проверяются только форматы с надежной сигнатурой.
+ */
+@Component
+@Order(10)
+@ConditionalOnProperty(prefix = "metadata.processing", name = "enabled", havingValue = "true")
+public class ContentTypeSniffProcessor implements ContentProcessor {
+
+    private static final int HEAD_BYTES = 16;
+
+    private static final List<Signature> SIGNATURES = List.of(
+            new Signature(0, bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A), "image/png", Set.of("image/png")),
+            new Signature(0, bytes(0xFF, 0xD8, 0xFF), "image/jpeg", Set.of("image/jpeg", "image/jpg", "image/pjpeg")),
+            new Signature(0, ascii("GIF87a"), "image/gif", Set.of("image/gif")),
+            new Signature(0, ascii("GIF89a"), "image/gif", Set.of("image/gif")),
+            new Signature(8, ascii("WEBP"), "image/webp", Set.of("image/webp")),
+            new Signature(0, bytes('I', 'I', 0x2A, 0x00), "image/tiff", Set.of("image/tiff")),
+            new Signature(0, bytes('M', 'M', 0x00, 0x2A), "image/tiff", Set.of("image/tiff")),
+            new Signature(0, ascii("%PDF-"), "application/pdf", Set.of("application/pdf")),
+            new Signature(0, bytes(0x1F, 0x8B), "application/gzip",
+                    Set.of("application/gzip", "application/x-gzip", "application/x-tar+gzip")),
+            // Форматы-контейнеры на основе ZIP (docx, xlsx, jar, epub...) заявляют собственный тип
+            new Signature(0, bytes('P', 'K', 0x03, 0x04), "application/zip",
+                    Set.of("application/zip", "application/x-zip-compressed", "application/java-archive",
+                            "application/vnd.android.package-archive")),
+            new Signature(4, ascii("ftyp"), "video/mp4",
+                    Set.of("video/mp4", "audio/mp4", "video/quicktime", "image/heic", "image/avif", "video/3gpp"))
+    );
+
+    @Override
+    public String name() {
+        return "content-type";
+    }
+
+    @Override
+    public ProcessorResult process(ProcessingTarget file, MappedContent content) {
+        ByteBuffer head = content.head(HEAD_BYTES);
+        String declared = baseType(file.declaredContentType());
+
+        for (Signature signature : SIGNATURES) {
+            if (!signature.matches(head)) {
+                continue;
+            }
+            if (signature.accepts(declared)) {
+                return ProcessorResult.ok("detected " + signature.detected());
+            }
+            return ProcessorResult.failed("declared " + file.declaredContentType() + ", detected " + signature.detected());
+        }
+        return ProcessorResult.ok("unknown signature");
+    }
+
+    // "Image/PNG; charset=..." -> "image/png"
+    private static String baseType(String contentType) {
+        int parameters = contentType.indexOf(';');
+        return (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private record Signature(int offset, byte[] magic, String detected, Set<String> accepted) {
+
+        boolean matches(ByteBuffer head) {
+            if (head.limit() < offset + magic.length) {
+                return false;
+            }
+            for (int i = 0; i < magic.length; i++) {
+                if (head.get(offset + i) != magic[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean accepts(String declared) {
+            return accepted.contains(declared)
+                    || (detected.equals("application/zip") && (declared.endsWith("+zip")
+                    || declared.startsWith("application/vnd.openxmlformats-")
+                    || declared.startsWith("application/vnd.oasis.opendocument.")));
+        }
+    }
+}
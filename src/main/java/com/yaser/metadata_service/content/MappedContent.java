@@ -0,0 +1,137 @@
+package com.yaser.metadata_service.content;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Содержимое файла, отображенное в память только для чтения. Файл читается с диска один раз (страницы кэша ОС),
+ * все обработчики работают с одним отображением. Файлы больше 1 ГиБ отображаются несколькими сегментами.
+ * <p>
+ * Методы возвращают независимые копии буферов (duplicate), поэтому позиции обработчиков не мешают друг другу.
+ * Отображение освобождается сборщиком мусора после close и исчезновения ссылок на буферы.
+ */
+public final class MappedContent implements AutoCloseable {
+
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final Path temporary;
+
+    private MappedContent(FileChannel channel, MappedByteBuffer[] segments, long size, Path temporary) {
+        this.channel = channel;
+        this.segments = segments;
+        this.size = size;
+        this.temporary = temporary;
+    }
+
+    public static MappedContent map(Path path) throws IOException {
+        return map(path, null);
+    }
+
+    /**
+     * Отображение временного файла, который удаляется при close
+     */
+    public static MappedContent mapTemporary(Path path) throws IOException {
+        return map(path, path);
+    }
+
+    private static MappedContent map(Path path, Path temporary) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long offset = (long) i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(SEGMENT_SIZE, size - offset));
+            }
+            return new MappedContent(channel, segments, size, temporary);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    public ByteBuffer segment(int index) {
+        return segments[index].duplicate();
+    }
+
+    /**
+     * Первые maxBytes байт (меньше, если файл короче) - для проверки сигнатур
+     */
+    public ByteBuffer head(int maxBytes) {
+        if (segments.length == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        ByteBuffer head = segments[0].duplicate();
+        head.limit(Math.min(head.limit(), maxBytes));
+        return head.slice();
+    }
+
+    /**
+     * Последовательное чтение всех сегментов без копирования в промежуточный массив
+     */
+    public InputStream openStream() {
+        return new InputStream() {
+            private int index;
+            private ByteBuffer current = segments.length > 0 ? segment(0) : ByteBuffer.allocate(0);
+
+            @Override
+            public int read() {
+                return advance() ? current.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!advance()) {
+                    return -1;
+                }
+                int count = Math.min(length, current.remaining());
+                current.get(target, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return current.remaining();
+            }
+
+            private boolean advance() {
+                while (!current.hasRemaining()) {
+                    if (index + 1 >= segments.length) {
+                        return false;
+                    }
+                    current = segment(++index);
+                }
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (temporary != null) {
+            // Уже отображенные страницы остаются доступны до освобождения буферов
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.yaser.metadata_service.content;
+
+import java.util.UUID;
+
+/**
+ * Метаданные обрабатываемого файла (снимок на момент начала обработки)
+ */
+public record ProcessingTarget(UUID fileId, String fileName, String declaredContentType, long size, String storageKey) {
+}
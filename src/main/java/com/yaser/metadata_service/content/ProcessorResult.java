@@ -0,0 +1,12 @@
+package com.yaser.metadata_service.content;
+
+public record ProcessorResult(boolean success, String detail) {
+
+    public static ProcessorResult ok(String detail) {
+        return new ProcessorResult(true, detail);
+    }
+
+    public static ProcessorResult failed(String detail) {
+        return new ProcessorResult(false, detail);
+    }
+}
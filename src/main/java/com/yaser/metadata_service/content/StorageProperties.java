@@ -0,0 +1,25 @@
+package com.yaser.metadata_service.content;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * metadata.storage: корень локального хранилища и политика сжатия по content_type
+ */
+@ConfigurationProperties(prefix = "metadata.storage")
+public record StorageProperties(String root, Compression compression) {
+
+    /**
+     * rules проверяются по порядку, первое совпадение определяет кодек; без совпадений - default-codec.
+     * Файлы меньше min-size-bytes хранятся без сжатия.
+     */
+    public record Compression(ContentCodec defaultCodec, Integer level, Long minSizeBytes, List<Rule> rules) {
+    }
+
+    /**
+     * Шаблоны типов: "text/*" - префикс, "*+json" - суффикс, иначе точное совпадение
+     */
+    public record Rule(List<String> types, ContentCodec codec) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.yaser.metadata_service.content;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Миниатюра изображения (PNG, не больше max-size по большей стороне) по ключу thumbnails/{storage_key}.png.
+ * Размер изображения проверяется по заголовку до декодирования, чтобы сжатая "бомба" не заняла всю память.
+ */
+@Component
+@Order(20)
+@ConditionalOnProperty(prefix = "metadata.processing", name = "enabled", havingValue = "true")
+public class ThumbnailProcessor implements ContentProcessor {
+
+    private final ContentStore contentStore;
+    private final int maxSize;
+    private final long maxPixels;
+    private final Set<String> readableTypes = Set.of(ImageIO.getReaderMIMETypes());
+
+    @Autowired
+    public ThumbnailProcessor(
+            ContentStore contentStore,
+            @Value("${metadata.processing.thumbnail.max-size:256}") int maxSize,
+            @Value("${metadata.processing.thumbnail.max-pixels:40000000}") long maxPixels) {
+        this.contentStore = contentStore;
+        this.maxSize = maxSize;
+        this.maxPixels = maxPixels;
+    }
+
+    @Override
+    public String name() {
+        return "thumbnail";
+    }
+
+    @Override
+    public boolean supports(ProcessingTarget file) {
+        if (file.declaredContentType() == null) {
+            return false;
+        }
+        // Параметры (image/png; charset=...) и регистр не влияют на формат
+        try {
+            MediaType type = MediaType.parseMediaType(file.declaredContentType());
+            return readableTypes.contains((type.getType() + "/" + type.getSubtype()).toLowerCase(Locale.ROOT));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public ProcessorResult process(ProcessingTarget file, MappedContent content) throws Exception {
+        BufferedImage source;
+        try (ImageInputStream input = ImageIO.createImageInputStream(content.openStream())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return ProcessorResult.failed("unreadable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    return ProcessorResult.failed("image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                source = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(thumbnail, "png", encoded);
+        String thumbnailKey = ContentStore.DERIVED_PREFIX + file.storageKey() + ".png";
+        contentStore.write(thumbnailKey, encoded.toByteArray());
+        return ProcessorResult.ok(thumbnailKey);
+    }
+}
@@ -0,0 +1,37 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.admin.AdminAuditService;
+import com.yaser.metadata_service.dto.AuditLogEntryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/audit")
+public class AdminAuditController {
+
+    private final AdminAuditService adminAuditService;
+
+    @Autowired
+    public AdminAuditController(AdminAuditService adminAuditService) {
+        this.adminAuditService = adminAuditService;
+    }
+
+    /**
+     * Журнал аудита с фильтрами по исполнителю, файлу и времени (ISO date-time)
+     */
+    @GetMapping
+    public List<AuditLogEntryDTO> search(
+            @RequestParam(required = false) UUID actorId,
+            @RequestParam(required = false) UUID fileId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminAuditService.search(actorId, fileId, from, to, limit, currentUserId);
+    }
+}
@@ -0,0 +1,103 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.admin.AdminFileAnalyticsService;
+import com.yaser.metadata_service.application.admin.AdminFileMetadataService;
+import com.yaser.metadata_service.dto.ContentTypeUsageDTO;
+import com.yaser.metadata_service.dto.DailyGrowthDTO;
+import com.yaser.metadata_service.dto.FileMetadataResponseDTO;
+import com.yaser.metadata_service.dto.FileSizeEntryDTO;
+import com.yaser.metadata_service.dto.OwnerUsageDTO;
+import com.yaser.metadata_service.dto.SizeBucketDTO;
+import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/files")
+public class AdminFileMetadataController {
+
+    private final AdminFileMetadataService adminFileMetadataService;
+    private final AdminFileAnalyticsService adminFileAnalyticsService;
+    private final FileMetadataMapper fileMetadataMapper;
+
+    @Autowired
+    public AdminFileMetadataController(
+            AdminFileMetadataService adminFileMetadataService,
+            AdminFileAnalyticsService adminFileAnalyticsService,
+            FileMetadataMapper fileMetadataMapper) {
+        this.adminFileMetadataService = adminFileMetadataService;
+        this.adminFileAnalyticsService = adminFileAnalyticsService;
+        this.fileMetadataMapper = fileMetadataMapper;
+    }
+
+    /**
+     * Файлы по статусу; формат по Accept (JSON, CBOR, Smile), layout=columnar - колоночное представление
+     */
+    @GetMapping
+    public Object getFilesByStatus(
+            @RequestParam String status,
+            @RequestParam(defaultValue = "rows") String layout,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        List<FileMetadataResponseDTO> files = adminFileMetadataService.getFilesByStatus(status, currentUserId);
+        return FileMetadataController.isColumnar(layout) ? fileMetadataMapper.toColumnarDTO(files) : files;
+    }
+
+    @GetMapping("/owners/{ownerId}")
+    public Object getFilesByOwner(
+            @PathVariable UUID ownerId,
+            @RequestParam(defaultValue = "rows") String layout,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        List<FileMetadataResponseDTO> files = adminFileMetadataService.getFilesByOwner(ownerId, currentUserId);
+        return FileMetadataController.isColumnar(layout) ? fileMetadataMapper.toColumnarDTO(files) : files;
+    }
+
+    // === Аналитика из in-memory индекса (владельцы и гистограмма - с откатом на агрегаты) ===
+
+    @GetMapping("/analytics/largest")
+    public List<FileSizeEntryDTO> getLargestFiles(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String status,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileAnalyticsService.getLargestFiles(limit, status, currentUserId);
+    }
+
+    @GetMapping("/analytics/ids")
+    public List<UUID> getFileIdsByStatus(
+            @RequestParam String status,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileAnalyticsService.getFileIdsByStatus(status, limit, currentUserId);
+    }
+
+    @GetMapping("/analytics/owners")
+    public List<OwnerUsageDTO> getTopOwnersByBytes(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileAnalyticsService.getTopOwnersByBytes(limit, currentUserId);
+    }
+
+    @GetMapping("/analytics/size-histogram")
+    public List<SizeBucketDTO> getSizeHistogram(@RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileAnalyticsService.getSizeHistogram(currentUserId);
+    }
+
+    // === Аналитика из таблиц агрегатов ===
+
+    @GetMapping("/analytics/content-types")
+    public List<ContentTypeUsageDTO> getContentTypeBreakdown(@RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileAnalyticsService.getContentTypeBreakdown(currentUserId);
+    }
+
+    @GetMapping("/analytics/daily-growth")
+    public List<DailyGrowthDTO> getDailyGrowth(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileAnalyticsService.getDailyGrowth(from, to, currentUserId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.admin.AdminReconciliationService;
+import com.yaser.metadata_service.dto.ReconciliationReportDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+public class AdminReconciliationController {
+
+    private final AdminReconciliationService adminReconciliationService;
+
+    @Autowired
+    public AdminReconciliationController(AdminReconciliationService adminReconciliationService) {
+        this.adminReconciliationService = adminReconciliationService;
+    }
+
+    @GetMapping
+    public ReconciliationReportDTO getLastReport(@RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminReconciliationService.getLastReport(currentUserId);
+    }
+
+    /**
+     * Запуск сверки в фоне; результат - GET /api/admin/reconciliation
+     */
+    @PostMapping("/run")
+    public ResponseEntity<ReconciliationReportDTO> start(@RequestHeader("X-User-Id") UUID currentUserId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(adminReconciliationService.start(currentUserId));
+    }
+}
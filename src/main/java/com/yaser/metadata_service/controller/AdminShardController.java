@@ -0,0 +1,38 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.admin.AdminShardService;
+import com.yaser.metadata_service.dto.OwnerShardDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+public class AdminShardController {
+
+    private final AdminShardService adminShardService;
+
+    @Autowired
+    public AdminShardController(AdminShardService adminShardService) {
+        this.adminShardService = adminShardService;
+    }
+
+    @GetMapping("/owners/{ownerId}")
+    public OwnerShardDTO getOwnerShard(
+            @PathVariable UUID ownerId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminShardService.getOwnerShard(ownerId, currentUserId);
+    }
+
+    /**
+     * Перенос владельца на шард targetShard
+     */
+    @PostMapping("/owners/{ownerId}/move")
+    public OwnerShardDTO moveOwner(
+            @PathVariable UUID ownerId,
+            @RequestParam int targetShard,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminShardService.moveOwner(ownerId, targetShard, currentUserId);
+    }
+}
@@ -0,0 +1,67 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.user.UserFileContentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Скачивание по подписанному токену (см. DownloadTokenSigner): без X-User-Id и без запросов к БД.
+ * Файловое содержимое отдается через Resource - Range и 206 обрабатывает Spring MVC.
+ */
+@RestController
+@RequestMapping("/api/downloads")
+public class DownloadController {
+
+    private final UserFileContentService userFileContentService;
+
+    @Autowired
+    public DownloadController(UserFileContentService userFileContentService) {
+        this.userFileContentService = userFileContentService;
+    }
+
+    @GetMapping("/{token}")
+    public ResponseEntity<?> download(
+            @PathVariable String token,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        UserFileContentService.SignedContent content = userFileContentService.openSignedContent(token, acceptEncoding);
+
+        // Кэш браузера не переживает токен
+        long maxAge = Math.max(0, Duration.between(Instant.now(), content.token().expiresAt()).toSeconds());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaType(content.token().contentType()))
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (content.contentEncoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, content.contentEncoding());
+        }
+
+        if (content.path() != null) {
+            // Сильный ETag представления: версия файла и кодировка отдаваемых байт
+            response.eTag("\"v" + content.token().version()
+                    + (content.contentEncoding() != null ? "-" + content.contentEncoding() : "") + "\"");
+            return response.body(new FileSystemResource(content.path()));
+        }
+        // Распакованный поток: InputStreamResource Spring отдает целиком, без поддержки диапазонов
+        return response.contentLength(content.contentLength())
+                .body(new InputStreamResource(content.stream()));
+    }
+
+    private static MediaType mediaType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
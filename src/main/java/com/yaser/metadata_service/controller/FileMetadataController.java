@@ -1,4 +1,294 @@
 package com.yaser.metadata_service.controller;
 
+import com.yaser.metadata_service.application.user.UserFileContentService;
+import com.yaser.metadata_service.application.user.UserFileExportService;
+import com.yaser.metadata_service.application.user.UserFileMetadataService;
+import com.yaser.metadata_service.dto.DownloadTokenDTO;
+import com.yaser.metadata_service.dto.FileBatchLookupRequestDTO;
+import com.yaser.metadata_service.dto.FileIdsRequestDTO;
+import com.yaser.metadata_service.dto.FileLookupResultDTO;
+import com.yaser.metadata_service.dto.FileMetadataResponseDTO;
+import com.yaser.metadata_service.dto.FileSearchPageDTO;
+import com.yaser.metadata_service.dto.RemoveFileAttributesRequestDTO;
+import com.yaser.metadata_service.dto.SetFileAttributesRequestDTO;
+import com.yaser.metadata_service.dto.StorageQuotaDTO;
+import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/files")
 public class FileMetadataController {
+
+    private final UserFileMetadataService userFileMetadataService;
+    private final UserFileContentService userFileContentService;
+    private final UserFileExportService userFileExportService;
+    private final FileMetadataMapper fileMetadataMapper;
+
+    @Autowired
+    public FileMetadataController(
+            UserFileMetadataService userFileMetadataService,
+            UserFileContentService userFileContentService,
+            UserFileExportService userFileExportService,
+            FileMetadataMapper fileMetadataMapper) {
+        this.userFileMetadataService = userFileMetadataService;
+        this.userFileContentService = userFileContentService;
+        this.userFileExportService = userFileExportService;
+        this.fileMetadataMapper = fileMetadataMapper;
+    }
+
+    /**
+     * Файлы текущего пользователя; при совпадении If-None-Match - 304 без чтения строк.
+     * Формат по Accept (JSON, CBOR, Smile), layout=columnar - колоночное представление со словарями.
+     */
+    @GetMapping("/my")
+    public ResponseEntity<?> getMyFiles(
+            @RequestHeader("X-User-Id") UUID currentUserId,
+            @RequestParam(defaultValue = "rows") String layout,
+            WebRequest request) {
+        // ETag читается до данных: при гонке клиент получит устаревший ETag и просто перезапросит список.
+        // ETag слабый - один и тот же для всех кодировок (Vary: Accept)
+        String etag = weakETag(userFileMetadataService.getMyFilesETag(currentUserId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        List<FileMetadataResponseDTO> files = userFileMetadataService.getMyFiles(currentUserId);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(isColumnar(layout) ? fileMetadataMapper.toColumnarDTO(files) : files);
+    }
+
+    @GetMapping("/my/quota")
+    public StorageQuotaDTO getMyQuota(@RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.getMyQuota(currentUserId);
+    }
+
+    /**
+     * Поиск своих файлов: attr=ключ:значение (можно несколько, совпасть должны все), contentType, status.
+     * Следующая страница - after=nextAfter
+     */
+    @GetMapping("/search")
+    public FileSearchPageDTO searchFiles(
+            @RequestParam(name = "attr", required = false) List<String> attributes,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.searchFiles(attributes != null ? attributes : List.of(), contentType, status, after, limit, currentUserId);
+    }
+
+    /**
+     * Массовая установка меток; возвращает id измененных файлов
+     */
+    @PostMapping("/attributes")
+    public List<UUID> setFileAttributes(
+            @RequestBody SetFileAttributesRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.setFileAttributes(request, currentUserId);
+    }
+
+    @PostMapping("/attributes/remove")
+    public List<UUID> removeFileAttributes(
+            @RequestBody RemoveFileAttributesRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.removeFileAttributes(request, currentUserId);
+    }
+
+    /**
+     * Корзина: удаленные файлы до окончательной очистки (metadata.trash.retention-ms)
+     */
+    @GetMapping("/trash")
+    public FileSearchPageDTO getTrash(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.getTrash(after, limit, currentUserId);
+    }
+
+    /**
+     * Массовое удаление в корзину; возвращает id перенесенных файлов
+     */
+    @PostMapping("/trash")
+    public List<UUID> trashFiles(
+            @RequestBody FileIdsRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.trashFiles(request, currentUserId);
+    }
+
+    @PostMapping("/trash/restore")
+    public List<FileMetadataResponseDTO> restoreFiles(
+            @RequestBody FileIdsRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.restoreFiles(request, currentUserId);
+    }
+
+    /**
+     * Окончательное удаление выбранных файлов из корзины (без ожидания metadata.trash.retention-ms);
+     * освобождает квоту. Возвращает id удаленных файлов
+     */
+    @PostMapping("/trash/purge")
+    public List<UUID> purgeFiles(
+            @RequestBody FileIdsRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.purgeFiles(request, currentUserId);
+    }
+
+    /**
+     * Очистка корзины; возвращает число удаленных файлов
+     */
+    @DeleteMapping("/trash")
+    public long emptyTrash(@RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.emptyTrash(currentUserId);
+    }
+
+    /**
+     * Экспорт всех файлов текущего пользователя одним ZIP: manifest.ndjson и содержимое в files/{id}/{имя}.
+     * Часть архива - до metadata.export.max-entries файлов; если есть еще, X-Export-Next-After - after следующей
+     * части. Прерванная загрузка продолжается с after = id последней полностью полученной записи
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFiles(
+            @RequestParam(required = false) UUID after,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        UserFileExportService.FileExport export = userFileExportService.prepareExport(after, currentUserId);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("files-export.zip").build().toString())
+                .cacheControl(CacheControl.noStore());
+        if (export.nextAfter() != null) {
+            response.header("X-Export-Next-After", export.nextAfter().toString());
+        }
+        return response.body(output -> userFileExportService.writeExport(export, output));
+    }
+
+    /**
+     * Пакетное чтение: до metadata.batch-lookup.max-ids файлов за один запрос, результаты в порядке ids
+     */
+    @PostMapping("/batch-lookup")
+    public List<FileLookupResultDTO> getFilesByIds(
+            @RequestBody FileBatchLookupRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileMetadataService.getFilesByIds(request, currentUserId);
+    }
+
+    @GetMapping("/{fileId}")
+    public ResponseEntity<FileMetadataResponseDTO> getFileById(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId,
+            WebRequest request) {
+        String etag = weakETag(userFileMetadataService.getFileETag(fileId, currentUserId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(userFileMetadataService.getFileById(fileId, currentUserId));
+    }
+
+    /**
+     * Удаление в корзину: файл можно восстановить до окончательной очистки
+     */
+    @DeleteMapping("/{fileId}")
+    public ResponseEntity<Void> deleteFile(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        userFileMetadataService.deleteFile(fileId, currentUserId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Загрузка содержимого файла: тело запроса - исходные байты, объем должен совпасть с заявленным size
+     */
+    @PutMapping(value = "/{fileId}/content", consumes = MediaType.ALL_VALUE)
+    public FileMetadataResponseDTO uploadContent(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId,
+            HttpServletRequest request) throws IOException {
+        return userFileContentService.uploadContent(fileId, request.getInputStream(), currentUserId);
+    }
+
+    /**
+     * Содержимое файла. Если клиент принимает кодировку хранения (Accept-Encoding), сжатые байты отдаются
+     * как есть с Content-Encoding, иначе распаковываются на лету.
+     */
+    @GetMapping("/{fileId}/content")
+    public ResponseEntity<StreamingResponseBody> downloadContent(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        UserFileContentService.FileContent content = userFileContentService.openContent(fileId, currentUserId, acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaType(content.contentType()))
+                .contentLength(content.contentLength())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (content.contentEncoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, content.contentEncoding());
+        }
+        return response.body(output -> {
+            try (InputStream stream = content.stream()) {
+                stream.transferTo(output);
+            }
+        });
+    }
+
+    /**
+     * Подписанный токен скачивания: владение проверяется один раз, дальше содержимое (и его диапазоны)
+     * отдается по /api/downloads/{token} без обращения к БД
+     */
+    @PostMapping("/{fileId}/download-token")
+    public DownloadTokenDTO issueDownloadToken(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFileContentService.issueDownloadToken(fileId, currentUserId);
+    }
+
+    /**
+     * Отзыв всех выданных токенов файла (новая версия файла)
+     */
+    @DeleteMapping("/{fileId}/download-tokens")
+    public ResponseEntity<Void> revokeDownloadTokens(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        userFileContentService.revokeDownloadTokens(fileId, currentUserId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static MediaType mediaType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    static boolean isColumnar(String layout) {
+        return "columnar".equalsIgnoreCase(layout);
+    }
+
+    private static String weakETag(String tag) {
+        return "W/\"" + tag + "\"";
+    }
 }
@@ -0,0 +1,92 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.user.UserFolderService;
+import com.yaser.metadata_service.dto.CreateFolderRequestDTO;
+import com.yaser.metadata_service.dto.FolderDTO;
+import com.yaser.metadata_service.dto.FolderListingDTO;
+import com.yaser.metadata_service.dto.FolderSummaryDTO;
+import com.yaser.metadata_service.dto.MoveFilesRequestDTO;
+import com.yaser.metadata_service.dto.MoveFolderRequestDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/folders")
+public class FolderController {
+
+    private final UserFolderService userFolderService;
+
+    @Autowired
+    public FolderController(UserFolderService userFolderService) {
+        this.userFolderService = userFolderService;
+    }
+
+    @PostMapping
+    public ResponseEntity<FolderDTO> createFolder(
+            @RequestBody CreateFolderRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        FolderDTO folder = userFolderService.createFolder(request, currentUserId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(folder);
+    }
+
+    @GetMapping("/{folderId}")
+    public FolderDTO getFolder(
+            @PathVariable UUID folderId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFolderService.getFolder(folderId, currentUserId);
+    }
+
+    /**
+     * Содержимое папки постранично: сначала папки, затем файлы, по имени.
+     * Без parentId - верхний уровень; cursor - nextCursor предыдущей страницы
+     */
+    @GetMapping("/children")
+    public FolderListingDTO listChildren(
+            @RequestParam(required = false) UUID parentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFolderService.listChildren(parentId, cursor, limit, currentUserId);
+    }
+
+    /**
+     * Число вложенных папок и файлов и их суммарный размер по всему поддереву
+     */
+    @GetMapping("/{folderId}/summary")
+    public FolderSummaryDTO getFolderSummary(
+            @PathVariable UUID folderId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFolderService.getFolderSummary(folderId, currentUserId);
+    }
+
+    @PostMapping("/{folderId}/move")
+    public FolderDTO moveFolder(
+            @PathVariable UUID folderId,
+            @RequestBody MoveFolderRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFolderService.moveFolder(folderId, request, currentUserId);
+    }
+
+    @DeleteMapping("/{folderId}")
+    public ResponseEntity<Void> deleteFolder(
+            @PathVariable UUID folderId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        userFolderService.deleteFolder(folderId, currentUserId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Перенос файлов в папку (без folderId - в корень); возвращает id перенесенных файлов
+     */
+    @PostMapping("/files/move")
+    public List<UUID> moveFiles(
+            @RequestBody MoveFilesRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return userFolderService.moveFiles(request, currentUserId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.processing.ProcessingStatusService;
+import com.yaser.metadata_service.dto.FileProcessingResultDTO;
+import com.yaser.metadata_service.dto.UpdateFileStatusRequestDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/processing")
+public class ProcessingController {
+
+    private final ProcessingStatusService processingStatusService;
+
+    @Autowired
+    public ProcessingController(ProcessingStatusService processingStatusService) {
+        this.processingStatusService = processingStatusService;
+    }
+
+    /**
+     * Отчет о статусе от процессинга, только для ROLE_PROCESSING / ROLE_ADMIN (202: при write-behind статус попадет в БД при следующем сбросе)
+     */
+    @PutMapping("/files/{fileId}/status")
+    public ResponseEntity<Void> reportStatus(
+            @PathVariable UUID fileId,
+            @RequestBody UpdateFileStatusRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        processingStatusService.reportStatus(fileId, request, currentUserId);
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/files/{fileId}/results")
+    public List<FileProcessingResultDTO> getResults(
+            @PathVariable UUID fileId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return processingStatusService.getResults(fileId, currentUserId);
+    }
+}
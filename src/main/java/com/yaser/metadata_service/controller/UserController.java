@@ -1,4 +1,70 @@
 package com.yaser.metadata_service.controller;
 
+import com.yaser.metadata_service.application.admin.AdminFileMetadataService;
+import com.yaser.metadata_service.dto.OwnerPurgeJobDTO;
+import com.yaser.metadata_service.dto.StorageQuotaDTO;
+import com.yaser.metadata_service.dto.UpdateStorageQuotaRequestDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/users")
 public class UserController {
+
+    private final AdminFileMetadataService adminFileMetadataService;
+
+    @Autowired
+    public UserController(AdminFileMetadataService adminFileMetadataService) {
+        this.adminFileMetadataService = adminFileMetadataService;
+    }
+
+    /**
+     * Удаление аккаунта вместе со всеми файлами (асинхронно, 202 + задача)
+     */
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<OwnerPurgeJobDTO> deleteUser(
+            @PathVariable UUID userId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        OwnerPurgeJobDTO job = adminFileMetadataService.requestOwnerPurge(userId, true, currentUserId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    /**
+     * Удаление всех файлов пользователя без удаления аккаунта
+     */
+    @DeleteMapping("/{userId}/files")
+    public ResponseEntity<OwnerPurgeJobDTO> purgeUserFiles(
+            @PathVariable UUID userId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        OwnerPurgeJobDTO job = adminFileMetadataService.requestOwnerPurge(userId, false, currentUserId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @PutMapping("/{userId}/quota")
+    public StorageQuotaDTO setUserQuota(
+            @PathVariable UUID userId,
+            @RequestBody UpdateStorageQuotaRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileMetadataService.setUserQuota(userId, request, currentUserId);
+    }
+
+    @PutMapping("/roles/{roleName}/quota")
+    public ResponseEntity<Void> setRoleQuota(
+            @PathVariable String roleName,
+            @RequestBody UpdateStorageQuotaRequestDTO request,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        adminFileMetadataService.setRoleQuota(roleName, request, currentUserId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/purge-jobs/{jobId}")
+    public OwnerPurgeJobDTO getPurgeJob(
+            @PathVariable UUID jobId,
+            @RequestHeader("X-User-Id") UUID currentUserId) {
+        return adminFileMetadataService.getOwnerPurgeJob(jobId, currentUserId);
+    }
 }
@@ -0,0 +1,20 @@
+package com.yaser.metadata_service.download;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Содержимое подписанного токена скачивания: снимок метаданных файла на версии version,
+ * достаточный для отдачи содержимого без обращения к БД. contentEncoding - null для несжатого содержимого.
+ */
+public record DownloadToken(
+        UUID fileId,
+        UUID ownerId,
+        long version,
+        String storageKey,
+        String contentType,
+        String contentEncoding,
+        long size,
+        long storedSize,
+        Instant expiresAt) {
+}
@@ -0,0 +1,13 @@
+package com.yaser.metadata_service.download;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * metadata.download-tokens: ключи HMAC (id -> секрет в base64, не короче 32 байт), ключ подписи новых токенов
+ * и срок жизни токена. Старые ключи оставляются в keys на время ttl-ms после ротации.
+ */
+@ConfigurationProperties(prefix = "metadata.download-tokens")
+public record DownloadTokenProperties(String activeKey, Map<String, String> keys, Long ttlMs) {
+}
@@ -0,0 +1,115 @@
+package com.yaser.metadata_service.download;
+
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.service.FileMetadataChangedEvent;
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Отзыв токенов скачивания по версии файла: токен версии ниже последней известной версии файла недействителен.
+ * <p>
+ * Проверка - поиск в памяти. Версии изменившихся файлов дочитываются раз в revocation-refresh-ms по updated_at
+ * (с перекрытием revocation-overlap-ms); любое изменение файла, в том числе явный отзыв
+ * (DELETE /api/files/{id}/download-tokens), поднимает версию. Файлы, удаленные в этом экземпляре,
+ * отзываются сразу; удаленные в других экземплярах - по истечении срока токена или вместе с содержимым.
+ * Записи старше срока жизни токена удаляются: все токены более ранних версий к этому времени истекли.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.download-tokens", name = "enabled", havingValue = "true")
+public class DownloadTokenRevocations {
+
+    private static final Logger log = LoggerFactory.getLogger(DownloadTokenRevocations.class);
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final Duration retention;
+    private final Duration overlap;
+
+    private final Map<UUID, Revocation> revocations = new ConcurrentHashMap<>();
+    private volatile OffsetDateTime refreshedSince;
+
+    @Autowired
+    public DownloadTokenRevocations(
+            FileMetadataRepository fileMetadataRepository,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            DownloadTokenSigner downloadTokenSigner,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.download-tokens.revocation-overlap-ms:10000}") long overlapMillis) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.overlap = Duration.ofMillis(overlapMillis);
+        this.retention = downloadTokenSigner.ttl().plus(overlap);
+        // Токены, выпущенные до старта экземпляра, могли устареть за время их жизни
+        this.refreshedSince = OffsetDateTime.now().minus(downloadTokenSigner.ttl());
+
+        Gauge.builder("metadata.download_tokens.revocations", revocations, Map::size)
+                .description("Files with revoked download token versions held in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(UUID fileId, long version) {
+        Revocation revocation = revocations.get(fileId);
+        return revocation != null && version < revocation.minVersion();
+    }
+
+    /**
+     * Токены файла с версией ниже minVersion становятся недействительными в этом экземпляре
+     */
+    public void revoke(UUID fileId, long minVersion) {
+        long now = System.currentTimeMillis();
+        revocations.merge(fileId, new Revocation(minVersion, now),
+                (current, added) -> new Revocation(Math.max(current.minVersion(), added.minVersion()), now));
+    }
+
+    @TransactionalEventListener
+    public void onChange(FileMetadataChangedEvent event) {
+        if (event instanceof FileMetadataChangedEvent.FilesDeleted deleted) {
+            deleted.fileIds().forEach(fileId -> revoke(fileId, Long.MAX_VALUE));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${metadata.download-tokens.revocation-refresh-ms:2000}")
+    public void refresh() {
+        OffsetDateTime since = refreshedSince;
+        OffsetDateTime started = OffsetDateTime.now();
+        try {
+            shardRouter.forEachShard(() -> readOnlyTransaction.execute(status -> {
+                try (Stream<Object[]> rows = fileMetadataRepository.streamVersionsUpdatedSince(since.minus(overlap))) {
+                    rows.forEach(row -> revoke((UUID) row[0], (Long) row[1]));
+                }
+                return null;
+            }));
+            refreshedSince = started;
+        } catch (RuntimeException e) {
+            log.warn("DownloadTokens: Revocation refresh failed: {}", e.getMessage());
+        }
+
+        long expired = System.currentTimeMillis() - retention.toMillis();
+        revocations.values().removeIf(revocation -> revocation.recordedAtMillis() < expired);
+    }
+
+    private record Revocation(long minVersion, long recordedAtMillis) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.yaser.metadata_service.download;
+
+import com.yaser.metadata_service.exception.AccessDeniedException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Выпуск и проверка токенов скачивания "keyId.payload.signature" (base64url, HMAC-SHA256 над "keyId.payload").
+ * Проверка - только вычисление: подпись, известный ключ и срок действия. Отзыв по версии файла
+ * проверяет DownloadTokenRevocations.
+ */
+public class DownloadTokenSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int FORMAT = 1;
+    private static final int MIN_KEY_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String activeKeyId;
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final Duration ttl;
+
+    public DownloadTokenSigner(DownloadTokenProperties properties) {
+        if (properties.keys() == null || properties.keys().isEmpty()) {
+            throw new IllegalStateException("metadata.download-tokens.keys must contain at least one key");
+        }
+        properties.keys().forEach((keyId, secret) -> {
+            if (keyId.isEmpty() || keyId.contains(".")) {
+                throw new IllegalStateException("Download token key id must be non-empty and cannot contain '.': " + keyId);
+            }
+            byte[] bytes = secret == null ? new byte[0] : Base64.getDecoder().decode(secret.trim());
+            if (bytes.length < MIN_KEY_BYTES) {
+                throw new IllegalStateException("Download token key '" + keyId + "' must be at least "
+                        + MIN_KEY_BYTES + " bytes (base64)");
+            }
+            keys.put(keyId, new SecretKeySpec(bytes, ALGORITHM));
+        });
+        this.activeKeyId = properties.activeKey();
+        if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalStateException("Unknown active download token key: " + activeKeyId);
+        }
+        this.ttl = Duration.ofMillis(properties.ttlMs() != null ? properties.ttlMs() : 300_000);
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    /**
+     * Токен, подписанный активным ключом; срок действия - token.expiresAt() (с точностью до секунды)
+     */
+    public String issue(DownloadToken token) {
+        String payload = ENCODER.encodeToString(encode(token));
+        String signed = activeKeyId + "." + payload;
+        return signed + "." + ENCODER.encodeToString(sign(activeKeyId, signed));
+    }
+
+    /**
+     * Проверка подписи и срока действия; недействительный токен - AccessDeniedException
+     */
+    public DownloadToken verify(String token) {
+        int first = token.indexOf('.');
+        int last = token.lastIndexOf('.');
+        if (first <= 0 || last == first) {
+            throw new AccessDeniedException("Download token is malformed");
+        }
+        String keyId = token.substring(0, first);
+        if (!keys.containsKey(keyId)) {
+            throw new AccessDeniedException("Download token is signed with an unknown key");
+        }
+
+        byte[] expected = sign(keyId, token.substring(0, last));
+        byte[] actual;
+        byte[] payload;
+        try {
+            actual = DECODER.decode(token.substring(last + 1));
+            payload = DECODER.decode(token.substring(first + 1, last));
+        } catch (IllegalArgumentException e) {
+            throw new AccessDeniedException("Download token is malformed");
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new AccessDeniedException("Download token signature is invalid");
+        }
+
+        DownloadToken decoded = decode(payload);
+        if (!Instant.now().isBefore(decoded.expiresAt())) {
+            throw new AccessDeniedException("Download token has expired");
+        }
+        return decoded;
+    }
+
+    private byte[] sign(String keyId, String signed) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keys.get(keyId));
+            return mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    private static byte[] encode(DownloadToken token) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeLong(token.fileId().getMostSignificantBits());
+            out.writeLong(token.fileId().getLeastSignificantBits());
+            out.writeLong(token.ownerId().getMostSignificantBits());
+            out.writeLong(token.ownerId().getLeastSignificantBits());
+            out.writeLong(token.version());
+            out.writeLong(token.expiresAt().getEpochSecond());
+            out.writeLong(token.size());
+            out.writeLong(token.storedSize());
+            out.writeUTF(token.storageKey());
+            out.writeUTF(token.contentType());
+            out.writeUTF(token.contentEncoding() != null ? token.contentEncoding() : "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DownloadToken decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != FORMAT) {
+                throw new AccessDeniedException("Download token format is not supported");
+            }
+            UUID fileId = new UUID(in.readLong(), in.readLong());
+            UUID ownerId = new UUID(in.readLong(), in.readLong());
+            long version = in.readLong();
+            Instant expiresAt = Instant.ofEpochSecond(in.readLong());
+            long size = in.readLong();
+            long storedSize = in.readLong();
+            String storageKey = in.readUTF();
+            String contentType = in.readUTF();
+            String contentEncoding = in.readUTF();
+            return new DownloadToken(fileId, ownerId, version, storageKey, contentType,
+                    contentEncoding.isEmpty() ? null : contentEncoding, size, storedSize, expiresAt);
+        } catch (IOException e) {
+            // Подписанный, но нечитаемый payload - ключ подписи использовался для другого формата
+            throw new AccessDeniedException("Download token is malformed");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.yaser.metadata_service.dto;
+
+import com.yaser.metadata_service.audit.AuditAction;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class AuditLogEntryDTO {
+    private Long id;
+    private OffsetDateTime occurredAt;
+    private UUID actorId;
+    private AuditAction action;
+    private UUID fileId;
+    private UUID targetUserId;
+    private String detail;
+}
@@ -0,0 +1,18 @@
+package com.yaser.metadata_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class CreateFolderRequestDTO {
+
+    // null - папка верхнего уровня
+    private UUID parentId;
+
+    @NotBlank(message = "Имя папки обязательно")
+    @Size(max = 255, message = "Имя папки не может быть длиннее 255 символов")
+    private String name;
+}
@@ -0,0 +1,17 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class DailyGrowthDTO {
+    private LocalDate day;
+    private long filesAdded;
+    private long bytesAdded;
+    private long filesRemoved;
+    private long bytesRemoved;
+    private long netBytes;
+}
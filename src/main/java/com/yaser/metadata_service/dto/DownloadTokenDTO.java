@@ -0,0 +1,17 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+public class DownloadTokenDTO {
+    private UUID fileId;
+    private long version;
+    private String token;
+    private String url;
+    private Instant expiresAt;
+}
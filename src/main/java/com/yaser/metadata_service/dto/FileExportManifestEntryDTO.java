@@ -0,0 +1,17 @@
+package com.yaser.metadata_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Строка манифеста экспорта (NDJSON): метаданные файла и имя записи с его содержимым в архиве.
+ * entry = null - содержимое не загружено, записи нет
+ */
+@Data
+@Builder
+public class FileExportManifestEntryDTO {
+    private String entry;
+    @JsonUnwrapped
+    private FileMetadataResponseDTO file;
+}
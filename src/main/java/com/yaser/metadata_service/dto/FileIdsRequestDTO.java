@@ -0,0 +1,15 @@
+package com.yaser.metadata_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class FileIdsRequestDTO {
+
+    @NotEmpty(message = "Список id файлов обязателен")
+    private List<@NotNull(message = "Id файла не может быть пустым") UUID> fileIds;
+}
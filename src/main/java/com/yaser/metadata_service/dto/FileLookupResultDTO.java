@@ -0,0 +1,23 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Результат пакетного чтения для одного запрошенного id; file заполнен только при result = FOUND
+ */
+@Data
+@Builder
+public class FileLookupResultDTO {
+    private UUID id;
+    private Result result;
+    private FileMetadataResponseDTO file;
+
+    public enum Result {
+        FOUND,
+        NOT_FOUND,
+        ACCESS_DENIED
+    }
+}
@@ -0,0 +1,37 @@
+package com.yaser.metadata_service.dto;
+
+import com.yaser.metadata_service.entity.Status;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Колоночное представление списка файлов (layout=columnar).
+ * Повторяющиеся значения (владелец, тип контента, каталог storage key) вынесены в словари,
+ * строки ссылаются на них индексами; даты - epoch millis.
+ */
+@Data
+public class FileMetadataColumnarDTO {
+    private int count;
+
+    // Словари
+    private List<UUID> ownerIds = new ArrayList<>();
+    private List<String> ownerUsernames = new ArrayList<>();
+    private List<String> contentTypes = new ArrayList<>();
+    private List<String> storageKeyPrefixes = new ArrayList<>();
+    private List<Status> statuses = new ArrayList<>();
+
+    // Колонки
+    private UUID[] id;
+    private String[] fileName;
+    private int[] contentType;
+    private long[] size;
+    private int[] owner;
+    private int[] status;
+    private int[] storageKeyPrefix;
+    private String[] storageKeyName;
+    private long[] createdAt;
+    private long[] updatedAt;
+}
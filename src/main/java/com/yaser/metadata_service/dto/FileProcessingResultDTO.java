@@ -0,0 +1,16 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+@Data
+@Builder
+public class FileProcessingResultDTO {
+    private String processor;
+    private boolean success;
+    private String detail;
+    private long durationMs;
+    private OffsetDateTime processedAt;
+}
@@ -0,0 +1,15 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class FileSearchPageDTO {
+    private List<FileMetadataResponseDTO> files;
+    // Значение after для следующей страницы; null - страница последняя
+    private UUID nextAfter;
+}
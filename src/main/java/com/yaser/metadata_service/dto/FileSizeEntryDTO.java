@@ -0,0 +1,17 @@
+package com.yaser.metadata_service.dto;
+
+import com.yaser.metadata_service.entity.Status;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class FileSizeEntryDTO {
+    private UUID id;
+    private UUID ownerId;
+    private Status status;
+    private long size;
+    private String contentType;
+}
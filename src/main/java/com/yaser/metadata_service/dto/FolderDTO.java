@@ -0,0 +1,19 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class FolderDTO {
+    private UUID id;
+    private UUID ownerId;
+    private UUID parentId;
+    private String name;
+    private int depth;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,15 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class FolderListingDTO {
+    private List<FolderDTO> folders;
+    private List<FileMetadataResponseDTO> files;
+    // null - страница последняя
+    private String nextCursor;
+}
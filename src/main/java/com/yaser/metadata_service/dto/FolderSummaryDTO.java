@@ -0,0 +1,16 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class FolderSummaryDTO {
+    private UUID folderId;
+    private long folders;
+    private long files;
+    private long size;
+    private long storedSize;
+}
@@ -0,0 +1,17 @@
+package com.yaser.metadata_service.dto;
+
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class MoveFolderRequestDTO {
+
+    // null - перенос на верхний уровень
+    private UUID parentId;
+
+    // null - имя не меняется
+    @Size(min = 1, max = 255, message = "Имя папки должно быть от 1 до 255 символов")
+    private String name;
+}
@@ -0,0 +1,24 @@
+package com.yaser.metadata_service.dto;
+
+import com.yaser.metadata_service.entity.PurgeJobStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class OwnerPurgeJobDTO {
+    private UUID id;
+    private UUID ownerId;
+    private boolean deleteOwner;
+    private PurgeJobStatus status;
+    private long totalFiles;
+    private long deletedFiles;
+    private int attempts;
+    private String lastError;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime updatedAt;
+    private OffsetDateTime completedAt;
+}
@@ -0,0 +1,16 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class OwnerShardDTO {
+    private UUID ownerId;
+    private int shard;
+    private int homeShard;
+    private int shardCount;
+    private long movedFiles;
+}
@@ -0,0 +1,14 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class OwnerUsageDTO {
+    private UUID ownerId;
+    private long files;
+    private long bytes;
+}
@@ -0,0 +1,25 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class ReconciliationReportDTO {
+    private String status;
+    private boolean repair;
+    private OffsetDateTime startedAt;
+    private OffsetDateTime finishedAt;
+    private long scannedRows;
+    private long scannedObjects;
+    private long orphanedObjects;
+    private long missingObjects;
+    private long deletedObjects;
+    private long relinkedFiles;
+    private List<String> orphanedSample;
+    private List<String> missingSample;
+    private String error;
+}
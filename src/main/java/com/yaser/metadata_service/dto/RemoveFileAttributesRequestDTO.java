@@ -0,0 +1,18 @@
+package com.yaser.metadata_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class RemoveFileAttributesRequestDTO {
+
+    @NotEmpty(message = "Список id файлов обязателен")
+    private List<@NotNull(message = "Id файла не может быть пустым") UUID> fileIds;
+
+    @NotEmpty(message = "Ключи меток обязательны")
+    private List<@NotNull(message = "Ключ метки не может быть пустым") String> keys;
+}
@@ -0,0 +1,19 @@
+package com.yaser.metadata_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+public class SetFileAttributesRequestDTO {
+
+    @NotEmpty(message = "Список id файлов обязателен")
+    private List<@NotNull(message = "Id файла не может быть пустым") UUID> fileIds;
+
+    @NotEmpty(message = "Метки обязательны")
+    private Map<String, String> attributes;
+}
@@ -0,0 +1,14 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SizeBucketDTO {
+    // Границы корзины [minSize, maxSize)
+    private long minSize;
+    private long maxSize;
+    private long files;
+    private long bytes;
+}
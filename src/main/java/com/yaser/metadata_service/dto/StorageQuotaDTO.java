@@ -0,0 +1,12 @@
+package com.yaser.metadata_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class StorageQuotaDTO {
+    private long limitBytes;
+    private long usedBytes;
+    private long remainingBytes;
+}
@@ -0,0 +1,12 @@
+package com.yaser.metadata_service.dto;
+
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+@Data
+public class UpdateStorageQuotaRequestDTO {
+
+    // null - сброс квоты (действуют квоты ролей или значение по умолчанию)
+    @PositiveOrZero(message = "Квота не может быть отрицательной")
+    private Long limitBytes;
+}
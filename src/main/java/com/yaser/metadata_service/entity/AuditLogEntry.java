@@ -0,0 +1,70 @@
+package com.yaser.metadata_service.entity;
+
+import com.yaser.metadata_service.audit.AuditAction;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Запись журнала аудита. Пишется пакетами из AuditLog, из JPA только читается.
+ */
+@Entity
+@Immutable
+@Table(name = "audit_log")
+public class AuditLogEntry {
+
+    @Id
+    private Long id;
+
+    @Column(name = "occurred_at", nullable = false)
+    private OffsetDateTime occurredAt;
+
+    @Column(name = "actor_id", nullable = false)
+    private UUID actorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private AuditAction action;
+
+    @Column(name = "file_id")
+    private UUID fileId;
+
+    @Column(name = "target_user_id")
+    private UUID targetUserId;
+
+    @Column(length = 500)
+    private String detail;
+
+    protected AuditLogEntry() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public OffsetDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public UUID getActorId() {
+        return actorId;
+    }
+
+    public AuditAction getAction() {
+        return action;
+    }
+
+    public UUID getFileId() {
+        return fileId;
+    }
+
+    public UUID getTargetUserId() {
+        return targetUserId;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
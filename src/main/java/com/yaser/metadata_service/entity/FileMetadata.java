@@ -1,12 +1,22 @@
 package com.yaser.metadata_service.entity;
 
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.type.SqlTypes;
+
 import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
+// Файлы в корзине (deleted_at задан) не видны JPQL-запросам и загрузке сущностей; native-запросы
+// отбирают живые строки условием deleted_at IS NULL сами
 @Entity
 @Table(name = "file_metadata")
+@SQLRestriction("deleted_at IS NULL")
 public class FileMetadata {
 
     @Id
@@ -33,6 +43,27 @@ public class FileMetadata {
     @Column(name = "storage_key", nullable = false, unique = true, length = 500)
     private String storageKey;
 
+    // Объем в хранилище после сжатия; null - содержимое еще не загружено
+    @Column(name = "stored_size")
+    private Long storedSize;
+
+    // Кодек хранения (ContentCodec.encoding), совпадает с HTTP Content-Encoding
+    @Column(name = "content_encoding", length = 20)
+    private String contentEncoding;
+
+    // Папка файла (см. Folder); null - корень владельца
+    @Column(name = "folder_id")
+    private UUID folderId;
+
+    // Пользовательские метки "ключ -> значение" (jsonb); массово меняются запросами FileMetadataRepository
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false)
+    private Map<String, String> attributes = new HashMap<>();
+
+    // Время переноса в корзину; null - живой файл
+    @Column(name = "deleted_at")
+    private OffsetDateTime deletedAt;
+
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
@@ -90,6 +121,26 @@ public class FileMetadata {
         return this.storageKey;
     }
 
+    public Long getStoredSize() {
+        return this.storedSize;
+    }
+
+    public String getContentEncoding() {
+        return this.contentEncoding;
+    }
+
+    public UUID getFolderId() {
+        return this.folderId;
+    }
+
+    public Map<String, String> getAttributes() {
+        return this.attributes;
+    }
+
+    public OffsetDateTime getDeletedAt() {
+        return this.deletedAt;
+    }
+
     public OffsetDateTime getCreatedAt() {
         return this.createdAt;
     }
@@ -132,6 +183,26 @@ public class FileMetadata {
         this.storageKey = storageKey;
     }
 
+    public void setStoredSize(Long storedSize) {
+        this.storedSize = storedSize;
+    }
+
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public void setFolderId(UUID folderId) {
+        this.folderId = folderId;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
+    public void setDeletedAt(OffsetDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
     public void setCreatedAt(OffsetDateTime createdAt) {
         this.createdAt = createdAt;
     }
@@ -156,37 +227,12 @@ public class FileMetadata {
         updatedAt = OffsetDateTime.now();
     }
 
-    // Метод для изменения статуса с валидацией
-    public void changeStatus(Status newStatus) {
-        // Валидация перехода статусов
-        validateStatusTransition(this.status, newStatus);
+    // Метод для изменения статуса с валидацией; матрицу передает доменный сервис (сущность не управляется Spring)
+    public void changeStatus(Status newStatus, StatusTransitions transitions) {
+        transitions.validate(this.status, newStatus);
         this.status = newStatus;
     }
 
-    private void validateStatusTransition(Status currentStatus, Status newStatus) {
-        switch (currentStatus) {
-            case UPLOADED -> {
-                if (newStatus != Status.PROCESSING) {
-                    throw new IllegalStateException(
-                            String.format("UPLOADED files can only transition to PROCESSING, not to %s", newStatus)
-                    );
-                }
-            }
-            case PROCESSING -> {
-                if (newStatus != Status.READY && newStatus != Status.FAILED) {
-                    throw new IllegalStateException(
-                            String.format("PROCESSING files can only transition to READY or FAILED, not to %s", newStatus)
-                    );
-                }
-            }
-            case READY, FAILED -> {
-                throw new IllegalStateException(
-                        String.format("Cannot change status from %s - it's a final status", currentStatus)
-                );
-            }
-        }
-    }
-
     @Override
     public String toString() {
         return "FileMetadata{" +
@@ -0,0 +1,69 @@
+package com.yaser.metadata_service.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Результат одного обработчика содержимого. Пишется ContentProcessingPipeline вместе с переходом в READY/FAILED,
+ * из JPA только читается.
+ */
+@Entity
+@Immutable
+@Table(name = "file_processing_results")
+public class FileProcessingResult {
+
+    @Id
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private UUID fileId;
+
+    @Column(nullable = false, length = 50)
+    private String processor;
+
+    @Column(nullable = false)
+    private boolean success;
+
+    @Column(length = 500)
+    private String detail;
+
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+
+    @Column(name = "processed_at", nullable = false)
+    private OffsetDateTime processedAt;
+
+    protected FileProcessingResult() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getFileId() {
+        return fileId;
+    }
+
+    public String getProcessor() {
+        return processor;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public OffsetDateTime getProcessedAt() {
+        return processedAt;
+    }
+}
@@ -0,0 +1,118 @@
+package com.yaser.metadata_service.entity;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Папка владельца. path - материализованный путь из id папок от корня ("/<id>/<id>/"), поэтому поддерево
+ * выбирается, переносится и удаляется одним запросом по префиксу пути.
+ */
+@Entity
+@Table(name = "folders")
+public class Folder {
+
+    public static final String ROOT_PATH = "/";
+
+    // id назначается при создании: путь папки содержит ее собственный id
+    @Id
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "parent_id")
+    private UUID parentId;
+
+    @Column(nullable = false, length = 255)
+    private String name;
+
+    @Column(nullable = false, length = 2000)
+    private String path;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    // null у новой папки: Spring Data по нему отличает persist от merge
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    // === КОНСТРУКТОРЫ ===
+
+    public Folder() {
+        // Конструктор по умолчанию для JPA
+    }
+
+    public Folder(UUID ownerId, Folder parent, String name) {
+        this.id = UUID.randomUUID();
+        this.ownerId = ownerId;
+        this.parentId = parent != null ? parent.getId() : null;
+        this.name = name;
+        this.path = childPath(parent != null ? parent.getPath() : ROOT_PATH, id);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = updatedAt = OffsetDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+
+    public static String childPath(String parentPath, UUID id) {
+        return parentPath + id + "/";
+    }
+
+    /**
+     * Верхняя граница диапазона путей поддерева: завершающий "/" заменяется следующим символом "0"
+     */
+    public static String subtreeUpperBound(String path) {
+        return path.substring(0, path.length() - 1) + "0";
+    }
+
+    // Глубина: число id в пути
+    public int depth() {
+        return (path.length() - 1) / (36 + 1);
+    }
+
+    // === ГЕТТЕРЫ ===
+
+    public UUID getId() {
+        return this.id;
+    }
+
+    public UUID getOwnerId() {
+        return this.ownerId;
+    }
+
+    public UUID getParentId() {
+        return this.parentId;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return this.updatedAt;
+    }
+
+    public Long getVersion() {
+        return this.version;
+    }
+}
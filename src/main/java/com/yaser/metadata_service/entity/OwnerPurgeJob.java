@@ -0,0 +1,156 @@
+package com.yaser.metadata_service.entity;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Фоновая задача удаления всех файлов владельца (и, опционально, самого аккаунта).
+ * Прогресс хранится в таблице, поэтому после рестарта обработка продолжается с места остановки.
+ */
+@Entity
+@Table(name = "owner_purge_jobs")
+public class OwnerPurgeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "delete_owner", nullable = false)
+    private boolean deleteOwner;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PurgeJobStatus status = PurgeJobStatus.PENDING;
+
+    @Column(name = "total_files", nullable = false)
+    private long totalFiles;
+
+    @Column(name = "deleted_files", nullable = false)
+    private long deletedFiles;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private OffsetDateTime completedAt;
+
+    // === КОНСТРУКТОРЫ ===
+
+    public OwnerPurgeJob() {
+        // Конструктор по умолчанию для JPA
+    }
+
+    public OwnerPurgeJob(UUID ownerId, boolean deleteOwner, long totalFiles) {
+        this.ownerId = ownerId;
+        this.deleteOwner = deleteOwner;
+        this.totalFiles = totalFiles;
+    }
+
+    // === ГЕТТЕРЫ ===
+
+    public UUID getId() {
+        return this.id;
+    }
+
+    public UUID getOwnerId() {
+        return this.ownerId;
+    }
+
+    public boolean isDeleteOwner() {
+        return this.deleteOwner;
+    }
+
+    public PurgeJobStatus getStatus() {
+        return this.status;
+    }
+
+    public long getTotalFiles() {
+        return this.totalFiles;
+    }
+
+    public long getDeletedFiles() {
+        return this.deletedFiles;
+    }
+
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return this.updatedAt;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return this.completedAt;
+    }
+
+    // === БИЗНЕС-МЕТОДЫ ===
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = updatedAt = OffsetDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = OffsetDateTime.now();
+    }
+
+    public boolean isActive() {
+        return status == PurgeJobStatus.PENDING || status == PurgeJobStatus.RUNNING;
+    }
+
+    // Учет очередной удаленной порции
+    public void recordChunk(long deleted) {
+        this.status = PurgeJobStatus.RUNNING;
+        this.deletedFiles += deleted;
+        this.lastError = null;
+    }
+
+    public void complete() {
+        this.status = PurgeJobStatus.COMPLETED;
+        this.completedAt = OffsetDateTime.now();
+    }
+
+    // Неудачная попытка: задача остается активной, пока не исчерпан лимит попыток
+    public void recordFailure(String error, int maxAttempts) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (this.attempts >= maxAttempts) {
+            this.status = PurgeJobStatus.FAILED;
+            this.completedAt = OffsetDateTime.now();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OwnerPurgeJob{" +
+                "id=" + id +
+                ", ownerId=" + ownerId +
+                ", status=" + status +
+                ", deletedFiles=" + deletedFiles +
+                '}';
+    }
+}
@@ -0,0 +1,34 @@
+package com.yaser.metadata_service.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.util.UUID;
+
+/**
+ * Занятый владельцем объем для проверки квоты. Изменяется только условными upsert-ами
+ * (OwnerQuotaUsageRepository) и триггером при удалении файлов.
+ */
+@Entity
+@Immutable
+@Table(name = "owner_quota_usage")
+public class OwnerQuotaUsage {
+
+    @Id
+    @Column(name = "owner_id")
+    private UUID ownerId;
+
+    @Column(name = "used_bytes", nullable = false)
+    private long usedBytes;
+
+    protected OwnerQuotaUsage() {
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+}
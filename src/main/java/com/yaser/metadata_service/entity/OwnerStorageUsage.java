@@ -0,0 +1,40 @@
+package com.yaser.metadata_service.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.util.UUID;
+
+/**
+ * Агрегат объема файлов владельца. Поддерживается триггерами file_metadata, из приложения только читается.
+ */
+@Entity
+@Immutable
+@Table(name = "storage_usage_by_owner")
+public class OwnerStorageUsage {
+
+    @Id
+    @Column(name = "owner_id")
+    private UUID ownerId;
+
+    @Column(name = "file_count", nullable = false)
+    private long fileCount;
+
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    protected OwnerStorageUsage() {
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
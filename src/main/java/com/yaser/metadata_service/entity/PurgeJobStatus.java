@@ -0,0 +1,8 @@
+package com.yaser.metadata_service.entity;
+
+public enum PurgeJobStatus {
+    PENDING,  // задача создана, ожидает обработчика
+    RUNNING,  // удаление идет порциями
+    COMPLETED,  // все файлы владельца удалены
+    FAILED  // превышено число попыток
+}
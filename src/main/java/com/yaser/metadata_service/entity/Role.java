@@ -21,6 +21,10 @@ public class Role {
     @Column(nullable = false, unique = true, length = 50)
     private String name;
 
+    // Квота для пользователей с этой ролью; null - не задана
+    @Column(name = "storage_quota_bytes")
+    private Long storageQuotaBytes;
+
     @ManyToMany(mappedBy = "roles")
     private Set<User> users = new HashSet<>();
 
@@ -33,6 +37,10 @@ public class Role {
         return this.name;
     }
 
+    public Long getStorageQuotaBytes() {
+        return this.storageQuotaBytes;
+    }
+
     public Set<User> getUsers() {
         return this.users;
     }
@@ -46,6 +54,10 @@ public class Role {
         this.name = name;
     }
 
+    public void setStorageQuotaBytes(Long storageQuotaBytes) {
+        this.storageQuotaBytes = storageQuotaBytes;
+    }
+
     public void setUsers(Set<User> users) {
         this.users = users;
     }
@@ -1,8 +1,14 @@
 package com.yaser.metadata_service.entity;
 
+/**
+ * Статусы файла. Допустимые переходы между ними задаются конфигурацией (см. StatusTransitions).
+ */
 public enum Status {
     UPLOADED, // метаданные сохранены
     PROCESSING,  // обработка в процессе
     READY,  // обработка завершена
-    FAILED  // обработка не удалась
+    FAILED,  // обработка не удалась
+    SCANNING,  // антивирусная проверка
+    THUMBNAILING,  // построение превью
+    QUARANTINED  // файл заблокирован по результатам проверки
 }
@@ -46,6 +46,10 @@ public class User {
     @Column(name = "updated_at", nullable = false)
     private OffsetDateTime updatedAt;
 
+    // Индивидуальная квота; null - по ролям или значение по умолчанию
+    @Column(name = "storage_quota_bytes")
+    private Long storageQuotaBytes;
+
     @Version
     @Column(name = "version")
     private Long version;
@@ -97,6 +101,10 @@ public class User {
         return this.updatedAt;
     }
 
+    public Long getStorageQuotaBytes() {
+        return this.storageQuotaBytes;
+    }
+
     public Long getVersion() {
         return this.version;
     }
@@ -135,6 +143,10 @@ public class User {
         this.updatedAt = updatedAt;
     }
 
+    public void setStorageQuotaBytes(Long storageQuotaBytes) {
+        this.storageQuotaBytes = storageQuotaBytes;
+    }
+
     public void setVersion(Long version) {
         this.version = version;
     }
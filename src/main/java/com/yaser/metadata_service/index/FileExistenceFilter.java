@@ -0,0 +1,310 @@
+package com.yaser.metadata_service.index;
+
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.service.FileMetadataChangedEvent;
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Негативный кэш существования файлов (включается metadata.existence-filter.enabled): масштабируемые
+ * фильтры Блума id и storage_key всех файлов, включая корзину (ее ключи заняты до окончательной очистки).
+ * Для storage_key "точно нет" отвечается без запроса к БД (занятость ключа все равно гарантирует уникальный индекс),
+ * "возможно есть" - обычным запросом. Для id ответ фильтра не окончателен: чтение файла всегда идет в БД,
+ * а фильтр сверяется с результатом - расхождения видны в метриках false_positives и false_negatives.
+ * <p>
+ * После старта фильтры строятся потоковым чтением file_metadata всех шардов в фоне; до завершения любой
+ * ключ считается возможно существующим. Файлы, созданные в этом экземпляре, добавляются событием еще
+ * до коммита (лишний id откаченной транзакции дает только ложное срабатывание). Файлы других экземпляров
+ * подхватываются раз в refresh-interval-ms по updated_at с перекрытием refresh-overlap-ms - до этого
+ * фильтр отвечает о них "точно нет" (ложноотрицательный ответ), поэтому отказ "не найден" только по фильтру недопустим.
+ * Удаленные файлы остаются в фильтре до перестроения раз в rebuild-interval-ms.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.existence-filter", name = "enabled", havingValue = "true")
+public class FileExistenceFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FileExistenceFilter.class);
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final long expectedFiles;
+    private final double falsePositiveRate;
+    private final Duration refreshOverlap;
+
+    private volatile Filters current;
+    // Фильтры, которые строятся сейчас; новые файлы добавляются и в них
+    private volatile Filters building;
+    private volatile OffsetDateTime refreshedSince;
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    private final Counter idMisses;
+    private final Counter idHits;
+    private final Counter idFalsePositives;
+    private final Counter idFalseNegatives;
+    private final Counter keyMisses;
+    private final Counter keyHits;
+    private final Counter keyFalsePositives;
+
+    @Autowired
+    public FileExistenceFilter(
+            FileMetadataRepository fileMetadataRepository,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.existence-filter.expected-files:1000000}") long expectedFiles,
+            @Value("${metadata.existence-filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${metadata.existence-filter.refresh-overlap-ms:60000}") long refreshOverlapMillis) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.expectedFiles = expectedFiles;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshOverlap = Duration.ofMillis(refreshOverlapMillis);
+        // Проверка параметров до старта приложения, а не в фоновой загрузке
+        new ScalableBloomFilter(expectedFiles, falsePositiveRate);
+
+        registerGauges(meterRegistry, "ids", Filters::ids);
+        registerGauges(meterRegistry, "storage_keys", Filters::storageKeys);
+        this.idMisses = lookups(meterRegistry, "ids", "miss");
+        this.idHits = lookups(meterRegistry, "ids", "maybe");
+        this.idFalsePositives = falsePositives(meterRegistry, "ids");
+        this.idFalseNegatives = Counter.builder("metadata.existence_filter.false_negatives")
+                .tag("filter", "ids")
+                .description("Files found in the database that the filter reported as missing (not yet refreshed)")
+                .register(meterRegistry);
+        this.keyMisses = lookups(meterRegistry, "storage_keys", "miss");
+        this.keyHits = lookups(meterRegistry, "storage_keys", "maybe");
+        this.keyFalsePositives = falsePositives(meterRegistry, "storage_keys");
+    }
+
+    /**
+     * false - файла с таким id точно нет; true - возможно есть (или фильтр еще не построен)
+     */
+    public boolean mightContainFile(UUID fileId) {
+        Filters filters = current;
+        if (filters == null) {
+            return true;
+        }
+        boolean maybe = filters.ids().mightContain(idHash1(fileId), idHash2(fileId));
+        (maybe ? idHits : idMisses).increment();
+        return maybe;
+    }
+
+    public boolean mightContainStorageKey(String storageKey) {
+        Filters filters = current;
+        if (filters == null) {
+            return true;
+        }
+        long hash = keyHash(storageKey);
+        boolean maybe = filters.storageKeys().mightContain(hash, ScalableBloomFilter.mix(hash ^ GOLDEN_GAMMA));
+        (maybe ? keyHits : keyMisses).increment();
+        return maybe;
+    }
+
+    /**
+     * Сверка фильтра с результатом запроса файла к БД: "возможно есть" без строки - ложное срабатывание
+     * (или удаленный файл), "точно нет" при найденной строке - файл другого экземпляра, еще не попавший в фильтр
+     */
+    public void recordFileLookup(UUID fileId, boolean exists) {
+        boolean maybe = mightContainFile(fileId);
+        if (maybe && !exists) {
+            idFalsePositives.increment();
+        } else if (!maybe && exists) {
+            idFalseNegatives.increment();
+        }
+    }
+
+    public void recordStorageKeyFalsePositive() {
+        keyFalsePositives.increment();
+    }
+
+    @EventListener
+    public void onChange(FileMetadataChangedEvent event) {
+        switch (event) {
+            case FileMetadataChangedEvent.FileCreated created -> add(created.fileId(), created.storageKey());
+            case FileMetadataChangedEvent.StorageKeysChanged changed -> changed.storageKeys().forEach(this::addStorageKey);
+            case FileMetadataChangedEvent.FilesDeleted deleted -> {
+            }
+            case FileMetadataChangedEvent.StatusChanged changed -> {
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        Thread.ofVirtual().name("file-existence-filter-loader").start(this::rebuild);
+    }
+
+    /**
+     * Полное перестроение: удаленные файлы уходят из фильтра, рост слоев сбрасывается
+     */
+    @Scheduled(fixedDelayString = "${metadata.existence-filter.rebuild-interval-ms:21600000}",
+            initialDelayString = "${metadata.existence-filter.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.nanoTime();
+        OffsetDateTime since = OffsetDateTime.now();
+        try {
+            Filters filters = new Filters(
+                    new ScalableBloomFilter(expectedFiles, falsePositiveRate),
+                    new ScalableBloomFilter(expectedFiles, falsePositiveRate));
+            building = filters;
+            shardRouter.forEachShard(() -> load(filters, fileMetadataRepository::streamExistenceRows));
+            current = filters;
+            // Строки, закоммиченные во время загрузки, добирает ближайшее обновление
+            refreshedSince = since;
+            log.info("ExistenceFilter: Loaded {} files in {} ms ({} bytes)", filters.ids().approximateCount(),
+                    (System.nanoTime() - started) / 1_000_000,
+                    filters.ids().memoryBytes() + filters.storageKeys().memoryBytes());
+        } catch (RuntimeException e) {
+            log.error("ExistenceFilter: Failed to build file existence filter", e);
+        } finally {
+            building = null;
+            loading.set(false);
+        }
+    }
+
+    /**
+     * Файлы, созданные или измененные в других экземплярах после прошлого обновления
+     */
+    @Scheduled(fixedDelayString = "${metadata.existence-filter.refresh-interval-ms:5000}")
+    public void refresh() {
+        Filters filters = current;
+        OffsetDateTime since = refreshedSince;
+        if (filters == null || since == null || loading.get()) {
+            return;
+        }
+        OffsetDateTime started = OffsetDateTime.now();
+        try {
+            shardRouter.forEachShard(() -> load(filters,
+                    () -> fileMetadataRepository.streamExistenceRowsUpdatedSince(since.minus(refreshOverlap))));
+            refreshedSince = started;
+        } catch (RuntimeException e) {
+            log.warn("ExistenceFilter: Refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void load(Filters filters, Supplier<Stream<Object[]>> rows) {
+        readOnlyTransaction.execute(status -> {
+            try (Stream<Object[]> stream = rows.get()) {
+                stream.forEach(row -> filters.add((UUID) row[0], (String) row[1]));
+            }
+            return null;
+        });
+    }
+
+    private void add(UUID fileId, String storageKey) {
+        Filters filters = current;
+        if (filters != null) {
+            filters.add(fileId, storageKey);
+        }
+        Filters next = building;
+        if (next != null) {
+            next.add(fileId, storageKey);
+        }
+    }
+
+    private void addStorageKey(String storageKey) {
+        Filters filters = current;
+        if (filters != null) {
+            filters.addStorageKey(storageKey);
+        }
+        Filters next = building;
+        if (next != null) {
+            next.addStorageKey(storageKey);
+        }
+    }
+
+    private static long idHash1(UUID id) {
+        return ScalableBloomFilter.mix(id.getMostSignificantBits() ^ ScalableBloomFilter.mix(id.getLeastSignificantBits()));
+    }
+
+    private static long idHash2(UUID id) {
+        return ScalableBloomFilter.mix(id.getLeastSignificantBits() + GOLDEN_GAMMA);
+    }
+
+    // FNV-1a по символам с финальным перемешиванием
+    private static long keyHash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return ScalableBloomFilter.mix(hash);
+    }
+
+    private void registerGauges(MeterRegistry meterRegistry, String filter, Function<Filters, ScalableBloomFilter> select) {
+        Gauge.builder("metadata.existence_filter.memory", this, self -> self.measure(select, ScalableBloomFilter::memoryBytes))
+                .tag("filter", filter)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("metadata.existence_filter.entries", this,
+                        self -> self.measure(select, ScalableBloomFilter::approximateCount))
+                .tag("filter", filter)
+                .register(meterRegistry);
+        Gauge.builder("metadata.existence_filter.false_positive_rate", this,
+                        self -> self.measure(select, ScalableBloomFilter::estimatedFalsePositiveRate))
+                .tag("filter", filter)
+                .description("Estimated from the fill ratio of the filter")
+                .register(meterRegistry);
+    }
+
+    private double measure(Function<Filters, ScalableBloomFilter> select, Function<ScalableBloomFilter, Number> metric) {
+        Filters filters = current;
+        return filters != null ? metric.apply(select.apply(filters)).doubleValue() : 0;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String filter, String result) {
+        return Counter.builder("metadata.existence_filter.lookups")
+                .tag("filter", filter)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter falsePositives(MeterRegistry meterRegistry, String filter) {
+        return Counter.builder("metadata.existence_filter.false_positives")
+                .tag("filter", filter)
+                .description("Lookups the filter let through that found nothing in the database")
+                .register(meterRegistry);
+    }
+
+    private record Filters(ScalableBloomFilter ids, ScalableBloomFilter storageKeys) {
+
+        void add(UUID fileId, String storageKey) {
+            ids.put(idHash1(fileId), idHash2(fileId));
+            addStorageKey(storageKey);
+        }
+
+        void addStorageKey(String storageKey) {
+            long hash = keyHash(storageKey);
+            storageKeys.put(hash, ScalableBloomFilter.mix(hash ^ GOLDEN_GAMMA));
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.yaser.metadata_service.index;
+
+import com.yaser.metadata_service.entity.Status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Колоночный in-memory индекс всех FileMetadata на примитивных массивах (без объектов на строку).
+ * <p>
+ * Строка: id как два long, размер (long), код владельца и код типа контента (int, словари), статус (byte)
+ * плюс слот хеш-таблицы id (заполнение до 75%) - около 38 байт, т.е. ~380 МБ на 10 млн файлов.
+ * Класс не потокобезопасен: синхронизация - в {@link FileMetadataIndexService}.
+ * Запросы делят строки на диапазоны и считают их параллельно в общем ForkJoinPool.
+ */
+public class FileMetadataIndex {
+
+    private static final byte FREE = -1;
+    private static final int SCAN_CHUNK = 1 << 16;
+    private static final Status[] STATUSES = Status.values();
+
+    // Колонки
+    private long[] idHi;
+    private long[] idLo;
+    private long[] size;
+    private int[] owner;
+    private int[] contentType;
+    private byte[] status;
+
+    private int highWater;
+    private int liveRows;
+    private int[] freeRows = new int[64];
+    private int freeCount;
+
+    // Хеш-таблица id -> строка (row + 1, 0 - пусто), линейное пробирование
+    private int[] table;
+    private int mask;
+
+    // Словари повторяющихся значений
+    private final Map<UUID, Integer> ownerCodes = new HashMap<>();
+    private final List<UUID> owners = new ArrayList<>();
+    private final Map<String, Integer> contentTypeCodes = new HashMap<>();
+    private final List<String> contentTypes = new ArrayList<>();
+
+    public FileMetadataIndex(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        idHi = new long[capacity];
+        idLo = new long[capacity];
+        size = new long[capacity];
+        owner = new int[capacity];
+        contentType = new int[capacity];
+        status = new byte[capacity];
+        table = new int[tableSizeFor(capacity)];
+        mask = table.length - 1;
+    }
+
+    // === ЗАПИСЬ ===
+
+    public void upsert(UUID fileId, UUID ownerId, Status fileStatus, long fileSize, String fileContentType) {
+        long hi = fileId.getMostSignificantBits();
+        long lo = fileId.getLeastSignificantBits();
+        int row = lookup(hi, lo);
+        if (row < 0) {
+            // Рост хеш-таблицы до выделения строки: rehash видит только заполненные строки
+            if ((liveRows + 1) * 4L > table.length * 3L) {
+                rehash(table.length << 1);
+            }
+            row = allocateRow();
+            idHi[row] = hi;
+            idLo[row] = lo;
+            insertSlot(row);
+            liveRows++;
+        }
+        owner[row] = ownerCode(ownerId);
+        contentType[row] = contentTypeCode(fileContentType);
+        size[row] = fileSize;
+        status[row] = (byte) fileStatus.ordinal();
+    }
+
+    public void remove(UUID fileId) {
+        long hi = fileId.getMostSignificantBits();
+        long lo = fileId.getLeastSignificantBits();
+        int row = lookup(hi, lo);
+        if (row < 0) {
+            return;
+        }
+        removeSlot(hi, lo);
+        status[row] = FREE;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount << 1);
+        }
+        freeRows[freeCount++] = row;
+        liveRows--;
+    }
+
+    // expectedStatus == null - безусловно, иначе только если текущий статус совпадает (как предикат в SQL)
+    public void changeStatus(UUID fileId, Status expectedStatus, Status newStatus) {
+        int row = lookup(fileId.getMostSignificantBits(), fileId.getLeastSignificantBits());
+        if (row >= 0 && (expectedStatus == null || status[row] == expectedStatus.ordinal())) {
+            status[row] = (byte) newStatus.ordinal();
+        }
+    }
+
+    // === ЗАПРОСЫ ===
+
+    public int size() {
+        return liveRows;
+    }
+
+    public boolean contains(UUID fileId) {
+        return lookup(fileId.getMostSignificantBits(), fileId.getLeastSignificantBits()) >= 0;
+    }
+
+    public long[] countByStatus() {
+        return chunks().mapToObj(chunk -> {
+            long[] counts = new long[STATUSES.length];
+            for (int row = chunkStart(chunk), end = chunkEnd(chunk); row < end; row++) {
+                if (status[row] != FREE) {
+                    counts[status[row]]++;
+                }
+            }
+            return counts;
+        }).reduce(new long[STATUSES.length], FileMetadataIndex::sum);
+    }
+
+    public List<UUID> findIdsByStatus(Status fileStatus, int limit) {
+        List<UUID> result = new ArrayList<>(Math.min(limit, 1024));
+        byte code = (byte) fileStatus.ordinal();
+        for (int row = 0; row < highWater && result.size() < limit; row++) {
+            if (status[row] == code) {
+                result.add(new UUID(idHi[row], idLo[row]));
+            }
+        }
+        return result;
+    }
+
+    // Top-N по размеру: в каждом диапазоне своя куча на N строк, затем слияние
+    public List<IndexedFile> largestFiles(int limit, Status statusFilter) {
+        int statusCode = statusFilter != null ? statusFilter.ordinal() : -1;
+        List<int[]> partials = chunks().mapToObj(chunk -> {
+            PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, (a, b) -> Long.compare(size[a], size[b]));
+            for (int row = chunkStart(chunk), end = chunkEnd(chunk); row < end; row++) {
+                if (status[row] == FREE || (statusCode >= 0 && status[row] != statusCode)) {
+                    continue;
+                }
+                if (heap.size() < limit) {
+                    heap.add(row);
+                } else if (size[row] > size[heap.peek()]) {
+                    heap.poll();
+                    heap.add(row);
+                }
+            }
+            return heap.stream().mapToInt(Integer::intValue).toArray();
+        }).toList();
+
+        return partials.stream()
+                .flatMapToInt(Arrays::stream)
+                .boxed()
+                .sorted((a, b) -> Long.compare(size[b], size[a]))
+                .limit(limit)
+                .map(this::toIndexedFile)
+                .toList();
+    }
+
+    public List<OwnerUsage> topOwnersByBytes(int limit) {
+        int ownerCount = owners.size();
+        long[][] totals = chunks().mapToObj(chunk -> {
+            long[] files = new long[ownerCount];
+            long[] bytes = new long[ownerCount];
+            for (int row = chunkStart(chunk), end = chunkEnd(chunk); row < end; row++) {
+                if (status[row] != FREE) {
+                    files[owner[row]]++;
+                    bytes[owner[row]] += size[row];
+                }
+            }
+            return new long[][]{files, bytes};
+        }).reduce(new long[][]{new long[ownerCount], new long[ownerCount]},
+                (a, b) -> new long[][]{sum(a[0], b[0]), sum(a[1], b[1])});
+
+        return IntStream.range(0, ownerCount)
+                .filter(code -> totals[0][code] > 0)
+                .boxed()
+                .sorted((a, b) -> Long.compare(totals[1][b], totals[1][a]))
+                .limit(limit)
+                .map(code -> new OwnerUsage(owners.get(code), totals[0][code], totals[1][code]))
+                .toList();
+    }
+
+    // Гистограмма размеров по степеням двойки: корзина k - размеры [2^k, 2^(k+1))
+    public SizeHistogram sizeHistogram() {
+        long[][] totals = chunks().mapToObj(chunk -> {
+            long[] files = new long[64];
+            long[] bytes = new long[64];
+            for (int row = chunkStart(chunk), end = chunkEnd(chunk); row < end; row++) {
+                if (status[row] != FREE) {
+                    int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, size[row]));
+                    files[bucket]++;
+                    bytes[bucket] += size[row];
+                }
+            }
+            return new long[][]{files, bytes};
+        }).reduce(new long[][]{new long[64], new long[64]},
+                (a, b) -> new long[][]{sum(a[0], b[0]), sum(a[1], b[1])});
+        return new SizeHistogram(totals[0], totals[1]);
+    }
+
+    public long approximateMemoryBytes() {
+        long rows = idHi.length;
+        return rows * (8 + 8 + 8 + 4 + 4 + 1) + table.length * 4L + freeRows.length * 4L;
+    }
+
+    // === ВНУТРЕННИЕ МЕТОДЫ ===
+
+    private IntStream chunks() {
+        int chunkCount = (highWater + SCAN_CHUNK - 1) / SCAN_CHUNK;
+        return IntStream.range(0, chunkCount).parallel();
+    }
+
+    private int chunkStart(int chunk) {
+        return chunk * SCAN_CHUNK;
+    }
+
+    private int chunkEnd(int chunk) {
+        return Math.min(highWater, (chunk + 1) * SCAN_CHUNK);
+    }
+
+    private IndexedFile toIndexedFile(int row) {
+        return new IndexedFile(new UUID(idHi[row], idLo[row]), owners.get(owner[row]), STATUSES[status[row]],
+                size[row], contentTypes.get(contentType[row]));
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (highWater == idHi.length) {
+            int capacity = idHi.length + (idHi.length >> 1);
+            idHi = Arrays.copyOf(idHi, capacity);
+            idLo = Arrays.copyOf(idLo, capacity);
+            size = Arrays.copyOf(size, capacity);
+            owner = Arrays.copyOf(owner, capacity);
+            contentType = Arrays.copyOf(contentType, capacity);
+            status = Arrays.copyOf(status, capacity);
+        }
+        return highWater++;
+    }
+
+    private int ownerCode(UUID ownerId) {
+        return ownerCodes.computeIfAbsent(ownerId, id -> {
+            owners.add(id);
+            return owners.size() - 1;
+        });
+    }
+
+    private int contentTypeCode(String value) {
+        return contentTypeCodes.computeIfAbsent(value, v -> {
+            contentTypes.add(v);
+            return contentTypes.size() - 1;
+        });
+    }
+
+    private int lookup(long hi, long lo) {
+        for (int slot = hash(hi, lo) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int row = entry - 1;
+            if (idHi[row] == hi && idLo[row] == lo) {
+                return row;
+            }
+        }
+    }
+
+    private void insertSlot(int row) {
+        int slot = hash(idHi[row], idLo[row]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    // Удаление со сдвигом назад: цепочки пробирования остаются без "надгробий"
+    private void removeSlot(long hi, long lo) {
+        int slot = hash(hi, lo) & mask;
+        while (true) {
+            int row = table[slot] - 1;
+            if (idHi[row] == hi && idLo[row] == lo) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int hole = slot;
+        table[hole] = 0;
+        for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int row = table[next] - 1;
+            int home = hash(idHi[row], idLo[row]) & mask;
+            boolean reachable = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (!reachable) {
+                table[hole] = table[next];
+                table[next] = 0;
+                hole = next;
+            }
+        }
+    }
+
+    private void rehash(int newSize) {
+        table = new int[newSize];
+        mask = newSize - 1;
+        for (int row = 0; row < highWater; row++) {
+            if (status[row] != FREE) {
+                insertSlot(row);
+            }
+        }
+    }
+
+    static int hash(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity * 4 / 3) - 1) << 1;
+        return Math.max(16, size);
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    public record IndexedFile(UUID id, UUID ownerId, Status status, long size, String contentType) {
+    }
+
+    public record OwnerUsage(UUID ownerId, long files, long bytes) {
+    }
+
+    public record SizeHistogram(long[] files, long[] bytes) {
+    }
+}
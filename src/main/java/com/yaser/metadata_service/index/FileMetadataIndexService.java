@@ -0,0 +1,239 @@
+package com.yaser.metadata_service.index;
+
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.service.FileMetadataChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Держит {@link FileMetadataIndex} актуальным (включается metadata.index.enabled).
+ * <p>
+ * После старта индекс заполняется потоковым чтением file_metadata в фоне; изменения, закоммиченные во время
+ * загрузки, копятся в очереди и применяются после нее (операции идемпотентны). Дальше индекс обновляется
+ * событиями {@link FileMetadataChangedEvent} после коммита. Пока загрузка не завершена, запросы отклоняются.
+ * <p>
+ * Если загрузка не удалась, очередь сбрасывается и изменения больше не копятся; загрузка повторяется
+ * в новый индекс с экспоненциальной задержкой от reload-backoff-ms до reload-max-backoff-ms.
+ * Состояние видно по метрикам metadata.index.ready и metadata.index.load_failures.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.index", name = "enabled", havingValue = "true")
+public class FileMetadataIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileMetadataIndexService.class);
+
+    private static final int LOAD_BATCH = 10_000;
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int initialCapacity;
+    private final long reloadBackoffMillis;
+    private final long reloadMaxBackoffMillis;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Индекс заменяется новым при повторной загрузке (доступ под lock)
+    private FileMetadataIndex index;
+    // Изменения, пришедшие во время загрузки (доступ под write lock); копятся, только пока идет загрузка
+    private final Queue<FileMetadataChangedEvent> pendingDuringLoad = new ArrayDeque<>();
+    private boolean loading;
+    private volatile boolean ready;
+
+    private final Counter loadFailures;
+
+    @Autowired
+    public FileMetadataIndexService(
+            FileMetadataRepository fileMetadataRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.index.initial-capacity:1000000}") int initialCapacity,
+            @Value("${metadata.index.reload-backoff-ms:5000}") long reloadBackoffMillis,
+            @Value("${metadata.index.reload-max-backoff-ms:300000}") long reloadMaxBackoffMillis) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.initialCapacity = initialCapacity;
+        this.reloadBackoffMillis = reloadBackoffMillis;
+        this.reloadMaxBackoffMillis = reloadMaxBackoffMillis;
+        this.index = new FileMetadataIndex(initialCapacity);
+        this.loading = true;
+
+        Gauge.builder("metadata.index.rows", this, service -> service.readLocked(() -> service.index.size()))
+                .register(meterRegistry);
+        Gauge.builder("metadata.index.memory", this, service -> service.readLocked(() -> service.index.approximateMemoryBytes()))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("metadata.index.ready", this, service -> service.ready ? 1 : 0)
+                .register(meterRegistry);
+        this.loadFailures = Counter.builder("metadata.index.load_failures")
+                .description("Failed index loads; the index is reloaded with backoff")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        Thread.ofVirtual().name("file-metadata-index-loader").start(this::loadWithRetry);
+    }
+
+    @TransactionalEventListener
+    public void onChange(FileMetadataChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                apply(event);
+            } else if (loading) {
+                pendingDuringLoad.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long[] countByStatus() {
+        return query(() -> index.countByStatus());
+    }
+
+    public List<UUID> findIdsByStatus(Status status, int limit) {
+        return query(() -> index.findIdsByStatus(status, limit));
+    }
+
+    public List<FileMetadataIndex.IndexedFile> largestFiles(int limit, Status statusFilter) {
+        return query(() -> index.largestFiles(limit, statusFilter));
+    }
+
+    public List<FileMetadataIndex.OwnerUsage> topOwnersByBytes(int limit) {
+        return query(() -> index.topOwnersByBytes(limit));
+    }
+
+    public FileMetadataIndex.SizeHistogram sizeHistogram() {
+        return query(() -> index.sizeHistogram());
+    }
+
+    private void loadWithRetry() {
+        long backoff = reloadBackoffMillis;
+        while (!load()) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, reloadMaxBackoffMillis);
+
+            // Изменения за время ожидания не сохранялись: загрузка заново в пустой индекс
+            lock.writeLock().lock();
+            try {
+                index = new FileMetadataIndex(initialCapacity);
+                loading = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("FileIndex: Reloading file metadata index");
+        }
+    }
+
+    /**
+     * Загрузка индекса; false - не удалась, очередь изменений сброшена
+     */
+    private boolean load() {
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.execute(tx -> {
+                try (Stream<Object[]> rows = fileMetadataRepository.streamIndexRows()) {
+                    Iterator<Object[]> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        // Пакетами, чтобы не держать write lock на все время загрузки
+                        lock.writeLock().lock();
+                        try {
+                            for (int i = 0; i < LOAD_BATCH && iterator.hasNext(); i++) {
+                                Object[] row = iterator.next();
+                                index.upsert((UUID) row[0], (UUID) row[1], (Status) row[2], (Long) row[3], (String) row[4]);
+                            }
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                }
+                return null;
+            });
+
+            lock.writeLock().lock();
+            try {
+                FileMetadataChangedEvent event;
+                while ((event = pendingDuringLoad.poll()) != null) {
+                    apply(event);
+                }
+                loading = false;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("FileIndex: Loaded {} files in {} ms", readLocked(() -> index.size()),
+                    (System.nanoTime() - started) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringLoad.clear();
+                loading = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            loadFailures.increment();
+            log.error("FileIndex: Failed to load file metadata index, retrying later", e);
+            return false;
+        }
+    }
+
+    private void apply(FileMetadataChangedEvent event) {
+        switch (event) {
+            case FileMetadataChangedEvent.FileCreated created -> index.upsert(
+                    created.fileId(), created.ownerId(), created.status(), created.size(), created.contentType());
+            case FileMetadataChangedEvent.FilesDeleted deleted -> deleted.fileIds().forEach(index::remove);
+            case FileMetadataChangedEvent.StatusChanged changed -> changed.fileIds().forEach(fileId ->
+                    index.changeStatus(fileId, changed.expectedStatus(), changed.newStatus()));
+            case FileMetadataChangedEvent.StorageKeysChanged changed -> {
+                // storage_key в индексе не хранится
+            }
+        }
+    }
+
+    private <T> T query(Supplier<T> query) {
+        if (!ready) {
+            throw new IllegalStateException("File metadata index is not loaded yet");
+        }
+        return readLocked(query);
+    }
+
+    private <T> T readLocked(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.yaser.metadata_service.index;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Масштабируемый фильтр Блума (Almeida et al., 2007): при заполнении слоя добавляется новый, в growth раз
+ * больше и с вдвое меньшей вероятностью ложного срабатывания, поэтому суммарная вероятность не превышает
+ * targetFalsePositiveRate при любом числе элементов.
+ * <p>
+ * Потокобезопасен без блокировок на чтении и добавлении: биты - AtomicLongArray, слои - неизменяемый массив,
+ * заменяемый целиком при росте. Удаления не поддерживаются: удаленные элементы остаются "возможно есть"
+ * до перестроения фильтра.
+ */
+public class ScalableBloomFilter {
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+    private static final double TIGHTENING = 0.5;
+    private static final int GROWTH = 2;
+
+    private final double targetFalsePositiveRate;
+    private volatile Slice[] slices;
+
+    public ScalableBloomFilter(long initialCapacity, double targetFalsePositiveRate) {
+        if (targetFalsePositiveRate <= 0 || targetFalsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + targetFalsePositiveRate);
+        }
+        this.targetFalsePositiveRate = targetFalsePositiveRate;
+        // Сумма геометрического ряда p0 * (1 + r + r^2 + ...) = p0 / (1 - r) не превышает целевую вероятность
+        this.slices = new Slice[]{new Slice(Math.max(1024, initialCapacity), targetFalsePositiveRate * (1 - TIGHTENING))};
+    }
+
+    public boolean mightContain(long hash1, long hash2) {
+        for (Slice slice : slices) {
+            if (slice.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавление; уже присутствующий (или ложно присутствующий) элемент не занимает места в слое
+     */
+    public void put(long hash1, long hash2) {
+        if (mightContain(hash1, hash2)) {
+            return;
+        }
+        Slice current = slices[slices.length - 1];
+        if (current.count.sum() >= current.capacity) {
+            current = grow(current);
+        }
+        current.put(hash1, hash2);
+    }
+
+    private synchronized Slice grow(Slice full) {
+        Slice[] current = slices;
+        Slice last = current[current.length - 1];
+        if (last != full) {
+            return last;
+        }
+        Slice next = new Slice(last.capacity * GROWTH, last.falsePositiveRate * TIGHTENING);
+        Slice[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        slices = grown;
+        return next;
+    }
+
+    public long approximateCount() {
+        long count = 0;
+        for (Slice slice : slices) {
+            count += slice.count.sum();
+        }
+        return count;
+    }
+
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Slice slice : slices) {
+            bytes += (long) slice.bits.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Оценка текущей вероятности ложного срабатывания по доле установленных бит в каждом слое
+     */
+    public double estimatedFalsePositiveRate() {
+        double allMiss = 1;
+        for (Slice slice : slices) {
+            allMiss *= 1 - Math.pow((double) slice.setBits.sum() / slice.bitCount, slice.hashCount);
+        }
+        return 1 - allMiss;
+    }
+
+    public double targetFalsePositiveRate() {
+        return targetFalsePositiveRate;
+    }
+
+    // Финализатор MurmurHash3: хорошее перемешивание 64 бит
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static final class Slice {
+
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder setBits = new LongAdder();
+
+        Slice(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / LN2_SQUARED);
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+        }
+
+        // Двойное хеширование (Kirsch-Mitzenmacher): индекс i-й функции - hash1 + i * hash2 (шаг нечетный)
+        boolean mightContain(long hash1, long hash2) {
+            hash2 |= 1;
+            long combined = hash1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(combined, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += hash2;
+            }
+            return true;
+        }
+
+        void put(long hash1, long hash2) {
+            hash2 |= 1;
+            long combined = hash1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(combined, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long previous = bits.getAndAccumulate(word, mask, (current, added) -> current | added);
+                if ((previous & mask) == 0) {
+                    setBits.increment();
+                }
+                combined += hash2;
+            }
+            count.increment();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yaser.metadata_service.job;
+
+import com.yaser.metadata_service.service.OwnerPurgeService;
+import com.yaser.metadata_service.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фоновый обработчик задач удаления файлов владельца.
+ * Каждая порция удаляется в своей транзакции, поэтому память и длительность блокировок ограничены размером порции.
+ * Задачи лежат на шарде владельца, поэтому за один запуск обходятся все шарды.
+ */
+@Component
+public class OwnerPurgeWorker {
+
+    private final OwnerPurgeService ownerPurgeService;
+    private final ShardRouter shardRouter;
+    private final int maxChunksPerRun;
+
+    @Autowired
+    public OwnerPurgeWorker(
+            OwnerPurgeService ownerPurgeService,
+            ShardRouter shardRouter,
+            @Value("${metadata.purge.max-chunks-per-run:20}") int maxChunksPerRun) {
+        this.ownerPurgeService = ownerPurgeService;
+        this.shardRouter = shardRouter;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${metadata.purge.poll-interval-ms:2000}")
+    public void run() {
+        shardRouter.forEachShard(this::runOnShard);
+    }
+
+    // Ограничиваем объем работы за один запуск, чтобы не занимать соединение надолго
+    private void runOnShard() {
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            if (!ownerPurgeService.processNextChunk()) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.yaser.metadata_service.job;
+
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.dto.ReconciliationReportDTO;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.service.FileMetadataService.StorageKeyChange;
+import com.yaser.metadata_service.shard.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сверка объектов хранилища со storage_key в file_metadata (включается metadata.reconciliation.enabled).
+ * <p>
+ * Ключи из БД читаются постранично по keyset в порядке COLLATE "C" (на каждом шарде, шарды сливаются
+ * k-way merge), объекты - листингом ContentStore в том же порядке; один проход слиянием за O(n),
+ * в памяти - по странице на шард и текущий путь листинга. Находит:
+ * <ul>
+ *     <li>объекты без строки (упавшие загрузки, недоудаленные файлы) - старше orphan-grace-ms,
+ *     чтобы не задеть запись в процессе; производные объекты (миниатюры) не проверяются;</li>
+ *     <li>строки с учтенным содержимым (stored_size) без объекта.</li>
+ * </ul>
+ * Каждая находка перепроверяется точечным запросом. В режиме repair объект без строки удаляется, строка
+ * без объекта перепривязывается к копии на другом уровне хранения (если перенос hot/cold прервался),
+ * иначе только отчет. Такая копия сама по себе не считается объектом без строки.
+ * Скорость обхода ограничена max-keys-per-second (строки и объекты вместе), чтобы сверку можно было
+ * запускать в рабочее время. Плановый запуск - по cron на каждом экземпляре, где включена сверка.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.reconciliation", name = "enabled", havingValue = "true")
+public class StorageReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageReconciliationJob.class);
+
+    private static final String KEY_PAGE = "SELECT id, storage_key, stored_size IS NOT NULL AS stored " +
+            "FROM file_metadata WHERE storage_key COLLATE \"C\" > ? ORDER BY storage_key COLLATE \"C\" LIMIT ?";
+    private static final int SAMPLE_SIZE = 100;
+    private static final int THROTTLE_CHECK_INTERVAL = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final ContentStore contentStore;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileMetadataService fileMetadataService;
+
+    private final boolean repair;
+    private final int pageSize;
+    private final long maxKeysPerSecond;
+    private final Duration orphanGrace;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("storage-reconciliation").daemon().factory());
+    private volatile ReconciliationReportDTO lastReport;
+
+    @Autowired
+    public StorageReconciliationJob(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            ContentStore contentStore,
+            FileMetadataRepository fileMetadataRepository,
+            FileMetadataService fileMetadataService,
+            @Value("${metadata.reconciliation.repair:false}") boolean repair,
+            @Value("${metadata.reconciliation.page-size:1000}") int pageSize,
+            @Value("${metadata.reconciliation.max-keys-per-second:5000}") long maxKeysPerSecond,
+            @Value("${metadata.reconciliation.orphan-grace-ms:3600000}") long orphanGraceMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.contentStore = contentStore;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.fileMetadataService = fileMetadataService;
+        this.repair = repair;
+        this.pageSize = pageSize;
+        this.maxKeysPerSecond = maxKeysPerSecond;
+        this.orphanGrace = Duration.ofMillis(orphanGraceMillis);
+    }
+
+    @Scheduled(cron = "${metadata.reconciliation.cron:0 30 3 * * *}")
+    public void runScheduled() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Reconciliation: Previous run is still in progress, skipping");
+            return;
+        }
+        runGuarded();
+    }
+
+    /**
+     * Запуск в фоне (по запросу администратора); возвращает отчет в статусе RUNNING
+     */
+    public ReconciliationReportDTO start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Reconciliation is already running");
+        }
+        ReconciliationReportDTO report = ReconciliationReportDTO.builder()
+                .status("RUNNING")
+                .repair(repair)
+                .startedAt(OffsetDateTime.now())
+                .build();
+        lastReport = report;
+        executor.execute(this::runGuarded);
+        return report;
+    }
+
+    public ReconciliationReportDTO getLastReport() {
+        return lastReport;
+    }
+
+    private void runGuarded() {
+        try {
+            lastReport = reconcile();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReportDTO reconcile() {
+        Run run = new Run();
+        lastReport = run.toReport("RUNNING");
+        log.info("Reconciliation: Started (repair={})", repair);
+        try {
+            PriorityQueue<ShardCursor> rows = new PriorityQueue<>(
+                    Comparator.comparing((ShardCursor cursor) -> cursor.peek().storageKey(), ContentStore.KEY_ORDER));
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                ShardCursor cursor = new ShardCursor(shard);
+                if (cursor.peek() != null) {
+                    rows.add(cursor);
+                }
+            }
+            Iterator<ContentStore.ListedObject> objects = contentStore.listObjects();
+
+            KeyRow row = nextRow(rows);
+            ContentStore.ListedObject object = objects.hasNext() ? objects.next() : null;
+            while (row != null || object != null) {
+                int order = row == null ? 1
+                        : object == null ? -1
+                        : ContentStore.KEY_ORDER.compare(row.storageKey(), object.storageKey());
+                if (order <= 0) {
+                    run.scannedRows++;
+                    if (order < 0 && row.stored()) {
+                        missing(run, row);
+                    }
+                    row = nextRow(rows);
+                }
+                if (order >= 0) {
+                    run.scannedObjects++;
+                    if (order > 0) {
+                        orphaned(run, object);
+                    }
+                    object = objects.hasNext() ? objects.next() : null;
+                }
+                run.throttle();
+            }
+            ReconciliationReportDTO report = run.toReport("COMPLETED");
+            log.info("Reconciliation: Completed: {} rows, {} objects, {} orphaned objects, {} missing objects",
+                    report.getScannedRows(), report.getScannedObjects(),
+                    report.getOrphanedObjects(), report.getMissingObjects());
+            return report;
+        } catch (RuntimeException e) {
+            log.error("Reconciliation: Failed", e);
+            ReconciliationReportDTO report = run.toReport("FAILED");
+            report.setError(e.getMessage());
+            return report;
+        }
+    }
+
+    private KeyRow nextRow(PriorityQueue<ShardCursor> rows) {
+        ShardCursor cursor = rows.poll();
+        if (cursor == null) {
+            return null;
+        }
+        KeyRow row = cursor.next();
+        if (cursor.peek() != null) {
+            rows.add(cursor);
+        }
+        return row;
+    }
+
+    private void orphaned(Run run, ContentStore.ListedObject object) {
+        String storageKey = object.storageKey();
+        if (storageKey.startsWith(ContentStore.DERIVED_PREFIX)
+                || object.lastModified().isAfter(Instant.now().minus(orphanGrace))) {
+            return;
+        }
+        // Строка могла появиться после чтения ее страницы
+        if (isReferenced(storageKey)) {
+            return;
+        }
+        // Копия на другом уровне у файла, чей объект потерян, - источник для перепривязки, а не мусор
+        String counterpart = counterpartKey(storageKey);
+        if (!contentStore.exists(counterpart) && isReferenced(counterpart)) {
+            return;
+        }
+        run.orphaned++;
+        run.sample(run.orphanedSample, storageKey);
+        if (!repair) {
+            return;
+        }
+        try {
+            contentStore.delete(storageKey);
+            run.deleted++;
+            log.info("Reconciliation: Deleted orphaned object {}", storageKey);
+        } catch (IOException e) {
+            log.warn("Reconciliation: Failed to delete {}: {}", storageKey, e.getMessage());
+        }
+    }
+
+    private void missing(Run run, KeyRow row) {
+        // Объект мог быть записан после прохода листинга по его каталогу
+        if (contentStore.exists(row.storageKey())) {
+            return;
+        }
+        run.missing++;
+        run.sample(run.missingSample, row.storageKey());
+        if (!repair) {
+            return;
+        }
+        String counterpart = counterpartKey(row.storageKey());
+        if (!contentStore.exists(counterpart)) {
+            log.warn("Reconciliation: Content of file {} is lost ({})", row.id(), row.storageKey());
+            return;
+        }
+        List<UUID> relinked = shardRouter.onShard(row.shard(), () -> fileMetadataService.updateStorageKeys(
+                List.of(new StorageKeyChange(row.id(), row.storageKey(), counterpart))));
+        if (!relinked.isEmpty()) {
+            run.relinked++;
+            log.info("Reconciliation: File {} relinked from {} to {}", row.id(), row.storageKey(), counterpart);
+        }
+    }
+
+    // Как и KEY_PAGE, учитывает файлы в корзине: их содержимое нужно для восстановления
+    private boolean isReferenced(String storageKey) {
+        return shardRouter.onAllShards(() -> fileMetadataRepository.existsByStorageKey(storageKey))
+                .contains(Boolean.TRUE);
+    }
+
+    private static String counterpartKey(String storageKey) {
+        return ContentStore.isCold(storageKey) ? ContentStore.hotKey(storageKey) : ContentStore.coldKey(storageKey);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record KeyRow(int shard, UUID id, String storageKey, boolean stored) {
+    }
+
+    /**
+     * Ключи одного шарда страницами по page-size; каждая страница - отдельная короткая транзакция
+     */
+    private final class ShardCursor {
+
+        private final int shard;
+        private final Deque<KeyRow> page = new ArrayDeque<>();
+        private String after = "";
+        private boolean exhausted;
+
+        ShardCursor(int shard) {
+            this.shard = shard;
+        }
+
+        KeyRow peek() {
+            if (page.isEmpty() && !exhausted) {
+                fetch();
+            }
+            return page.peek();
+        }
+
+        KeyRow next() {
+            KeyRow row = peek();
+            page.poll();
+            return row;
+        }
+
+        private void fetch() {
+            List<KeyRow> rows = shardRouter.onShard(shard, () -> readOnlyTransaction.execute(status ->
+                    jdbcTemplate.query(KEY_PAGE, (rs, rowNum) -> new KeyRow(shard, rs.getObject("id", UUID.class),
+                            rs.getString("storage_key"), rs.getBoolean("stored")), after, pageSize)));
+            page.addAll(rows);
+            exhausted = rows.size() < pageSize;
+            if (!rows.isEmpty()) {
+                after = rows.get(rows.size() - 1).storageKey();
+            }
+        }
+    }
+
+    private final class Run {
+
+        private final OffsetDateTime startedAt = OffsetDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final List<String> orphanedSample = new ArrayList<>();
+        private final List<String> missingSample = new ArrayList<>();
+        private long scannedRows;
+        private long scannedObjects;
+        private long orphaned;
+        private long missing;
+        private long deleted;
+        private long relinked;
+
+        // Пауза, если обход опережает max-keys-per-second
+        void throttle() {
+            long scanned = scannedRows + scannedObjects;
+            if (maxKeysPerSecond <= 0 || scanned % THROTTLE_CHECK_INTERVAL != 0) {
+                return;
+            }
+            long aheadNanos = scanned * TimeUnit.SECONDS.toNanos(1) / maxKeysPerSecond - (System.nanoTime() - startNanos);
+            if (aheadNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Reconciliation interrupted", e);
+                }
+            }
+        }
+
+        void sample(List<String> sample, String storageKey) {
+            if (sample.size() < SAMPLE_SIZE) {
+                sample.add(storageKey);
+            }
+        }
+
+        ReconciliationReportDTO toReport(String status) {
+            return ReconciliationReportDTO.builder()
+                    .status(status)
+                    .repair(repair)
+                    .startedAt(startedAt)
+                    .finishedAt("RUNNING".equals(status) ? null : OffsetDateTime.now())
+                    .scannedRows(scannedRows)
+                    .scannedObjects(scannedObjects)
+                    .orphanedObjects(orphaned)
+                    .missingObjects(missing)
+                    .deletedObjects(deleted)
+                    .relinkedFiles(relinked)
+                    .orphanedSample(List.copyOf(orphanedSample))
+                    .missingSample(List.copyOf(missingSample))
+                    .build();
+        }
+    }
+}
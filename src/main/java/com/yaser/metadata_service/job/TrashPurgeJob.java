@@ -0,0 +1,141 @@
+package com.yaser.metadata_service.job;
+
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.repository.StorageKeyView;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Фоновая очистка корзины: файлы, пролежавшие в корзине дольше metadata.trash.retention-ms, удаляются
+ * порциями по batch-size строк - каждая порция одним DELETE в своей транзакции, затем удаляется содержимое
+ * (объект и миниатюра). Объект, не удаленный из-за сбоя между коммитом и удалением, найдет сверка хранилища.
+ * Строки, занятые другим экземпляром, пропускаются, поэтому очистка может работать на всех экземплярах.
+ * Нагрузка ограничена: не больше max-batches-per-run порций на шард за проход.
+ * Тот же путь использует окончательное удаление по запросу владельца (purgeOwnerFiles, emptyOwnerTrash):
+ * квота освобождается триггером при удалении строки.
+ */
+@Component
+public class TrashPurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(TrashPurgeJob.class);
+
+    private final FileMetadataService fileMetadataService;
+    private final ContentStore contentStore;
+    private final ShardRouter shardRouter;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter purgedFiles;
+    private final Counter contentFailures;
+
+    @Autowired
+    public TrashPurgeJob(
+            FileMetadataService fileMetadataService,
+            ContentStore contentStore,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.trash.retention-ms:2592000000}") long retentionMillis,
+            @Value("${metadata.trash.batch-size:1000}") int batchSize,
+            @Value("${metadata.trash.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.fileMetadataService = fileMetadataService;
+        this.contentStore = contentStore;
+        this.shardRouter = shardRouter;
+        this.retention = Duration.ofMillis(retentionMillis);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.purgedFiles = Counter.builder("metadata.trash.purged").register(meterRegistry);
+        this.contentFailures = Counter.builder("metadata.trash.content_failures")
+                .description("Purged files whose content could not be deleted; left for storage reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${metadata.trash.purge-interval-ms:60000}",
+            initialDelayString = "${metadata.trash.purge-interval-ms:60000}")
+    public void run() {
+        shardRouter.forEachShard(this::runOnShard);
+    }
+
+    private void runOnShard() {
+        OffsetDateTime deletedBefore = OffsetDateTime.now().minus(retention);
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                // Транзакция порции - в FileMetadataService; содержимое удаляется только после ее коммита
+                List<StorageKeyView> purged = fileMetadataService.purgeTrash(deletedBefore, batchSize);
+                purged.forEach(file -> deleteContent(file.getStorageKey()));
+                purgedFiles.increment(purged.size());
+                if (!purged.isEmpty()) {
+                    log.info("TrashPurge: Purged {} files", purged.size());
+                }
+                if (purged.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("TrashPurge: Batch failed", e);
+        }
+    }
+
+    /**
+     * Окончательное удаление выбранных файлов из корзины владельца; возвращает id удаленных.
+     * Вызывается вне транзакции: содержимое удаляется только после коммита DELETE
+     */
+    public List<UUID> purgeOwnerFiles(UUID ownerId, Collection<UUID> fileIds) {
+        requireNoTransaction();
+        List<StorageKeyView> purged = fileMetadataService.purgeTrashOfOwner(ownerId, fileIds);
+        purged.forEach(file -> deleteContent(file.getStorageKey()));
+        purgedFiles.increment(purged.size());
+        return purged.stream().map(StorageKeyView::getId).toList();
+    }
+
+    /**
+     * Очистка всей корзины владельца порциями по batch-size, каждая в своей транзакции; возвращает число
+     * удаленных файлов. Файлы, которые в этот момент удаляет фоновая очистка, пропускаются - их удалит она
+     */
+    public long emptyOwnerTrash(UUID ownerId) {
+        requireNoTransaction();
+        long total = 0;
+        List<StorageKeyView> purged;
+        do {
+            purged = fileMetadataService.purgeTrashBatchOfOwner(ownerId, batchSize);
+            purged.forEach(file -> deleteContent(file.getStorageKey()));
+            purgedFiles.increment(purged.size());
+            total += purged.size();
+        } while (purged.size() == batchSize);
+        return total;
+    }
+
+    private static void requireNoTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Trash purge must run outside a transaction");
+        }
+    }
+
+    private void deleteContent(String storageKey) {
+        try {
+            contentStore.delete(storageKey);
+            // Миниатюра строится до переноса в cold, по ключу в hot
+            contentStore.delete(ContentStore.DERIVED_PREFIX + ContentStore.hotKey(storageKey) + ".png");
+        } catch (IOException e) {
+            log.warn("TrashPurge: Failed to delete content {}: {}", storageKey, e.getMessage());
+            contentFailures.increment();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.yaser.metadata_service.lifecycle;
+
+import com.yaser.metadata_service.entity.Status;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * metadata.lifecycle.transitions: исходный статус -> допустимые целевые; не перечисленные статусы финальные
+ */
+@ConfigurationProperties(prefix = "metadata.lifecycle")
+public record StatusLifecycleProperties(Map<Status, Set<Status>> transitions) {
+}
@@ -0,0 +1,19 @@
+package com.yaser.metadata_service.lifecycle;
+
+import com.yaser.metadata_service.entity.Status;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Хук перехода статуса. Бин с этим интерфейсом подключается автоматически к переходам, для которых appliesTo = true.
+ * <p>
+ * Вызывается в транзакции, меняющей статус, после UPDATE; исключение откатывает переход
+ * (в write-behind буфере пакет возвращается в очередь). Пакетные пути передают сразу несколько файлов.
+ */
+public interface StatusTransitionHook {
+
+    boolean appliesTo(Status from, Status to);
+
+    void onTransition(List<UUID> fileIds, Status from, Status to);
+}
@@ -0,0 +1,63 @@
+package com.yaser.metadata_service.lifecycle;
+
+import com.yaser.metadata_service.entity.Status;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Хуки, разложенные по ячейкам матрицы переходов при старте. Переход без хуков обходится одной проверкой длины массива.
+ */
+@Component
+public class StatusTransitionHooks {
+
+    private static final Status[] STATUSES = Status.values();
+    private static final StatusTransitionHook[] NONE = {};
+
+    private final StatusTransitionHook[][] byTransition = new StatusTransitionHook[STATUSES.length * STATUSES.length][];
+    private final long[] hookedSources = new long[STATUSES.length];
+
+    @Autowired
+    public StatusTransitionHooks(ObjectProvider<StatusTransitionHook> hooks, StatusTransitions transitions) {
+        List<StatusTransitionHook> ordered = hooks.orderedStream().toList();
+        for (Status from : STATUSES) {
+            for (Status to : STATUSES) {
+                byTransition[cell(from, to)] = NONE;
+                if (!transitions.isAllowed(from, to)) {
+                    continue;
+                }
+                StatusTransitionHook[] applicable = ordered.stream()
+                        .filter(hook -> hook.appliesTo(from, to))
+                        .toArray(StatusTransitionHook[]::new);
+                if (applicable.length > 0) {
+                    byTransition[cell(from, to)] = applicable;
+                    hookedSources[to.ordinal()] |= 1L << from.ordinal();
+                }
+            }
+        }
+    }
+
+    public boolean hasHooks(Status from, Status to) {
+        return byTransition[cell(from, to)].length > 0;
+    }
+
+    /**
+     * Есть ли хуки хотя бы на одном переходе в целевой статус
+     */
+    public boolean hasHooksInto(Status to) {
+        return hookedSources[to.ordinal()] != 0;
+    }
+
+    public void fire(List<UUID> fileIds, Status from, Status to) {
+        for (StatusTransitionHook hook : byTransition[cell(from, to)]) {
+            hook.onTransition(fileIds, from, to);
+        }
+    }
+
+    private static int cell(Status from, Status to) {
+        return from.ordinal() * STATUSES.length + to.ordinal();
+    }
+}
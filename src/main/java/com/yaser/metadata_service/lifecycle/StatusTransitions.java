@@ -0,0 +1,148 @@
+package com.yaser.metadata_service.lifecycle;
+
+import com.yaser.metadata_service.entity.Status;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Матрица допустимых переходов статусов файла: битовая маска целевых статусов на каждый исходный.
+ * <p>
+ * Единственный источник правил для сущности, доменного сервиса, write-behind буфера и SQL-предикатов
+ * (sourceNames). Строится один раз из конфигурации metadata.lifecycle.transitions и передается явно
+ * (бин StatusLifecycleConfig; сущности - аргументом changeStatus); статусы без исходящих
+ * переходов - финальные. Граф переходов должен быть ациклическим, поэтому путь файла не длиннее числа статусов.
+ * Успешная проверка перехода ничего не аллоцирует, сообщение об ошибке строится только при отказе.
+ */
+public final class StatusTransitions {
+
+    private static final Status[] STATUSES = Status.values();
+
+    private final long[] targets;
+    private final List<List<String>> sourceNames;
+    private final List<String> finalNames;
+
+    private StatusTransitions(long[] targets) {
+        this.targets = targets;
+
+        this.sourceNames = Arrays.stream(STATUSES)
+                .map(to -> Arrays.stream(STATUSES)
+                        .filter(from -> isAllowed(from, to))
+                        .map(Status::name)
+                        .toList())
+                .toList();
+        this.finalNames = Arrays.stream(STATUSES)
+                .filter(this::isFinal)
+                .map(Status::name)
+                .toList();
+    }
+
+    /**
+     * Матрица из конфигурации: исходный статус -> допустимые целевые
+     */
+    public static StatusTransitions of(Map<Status, ? extends Collection<Status>> transitions) {
+        if (STATUSES.length > Long.SIZE) {
+            throw new IllegalStateException("Too many statuses for a bitmask transition matrix: " + STATUSES.length);
+        }
+        long[] targets = new long[STATUSES.length];
+        transitions.forEach((from, to) -> {
+            for (Status target : to) {
+                if (target == from) {
+                    throw new IllegalArgumentException("Status cannot transition to itself: " + from);
+                }
+                targets[from.ordinal()] |= 1L << target.ordinal();
+            }
+        });
+        requireAcyclic(targets);
+        return new StatusTransitions(targets);
+    }
+
+    /**
+     * Правила по умолчанию (совпадают с metadata.lifecycle.transitions в application.yaml)
+     */
+    public static StatusTransitions defaults() {
+        Map<Status, Set<Status>> transitions = new EnumMap<>(Status.class);
+        transitions.put(Status.UPLOADED, EnumSet.of(Status.PROCESSING, Status.SCANNING));
+        transitions.put(Status.SCANNING, EnumSet.of(Status.PROCESSING, Status.QUARANTINED, Status.FAILED));
+        transitions.put(Status.PROCESSING, EnumSet.of(Status.THUMBNAILING, Status.READY, Status.FAILED));
+        transitions.put(Status.THUMBNAILING, EnumSet.of(Status.READY, Status.FAILED));
+        return of(transitions);
+    }
+
+    public boolean isAllowed(Status from, Status to) {
+        return (targets[from.ordinal()] & (1L << to.ordinal())) != 0;
+    }
+
+    public boolean isFinal(Status status) {
+        return targets[status.ordinal()] == 0;
+    }
+
+    /**
+     * Бросает IllegalStateException с описанием запрещенного перехода
+     */
+    public void validate(Status from, Status to) {
+        if (!isAllowed(from, to)) {
+            throw new IllegalStateException(describeRejection(from, to));
+        }
+    }
+
+    /**
+     * Имена статусов, из которых разрешен переход в целевой (для условия status IN (...) в SQL)
+     */
+    public List<String> sourceNames(Status to) {
+        return sourceNames.get(to.ordinal());
+    }
+
+    /**
+     * Имена финальных статусов (для условия status IN (...) в SQL)
+     */
+    public List<String> finalNames() {
+        return finalNames;
+    }
+
+    public Set<Status> targetsOf(Status from) {
+        Set<Status> result = EnumSet.noneOf(Status.class);
+        for (Status status : STATUSES) {
+            if (isAllowed(from, status)) {
+                result.add(status);
+            }
+        }
+        return result;
+    }
+
+    private String describeRejection(Status from, Status to) {
+        if (isFinal(from)) {
+            return String.format("Cannot change status from %s - it's a final status", from);
+        }
+        String allowed = targetsOf(from).stream().map(Status::name).collect(Collectors.joining(", "));
+        return String.format("%s files can only transition to %s, not to %s", from, allowed, to);
+    }
+
+    // Поиск цикла обходом в глубину по битовым маскам
+    private static void requireAcyclic(long[] targets) {
+        byte[] state = new byte[targets.length];
+        for (int from = 0; from < targets.length; from++) {
+            visit(from, targets, state);
+        }
+    }
+
+    private static void visit(int from, long[] targets, byte[] state) {
+        if (state[from] == 2) {
+            return;
+        }
+        if (state[from] == 1) {
+            throw new IllegalArgumentException("Status transitions must not form a cycle (via " + STATUSES[from] + ")");
+        }
+        state[from] = 1;
+        for (long rest = targets[from]; rest != 0; rest &= rest - 1) {
+            visit(Long.numberOfTrailingZeros(rest), targets, state);
+        }
+        state[from] = 2;
+    }
+}
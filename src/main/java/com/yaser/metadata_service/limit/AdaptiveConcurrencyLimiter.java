@@ -0,0 +1,143 @@
+package com.yaser.metadata_service.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Адаптивный лимит одновременных запросов к БД (градиентный алгоритм).
+ * <p>
+ * Долгосрочная задержка - скользящее среднее по ~{@value #LONG_WINDOW} запросам, краткосрочная - по
+ * последнему запросу. Пока задержка не растет, лимит увеличивается на sqrt(limit) (запас под очередь);
+ * рост задержки в tolerance раз и больше уменьшает лимит пропорционально, не более чем вдвое за шаг.
+ * Исчерпание пула соединений (drop) сразу уменьшает лимит на 10%. Запросы сверх лимита не ждут - отклоняются.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.limits", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Пересчет лимита пропускается, если им уже занят другой поток: отклики не ждут друг друга
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile double estimatedLimit;
+    private volatile int limit;
+    private volatile double longRttNanos;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${metadata.limits.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${metadata.limits.concurrency.min-limit:4}") int minLimit,
+            @Value("${metadata.limits.concurrency.max-limit:200}") int maxLimit,
+            @Value("${metadata.limits.concurrency.tolerance:2.0}") double tolerance) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+
+        Gauge.builder("metadata.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("metadata.limiter.inflight", inFlight, AtomicInteger::get)
+                .description("Requests currently holding a concurrency permit")
+                .register(meterRegistry);
+        Gauge.builder("metadata.limiter.rtt.long", this, limiter -> limiter.longRttNanos / 1_000_000.0)
+                .description("Long-term average latency in milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Захват разрешения; null - лимит исчерпан
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Permit(System.nanoTime(), current + 1);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        if (!updateLock.tryLock()) {
+            return;
+        }
+        try {
+            double newLimit;
+            if (dropped) {
+                newLimit = estimatedLimit * DROP_BACKOFF;
+            } else {
+                updateLongRtt(rttNanos);
+                // Нагрузка заметно ниже лимита ничего не говорит о его достаточности
+                if (inFlightAtStart < estimatedLimit / 2) {
+                    return;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+                double queueSize = Math.sqrt(estimatedLimit);
+                newLimit = estimatedLimit * gradient + queueSize;
+                newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            }
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            limit = (int) estimatedLimit;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void updateLongRtt(long rttNanos) {
+        longRttNanos = longRttNanos == 0
+                ? rttNanos
+                : longRttNanos + (rttNanos - longRttNanos) / LONG_WINDOW;
+    }
+
+    /**
+     * Разрешение на один запрос; освобождается ровно один раз
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release(boolean dropped) {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos, inFlightAtStart, dropped);
+        }
+    }
+}
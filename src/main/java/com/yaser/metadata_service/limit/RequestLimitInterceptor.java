@@ -0,0 +1,200 @@
+package com.yaser.metadata_service.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.lang.reflect.Method;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Защита обработчиков, обращающихся к БД: сначала корзина пользователя (X-User-Id; для /api/processing -
+ * отдельный бюджет процессинга), затем общий адаптивный лимит. Перегрузка отклоняется сразу - 429 с Retry-After, без ожидания в очереди.
+ * <p>
+ * Потоковые ответы (StreamingResponseBody: содержимое, экспорт) обрабатываются в два диспетчера. Адаптивное
+ * разрешение берется один раз в первом и освобождается, когда обработчик вернул управление и началась
+ * асинхронная запись. Сами потоки читают БД и хранилище все время записи, поэтому ограничены отдельно:
+ * слот потока (streaming.max-concurrent) берется вместе с разрешением и освобождается только по завершении
+ * ASYNC-диспетчера. Повторный ASYNC-диспетчер лимиты не проверяет.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.limits", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestLimitInterceptor.class);
+
+    private static final String PERMIT_ATTRIBUTE = RequestLimitInterceptor.class.getName() + ".permit";
+    private static final String STREAM_ATTRIBUTE = RequestLimitInterceptor.class.getName() + ".stream";
+    private static final String USER_HEADER = "X-User-Id";
+    private static final String PROCESSING_PATH = "/api/processing/";
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final UserRateLimiter userRateLimiter;
+    private final Semaphore streams;
+    // Возвращает ли обработчик потоковый ответ - по типу результата метода, один раз на метод
+    private final Map<Method, Boolean> streamingHandlers = new ConcurrentHashMap<>();
+    private final Counter rejectedByRate;
+    private final Counter rejectedByConcurrency;
+    private final Counter rejectedByStreams;
+
+    @Autowired
+    public RequestLimitInterceptor(
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            UserRateLimiter userRateLimiter,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.limits.streaming.max-concurrent:32}") int maxStreams) {
+        if (maxStreams < 1) {
+            throw new IllegalArgumentException("metadata.limits.streaming.max-concurrent must be positive");
+        }
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.userRateLimiter = userRateLimiter;
+        this.streams = new Semaphore(maxStreams);
+        Gauge.builder("metadata.limiter.streams", streams, s -> maxStreams - s.availablePermits())
+                .description("Streaming responses currently being written")
+                .register(meterRegistry);
+        this.rejectedByRate = Counter.builder("metadata.limiter.rejected").tag("reason", "user_rate")
+                .register(meterRegistry);
+        this.rejectedByConcurrency = Counter.builder("metadata.limiter.rejected").tag("reason", "concurrency")
+                .register(meterRegistry);
+        this.rejectedByStreams = Counter.builder("metadata.limiter.rejected").tag("reason", "streams")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        UUID userId = parseUserId(request.getHeader(USER_HEADER));
+        if (userId != null) {
+            long waitNanos = isProcessing(request)
+                    ? userRateLimiter.tryAcquireProcessing(userId)
+                    : userRateLimiter.tryAcquire(userId);
+            if (waitNanos > 0) {
+                rejectedByRate.increment();
+                reject(response, waitNanos);
+                return false;
+            }
+        }
+
+        boolean streaming = isStreaming(handler);
+        if (streaming && !streams.tryAcquire()) {
+            rejectedByStreams.increment();
+            log.debug("RequestLimit: Rejected stream {} {}", request.getMethod(), request.getRequestURI());
+            reject(response, TimeUnit.SECONDS.toNanos(1));
+            return false;
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+        if (permit == null) {
+            if (streaming) {
+                streams.release();
+            }
+            rejectedByConcurrency.increment();
+            log.debug("RequestLimit: Rejected {} {} at limit {}",
+                    request.getMethod(), request.getRequestURI(), concurrencyLimiter.getLimit());
+            reject(response, TimeUnit.SECONDS.toNanos(1));
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        if (streaming) {
+            request.setAttribute(STREAM_ATTRIBUTE, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    // Обработчик вернул управление, запись идет асинхронно: слот потока остается занятым до afterCompletion
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        release(request, null);
+    }
+
+    // Для потокового ответа вызывается в конце ASYNC-диспетчера (запись завершена, прервана или по таймауту)
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request, ex);
+        if (request.getAttribute(STREAM_ATTRIBUTE) != null) {
+            request.removeAttribute(STREAM_ATTRIBUTE);
+            streams.release();
+        }
+    }
+
+    private boolean isStreaming(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return false;
+        }
+        return streamingHandlers.computeIfAbsent(handlerMethod.getMethod(), method -> {
+            ResolvableType type = ResolvableType.forMethodReturnType(method);
+            if (ResponseEntity.class.isAssignableFrom(type.toClass())) {
+                type = type.getGeneric(0);
+            }
+            return StreamingResponseBody.class.isAssignableFrom(type.toClass());
+        });
+    }
+
+    // Атрибут снимается при освобождении: разрешение освобождается ровно один раз
+    private static void release(HttpServletRequest request, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.release(isPoolExhaustion(ex));
+        }
+    }
+
+    private static boolean isProcessing(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + PROCESSING_PATH);
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+
+    /**
+     * Отказ из-за нехватки соединений - сигнал перегрузки БД, в отличие от бизнес-ошибок
+     */
+    private static boolean isPoolExhaustion(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CannotCreateTransactionException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static UUID parseUserId(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
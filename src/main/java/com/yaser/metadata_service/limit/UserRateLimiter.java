@@ -0,0 +1,108 @@
+package com.yaser.metadata_service.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket на пользователя в форме GCRA: состояние корзины - одно число (теоретическое время
+ * прибытия следующего запроса), списание - одна CAS-операция без блокировок.
+ * <p>
+ * Запросы процессинга (/api/processing) списываются из отдельных корзин со своим бюджетом: их шлет
+ * сервисная учетная запись за все файлы сразу, и пользовательский бюджет для нее заведомо мал.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.limits", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserRateLimiter {
+
+    private final Buckets userBuckets;
+    private final Buckets processingBuckets;
+
+    @Autowired
+    public UserRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${metadata.limits.user-rate.requests-per-second:50}") double requestsPerSecond,
+            @Value("${metadata.limits.user-rate.burst:100}") int burst,
+            @Value("${metadata.limits.processing-rate.requests-per-second:2000}") double processingRequestsPerSecond,
+            @Value("${metadata.limits.processing-rate.burst:4000}") int processingBurst) {
+        this.userBuckets = new Buckets(requestsPerSecond, burst);
+        this.processingBuckets = new Buckets(processingRequestsPerSecond, processingBurst);
+
+        Gauge.builder("metadata.limiter.user_buckets", this,
+                        limiter -> limiter.userBuckets.size() + limiter.processingBuckets.size())
+                .description("Users with a partially drained rate bucket")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Списание токена; 0 - запрос разрешен, иначе через сколько наносекунд появится токен
+     */
+    public long tryAcquire(UUID userId) {
+        return userBuckets.tryAcquire(userId);
+    }
+
+    /**
+     * Списание токена из бюджета процессинга (тот же контракт, что у tryAcquire)
+     */
+    public long tryAcquireProcessing(UUID userId) {
+        return processingBuckets.tryAcquire(userId);
+    }
+
+    /**
+     * Удаление полностью восстановившихся корзин (память ограничена активными пользователями)
+     */
+    @Scheduled(fixedDelayString = "${metadata.limits.user-rate.cleanup-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        userBuckets.evictIdle(now);
+        processingBuckets.evictIdle(now);
+    }
+
+    private static final class Buckets {
+
+        private final long intervalNanos;
+        private final long burstToleranceNanos;
+        private final ConcurrentHashMap<UUID, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        Buckets(double requestsPerSecond, int burst) {
+            if (requestsPerSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("User rate and burst must be positive");
+            }
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            this.burstToleranceNanos = intervalNanos * (burst - 1);
+        }
+
+        long tryAcquire(UUID userId) {
+            AtomicLong bucket = buckets.computeIfAbsent(userId, id -> new AtomicLong(Long.MIN_VALUE));
+            while (true) {
+                long now = System.nanoTime();
+                long tat = bucket.get();
+                long base = tat == Long.MIN_VALUE || tat - now < 0 ? now : tat;
+                long wait = base - burstToleranceNanos - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(tat, base + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        void evictIdle(long now) {
+            buckets.entrySet().removeIf(entry -> entry.getValue().get() - now < 0);
+        }
+
+        int size() {
+            return buckets.size();
+        }
+    }
+}
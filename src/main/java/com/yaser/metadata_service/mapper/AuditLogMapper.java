@@ -0,0 +1,11 @@
+package com.yaser.metadata_service.mapper;
+
+import com.yaser.metadata_service.dto.AuditLogEntryDTO;
+import com.yaser.metadata_service.entity.AuditLogEntry;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface AuditLogMapper {
+
+    AuditLogEntryDTO toDTO(AuditLogEntry entity);
+}
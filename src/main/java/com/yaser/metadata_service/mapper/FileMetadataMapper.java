@@ -1,14 +1,25 @@
 package com.yaser.metadata_service.mapper;
 
+import com.yaser.metadata_service.dto.FileMetadataColumnarDTO;
 import com.yaser.metadata_service.dto.FileMetadataResponseDTO;
 import com.yaser.metadata_service.dto.FileUploadRequestDTO;
 import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", uses = AttributesJsonMapper.class)
 public interface FileMetadataMapper {
 
     @Mapping(target = "id", ignore = true)
@@ -18,12 +29,82 @@ public interface FileMetadataMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "version", ignore = true)
     @Mapping(target = "owner", ignore = true)
+    @Mapping(target = "storedSize", ignore = true)
+    @Mapping(target = "contentEncoding", ignore = true)
+    @Mapping(target = "folderId", ignore = true)
+    @Mapping(target = "attributes", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
     FileMetadata toEntity(FileUploadRequestDTO dto);
 
     @Mapping(source = "owner.id", target = "ownerId")
     @Mapping(source = "owner.username", target = "ownerUsername")
     FileMetadataResponseDTO toResponseDTO(FileMetadata entity);
 
+    FileMetadataResponseDTO toResponseDTO(FileMetadataRowView row);
+
+    // Время в UTC, как у сущностей (hibernate.jdbc.time_zone)
+    default OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Колоночное представление списка со словарным кодированием повторяющихся значений
+     */
+    default FileMetadataColumnarDTO toColumnarDTO(List<FileMetadataResponseDTO> files) {
+        int n = files.size();
+        FileMetadataColumnarDTO columnar = new FileMetadataColumnarDTO();
+        columnar.setCount(n);
+        columnar.setId(new UUID[n]);
+        columnar.setFileName(new String[n]);
+        columnar.setContentType(new int[n]);
+        columnar.setSize(new long[n]);
+        columnar.setOwner(new int[n]);
+        columnar.setStatus(new int[n]);
+        columnar.setStorageKeyPrefix(new int[n]);
+        columnar.setStorageKeyName(new String[n]);
+        columnar.setCreatedAt(new long[n]);
+        columnar.setUpdatedAt(new long[n]);
+
+        Map<UUID, Integer> owners = new HashMap<>();
+        Map<String, Integer> contentTypes = new HashMap<>();
+        Map<String, Integer> prefixes = new HashMap<>();
+        Map<Status, Integer> statuses = new EnumMap<>(Status.class);
+
+        for (int i = 0; i < n; i++) {
+            FileMetadataResponseDTO file = files.get(i);
+            columnar.getId()[i] = file.getId();
+            columnar.getFileName()[i] = file.getFileName();
+            columnar.getSize()[i] = file.getSize() != null ? file.getSize() : 0L;
+            columnar.getCreatedAt()[i] = file.getCreatedAt() != null ? file.getCreatedAt().toInstant().toEpochMilli() : 0L;
+            columnar.getUpdatedAt()[i] = file.getUpdatedAt() != null ? file.getUpdatedAt().toInstant().toEpochMilli() : 0L;
+
+            columnar.getOwner()[i] = owners.computeIfAbsent(file.getOwnerId(), id -> {
+                columnar.getOwnerIds().add(id);
+                columnar.getOwnerUsernames().add(file.getOwnerUsername());
+                return columnar.getOwnerIds().size() - 1;
+            });
+            columnar.getContentType()[i] = dictionaryIndex(contentTypes, columnar.getContentTypes(), file.getContentType());
+            columnar.getStatus()[i] = statuses.computeIfAbsent(file.getStatus(), status -> {
+                columnar.getStatuses().add(status);
+                return columnar.getStatuses().size() - 1;
+            });
+
+            String storageKey = file.getStorageKey() != null ? file.getStorageKey() : "";
+            int slash = storageKey.lastIndexOf('/');
+            columnar.getStorageKeyPrefix()[i] = dictionaryIndex(prefixes, columnar.getStorageKeyPrefixes(), storageKey.substring(0, slash + 1));
+            columnar.getStorageKeyName()[i] = storageKey.substring(slash + 1);
+        }
+
+        return columnar;
+    }
+
+    private static int dictionaryIndex(Map<String, Integer> index, List<String> dictionary, String value) {
+        return index.computeIfAbsent(value, v -> {
+            dictionary.add(v);
+            return dictionary.size() - 1;
+        });
+    }
+
     @Named("generateStorageKey")
     default String generateStorageKey() {
         return "files/" + UUID.randomUUID();
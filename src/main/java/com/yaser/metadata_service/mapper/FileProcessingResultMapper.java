@@ -0,0 +1,11 @@
+package com.yaser.metadata_service.mapper;
+
+import com.yaser.metadata_service.dto.FileProcessingResultDTO;
+import com.yaser.metadata_service.entity.FileProcessingResult;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface FileProcessingResultMapper {
+
+    FileProcessingResultDTO toDTO(FileProcessingResult entity);
+}
@@ -0,0 +1,17 @@
+package com.yaser.metadata_service.mapper;
+
+import com.yaser.metadata_service.dto.FolderDTO;
+import com.yaser.metadata_service.entity.Folder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface FolderMapper {
+
+    @Mapping(target = "depth", expression = "java(entity.depth())")
+    FolderDTO toDTO(Folder entity);
+
+    List<FolderDTO> toDTOList(List<Folder> entities);
+}
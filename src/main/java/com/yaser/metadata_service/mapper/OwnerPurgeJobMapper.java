@@ -0,0 +1,11 @@
+package com.yaser.metadata_service.mapper;
+
+import com.yaser.metadata_service.dto.OwnerPurgeJobDTO;
+import com.yaser.metadata_service.entity.OwnerPurgeJob;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface OwnerPurgeJobMapper {
+
+    OwnerPurgeJobDTO toDTO(OwnerPurgeJob entity);
+}
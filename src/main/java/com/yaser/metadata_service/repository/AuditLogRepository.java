@@ -0,0 +1,66 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.AuditLogEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface AuditLogRepository extends Repository<AuditLogEntry, Long> {
+
+    /**
+     * Необязательные фильтры: отдельный запрос на каждое сочетание, чтобы у каждого был свой план.
+     * При заданном actorId или fileId работают составные индексы, иначе BRIN по occurred_at
+     */
+    default List<AuditLogEntry> search(UUID actorId, UUID fileId, OffsetDateTime from, OffsetDateTime to, Limit limit) {
+        if (actorId != null && fileId != null) {
+            return searchByActorAndFile(actorId, fileId, from, to, limit);
+        }
+        if (actorId != null) {
+            return searchByActor(actorId, from, to, limit);
+        }
+        if (fileId != null) {
+            return searchByFile(fileId, from, to, limit);
+        }
+        return searchAll(from, to, limit);
+    }
+
+    @Query("SELECT e FROM AuditLogEntry e " +
+            "WHERE e.actorId = :actorId AND e.fileId = :fileId " +
+            "AND e.occurredAt >= :from AND e.occurredAt < :to " +
+            "ORDER BY e.occurredAt DESC, e.id DESC")
+    List<AuditLogEntry> searchByActorAndFile(@Param("actorId") UUID actorId,
+                                             @Param("fileId") UUID fileId,
+                                             @Param("from") OffsetDateTime from,
+                                             @Param("to") OffsetDateTime to,
+                                             Limit limit);
+
+    @Query("SELECT e FROM AuditLogEntry e " +
+            "WHERE e.actorId = :actorId " +
+            "AND e.occurredAt >= :from AND e.occurredAt < :to " +
+            "ORDER BY e.occurredAt DESC, e.id DESC")
+    List<AuditLogEntry> searchByActor(@Param("actorId") UUID actorId,
+                                      @Param("from") OffsetDateTime from,
+                                      @Param("to") OffsetDateTime to,
+                                      Limit limit);
+
+    @Query("SELECT e FROM AuditLogEntry e " +
+            "WHERE e.fileId = :fileId " +
+            "AND e.occurredAt >= :from AND e.occurredAt < :to " +
+            "ORDER BY e.occurredAt DESC, e.id DESC")
+    List<AuditLogEntry> searchByFile(@Param("fileId") UUID fileId,
+                                     @Param("from") OffsetDateTime from,
+                                     @Param("to") OffsetDateTime to,
+                                     Limit limit);
+
+    @Query("SELECT e FROM AuditLogEntry e " +
+            "WHERE e.occurredAt >= :from AND e.occurredAt < :to " +
+            "ORDER BY e.occurredAt DESC, e.id DESC")
+    List<AuditLogEntry> searchAll(@Param("from") OffsetDateTime from,
+                                  @Param("to") OffsetDateTime to,
+                                  Limit limit);
+}
@@ -3,16 +3,22 @@ package com.yaser.metadata_service.repository;
 import com.yaser.metadata_service.entity.FileMetadata;
 import com.yaser.metadata_service.entity.Status;
 import com.yaser.metadata_service.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID> {
+public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID>, FileMetadataSearchRepository {
 
     // === 1. Методы поиска ===
 
@@ -28,7 +34,13 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID
 
     Optional<FileMetadata> findByStorageKey(String storageKey);
 
-    boolean existsByStorageKeyAndIdNot(String storageKey, UUID fileId);
+    // Занятость storage_key - среди всех строк, включая корзину: ключ освобождается только окончательной очисткой
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM file_metadata WHERE storage_key = :storageKey)", nativeQuery = true)
+    boolean existsByStorageKey(@Param("storageKey") String storageKey);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM file_metadata WHERE storage_key = :storageKey AND id <> :fileId)",
+            nativeQuery = true)
+    boolean existsByStorageKeyAndIdNot(@Param("storageKey") String storageKey, @Param("fileId") UUID fileId);
 
     List<FileMetadata> findByContentType(String contentType);
 
@@ -48,7 +60,52 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID
 
     // === 3. Методы удаления ===
 
-    void deleteByOwner(User owner);
+    // Удаление порцией одним set-based запросом (без загрузки сущностей в память); возвращает id удаленных строк
+    @Query(value = "DELETE FROM file_metadata WHERE id IN " +
+            "(SELECT id FROM file_metadata WHERE owner_id = :ownerId LIMIT :limit) RETURNING id", nativeQuery = true)
+    List<UUID> deleteChunkByOwnerId(@Param("ownerId") UUID ownerId, @Param("limit") int limit);
+
+    // Перенос в корзину одним запросом; количество строк показывает, существовал ли файл
+    @Modifying
+    @Query(value = "UPDATE file_metadata SET deleted_at = now(), version = version + 1, updated_at = now() " +
+            "WHERE id = :id AND deleted_at IS NULL", nativeQuery = true)
+    int trashById(@Param("id") UUID id);
+
+    // Перенос в корзину с проверкой владельца в предикате: один UPDATE, строка удаляется позже (purgeTrashBatch)
+    @Modifying
+    @Query(value = "UPDATE file_metadata SET deleted_at = now(), version = version + 1, updated_at = now() " +
+            "WHERE id = :id AND owner_id = :ownerId AND deleted_at IS NULL", nativeQuery = true)
+    int trashByIdAndOwnerId(@Param("id") UUID id, @Param("ownerId") UUID ownerId);
+
+    // Массовый перенос в корзину; возвращает id перенесенных файлов (чужие, несуществующие и уже удаленные пропускаются)
+    @Query(value = "UPDATE file_metadata SET deleted_at = now(), version = version + 1, updated_at = now() " +
+            "WHERE owner_id = :ownerId AND id = ANY(CAST(:ids AS uuid[])) AND deleted_at IS NULL RETURNING id",
+            nativeQuery = true)
+    List<UUID> trashByIdsAndOwnerId(@Param("ownerId") UUID ownerId, @Param("ids") UUID[] ids);
+
+    // Восстановление из корзины; возвращает восстановленные файлы
+    @Query(value = "UPDATE file_metadata SET deleted_at = NULL, version = version + 1, updated_at = now() " +
+            "WHERE owner_id = :ownerId AND id = ANY(CAST(:ids AS uuid[])) AND deleted_at IS NOT NULL RETURNING *",
+            nativeQuery = true)
+    List<FileMetadata> restoreByIdsAndOwnerId(@Param("ownerId") UUID ownerId, @Param("ids") UUID[] ids);
+
+    // Окончательное удаление порции файлов, пролежавших в корзине дольше срока хранения;
+    // строки, занятые другим экземпляром, пропускаются. Возвращает id и storage_key для удаления содержимого
+    @Query(value = "DELETE FROM file_metadata WHERE id IN (SELECT id FROM file_metadata " +
+            "WHERE deleted_at < :before ORDER BY deleted_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id AS id, storage_key AS storageKey", nativeQuery = true)
+    List<StorageKeyView> purgeTrashBatch(@Param("before") OffsetDateTime before, @Param("limit") int limit);
+
+    // Окончательное удаление выбранных файлов из корзины владельца (живые, чужие и несуществующие пропускаются)
+    @Query(value = "DELETE FROM file_metadata WHERE owner_id = :ownerId AND id = ANY(CAST(:ids AS uuid[])) " +
+            "AND deleted_at IS NOT NULL RETURNING id AS id, storage_key AS storageKey", nativeQuery = true)
+    List<StorageKeyView> purgeTrashByIdsAndOwnerId(@Param("ownerId") UUID ownerId, @Param("ids") UUID[] ids);
+
+    // Очистка корзины владельца порцией; строки, занятые фоновой очисткой, пропускаются
+    @Query(value = "DELETE FROM file_metadata WHERE id IN (SELECT id FROM file_metadata " +
+            "WHERE owner_id = :ownerId AND deleted_at IS NOT NULL ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id AS id, storage_key AS storageKey", nativeQuery = true)
+    List<StorageKeyView> purgeTrashBatchOfOwner(@Param("ownerId") UUID ownerId, @Param("limit") int limit);
 
     // === 4. Кастомные запросы через @Query ===
 
@@ -67,4 +124,234 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID
     // Поиск файлов по ID владельца и статусу
     @Query("SELECT f FROM FileMetadata f WHERE f.owner.id = :ownerId AND f.status = :status")
     List<FileMetadata> findByOwnerIdAndStatus(@Param("ownerId") UUID ownerId, @Param("status") Status status);
-}
\ No newline at end of file
+
+    // Проверка владельца и допустимого исходного статуса прямо в UPDATE; пустой результат - операция отклонена
+    @Query(value = "UPDATE file_metadata SET status = :newStatus, version = version + 1, updated_at = now() " +
+            "WHERE id = :id AND owner_id = :ownerId AND status IN (:fromStatuses) AND deleted_at IS NULL RETURNING *", nativeQuery = true)
+    Optional<FileMetadata> updateStatusForOwner(@Param("id") UUID id,
+                                                @Param("ownerId") UUID ownerId,
+                                                @Param("newStatus") String newStatus,
+                                                @Param("fromStatuses") Collection<String> fromStatuses);
+
+    // Явный отзыв токенов скачивания: только новая версия, данные файла не меняются
+    @Query(value = "UPDATE file_metadata SET version = version + 1, updated_at = now() " +
+            "WHERE id = :id AND owner_id = :ownerId AND deleted_at IS NULL RETURNING version", nativeQuery = true)
+    Optional<Long> incrementVersionForOwner(@Param("id") UUID id, @Param("ownerId") UUID ownerId);
+
+    // Одна дополнительная выборка на пути ошибки: отличить "не найден" от "чужой файл" и "недопустимый статус"
+    @Query("SELECT f.owner.id AS ownerId, f.status AS status, f.version AS version FROM FileMetadata f WHERE f.id = :id")
+    Optional<FileOwnershipView> findOwnershipById(@Param("id") UUID id);
+
+    @Query("SELECT f.status FROM FileMetadata f WHERE f.id = :id")
+    Optional<Status> findStatusById(@Param("id") UUID id);
+
+    // Пакетная смена статуса для write-behind буфера; строки, изменившие статус параллельно, и файлы в корзине
+    // пропускаются
+    @Modifying
+    @Query(value = "UPDATE file_metadata SET status = :newStatus, version = version + 1, updated_at = now() " +
+            "WHERE id IN (:ids) AND status = :fromStatus AND deleted_at IS NULL", nativeQuery = true)
+    int bulkUpdateStatus(@Param("ids") Collection<UUID> ids,
+                         @Param("fromStatus") String fromStatus,
+                         @Param("newStatus") String newStatus);
+
+    // То же с возвратом id обновленных строк - для хуков переходов статуса
+    @Query(value = "UPDATE file_metadata SET status = :newStatus, version = version + 1, updated_at = now() " +
+            "WHERE id IN (:ids) AND status = :fromStatus AND deleted_at IS NULL RETURNING id", nativeQuery = true)
+    List<UUID> bulkUpdateStatusReturningIds(@Param("ids") Collection<UUID> ids,
+                                            @Param("fromStatus") String fromStatus,
+                                            @Param("newStatus") String newStatus);
+
+    // Учет загруженного содержимого: только владельцем и только до начала обработки
+    @Modifying
+    @Query(value = "UPDATE file_metadata SET stored_size = :storedSize, content_encoding = :contentEncoding, " +
+            "version = version + 1, updated_at = now() " +
+            "WHERE id = :id AND owner_id = :ownerId AND status = 'UPLOADED' AND deleted_at IS NULL", nativeQuery = true)
+    int updateStoredContent(@Param("id") UUID id,
+                            @Param("ownerId") UUID ownerId,
+                            @Param("storedSize") long storedSize,
+                            @Param("contentEncoding") String contentEncoding);
+
+    // Пакетное чтение файлов с именем владельца: один запрос и один параметр-массив на любое число id
+    @Query(value = "SELECT f.id AS id, f.file_name AS fileName, f.content_type AS contentType, f.size AS size, " +
+            "f.owner_id AS ownerId, u.username AS ownerUsername, f.status AS status, f.storage_key AS storageKey, " +
+            "f.stored_size AS storedSize, f.content_encoding AS contentEncoding, f.folder_id AS folderId, " +
+            "CAST(f.attributes AS text) AS attributes, f.deleted_at AS deletedAt, f.created_at AS createdAt, " +
+            "f.updated_at AS updatedAt " +
+            "FROM file_metadata f JOIN users u ON u.id = f.owner_id " +
+            "WHERE f.id = ANY(CAST(:ids AS uuid[])) AND f.deleted_at IS NULL", nativeQuery = true)
+    List<FileMetadataRowView> findRowsByIds(@Param("ids") UUID[] ids);
+
+    // Страница корзины владельца в порядке id после :afterId
+    @Query(value = "SELECT f.id AS id, f.file_name AS fileName, f.content_type AS contentType, f.size AS size, " +
+            "f.owner_id AS ownerId, u.username AS ownerUsername, f.status AS status, f.storage_key AS storageKey, " +
+            "f.stored_size AS storedSize, f.content_encoding AS contentEncoding, f.folder_id AS folderId, " +
+            "CAST(f.attributes AS text) AS attributes, f.deleted_at AS deletedAt, f.created_at AS createdAt, " +
+            "f.updated_at AS updatedAt " +
+            "FROM file_metadata f JOIN users u ON u.id = f.owner_id " +
+            "WHERE f.owner_id = :ownerId AND f.deleted_at IS NOT NULL AND f.id > :afterId " +
+            "ORDER BY f.id LIMIT :limit", nativeQuery = true)
+    List<FileMetadataRowView> findTrashPage(@Param("ownerId") UUID ownerId,
+                                            @Param("afterId") UUID afterId,
+                                            @Param("limit") int limit);
+
+    // Граница части экспорта: id живых файлов владельца, созданных до :asOf, после :afterId со сдвигом :skip.
+    // Первый id - последний файл части, второй (если есть) - признак, что за частью есть еще файлы
+    @Query(value = "SELECT id FROM file_metadata WHERE owner_id = :ownerId AND deleted_at IS NULL " +
+            "AND created_at <= :asOf AND id > :afterId ORDER BY id OFFSET :skip LIMIT 2", nativeQuery = true)
+    List<UUID> findExportBound(@Param("ownerId") UUID ownerId,
+                               @Param("asOf") OffsetDateTime asOf,
+                               @Param("afterId") UUID afterId,
+                               @Param("skip") int skip);
+
+    // Страница экспорта: живые файлы владельца, созданные до :asOf, с id в (:afterId, :untilId] в порядке id
+    @Query(value = "SELECT f.id AS id, f.file_name AS fileName, f.content_type AS contentType, f.size AS size, " +
+            "f.owner_id AS ownerId, u.username AS ownerUsername, f.status AS status, f.storage_key AS storageKey, " +
+            "f.stored_size AS storedSize, f.content_encoding AS contentEncoding, f.folder_id AS folderId, " +
+            "CAST(f.attributes AS text) AS attributes, f.deleted_at AS deletedAt, f.created_at AS createdAt, " +
+            "f.updated_at AS updatedAt " +
+            "FROM file_metadata f JOIN users u ON u.id = f.owner_id " +
+            "WHERE f.owner_id = :ownerId AND f.deleted_at IS NULL AND f.created_at <= :asOf " +
+            "AND f.id > :afterId AND f.id <= :untilId ORDER BY f.id LIMIT :limit", nativeQuery = true)
+    List<FileMetadataRowView> findExportPage(@Param("ownerId") UUID ownerId,
+                                             @Param("asOf") OffsetDateTime asOf,
+                                             @Param("afterId") UUID afterId,
+                                             @Param("untilId") UUID untilId,
+                                             @Param("limit") int limit);
+
+    // Установка меток файлам владельца одним UPDATE; файлы, у которых меток стало бы больше :maxPerFile,
+    // чужие и несуществующие id пропускаются. Возвращает id измененных файлов
+    @Query(value = "UPDATE file_metadata SET attributes = attributes || CAST(:patch AS jsonb), " +
+            "version = version + 1, updated_at = now() " +
+            "WHERE owner_id = :ownerId AND id = ANY(CAST(:ids AS uuid[])) AND deleted_at IS NULL " +
+            "AND (SELECT count(*) FROM jsonb_object_keys(attributes || CAST(:patch AS jsonb))) <= :maxPerFile " +
+            "RETURNING id", nativeQuery = true)
+    List<UUID> mergeAttributes(@Param("ownerId") UUID ownerId,
+                               @Param("ids") UUID[] ids,
+                               @Param("patch") String patch,
+                               @Param("maxPerFile") int maxPerFile);
+
+    // Снятие меток с файлов владельца; файлы без этих меток не изменяются
+    @Query(value = "UPDATE file_metadata SET attributes = attributes - CAST(:keys AS text[]), " +
+            "version = version + 1, updated_at = now() " +
+            "WHERE owner_id = :ownerId AND id = ANY(CAST(:ids AS uuid[])) AND deleted_at IS NULL " +
+            "AND jsonb_exists_any(attributes, CAST(:keys AS text[])) RETURNING id", nativeQuery = true)
+    List<UUID> removeAttributes(@Param("ownerId") UUID ownerId,
+                                @Param("ids") UUID[] ids,
+                                @Param("keys") String[] keys);
+
+    // Страница файлов папки после (afterName, afterId) в порядке (file_name, id)
+    @Query(value = "SELECT * FROM file_metadata WHERE folder_id = :folderId AND deleted_at IS NULL " +
+            "AND (file_name, id) > (:afterName, CAST(:afterId AS uuid)) " +
+            "ORDER BY file_name, id LIMIT :limit", nativeQuery = true)
+    List<FileMetadata> findFolderFilePage(@Param("folderId") UUID folderId,
+                                          @Param("afterName") String afterName,
+                                          @Param("afterId") UUID afterId,
+                                          @Param("limit") int limit);
+
+    // То же для файлов вне папок
+    @Query(value = "SELECT * FROM file_metadata WHERE owner_id = :ownerId AND folder_id IS NULL AND deleted_at IS NULL " +
+            "AND (file_name, id) > (:afterName, CAST(:afterId AS uuid)) " +
+            "ORDER BY file_name, id LIMIT :limit", nativeQuery = true)
+    List<FileMetadata> findRootFilePage(@Param("ownerId") UUID ownerId,
+                                        @Param("afterName") String afterName,
+                                        @Param("afterId") UUID afterId,
+                                        @Param("limit") int limit);
+
+    // Число и объем файлов поддерева папки: папки поддерева - диапазон путей [:fromPath, :toPath)
+    @Query(value = "SELECT count(f.id) AS files, COALESCE(sum(f.size), 0) AS size, " +
+            "COALESCE(sum(f.stored_size), 0) AS storedSize " +
+            "FROM folders d JOIN file_metadata f ON f.folder_id = d.id AND f.deleted_at IS NULL " +
+            "WHERE d.owner_id = :ownerId AND d.path >= :fromPath AND d.path < :toPath", nativeQuery = true)
+    FolderUsageView sumSubtreeUsage(@Param("ownerId") UUID ownerId,
+                                    @Param("fromPath") String fromPath,
+                                    @Param("toPath") String toPath);
+
+    // Перенос всех файлов поддерева в корзину одним запросом. Файлы отвязываются от папок (восстанавливаются
+    // в корень), в том числе уже лежащие в корзине; возвращает id файлов, перенесенных в корзину сейчас
+    @Query(value = "WITH detached AS (UPDATE file_metadata f SET folder_id = NULL, " +
+            "deleted_at = COALESCE(f.deleted_at, now()), version = f.version + 1, updated_at = now() " +
+            "FROM folders d WHERE f.folder_id = d.id AND d.owner_id = :ownerId " +
+            "AND d.path >= :fromPath AND d.path < :toPath RETURNING f.id, f.deleted_at) " +
+            "SELECT id FROM detached WHERE deleted_at = now()", nativeQuery = true)
+    List<UUID> trashSubtreeFiles(@Param("ownerId") UUID ownerId,
+                                  @Param("fromPath") String fromPath,
+                                  @Param("toPath") String toPath);
+
+    // Перенос файлов владельца в папку (null - в корень); чужие и несуществующие id пропускаются
+    @Query(value = "UPDATE file_metadata SET folder_id = CAST(:folderId AS uuid), version = version + 1, " +
+            "updated_at = now() WHERE owner_id = :ownerId AND id = ANY(CAST(:ids AS uuid[])) AND deleted_at IS NULL " +
+            "RETURNING id", nativeQuery = true)
+    List<UUID> moveToFolder(@Param("ownerId") UUID ownerId,
+                            @Param("ids") UUID[] ids,
+                            @Param("folderId") UUID folderId);
+
+    // Блокировка файлов с заданными ключами (удаление старых объектов после переноса). Учитываются и файлы
+    // в корзине: их содержимое должно сохраниться до окончательной очистки
+    @Query(value = "SELECT id AS id, storage_key AS storageKey FROM file_metadata " +
+            "WHERE storage_key IN (:storageKeys) FOR UPDATE", nativeQuery = true)
+    List<StorageKeyView> lockByStorageKeys(@Param("storageKeys") Collection<String> storageKeys);
+
+    // Set-based смена storage_key порцией: строка обновляется, только если ключ не изменился параллельно
+    // и новый ключ свободен (среди всех строк, включая корзину - как уникальный индекс); возвращает id обновленных
+    // строк. Файлы в корзине не исключаются: сверка перепривязывает и их, чтобы восстановленный файл был читаем
+    @Query(value = "UPDATE file_metadata f SET storage_key = m.new_key, version = f.version + 1, updated_at = now() " +
+            "FROM unnest(CAST(:ids AS uuid[]), CAST(:oldKeys AS varchar[]), CAST(:newKeys AS varchar[])) " +
+            "AS m(id, old_key, new_key) " +
+            "WHERE f.id = m.id AND f.storage_key = m.old_key " +
+            "AND NOT EXISTS (SELECT 1 FROM file_metadata o WHERE o.storage_key = m.new_key) RETURNING f.id",
+            nativeQuery = true)
+    List<UUID> updateStorageKeys(@Param("ids") UUID[] ids,
+                                 @Param("oldKeys") String[] oldKeys,
+                                 @Param("newKeys") String[] newKeys);
+
+    // Кандидаты в cold: загруженное содержимое живых файлов в финальном статусе, без чтений с :before
+    // (ключ с префиксом cold/ должен уложиться в 500 символов). Строки, занятые другим экземпляром, пропускаются;
+    // блокировка держится только до конца короткой транзакции выборки, перенос защищает условный updateStorageKeys
+    @Query(value = "SELECT f.id AS id, f.storage_key AS storageKey FROM file_metadata f " +
+            "WHERE f.storage_key NOT LIKE 'cold/%' AND length(f.storage_key) <= 495 " +
+            "AND f.created_at < :before AND f.stored_size IS NOT NULL AND f.deleted_at IS NULL " +
+            "AND f.status IN (:statuses) AND NOT EXISTS (SELECT 1 FROM file_access_stats a " +
+            "WHERE a.file_id = f.id AND a.last_accessed_at >= :before) " +
+            "ORDER BY f.created_at LIMIT :limit FOR UPDATE OF f SKIP LOCKED", nativeQuery = true)
+    List<StorageKeyView> lockDemotionCandidates(@Param("before") OffsetDateTime before,
+                                                @Param("statuses") Collection<String> statuses,
+                                                @Param("limit") int limit);
+
+    // Кандидаты в hot: живые файлы в cold, оценка чтений которых с учетом затухания на текущий момент не ниже :minScore
+    @Query(value = "SELECT f.id AS id, f.storage_key AS storageKey FROM file_access_stats a " +
+            "JOIN file_metadata f ON f.id = a.file_id " +
+            "WHERE a.last_accessed_at >= :since AND f.storage_key LIKE 'cold/%' AND f.deleted_at IS NULL " +
+            "AND a.access_score * power(0.5, extract(epoch FROM now() - a.last_accessed_at) / :halfLifeSeconds) " +
+            ">= :minScore ORDER BY a.access_score DESC LIMIT :limit FOR UPDATE OF f SKIP LOCKED", nativeQuery = true)
+    List<StorageKeyView> lockPromotionCandidates(@Param("since") OffsetDateTime since,
+                                                 @Param("halfLifeSeconds") double halfLifeSeconds,
+                                                 @Param("minScore") double minScore,
+                                                 @Param("limit") int limit);
+
+    // Файлы, давно не менявшие статус (повторный запуск обработки после сбоя или переполнения очереди)
+    @Query(value = "SELECT id FROM file_metadata WHERE status = :status AND updated_at < :before " +
+            "AND deleted_at IS NULL ORDER BY updated_at LIMIT :limit", nativeQuery = true)
+    List<UUID> findIdsByStatusUpdatedBefore(@Param("status") String status,
+                                            @Param("before") OffsetDateTime before,
+                                            @Param("limit") int limit);
+
+    // Потоковое чтение для построения in-memory индекса (без загрузки сущностей)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT f.id, f.owner.id, f.status, f.size, f.contentType FROM FileMetadata f")
+    Stream<Object[]> streamIndexRows();
+
+    // Потоковое чтение id и ключей для построения FileExistenceFilter; native - ключи файлов в корзине заняты
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query(value = "SELECT id, storage_key FROM file_metadata", nativeQuery = true)
+    Stream<Object[]> streamExistenceRows();
+
+    // Версии файлов, измененных с :since (отзыв токенов скачивания); native - чтобы видеть и перенос в корзину
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query(value = "SELECT id, version FROM file_metadata WHERE updated_at >= :since", nativeQuery = true)
+    Stream<Object[]> streamVersionsUpdatedSince(@Param("since") OffsetDateTime since);
+
+    // Строки, созданные или измененные с :since (дочитывание FileExistenceFilter)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query(value = "SELECT id, storage_key FROM file_metadata WHERE updated_at >= :since", nativeQuery = true)
+    Stream<Object[]> streamExistenceRowsUpdatedSince(@Param("since") OffsetDateTime since);
+}
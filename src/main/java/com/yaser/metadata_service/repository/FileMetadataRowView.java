@@ -0,0 +1,29 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.Status;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Проекция строки файла вместе с именем владельца (пакетное чтение одним запросом, без загрузки сущностей)
+ */
+public interface FileMetadataRowView {
+    UUID getId();
+    String getFileName();
+    String getContentType();
+    Long getSize();
+    UUID getOwnerId();
+    String getOwnerUsername();
+    Status getStatus();
+    String getStorageKey();
+    Long getStoredSize();
+    String getContentEncoding();
+    UUID getFolderId();
+    // jsonb как текст
+    String getAttributes();
+    // Native-запрос возвращает timestamptz как Instant
+    Instant getDeletedAt();
+    Instant getCreatedAt();
+    Instant getUpdatedAt();
+}
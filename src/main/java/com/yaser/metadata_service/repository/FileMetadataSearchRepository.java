@@ -0,0 +1,15 @@
+package com.yaser.metadata_service.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Поиск файлов с необязательными фильтрами: текст запроса строится только из заданных фильтров
+ */
+public interface FileMetadataSearchRepository {
+
+    // Страница живых файлов владельца по меткам (attributes @> :filter, null - любые) и необязательным типу
+    // и статусу, в порядке id после afterId
+    List<FileMetadataRowView> findPageByAttributes(UUID ownerId, String filter, String contentType, String status,
+                                                   UUID afterId, int limit);
+}
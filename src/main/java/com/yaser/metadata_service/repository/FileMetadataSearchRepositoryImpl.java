@@ -0,0 +1,158 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.Status;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Запрос без catch-all условий вида (:x IS NULL OR ...): у каждого сочетания фильтров свой текст и свой план,
+ * иначе после пяти выполнений Postgres переходит к общему плану, одинаковому для всех сочетаний.
+ * Метки - индекс GIN, тип - (owner_id, content_type, id), без фильтров - (owner_id, id)
+ */
+class FileMetadataSearchRepositoryImpl implements FileMetadataSearchRepository {
+
+    private static final String SELECT_ROWS = "SELECT f.id, f.file_name, f.content_type, f.size, f.owner_id, " +
+            "u.username, f.status, f.storage_key, f.stored_size, f.content_encoding, f.folder_id, " +
+            "CAST(f.attributes AS text) AS attributes, f.deleted_at, f.created_at, f.updated_at " +
+            "FROM file_metadata f JOIN users u ON u.id = f.owner_id " +
+            "WHERE f.owner_id = ? AND f.deleted_at IS NULL AND f.id > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    FileMetadataSearchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<FileMetadataRowView> findPageByAttributes(UUID ownerId, String filter, String contentType,
+                                                          String status, UUID afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_ROWS);
+        List<Object> args = new ArrayList<>(List.of(ownerId, afterId));
+        if (filter != null) {
+            sql.append(" AND f.attributes @> CAST(? AS jsonb)");
+            args.add(filter);
+        }
+        if (contentType != null) {
+            sql.append(" AND f.content_type = ?");
+            args.add(contentType);
+        }
+        if (status != null) {
+            sql.append(" AND f.status = ?");
+            args.add(status);
+        }
+        sql.append(" ORDER BY f.id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), FileMetadataSearchRepositoryImpl::mapRow, args.toArray());
+    }
+
+    private static FileMetadataRowView mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Row(
+                rs.getObject("id", UUID.class),
+                rs.getString("file_name"),
+                rs.getString("content_type"),
+                rs.getObject("size", Long.class),
+                rs.getObject("owner_id", UUID.class),
+                rs.getString("username"),
+                Status.valueOf(rs.getString("status")),
+                rs.getString("storage_key"),
+                rs.getObject("stored_size", Long.class),
+                rs.getString("content_encoding"),
+                rs.getObject("folder_id", UUID.class),
+                rs.getString("attributes"),
+                toInstant(rs.getObject("deleted_at", OffsetDateTime.class)),
+                toInstant(rs.getObject("created_at", OffsetDateTime.class)),
+                toInstant(rs.getObject("updated_at", OffsetDateTime.class)));
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value != null ? value.toInstant() : null;
+    }
+
+    private record Row(UUID id, String fileName, String contentType, Long size, UUID ownerId, String ownerUsername,
+                       Status status, String storageKey, Long storedSize, String contentEncoding, UUID folderId,
+                       String attributes, Instant deletedAt, Instant createdAt, Instant updatedAt)
+            implements FileMetadataRowView {
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public String getFileName() {
+            return fileName;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public Long getSize() {
+            return size;
+        }
+
+        @Override
+        public UUID getOwnerId() {
+            return ownerId;
+        }
+
+        @Override
+        public String getOwnerUsername() {
+            return ownerUsername;
+        }
+
+        @Override
+        public Status getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getStorageKey() {
+            return storageKey;
+        }
+
+        @Override
+        public Long getStoredSize() {
+            return storedSize;
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        @Override
+        public UUID getFolderId() {
+            return folderId;
+        }
+
+        @Override
+        public String getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Instant getDeletedAt() {
+            return deletedAt;
+        }
+
+        @Override
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public Instant getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.Status;
+
+import java.util.UUID;
+
+/**
+ * Проекция для проверки владения и ETag без загрузки сущности
+ */
+public interface FileOwnershipView {
+    UUID getOwnerId();
+    Status getStatus();
+    Long getVersion();
+}
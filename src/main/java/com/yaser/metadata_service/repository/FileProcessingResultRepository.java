@@ -0,0 +1,12 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.FileProcessingResult;
+import org.springframework.data.repository.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface FileProcessingResultRepository extends Repository<FileProcessingResult, Long> {
+
+    List<FileProcessingResult> findByFileIdOrderByIdAsc(UUID fileId);
+}
@@ -0,0 +1,88 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.Folder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Операции над поддеревом - запросы по диапазону путей [:fromPath, :toPath) (см. Folder.subtreeUpperBound)
+ */
+public interface FolderRepository extends JpaRepository<Folder, UUID> {
+
+    Optional<Folder> findByIdAndOwnerId(UUID id, UUID ownerId);
+
+    // Структурные изменения папок владельца (создание, перенос, удаление) выполняются по очереди:
+    // иначе два встречных переноса могли бы образовать цикл
+    @Query(value = "SELECT count(*) FROM pg_advisory_xact_lock(hashtextextended('folders:' || CAST(:ownerId AS text), 0))",
+            nativeQuery = true)
+    long lockOwnerTree(@Param("ownerId") UUID ownerId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM folders WHERE parent_id = :parentId AND name = :name)",
+            nativeQuery = true)
+    boolean existsChild(@Param("parentId") UUID parentId, @Param("name") String name);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM folders WHERE owner_id = :ownerId AND parent_id IS NULL " +
+            "AND name = :name)", nativeQuery = true)
+    boolean existsTopLevel(@Param("ownerId") UUID ownerId, @Param("name") String name);
+
+    // Страница дочерних папок по имени
+    @Query(value = "SELECT * FROM folders WHERE parent_id = :parentId AND name > :afterName " +
+            "ORDER BY name LIMIT :limit", nativeQuery = true)
+    List<Folder> findChildPage(@Param("parentId") UUID parentId,
+                               @Param("afterName") String afterName,
+                               @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM folders WHERE owner_id = :ownerId AND parent_id IS NULL AND name > :afterName " +
+            "ORDER BY name LIMIT :limit", nativeQuery = true)
+    List<Folder> findTopLevelPage(@Param("ownerId") UUID ownerId,
+                                  @Param("afterName") String afterName,
+                                  @Param("limit") int limit);
+
+    // Число папок поддерева, включая саму папку
+    @Query(value = "SELECT count(*) FROM folders WHERE owner_id = :ownerId AND path >= :fromPath AND path < :toPath",
+            nativeQuery = true)
+    long countSubtree(@Param("ownerId") UUID ownerId,
+                      @Param("fromPath") String fromPath,
+                      @Param("toPath") String toPath);
+
+    // Самый длинный путь поддерева (проверка глубины при переносе)
+    @Query(value = "SELECT COALESCE(max(length(path)), 0) FROM folders " +
+            "WHERE owner_id = :ownerId AND path >= :fromPath AND path < :toPath", nativeQuery = true)
+    int maxSubtreePathLength(@Param("ownerId") UUID ownerId,
+                             @Param("fromPath") String fromPath,
+                             @Param("toPath") String toPath);
+
+    // Перенос поддерева одним UPDATE: префикс :fromPath заменяется на :newPath у всех папок поддерева,
+    // у корня поддерева меняются также родитель и имя
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE folders SET path = :newPath || substr(path, length(:fromPath) + 1), " +
+            "parent_id = CASE WHEN id = :folderId THEN CAST(:parentId AS uuid) ELSE parent_id END, " +
+            "name = CASE WHEN id = :folderId THEN :name ELSE name END, " +
+            "version = version + 1, updated_at = now() " +
+            "WHERE owner_id = :ownerId AND path >= :fromPath AND path < :toPath", nativeQuery = true)
+    int moveSubtree(@Param("ownerId") UUID ownerId,
+                    @Param("folderId") UUID folderId,
+                    @Param("parentId") UUID parentId,
+                    @Param("name") String name,
+                    @Param("fromPath") String fromPath,
+                    @Param("toPath") String toPath,
+                    @Param("newPath") String newPath);
+
+    // Все папки владельца одним запросом (purge владельца): ссылка на родителя проверяется в конце оператора
+    @Modifying
+    @Query(value = "DELETE FROM folders WHERE owner_id = :ownerId", nativeQuery = true)
+    int deleteByOwnerId(@Param("ownerId") UUID ownerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM folders WHERE owner_id = :ownerId AND path >= :fromPath AND path < :toPath",
+            nativeQuery = true)
+    int deleteSubtree(@Param("ownerId") UUID ownerId,
+                      @Param("fromPath") String fromPath,
+                      @Param("toPath") String toPath);
+}
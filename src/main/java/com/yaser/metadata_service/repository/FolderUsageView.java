@@ -0,0 +1,10 @@
+package com.yaser.metadata_service.repository;
+
+/**
+ * Число и объем файлов поддерева папки
+ */
+public interface FolderUsageView {
+    long getFiles();
+    long getSize();
+    long getStoredSize();
+}
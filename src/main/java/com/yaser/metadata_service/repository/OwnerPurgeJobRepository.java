@@ -0,0 +1,24 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.OwnerPurgeJob;
+import com.yaser.metadata_service.entity.PurgeJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OwnerPurgeJobRepository extends JpaRepository<OwnerPurgeJob, UUID> {
+
+    Optional<OwnerPurgeJob> findFirstByOwnerIdAndStatusIn(UUID ownerId, Collection<PurgeJobStatus> statuses);
+
+    // Захват следующей активной задачи; SKIP LOCKED позволяет нескольким инстансам работать параллельно
+    @Query(value = "SELECT * FROM owner_purge_jobs WHERE status IN ('PENDING', 'RUNNING') " +
+            "ORDER BY created_at LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<OwnerPurgeJob> lockNextActiveJob();
+
+    @Query(value = "SELECT * FROM owner_purge_jobs WHERE id = :id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<OwnerPurgeJob> lockById(@Param("id") UUID id);
+}
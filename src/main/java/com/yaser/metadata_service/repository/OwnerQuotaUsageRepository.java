@@ -0,0 +1,42 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.OwnerQuotaUsage;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OwnerQuotaUsageRepository extends Repository<OwnerQuotaUsage, UUID> {
+
+    // Квота владельца: индивидуальная, иначе максимальная по ролям, иначе по умолчанию
+    String EFFECTIVE_LIMIT = "SELECT coalesce(u.storage_quota_bytes, " +
+            "(SELECT max(r.storage_quota_bytes) FROM user_roles ur JOIN roles r ON r.id = ur.role_id " +
+            "WHERE ur.user_id = u.id), :defaultLimit) AS limit_bytes FROM users u WHERE u.id = :ownerId";
+
+    Optional<OwnerQuotaUsage> findByOwnerId(UUID ownerId);
+
+    /**
+     * Резервирование bytes одним запросом: строка блокируется до конца транзакции, превышение
+     * квоты (или отсутствие владельца) дает пустой результат без изменений
+     */
+    @Query(value = "WITH quota AS (" + EFFECTIVE_LIMIT + ") " +
+            "INSERT INTO owner_quota_usage AS q (owner_id, used_bytes) " +
+            "SELECT :ownerId, :bytes FROM quota WHERE :bytes <= quota.limit_bytes " +
+            "ON CONFLICT (owner_id) DO UPDATE SET used_bytes = q.used_bytes + EXCLUDED.used_bytes " +
+            "WHERE q.used_bytes + EXCLUDED.used_bytes <= (SELECT limit_bytes FROM quota) " +
+            "RETURNING q.used_bytes", nativeQuery = true)
+    Optional<Long> reserve(@Param("ownerId") UUID ownerId,
+                           @Param("bytes") long bytes,
+                           @Param("defaultLimit") long defaultLimit);
+
+    @Modifying
+    @Query(value = "UPDATE owner_quota_usage SET used_bytes = greatest(used_bytes - :bytes, 0) " +
+            "WHERE owner_id = :ownerId", nativeQuery = true)
+    int release(@Param("ownerId") UUID ownerId, @Param("bytes") long bytes);
+
+    @Query(value = EFFECTIVE_LIMIT, nativeQuery = true)
+    Optional<Long> findLimitByOwnerId(@Param("ownerId") UUID ownerId, @Param("defaultLimit") long defaultLimit);
+}
@@ -0,0 +1,11 @@
+package com.yaser.metadata_service.repository;
+
+import java.util.UUID;
+
+/**
+ * Проекция id и storage_key без загрузки сущности (перенос между уровнями хранения, очистка корзины)
+ */
+public interface StorageKeyView {
+    UUID getId();
+    String getStorageKey();
+}
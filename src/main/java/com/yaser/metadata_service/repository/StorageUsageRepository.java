@@ -0,0 +1,59 @@
+package com.yaser.metadata_service.repository;
+
+import com.yaser.metadata_service.entity.OwnerStorageUsage;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Чтение агрегатов объема хранилища. Размер результата зависит от числа ключей агрегата
+ * (владельцев в top-N, типов контента, дней), а не от числа файлов.
+ */
+public interface StorageUsageRepository extends Repository<OwnerStorageUsage, UUID> {
+
+    // Обход индекса idx_storage_usage_by_owner_total_bytes, останавливается после limit строк
+    @Query(value = "SELECT * FROM storage_usage_by_owner WHERE file_count > 0 " +
+            "ORDER BY total_bytes DESC LIMIT :limit", nativeQuery = true)
+    List<OwnerStorageUsage> findTopByTotalBytes(@Param("limit") int limit);
+
+    @Query(value = "SELECT content_type AS key, sum(file_count) AS files, sum(total_bytes) AS bytes " +
+            "FROM storage_usage_by_content_type GROUP BY content_type HAVING sum(file_count) > 0 " +
+            "ORDER BY bytes DESC", nativeQuery = true)
+    List<UsageTotalsView> sumByContentType();
+
+    @Query(value = "SELECT status AS key, sum(file_count) AS files, sum(total_bytes) AS bytes " +
+            "FROM storage_usage_by_status GROUP BY status", nativeQuery = true)
+    List<UsageTotalsView> sumByStatus();
+
+    @Query(value = "SELECT CAST(bucket AS VARCHAR) AS key, sum(file_count) AS files, sum(total_bytes) AS bytes " +
+            "FROM storage_size_histogram GROUP BY bucket HAVING sum(file_count) > 0 ORDER BY bucket",
+            nativeQuery = true)
+    List<UsageTotalsView> sumBySizeBucket();
+
+    @Query(value = "SELECT day AS day, sum(files_added) AS filesAdded, sum(bytes_added) AS bytesAdded, " +
+            "sum(files_removed) AS filesRemoved, sum(bytes_removed) AS bytesRemoved " +
+            "FROM storage_usage_daily WHERE day BETWEEN :from AND :to GROUP BY day ORDER BY day",
+            nativeQuery = true)
+    List<DailyGrowthView> sumDailyGrowth(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Сумма по ключу агрегата (тип контента, статус или номер корзины размера)
+     */
+    interface UsageTotalsView {
+        String getKey();
+        long getFiles();
+        long getBytes();
+    }
+
+    interface DailyGrowthView {
+        LocalDate getDay();
+        long getFilesAdded();
+        long getBytesAdded();
+        long getFilesRemoved();
+        long getBytesRemoved();
+    }
+}
@@ -2,11 +2,36 @@ package com.yaser.metadata_service.repository;
 
 import com.yaser.metadata_service.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByUsername(String username);
+
+    boolean existsByIdAndRoles_Name(UUID id, String roleName);
+
+    boolean existsByIdAndRoles_NameIn(UUID id, Collection<String> roleNames);
+
+    // Поколение списка файлов владельца, увеличивается триггером при любом изменении его файлов
+    @Query(value = "SELECT files_generation FROM users WHERE id = :id", nativeQuery = true)
+    Optional<Long> findFilesGenerationById(@Param("id") UUID id);
+
+    // Блокировка строки пользователя перед удалением вместе с зависимыми строками (purge владельца)
+    @Query(value = "SELECT id FROM users WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockById(@Param("id") UUID id);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_roles WHERE user_id = :userId", nativeQuery = true)
+    int deleteRolesByUserId(@Param("userId") UUID userId);
+
+    // Удаление строки без загрузки сущности: файлы, папки и роли к этому моменту уже удалены
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id = :id", nativeQuery = true)
+    int purgeById(@Param("id") UUID id);
 }
@@ -0,0 +1,25 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface FileAttributeService {
+    // Массовые операции над метками файлов владельца; возвращают id измененных файлов
+    List<UUID> setAttributes(UUID ownerId, Collection<UUID> fileIds, Map<String, String> attributes);
+    List<UUID> removeAttributes(UUID ownerId, Collection<UUID> fileIds, Collection<String> keys);
+
+    // Страница файлов владельца со всеми метками filter; contentType и status - необязательные условия
+    FilePage findFiles(UUID ownerId, Map<String, String> filter, String contentType, Status status,
+                       UUID afterId, int limit);
+
+    /**
+     * nextAfterId == null - страница последняя
+     */
+    record FilePage(List<FileMetadataRowView> files, UUID nextAfterId) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.yaser.metadata_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Метки файлов хранятся в jsonb-колонке file_metadata.attributes: изменение - один UPDATE на все файлы запроса,
+ * фильтр - один SELECT по индексу GIN с keyset-пагинацией по id.
+ */
+@Service
+@Transactional
+public class FileAttributeServiceImpl implements FileAttributeService {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+    private static final int MAX_VALUE_LENGTH = 256;
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxPerFile;
+
+    @Autowired
+    public FileAttributeServiceImpl(
+            FileMetadataRepository fileMetadataRepository,
+            ObjectMapper objectMapper,
+            @Value("${metadata.attributes.max-per-file:50}") int maxPerFile) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.objectMapper = objectMapper;
+        this.maxPerFile = maxPerFile;
+    }
+
+    /**
+     * Существующие метки с теми же ключами перезаписываются. Файлы, у которых меток стало бы больше
+     * metadata.attributes.max-per-file, пропускаются
+     */
+    @Override
+    public List<UUID> setAttributes(UUID ownerId, Collection<UUID> fileIds, Map<String, String> attributes) {
+        if (attributes.isEmpty()) {
+            throw new IllegalArgumentException("At least one attribute is required");
+        }
+        if (attributes.size() > maxPerFile) {
+            throw new IllegalArgumentException("A file cannot have more than " + maxPerFile + " attributes");
+        }
+        attributes.forEach(FileAttributeServiceImpl::validateAttribute);
+        if (fileIds.isEmpty()) {
+            return List.of();
+        }
+        return fileMetadataRepository.mergeAttributes(ownerId, distinct(fileIds), toJson(attributes), maxPerFile);
+    }
+
+    @Override
+    public List<UUID> removeAttributes(UUID ownerId, Collection<UUID> fileIds, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one attribute key is required");
+        }
+        keys.forEach(FileAttributeServiceImpl::validateKey);
+        if (fileIds.isEmpty()) {
+            return List.of();
+        }
+        return fileMetadataRepository.removeAttributes(ownerId, distinct(fileIds),
+                keys.stream().distinct().toArray(String[]::new));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FilePage findFiles(UUID ownerId, Map<String, String> filter, String contentType, Status status,
+                              UUID afterId, int limit) {
+        filter.forEach(FileAttributeServiceImpl::validateAttribute);
+
+        List<FileMetadataRowView> files = fileMetadataRepository.findPageByAttributes(ownerId,
+                filter.isEmpty() ? null : toJson(filter), contentType, status != null ? status.name() : null,
+                afterId != null ? afterId : MIN_UUID, limit + 1);
+        if (files.size() <= limit) {
+            return new FilePage(files, null);
+        }
+        files = files.subList(0, limit);
+        return new FilePage(files, files.get(limit - 1).getId());
+    }
+
+    private static UUID[] distinct(Collection<UUID> fileIds) {
+        return fileIds.stream().distinct().toArray(UUID[]::new);
+    }
+
+    private static void validateAttribute(String key, String value) {
+        validateKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Attribute value is required: " + key);
+        }
+        if (value.length() > MAX_VALUE_LENGTH) {
+            throw new IllegalArgumentException("Attribute value cannot exceed " + MAX_VALUE_LENGTH + " characters: " + key);
+        }
+    }
+
+    private static void validateKey(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid attribute key: " + key);
+        }
+    }
+
+    private String toJson(Map<String, String> attributes) {
+        try {
+            return objectMapper.writeValueAsString(attributes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize attributes", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.Status;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Изменения file_metadata, публикуемые внутри транзакции записи.
+ * Подписчики, которым нужны только закоммиченные данные, используют @TransactionalEventListener(AFTER_COMMIT).
+ */
+public sealed interface FileMetadataChangedEvent {
+
+    record FileCreated(UUID fileId, UUID ownerId, Status status, long size, String contentType, String storageKey)
+            implements FileMetadataChangedEvent {
+    }
+
+    record FilesDeleted(List<UUID> fileIds) implements FileMetadataChangedEvent {
+    }
+
+    // expectedStatus == null - статус меняется безусловно, иначе только у строк с этим статусом (как в SQL-предикате)
+    record StatusChanged(List<UUID> fileIds, Status expectedStatus, Status newStatus)
+            implements FileMetadataChangedEvent {
+    }
+
+    // Новые storage_key существующих файлов (перенос между уровнями хранения, перепривязка)
+    record StorageKeysChanged(List<String> storageKeys) implements FileMetadataChangedEvent {
+    }
+}
@@ -2,7 +2,11 @@ package com.yaser.metadata_service.service;
 
 import com.yaser.metadata_service.entity.FileMetadata;
 import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
+import com.yaser.metadata_service.repository.StorageKeyView;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -10,12 +14,33 @@ public interface FileMetadataService {
     // Основные операции
     FileMetadata createFile(String fileName, String contentType, long size, UUID ownerId);
     FileMetadata getFileById(UUID fileId);
+    List<FileMetadataRowView> getFilesByIds(Collection<UUID> fileIds);
     List<FileMetadata> getFilesByOwner(UUID ownerId);
     void deleteFile(UUID fileId);
     FileMetadata updateFileStatus(UUID fileId, Status status);
 
+    // Операции владельца: проверка владения и статуса выполняется в одном SQL-запросе
+    void deleteFileOfOwner(UUID fileId, UUID ownerId);
+    FileMetadata updateFileStatusOfOwner(UUID fileId, UUID ownerId, Status status);
+    void recordStoredContent(UUID fileId, UUID ownerId, long storedSize, String contentEncoding);
+
+    // Корзина: удаление переносит файл в корзину, строка и содержимое удаляются фоновой очисткой (TrashPurgeJob)
+    // или по запросу владельца; квота освобождается при удалении строки
+    List<UUID> trashFilesOfOwner(UUID ownerId, Collection<UUID> fileIds);
+    List<FileMetadata> restoreFilesOfOwner(UUID ownerId, Collection<UUID> fileIds);
+    List<FileMetadataRowView> getTrashPage(UUID ownerId, UUID afterId, int limit);
+    List<StorageKeyView> purgeTrash(OffsetDateTime deletedBefore, int limit);
+    List<StorageKeyView> purgeTrashOfOwner(UUID ownerId, Collection<UUID> fileIds);
+    List<StorageKeyView> purgeTrashBatchOfOwner(UUID ownerId, int limit);
+
+    // Экспорт владельца: граница части и страницы по id (UserFileExportService)
+    List<UUID> getExportBound(UUID ownerId, OffsetDateTime asOf, UUID afterId, int skip);
+    List<FileMetadataRowView> getExportPage(UUID ownerId, OffsetDateTime asOf, UUID afterId, UUID untilId, int limit);
+
     // Вспомогательные операции
     boolean existsById(UUID fileId);
+    long getFileVersionOfOwner(UUID fileId, UUID ownerId);
+    long incrementFileVersionOfOwner(UUID fileId, UUID ownerId);
 
     // Дополнительные доменные операции
     List<FileMetadata> getFilesByStatus(Status status);
@@ -23,4 +48,11 @@ public interface FileMetadataService {
     long countFilesByStatus(Status status);
     long countAllFiles();
     FileMetadata updateStorageKey(UUID fileId, String newStorageKey);
+    List<UUID> updateStorageKeys(List<StorageKeyChange> changes);
+
+    /**
+     * Смена storage_key, применяемая только если текущий ключ равен oldKey
+     */
+    record StorageKeyChange(UUID fileId, String oldKey, String newKey) {
+    }
 }
\ No newline at end of file
@@ -2,14 +2,29 @@ package com.yaser.metadata_service.service;
 
 import com.yaser.metadata_service.entity.FileMetadata;
 import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.index.FileExistenceFilter;
+import com.yaser.metadata_service.lifecycle.StatusTransitionHooks;
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
 import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.FileMetadataRowView;
+import com.yaser.metadata_service.repository.FileOwnershipView;
+import com.yaser.metadata_service.repository.StorageKeyView;
+import com.yaser.metadata_service.repository.UserRepository;
+import com.yaser.metadata_service.shard.ShardRouter;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -17,10 +32,32 @@ import java.util.UUID;
 public class FileMetadataServiceImpl implements FileMetadataService {
 
     private final FileMetadataRepository fileMetadataRepository;
+    private final UserRepository userRepository;
+    private final StorageQuotaService storageQuotaService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StatusTransitions statusTransitions;
+    private final StatusTransitionHooks statusTransitionHooks;
+    private final ShardRouter shardRouter;
+    private final FileExistenceFilter existenceFilter;
 
     @Autowired
-    public FileMetadataServiceImpl(FileMetadataRepository fileMetadataRepository) {
+    public FileMetadataServiceImpl(
+            FileMetadataRepository fileMetadataRepository,
+            UserRepository userRepository,
+            StorageQuotaService storageQuotaService,
+            ApplicationEventPublisher eventPublisher,
+            StatusTransitions statusTransitions,
+            StatusTransitionHooks statusTransitionHooks,
+            ShardRouter shardRouter,
+            ObjectProvider<FileExistenceFilter> existenceFilter) {
         this.fileMetadataRepository = fileMetadataRepository;
+        this.userRepository = userRepository;
+        this.storageQuotaService = storageQuotaService;
+        this.eventPublisher = eventPublisher;
+        this.statusTransitions = statusTransitions;
+        this.statusTransitionHooks = statusTransitionHooks;
+        this.shardRouter = shardRouter;
+        this.existenceFilter = existenceFilter.getIfAvailable();
     }
 
     @Override
@@ -28,6 +65,9 @@ public class FileMetadataServiceImpl implements FileMetadataService {
         // Бизнес-правило: валидация входных данных
         validateFileData(fileName, contentType, size);
 
+        // Бизнес-правило: квота владельца (превышение отклоняется до вставки файла)
+        storageQuotaService.reserve(ownerId, size);
+
         // Бизнес-правило: генерация storage key
         String storageKey = generateStorageKey(fileName, ownerId);
 
@@ -39,19 +79,36 @@ public class FileMetadataServiceImpl implements FileMetadataService {
         fileMetadata.setStatus(Status.UPLOADED);
         fileMetadata.setStorageKey(storageKey);
 
-        // Создаем минимальный объект User с только ID
-        var owner = new com.yaser.metadata_service.entity.User();
-        owner.setId(ownerId);
-        fileMetadata.setOwner(owner);
+        // Ссылка на владельца без загрузки (detached User без version JPA не сохраняет)
+        fileMetadata.setOwner(userRepository.getReferenceById(ownerId));
 
-        return fileMetadataRepository.save(fileMetadata);
+        FileMetadata saved = fileMetadataRepository.save(fileMetadata);
+        eventPublisher.publishEvent(new FileMetadataChangedEvent.FileCreated(
+                saved.getId(), ownerId, saved.getStatus(), size, contentType, saved.getStorageKey()));
+        return saved;
     }
 
         @Override
     @Transactional(readOnly = true)
     public FileMetadata getFileById(UUID fileId) {
-        return fileMetadataRepository.findById(fileId)
-                .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
+        Optional<FileMetadata> file = fileMetadataRepository.findById(fileId);
+        recordFilterLookup(fileId, file.isPresent());
+        return file.orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
+    }
+
+    /**
+     * Файлы по списку id одним запросом (порядок не гарантирован, отсутствующих id в результате нет)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<FileMetadataRowView> getFilesByIds(Collection<UUID> fileIds) {
+        UUID[] ids = fileIds.stream()
+                .distinct()
+                .toArray(UUID[]::new);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return fileMetadataRepository.findRowsByIds(ids);
     }
 
     @Override
@@ -62,11 +119,10 @@ public class FileMetadataServiceImpl implements FileMetadataService {
 
     @Override
     public void deleteFile(UUID fileId) {
-        if (!fileMetadataRepository.existsById(fileId)) {
+        if (fileMetadataRepository.trashById(fileId) == 0) {
             throw new EntityNotFoundException("File not found with id: " + fileId);
         }
-
-        fileMetadataRepository.deleteById(fileId);
+        eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(List.of(fileId)));
     }
 
     @Override
@@ -74,23 +130,207 @@ public class FileMetadataServiceImpl implements FileMetadataService {
         FileMetadata fileMetadata = fileMetadataRepository.findById(fileId)
                 .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
 
-        // Бизнес-правило: валидация перехода статусов
-        validateStatusTransition(fileMetadata.getStatus(), status);
+        // Бизнес-правило: валидация перехода статусов (матрица переходов)
+        Status previous = fileMetadata.getStatus();
+        fileMetadata.changeStatus(status, statusTransitions);
+
+        FileMetadata saved = fileMetadataRepository.save(fileMetadata);
+        statusTransitionHooks.fire(List.of(fileId), previous, status);
+        eventPublisher.publishEvent(new FileMetadataChangedEvent.StatusChanged(List.of(fileId), null, status));
+        return saved;
+    }
 
-        fileMetadata.setStatus(status);
+    @Override
+    public void deleteFileOfOwner(UUID fileId, UUID ownerId) {
+        if (fileMetadataRepository.trashByIdAndOwnerId(fileId, ownerId) == 1) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(List.of(fileId)));
+            return;
+        }
 
-        return fileMetadataRepository.save(fileMetadata);
+        // Путь ошибки: одна выборка, чтобы вернуть корректное исключение
+        if (fileMetadataRepository.findOwnershipById(fileId).isEmpty()) {
+            throw new EntityNotFoundException("File not found with id: " + fileId);
+        }
+        throw new AccessDeniedException("You can only delete your own files");
+    }
+
+    @Override
+    public FileMetadata updateFileStatusOfOwner(UUID fileId, UUID ownerId, Status status) {
+        List<String> sources = statusTransitions.sourceNames(status);
+        Status previous = sources.size() == 1 ? Status.valueOf(sources.get(0)) : null;
+
+        if (previous == null && statusTransitionHooks.hasHooksInto(status)) {
+            // Хукам нужен фактический исходный статус: читаем его и сужаем условие UPDATE до него
+            previous = fileMetadataRepository.findStatusById(fileId)
+                    .filter(current -> statusTransitions.isAllowed(current, status))
+                    .orElse(null);
+            sources = previous != null ? List.of(previous.name()) : List.of();
+        }
+
+        if (!sources.isEmpty()) {
+            Optional<FileMetadata> updated = fileMetadataRepository.updateStatusForOwner(
+                    fileId, ownerId, status.name(), sources);
+            if (updated.isPresent()) {
+                if (previous != null) {
+                    statusTransitionHooks.fire(List.of(fileId), previous, status);
+                }
+                eventPublisher.publishEvent(new FileMetadataChangedEvent.StatusChanged(List.of(fileId), null, status));
+                return updated.get();
+            }
+        }
+
+        // Путь ошибки: одна выборка, чтобы вернуть корректное исключение
+        FileOwnershipView ownership = fileMetadataRepository.findOwnershipById(fileId)
+                .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
+
+        if (!ownership.getOwnerId().equals(ownerId)) {
+            throw new AccessDeniedException("You can only update your own files");
+        }
+
+        // Бросает IllegalStateException с описанием запрещенного перехода
+        statusTransitions.validate(ownership.getStatus(), status);
+        throw new IllegalStateException("File status was changed concurrently: " + fileId);
+    }
+
+    @Override
+    public void recordStoredContent(UUID fileId, UUID ownerId, long storedSize, String contentEncoding) {
+        if (fileMetadataRepository.updateStoredContent(fileId, ownerId, storedSize, contentEncoding) == 1) {
+            return;
+        }
+
+        // Путь ошибки: одна выборка, чтобы вернуть корректное исключение
+        FileOwnershipView ownership = fileMetadataRepository.findOwnershipById(fileId)
+                .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
+
+        if (!ownership.getOwnerId().equals(ownerId)) {
+            throw new AccessDeniedException("You can only upload content of your own files");
+        }
+        throw new IllegalStateException("Content can only be uploaded while the file is UPLOADED, current status: "
+                + ownership.getStatus());
+    }
+
+    @Override
+    public List<UUID> trashFilesOfOwner(UUID ownerId, Collection<UUID> fileIds) {
+        UUID[] ids = fileIds.stream().distinct().toArray(UUID[]::new);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<UUID> trashed = fileMetadataRepository.trashByIdsAndOwnerId(ownerId, ids);
+        if (!trashed.isEmpty()) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(trashed));
+        }
+        return trashed;
+    }
+
+    /**
+     * Восстановленный файл для подписчиков (индексы, фильтры) появляется заново
+     */
+    @Override
+    public List<FileMetadata> restoreFilesOfOwner(UUID ownerId, Collection<UUID> fileIds) {
+        UUID[] ids = fileIds.stream().distinct().toArray(UUID[]::new);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<FileMetadata> restored = fileMetadataRepository.restoreByIdsAndOwnerId(ownerId, ids);
+        for (FileMetadata file : restored) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FileCreated(file.getId(), ownerId,
+                    file.getStatus(), file.getSize(), file.getContentType(), file.getStorageKey()));
+        }
+        return restored;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FileMetadataRowView> getTrashPage(UUID ownerId, UUID afterId, int limit) {
+        return fileMetadataRepository.findTrashPage(ownerId, afterId, limit);
+    }
+
+    /**
+     * Окончательное удаление порции файлов из корзины; содержимое по возвращенным ключам удаляет вызывающий
+     * после коммита
+     */
+    @Override
+    public List<StorageKeyView> purgeTrash(OffsetDateTime deletedBefore, int limit) {
+        return publishPurged(fileMetadataRepository.purgeTrashBatch(deletedBefore, limit));
+    }
+
+    @Override
+    public List<StorageKeyView> purgeTrashOfOwner(UUID ownerId, Collection<UUID> fileIds) {
+        UUID[] ids = fileIds.stream().distinct().toArray(UUID[]::new);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return publishPurged(fileMetadataRepository.purgeTrashByIdsAndOwnerId(ownerId, ids));
+    }
+
+    @Override
+    public List<StorageKeyView> purgeTrashBatchOfOwner(UUID ownerId, int limit) {
+        return publishPurged(fileMetadataRepository.purgeTrashBatchOfOwner(ownerId, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UUID> getExportBound(UUID ownerId, OffsetDateTime asOf, UUID afterId, int skip) {
+        return fileMetadataRepository.findExportBound(ownerId, asOf, afterId, skip);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FileMetadataRowView> getExportPage(UUID ownerId, OffsetDateTime asOf, UUID afterId, UUID untilId,
+                                                   int limit) {
+        return fileMetadataRepository.findExportPage(ownerId, asOf, afterId, untilId, limit);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean existsById(UUID fileId) {
-        return fileMetadataRepository.existsById(fileId);
+        boolean exists = fileMetadataRepository.existsById(fileId);
+        recordFilterLookup(fileId, exists);
+        return exists;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getFileVersionOfOwner(UUID fileId, UUID ownerId) {
+        Optional<FileOwnershipView> found = fileMetadataRepository.findOwnershipById(fileId);
+        recordFilterLookup(fileId, found.isPresent());
+        FileOwnershipView ownership = found
+                .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
+
+        if (!ownership.getOwnerId().equals(ownerId)) {
+            throw new AccessDeniedException("You can only access your own files");
+        }
+        return ownership.getVersion();
+    }
+
+    /**
+     * Новая версия файла без изменения данных (отзыв выданных по старой версии токенов); возвращает версию
+     */
+    @Override
+    public long incrementFileVersionOfOwner(UUID fileId, UUID ownerId) {
+        Optional<Long> version = fileMetadataRepository.incrementVersionForOwner(fileId, ownerId);
+        if (version.isPresent()) {
+            return version.get();
+        }
+
+        // Путь ошибки: одна выборка, чтобы вернуть корректное исключение
+        if (fileMetadataRepository.findOwnershipById(fileId).isEmpty()) {
+            throw new EntityNotFoundException("File not found with id: " + fileId);
+        }
+        throw new AccessDeniedException("You can only access your own files");
     }
 
     /**
      * Бизнес-правило: валидация данных файла
      */
+    private List<StorageKeyView> publishPurged(List<StorageKeyView> purged) {
+        if (!purged.isEmpty()) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(
+                    purged.stream().map(StorageKeyView::getId).toList()));
+        }
+        return purged;
+    }
+
     private void validateFileData(String fileName, String contentType, long size) {
         if (fileName == null || fileName.trim().isEmpty()) {
             throw new IllegalArgumentException("File name is required");
@@ -139,33 +379,6 @@ public class FileMetadataServiceImpl implements FileMetadataService {
         return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
     }
 
-    /**
-     * Бизнес-правило: валидация перехода статусов
-     */
-    private void validateStatusTransition(Status currentStatus, Status newStatus) {
-        switch (currentStatus) {
-            case UPLOADED -> {
-                if (newStatus != Status.PROCESSING) {
-                    throw new IllegalStateException(
-                            String.format("UPLOADED files can only transition to PROCESSING, not to %s", newStatus)
-                    );
-                }
-            }
-            case PROCESSING -> {
-                if (newStatus != Status.READY && newStatus != Status.FAILED) {
-                    throw new IllegalStateException(
-                            String.format("PROCESSING files can only transition to READY or FAILED, not to %s", newStatus)
-                    );
-                }
-            }
-            case READY, FAILED -> {
-                throw new IllegalStateException(
-                        String.format("Cannot change status from %s - it's a final status", currentStatus)
-                );
-            }
-        }
-    }
-
     /**
      * Дополнительные доменные методы
      */
@@ -182,36 +395,86 @@ public class FileMetadataServiceImpl implements FileMetadataService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countFilesByStatus(Status status) {
-        return fileMetadataRepository.countByStatus(status);
+        // Глобальные счетчики суммируются по всем шардам
+        return shardRouter.onAllShards(() -> fileMetadataRepository.countByStatus(status)).stream()
+                .mapToLong(Long::longValue)
+                .sum();
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countAllFiles() {
-        return fileMetadataRepository.count();
+        return shardRouter.onAllShards(fileMetadataRepository::count).stream()
+                .mapToLong(Long::longValue)
+                .sum();
     }
 
     @Override
     public FileMetadata updateStorageKey(UUID fileId, String newStorageKey) {
-        if (newStorageKey == null || newStorageKey.trim().isEmpty()) {
-            throw new IllegalArgumentException("Storage key cannot be empty");
-        }
-
-        if (newStorageKey.length() > 500) {
-            throw new IllegalArgumentException("Storage key cannot exceed 500 characters");
-        }
+        validateStorageKey(newStorageKey);
 
         FileMetadata fileMetadata = fileMetadataRepository.findById(fileId)
                 .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
 
-        if (fileMetadataRepository.existsByStorageKeyAndIdNot(newStorageKey, fileId)) {
+        // Ключ, которого точно нет в фильтре, не занят: проверка в БД не нужна (уникальность все равно
+        // гарантирует constraint)
+        if ((existenceFilter == null || existenceFilter.mightContainStorageKey(newStorageKey))
+                && fileMetadataRepository.existsByStorageKeyAndIdNot(newStorageKey, fileId)) {
             throw new IllegalStateException("Storage key already exists: " + newStorageKey);
         }
 
         fileMetadata.setStorageKey(newStorageKey);
 
-        return fileMetadataRepository.save(fileMetadata);
+        FileMetadata saved = fileMetadataRepository.save(fileMetadata);
+        eventPublisher.publishEvent(new FileMetadataChangedEvent.StorageKeysChanged(List.of(newStorageKey)));
+        return saved;
+    }
+
+    /**
+     * Set-based версия updateStorageKey: одна порция - один UPDATE. Строки, ключ которых изменился
+     * параллельно или новый ключ которых уже занят, пропускаются; возвращает id обновленных файлов.
+     */
+    @Override
+    public List<UUID> updateStorageKeys(List<StorageKeyChange> changes) {
+        if (changes.isEmpty()) {
+            return List.of();
+        }
+        UUID[] ids = new UUID[changes.size()];
+        String[] oldKeys = new String[changes.size()];
+        String[] newKeys = new String[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            StorageKeyChange change = changes.get(i);
+            validateStorageKey(change.newKey());
+            ids[i] = change.fileId();
+            oldKeys[i] = change.oldKey();
+            newKeys[i] = change.newKey();
+        }
+        List<UUID> updated = fileMetadataRepository.updateStorageKeys(ids, oldKeys, newKeys);
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.StorageKeysChanged(List.of(newKeys)));
+        }
+        return updated;
+    }
+
+    /**
+     * Ответ о файле всегда дает БД: файл, созданный другим экземпляром, попадает в FileExistenceFilter
+     * только при обновлении, поэтому "точно нет" фильтра здесь лишь сверяется с результатом
+     */
+    private void recordFilterLookup(UUID fileId, boolean exists) {
+        if (existenceFilter != null) {
+            existenceFilter.recordFileLookup(fileId, exists);
+        }
+    }
+
+    private void validateStorageKey(String storageKey) {
+        if (storageKey == null || storageKey.trim().isEmpty()) {
+            throw new IllegalArgumentException("Storage key cannot be empty");
+        }
+
+        if (storageKey.length() > 500) {
+            throw new IllegalArgumentException("Storage key cannot exceed 500 characters");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Folder;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface FolderService {
+    // parentId == null - папка верхнего уровня
+    Folder createFolder(UUID ownerId, UUID parentId, String name);
+    Folder getFolder(UUID folderId, UUID ownerId);
+
+    // Страница содержимого папки (folderId == null - корень): сначала папки по имени, затем файлы по (имя, id)
+    FolderChildren listChildren(UUID ownerId, UUID folderId, String cursor, int limit);
+    FolderUsage getSubtreeUsage(UUID folderId, UUID ownerId);
+
+    // Операции над поддеревом выполняются set-based запросами, без обхода файлов
+    Folder moveFolder(UUID folderId, UUID ownerId, UUID newParentId, String newName);
+    long deleteFolder(UUID folderId, UUID ownerId);
+    List<UUID> moveFiles(UUID ownerId, List<UUID> fileIds, UUID folderId);
+
+    /**
+     * nextCursor == null - страница последняя
+     */
+    record FolderChildren(List<Folder> folders, List<FileMetadata> files, String nextCursor) {
+    }
+
+    /**
+     * folders - число папок поддерева без самой папки
+     */
+    record FolderUsage(long folders, long files, long size, long storedSize) {
+    }
+}
@@ -0,0 +1,256 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Folder;
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.FolderRepository;
+import com.yaser.metadata_service.repository.FolderUsageView;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Transactional
+public class FolderServiceImpl implements FolderService {
+
+    private static final Logger log = LoggerFactory.getLogger(FolderServiceImpl.class);
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+    // Сегмент пути: id папки и "/"
+    private static final int SEGMENT_LENGTH = 37;
+    private static final int MAX_PATH_LENGTH = 2000;
+
+    private static final String FOLDER_CURSOR = "d";
+    private static final String FILE_CURSOR = "f";
+
+    private final FolderRepository folderRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxPathLength;
+
+    @Autowired
+    public FolderServiceImpl(
+            FolderRepository folderRepository,
+            FileMetadataRepository fileMetadataRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${metadata.folders.max-depth:32}") int maxDepth) {
+        this.folderRepository = folderRepository;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxPathLength = Math.min(MAX_PATH_LENGTH, 1 + maxDepth * SEGMENT_LENGTH);
+    }
+
+    @Override
+    public Folder createFolder(UUID ownerId, UUID parentId, String name) {
+        validateName(name);
+        folderRepository.lockOwnerTree(ownerId);
+
+        Folder parent = parentId != null ? getFolder(parentId, ownerId) : null;
+        if (parent != null && parent.getPath().length() + SEGMENT_LENGTH > maxPathLength) {
+            throw new IllegalArgumentException("Folder nesting is too deep");
+        }
+        if (nameTaken(ownerId, parentId, name)) {
+            throw new IllegalStateException("Folder already exists: " + name);
+        }
+        return folderRepository.save(new Folder(ownerId, parent, name));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Folder getFolder(UUID folderId, UUID ownerId) {
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new EntityNotFoundException("Folder not found with id: " + folderId));
+        if (!folder.getOwnerId().equals(ownerId)) {
+            throw new AccessDeniedException("You can only access your own folders");
+        }
+        return folder;
+    }
+
+    /**
+     * Keyset-пагинация: стоимость страницы не зависит от ее номера и размера папки.
+     * Курсор - позиция последнего элемента страницы (папка по имени или файл по имени и id).
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public FolderChildren listChildren(UUID ownerId, UUID folderId, String cursor, int limit) {
+        if (folderId != null) {
+            getFolder(folderId, ownerId);
+        }
+        String[] position = decodeCursor(cursor);
+
+        List<Folder> folders = List.of();
+        int remaining = limit;
+        String afterFileName = "";
+        UUID afterFileId = MIN_UUID;
+        if (position == null || position[0].equals(FOLDER_CURSOR)) {
+            String afterName = position != null ? position[1] : "";
+            folders = folderId != null
+                    ? folderRepository.findChildPage(folderId, afterName, limit + 1)
+                    : folderRepository.findTopLevelPage(ownerId, afterName, limit + 1);
+            if (folders.size() > limit) {
+                folders = folders.subList(0, limit);
+                return new FolderChildren(folders, List.of(),
+                        encodeCursor(FOLDER_CURSOR, folders.get(limit - 1).getName()));
+            }
+            remaining = limit - folders.size();
+        } else {
+            afterFileId = UUID.fromString(position[1]);
+            afterFileName = position[2];
+        }
+
+        List<FileMetadata> files = folderId != null
+                ? fileMetadataRepository.findFolderFilePage(folderId, afterFileName, afterFileId, remaining + 1)
+                : fileMetadataRepository.findRootFilePage(ownerId, afterFileName, afterFileId, remaining + 1);
+        String nextCursor = null;
+        if (files.size() > remaining) {
+            files = files.subList(0, remaining);
+            // Страница закончилась на последней папке: следующая начинается с первого файла
+            nextCursor = remaining == 0
+                    ? encodeCursor(FILE_CURSOR, MIN_UUID.toString(), "")
+                    : encodeCursor(FILE_CURSOR, files.get(remaining - 1).getId().toString(),
+                    files.get(remaining - 1).getFileName());
+        }
+        return new FolderChildren(folders, files, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FolderUsage getSubtreeUsage(UUID folderId, UUID ownerId) {
+        Folder folder = getFolder(folderId, ownerId);
+        String upper = Folder.subtreeUpperBound(folder.getPath());
+        long folders = folderRepository.countSubtree(ownerId, folder.getPath(), upper);
+        FolderUsageView usage = fileMetadataRepository.sumSubtreeUsage(ownerId, folder.getPath(), upper);
+        return new FolderUsage(folders - 1, usage.getFiles(), usage.getSize(), usage.getStoredSize());
+    }
+
+    /**
+     * Перенос (и переименование) поддерева: один UPDATE путей всех его папок; файлы ссылаются на папку по id
+     * и не меняются
+     */
+    @Override
+    public Folder moveFolder(UUID folderId, UUID ownerId, UUID newParentId, String newName) {
+        if (newName != null) {
+            validateName(newName);
+        }
+        folderRepository.lockOwnerTree(ownerId);
+
+        Folder folder = getFolder(folderId, ownerId);
+        String name = newName != null ? newName : folder.getName();
+        Folder parent = newParentId != null ? getFolder(newParentId, ownerId) : null;
+        if (parent != null && parent.getPath().startsWith(folder.getPath())) {
+            throw new IllegalArgumentException("Cannot move a folder into itself or its subfolder");
+        }
+
+        boolean sameParent = newParentId == null ? folder.getParentId() == null : newParentId.equals(folder.getParentId());
+        if (sameParent && name.equals(folder.getName())) {
+            return folder;
+        }
+        if (nameTaken(ownerId, newParentId, name)) {
+            throw new IllegalStateException("Folder already exists: " + name);
+        }
+
+        String fromPath = folder.getPath();
+        String upper = Folder.subtreeUpperBound(fromPath);
+        String newPath = Folder.childPath(parent != null ? parent.getPath() : Folder.ROOT_PATH, folderId);
+        int deepest = folderRepository.maxSubtreePathLength(ownerId, fromPath, upper);
+        if (deepest - fromPath.length() + newPath.length() > maxPathLength) {
+            throw new IllegalArgumentException("Folder nesting is too deep");
+        }
+
+        int moved = folderRepository.moveSubtree(ownerId, folderId, newParentId, name, fromPath, upper, newPath);
+        log.info("FolderService: Folder {} moved with {} folders of its subtree", folderId, moved);
+        return getFolder(folderId, ownerId);
+    }
+
+    /**
+     * Удаление поддерева: все его файлы одним UPDATE уходят в корзину (и восстанавливаются в корень),
+     * затем все папки удаляются одним DELETE. Возвращает число файлов, перенесенных в корзину
+     */
+    @Override
+    public long deleteFolder(UUID folderId, UUID ownerId) {
+        folderRepository.lockOwnerTree(ownerId);
+        Folder folder = getFolder(folderId, ownerId);
+        String upper = Folder.subtreeUpperBound(folder.getPath());
+
+        List<UUID> deletedFiles = fileMetadataRepository.trashSubtreeFiles(ownerId, folder.getPath(), upper);
+        if (!deletedFiles.isEmpty()) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(deletedFiles));
+        }
+        int deletedFolders = folderRepository.deleteSubtree(ownerId, folder.getPath(), upper);
+        log.info("FolderService: Folder {} deleted - folders: {}, files moved to trash: {}", folderId, deletedFolders, deletedFiles.size());
+        return deletedFiles.size();
+    }
+
+    /**
+     * Перенос файлов владельца в папку (folderId == null - в корень) одним UPDATE; возвращает id перенесенных файлов.
+     * Под блокировкой дерева владельца: иначе параллельное удаление папки дало бы нарушение внешнего ключа
+     */
+    @Override
+    public List<UUID> moveFiles(UUID ownerId, List<UUID> fileIds, UUID folderId) {
+        folderRepository.lockOwnerTree(ownerId);
+        if (folderId != null) {
+            getFolder(folderId, ownerId);
+        }
+        if (fileIds.isEmpty()) {
+            return List.of();
+        }
+        return fileMetadataRepository.moveToFolder(ownerId, fileIds.toArray(UUID[]::new), folderId);
+    }
+
+    private boolean nameTaken(UUID ownerId, UUID parentId, String name) {
+        return parentId != null
+                ? folderRepository.existsChild(parentId, name)
+                : folderRepository.existsTopLevel(ownerId, name);
+    }
+
+    private static void validateName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Folder name is required");
+        }
+        if (name.length() > 255) {
+            throw new IllegalArgumentException("Folder name cannot exceed 255 characters");
+        }
+        if (name.chars().anyMatch(Character::isISOControl)) {
+            throw new IllegalArgumentException("Folder name cannot contain control characters");
+        }
+    }
+
+    static String encodeCursor(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // [тип, имя] для папки, [тип, id, имя] для файла; null - первая страница.
+    // Имя - всегда последнее поле и разбором не делится, даже если содержит перевод строки
+    static String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] typed = decoded.split("\n", 2);
+            if (typed[0].equals(FOLDER_CURSOR) && typed.length == 2) {
+                return typed;
+            }
+            String[] parts = decoded.split("\n", 3);
+            if (parts[0].equals(FILE_CURSOR) && parts.length == 3) {
+                UUID.fromString(parts[1]);
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // некорректный курсор
+        }
+        throw new IllegalArgumentException("Invalid page cursor");
+    }
+}
@@ -0,0 +1,15 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.OwnerPurgeJob;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OwnerPurgeService {
+    // Постановка задачи (API возвращается сразу, удаление идет в фоне)
+    OwnerPurgeJob requestPurge(UUID ownerId, boolean deleteOwner);
+    Optional<OwnerPurgeJob> findJob(UUID jobId);
+
+    // Операция фонового обработчика: порция следующей незахваченной задачи
+    boolean processNextChunk();
+}
@@ -0,0 +1,156 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.OwnerPurgeJob;
+import com.yaser.metadata_service.entity.PurgeJobStatus;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.FolderRepository;
+import com.yaser.metadata_service.repository.OwnerPurgeJobRepository;
+import com.yaser.metadata_service.repository.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+@Transactional
+public class OwnerPurgeServiceImpl implements OwnerPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerPurgeServiceImpl.class);
+
+    private static final Set<PurgeJobStatus> ACTIVE_STATUSES = EnumSet.of(PurgeJobStatus.PENDING, PurgeJobStatus.RUNNING);
+
+    private final OwnerPurgeJobRepository purgeJobRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FolderRepository folderRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxAttempts;
+
+    @Autowired
+    public OwnerPurgeServiceImpl(
+            OwnerPurgeJobRepository purgeJobRepository,
+            FileMetadataRepository fileMetadataRepository,
+            FolderRepository folderRepository,
+            UserRepository userRepository,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${metadata.purge.chunk-size:5000}") int chunkSize,
+            @Value("${metadata.purge.max-attempts:5}") int maxAttempts) {
+        this.purgeJobRepository = purgeJobRepository;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.folderRepository = folderRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public OwnerPurgeJob requestPurge(UUID ownerId, boolean deleteOwner) {
+        if (!userRepository.existsById(ownerId)) {
+            throw new EntityNotFoundException("User not found with id: " + ownerId);
+        }
+
+        // Бизнес-правило: для владельца допускается одна активная задача
+        Optional<OwnerPurgeJob> active = purgeJobRepository.findFirstByOwnerIdAndStatusIn(ownerId, ACTIVE_STATUSES);
+        if (active.isPresent()) {
+            return active.get();
+        }
+
+        long totalFiles = fileMetadataRepository.countByOwnerId(ownerId);
+        return purgeJobRepository.save(new OwnerPurgeJob(ownerId, deleteOwner, totalFiles));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<OwnerPurgeJob> findJob(UUID jobId) {
+        return purgeJobRepository.findById(jobId);
+    }
+
+    /**
+     * Порция следующей активной задачи в отдельной транзакции.
+     * Задача захватывается FOR UPDATE SKIP LOCKED в транзакции самой порции и остается заблокированной до ее
+     * коммита: одну задачу никогда не обрабатывают два инстанса одновременно, параллельные инстансы берут
+     * разные задачи. Ошибка порции учитывается в задаче отдельной транзакцией.
+     * Возвращает false, если незахваченных активных задач нет или порция не удалась.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean processNextChunk() {
+        AtomicReference<UUID> claimed = new AtomicReference<>();
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+                OwnerPurgeJob job = purgeJobRepository.lockNextActiveJob().orElse(null);
+                if (job == null) {
+                    return false;
+                }
+                claimed.set(job.getId());
+                processChunk(job);
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            UUID jobId = claimed.get();
+            if (jobId == null) {
+                throw e;
+            }
+            log.error("PurgeService: Chunk failed for purge job {}", jobId, e);
+            transactionTemplate.executeWithoutResult(tx -> purgeJobRepository.lockById(jobId).ifPresent(job -> {
+                job.recordFailure(e.getMessage(), maxAttempts);
+                purgeJobRepository.save(job);
+            }));
+            return false;
+        }
+    }
+
+    private void processChunk(OwnerPurgeJob job) {
+        List<UUID> deleted = fileMetadataRepository.deleteChunkByOwnerId(job.getOwnerId(), chunkSize);
+        job.recordChunk(deleted.size());
+        if (!deleted.isEmpty()) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(deleted));
+        }
+
+        if (deleted.size() < chunkSize) {
+            if (job.isDeleteOwner()) {
+                deleteOwner(job.getOwnerId());
+            }
+            job.complete();
+            log.info("PurgeService: Purge job {} completed - owner: {}, deleted files: {}",
+                    job.getId(), job.getOwnerId(), job.getDeletedFiles());
+        }
+
+        purgeJobRepository.save(job);
+    }
+
+    // Строка пользователя блокируется первой: файлы и папки, создаваемые параллельно (внешний ключ на users),
+    // ждут коммита и затем падают, поэтому после удаления зависимых строк DELETE пользователя не упирается в FK.
+    // Журнал аудита внешних ключей не имеет и переживает пользователя
+    private void deleteOwner(UUID ownerId) {
+        if (userRepository.lockById(ownerId).isEmpty()) {
+            return;
+        }
+        List<UUID> remaining = fileMetadataRepository.deleteChunkByOwnerId(ownerId, Integer.MAX_VALUE);
+        if (!remaining.isEmpty()) {
+            eventPublisher.publishEvent(new FileMetadataChangedEvent.FilesDeleted(remaining));
+        }
+        folderRepository.deleteByOwnerId(ownerId);
+        userRepository.deleteRolesByUserId(ownerId);
+        userRepository.purgeById(ownerId);
+    }
+}
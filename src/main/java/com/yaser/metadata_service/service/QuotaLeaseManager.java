@@ -0,0 +1,268 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.repository.OwnerQuotaUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Аренда квоты для владельцев с частыми загрузками (включается metadata.quota.lease.enabled).
+ * <p>
+ * Владелец, у которого за секунду прошло не меньше hot-threshold резервирований через БД, получает аренду:
+ * grant-bytes резервируются вместе с очередной загрузкой тем же условным upsert, после коммита загрузки
+ * списывают байты из аренды CAS-операцией без блокировки строки владельца. Квота не превышается: арендованные байты уже
+ * учтены как занятые. Неиспользованный остаток возвращается по истечении ttl-ms без загрузок, при нехватке
+ * квоты у владельца и при остановке. При аварийном завершении остаток (не больше grant-bytes на владельца)
+ * остается учтенным как занятый.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.quota.lease", name = "enabled", havingValue = "true")
+public class QuotaLeaseManager {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotaLeaseManager.class);
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final OwnerQuotaUsageRepository quotaUsageRepository;
+    private final TransactionTemplate newTransaction;
+    private final long defaultLimitBytes;
+    private final long grantBytes;
+    private final int hotThreshold;
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<UUID, Lease> leases = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, RateWindow> rates = new ConcurrentHashMap<>();
+    // Байты к возврату в owner_quota_usage (откаты после закрытия аренды, истекшие аренды)
+    private final ConcurrentHashMap<UUID, Long> pendingReleases = new ConcurrentHashMap<>();
+
+    private final Counter leaseHits;
+    private final Counter leaseGrants;
+
+    @Autowired
+    public QuotaLeaseManager(
+            OwnerQuotaUsageRepository quotaUsageRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.quota.default-bytes}") long defaultLimitBytes,
+            @Value("${metadata.quota.lease.grant-bytes:268435456}") long grantBytes,
+            @Value("${metadata.quota.lease.hot-threshold:20}") int hotThreshold,
+            @Value("${metadata.quota.lease.ttl-ms:10000}") long ttlMillis) {
+        this.quotaUsageRepository = quotaUsageRepository;
+        // Отложенные возвраты выполняются в собственной транзакции планировщика
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.defaultLimitBytes = defaultLimitBytes;
+        this.grantBytes = grantBytes;
+        this.hotThreshold = hotThreshold;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+
+        Gauge.builder("metadata.quota.leases", leases, Map::size)
+                .description("Owners currently served from a local quota lease")
+                .register(meterRegistry);
+        this.leaseHits = Counter.builder("metadata.quota.lease.hits").register(meterRegistry);
+        this.leaseGrants = Counter.builder("metadata.quota.lease.grants").register(meterRegistry);
+    }
+
+    /**
+     * Списание из аренды владельца; false - аренды нет или остатка не хватает
+     */
+    public boolean tryConsume(UUID ownerId, long bytes) {
+        Lease lease = leases.get(ownerId);
+        if (lease == null || !lease.consume(bytes)) {
+            return false;
+        }
+        leaseHits.increment();
+
+        // Откат транзакции загрузки возвращает байты в аренду (или в очередь возврата, если аренда закрыта)
+        afterRollback(() -> {
+            if (!lease.refund(bytes)) {
+                pendingReleases.merge(ownerId, bytes, Long::sum);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Учет резервирования через БД. Для "горячего" владельца без аренды возвращает объем аренды,
+     * который резервируется тем же upsert-ом (см. grantAfterCommit), иначе 0.
+     */
+    public long leaseBytesFor(UUID ownerId) {
+        RateWindow window = rates.computeIfAbsent(ownerId, id -> new RateWindow());
+        if (window.increment(System.nanoTime()) < hotThreshold || leases.containsKey(ownerId)) {
+            return 0;
+        }
+        return grantBytes;
+    }
+
+    /**
+     * Выдача аренды после коммита транзакции, зарезервировавшей ее объем
+     */
+    public void grantAfterCommit(UUID ownerId, long bytes) {
+        Runnable grant = () -> {
+            Lease existing = leases.putIfAbsent(ownerId, new Lease(bytes));
+            if (existing == null) {
+                leaseGrants.increment();
+                log.debug("QuotaLease: Granted {} bytes to owner {}", bytes, ownerId);
+            } else if (!existing.refund(bytes)) {
+                pendingReleases.merge(ownerId, bytes, Long::sum);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    grant.run();
+                }
+            });
+        } else {
+            grant.run();
+        }
+    }
+
+    /**
+     * Возврат остатка аренды в текущей транзакции (перед повторной попыткой резервирования)
+     */
+    public boolean returnLease(UUID ownerId) {
+        Lease lease = leases.remove(ownerId);
+        if (lease == null) {
+            return false;
+        }
+        long rest = lease.close();
+        if (rest > 0) {
+            quotaUsageRepository.release(ownerId, rest);
+            afterRollback(() -> pendingReleases.merge(ownerId, rest, Long::sum));
+        }
+        return true;
+    }
+
+    /**
+     * Возврат остатков простаивающих аренд и отложенных возвратов. Выполняется вне транзакций загрузки,
+     * поэтому не занимает второе соединение из пула, пока первое удерживается загрузкой.
+     */
+    @Scheduled(fixedDelayString = "${metadata.quota.lease.ttl-ms:10000}")
+    public void expireIdleLeases() {
+        long now = System.nanoTime();
+        leases.forEach((ownerId, lease) -> {
+            if (now - lease.lastUsedNanos > ttlNanos && leases.remove(ownerId, lease)) {
+                long rest = lease.close();
+                if (rest > 0) {
+                    pendingReleases.merge(ownerId, rest, Long::sum);
+                }
+            }
+        });
+        rates.entrySet().removeIf(entry -> now - entry.getValue().startNanos > RATE_WINDOW_NANOS);
+        releasePending();
+    }
+
+    @PreDestroy
+    public void returnAll() {
+        leases.forEach((ownerId, lease) -> {
+            if (leases.remove(ownerId, lease)) {
+                long rest = lease.close();
+                if (rest > 0) {
+                    pendingReleases.merge(ownerId, rest, Long::sum);
+                }
+            }
+        });
+        releasePending();
+    }
+
+    private void releasePending() {
+        for (UUID ownerId : pendingReleases.keySet()) {
+            Long bytes = pendingReleases.remove(ownerId);
+            if (bytes == null) {
+                continue;
+            }
+            try {
+                newTransaction.executeWithoutResult(status -> quotaUsageRepository.release(ownerId, bytes));
+            } catch (RuntimeException e) {
+                pendingReleases.merge(ownerId, bytes, Long::sum);
+                log.warn("QuotaLease: Failed to return {} bytes for owner {}", bytes, ownerId, e);
+            }
+        }
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Остаток аренды; -1 - аренда закрыта, списания и возвраты в нее невозможны
+     */
+    private static final class Lease {
+        private final AtomicLong remaining;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        Lease(long bytes) {
+            this.remaining = new AtomicLong(bytes);
+        }
+
+        boolean consume(long bytes) {
+            long current;
+            do {
+                current = remaining.get();
+                if (current < bytes) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - bytes));
+            lastUsedNanos = System.nanoTime();
+            return true;
+        }
+
+        boolean refund(long bytes) {
+            long current;
+            do {
+                current = remaining.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current + bytes));
+            return true;
+        }
+
+        long close() {
+            return Math.max(remaining.getAndSet(-1), 0);
+        }
+    }
+
+    private static final class RateWindow {
+        private volatile long startNanos = System.nanoTime();
+        private int count;
+
+        synchronized int increment(long now) {
+            if (now - startNanos > RATE_WINDOW_NANOS) {
+                startNanos = now;
+                count = 0;
+            }
+            return ++count;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.lifecycle.StatusTransitionHooks;
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind буфер для высокочастотных отчетов о статусе (включается metadata.status-write-behind.enabled).
+ * <p>
+ * Семантика:
+ * <ul>
+ *     <li>Переход валидируется при приеме - от последнего буферизованного статуса либо от статуса в БД;
+ *     недопустимый переход отклоняется сразу (IllegalStateException).</li>
+ *     <li>На файл хранится только последний допустимый статус, промежуточные статусы в БД не попадают.
+ *     Путь через промежуточные статусы запоминается, и при сбросе хуки вызываются для каждого его шага.</li>
+ *     <li>Сброс - каждые flush-interval-ms или при заполнении буфера (max-pending записей), пакетными UPDATE
+ *     по batch-size id, одна транзакция на пакет.</li>
+ *     <li>Backpressure: при заполнении буфера сброс выполняет поток вызывающего, остальные писатели ждут на
+ *     блокировке сброса. Память буфера ограничена max-pending записями.</li>
+ *     <li>Потери: при аварийном завершении теряются принятые, но не сброшенные отчеты - не более max-pending
+ *     записей за последние flush-interval-ms плюс время сброса. При штатной остановке буфер сбрасывается.</li>
+ *     <li>Задержка видимости: не больше flush-interval-ms плюс длительность сброса; фактическая задержка
+ *     публикуется метрикой metadata.status.write_behind.flush.lag (возраст самой старой записи при сбросе).</li>
+ *     <li>Если статус в БД изменили в обход буфера, строка не обновляется и учитывается в метрике conflicts.</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.status-write-behind", name = "enabled", havingValue = "true")
+public class StatusWriteBehindBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusWriteBehindBuffer.class);
+
+    // Путь статусов упакован в long: по STEP_BITS бит на шаг, первый шаг в младших битах
+    private static final Status[] STATUSES = Status.values();
+    private static final int STEP_BITS = Math.max(1, 32 - Integer.numberOfLeadingZeros(STATUSES.length - 1));
+    private static final long STEP_MASK = (1L << STEP_BITS) - 1;
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StatusTransitions statusTransitions;
+    private final StatusTransitionHooks statusTransitionHooks;
+    private final int maxPending;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<UUID, PendingStatus> pending = new ConcurrentHashMap<>();
+    // Записи текущего сброса: пока они не закоммичены, новые отчеты валидируются от них, а не от БД
+    private final ConcurrentHashMap<UUID, PendingStatus> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Timer flushLag;
+    private final Timer flushDuration;
+    private final Counter flushedRows;
+    private final Counter conflicts;
+
+    @Autowired
+    public StatusWriteBehindBuffer(
+            FileMetadataRepository fileMetadataRepository,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher,
+            StatusTransitions statusTransitions,
+            StatusTransitionHooks statusTransitionHooks,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.status-write-behind.max-pending:50000}") int maxPending,
+            @Value("${metadata.status-write-behind.batch-size:1000}") int batchSize) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.statusTransitions = statusTransitions;
+        this.statusTransitionHooks = statusTransitionHooks;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        if (STEP_BITS * (STATUSES.length - 1) > Long.SIZE) {
+            throw new IllegalStateException("Status path does not fit into a long: " + STATUSES.length + " statuses");
+        }
+
+        Gauge.builder("metadata.status.write_behind.pending", pending, Map::size)
+                .description("Status updates accepted but not yet flushed")
+                .register(meterRegistry);
+        this.flushLag = Timer.builder("metadata.status.write_behind.flush.lag")
+                .description("Age of the oldest buffered status update at flush time")
+                .register(meterRegistry);
+        this.flushDuration = Timer.builder("metadata.status.write_behind.flush.duration")
+                .register(meterRegistry);
+        this.flushedRows = Counter.builder("metadata.status.write_behind.flushed").register(meterRegistry);
+        this.conflicts = Counter.builder("metadata.status.write_behind.conflicts").register(meterRegistry);
+    }
+
+    /**
+     * Прием отчета о статусе: валидация перехода и замена буферизованного статуса файла
+     */
+    public void submit(UUID fileId, Status newStatus) {
+        PendingStatus accepted = null;
+        while (accepted == null) {
+            Status committed = pending.containsKey(fileId) ? null : statusOutsideBuffer(fileId);
+            accepted = pending.compute(fileId, (id, existing) -> {
+                if (existing != null) {
+                    statusTransitions.validate(existing.latest(), newStatus);
+                    return existing.then(newStatus);
+                }
+                PendingStatus flushing = inFlight.get(id);
+                Status from = flushing != null ? flushing.latest() : committed;
+                if (from == null) {
+                    // Запись ушла в сброс между проверками - повторяем с актуальным состоянием
+                    return null;
+                }
+                statusTransitions.validate(from, newStatus);
+                return PendingStatus.start(from, newStatus, System.nanoTime());
+            });
+        }
+
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${metadata.status-write-behind.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!pending.isEmpty()) {
+                flushDuration.record(this::flushPending);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushPending() {
+        long oldest = Long.MAX_VALUE;
+        Map<Transition, List<UUID>> groups = new HashMap<>();
+
+        for (Map.Entry<UUID, PendingStatus> entry : pending.entrySet()) {
+            UUID fileId = entry.getKey();
+            PendingStatus status = entry.getValue();
+
+            // Сначала в inFlight, потом удаление - так новый отчет всегда видит статус, который будет в БД
+            inFlight.put(fileId, status);
+            if (!pending.remove(fileId, status)) {
+                // Отчет обновился параллельно - запись уйдет со следующим сбросом
+                inFlight.remove(fileId, status);
+                continue;
+            }
+            if (status.base() == status.latest()) {
+                inFlight.remove(fileId, status);
+                continue;
+            }
+
+            oldest = Math.min(oldest, status.enqueuedAtNanos());
+            groups.computeIfAbsent(status.transition(), t -> new ArrayList<>()).add(fileId);
+        }
+
+        if (oldest != Long.MAX_VALUE) {
+            flushLag.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS);
+        }
+
+        groups.forEach((transition, fileIds) -> {
+            for (int from = 0; from < fileIds.size(); from += batchSize) {
+                writeBatch(transition, fileIds.subList(from, Math.min(from + batchSize, fileIds.size())));
+            }
+        });
+    }
+
+    private void writeBatch(Transition transition, List<UUID> fileIds) {
+        try {
+            Integer updated = transactionTemplate.execute(tx -> {
+                int rows;
+                if (hasHooks(transition)) {
+                    List<UUID> updatedIds = fileMetadataRepository.bulkUpdateStatusReturningIds(
+                            fileIds, transition.from().name(), transition.to().name());
+                    fireHooks(transition, updatedIds);
+                    rows = updatedIds.size();
+                } else {
+                    rows = fileMetadataRepository.bulkUpdateStatus(fileIds, transition.from().name(), transition.to().name());
+                }
+                eventPublisher.publishEvent(new FileMetadataChangedEvent.StatusChanged(
+                        List.copyOf(fileIds), transition.from(), transition.to()));
+                return rows;
+            });
+            int updatedRows = updated != null ? updated : 0;
+            flushedRows.increment(updatedRows);
+            conflicts.increment(fileIds.size() - updatedRows);
+        } catch (RuntimeException e) {
+            log.error("WriteBehind: Failed to flush {} status updates {} -> {}, requeueing",
+                    fileIds.size(), transition.from(), transition.to(), e);
+            requeue(fileIds);
+        } finally {
+            for (UUID fileId : fileIds) {
+                inFlight.remove(fileId);
+            }
+        }
+    }
+
+    // Возврат неудачного пакета: более свежий отчет строится поверх (его base равен latest из пакета)
+    private void requeue(List<UUID> fileIds) {
+        for (UUID fileId : fileIds) {
+            PendingStatus failed = inFlight.get(fileId);
+            if (failed == null) {
+                continue;
+            }
+            pending.merge(fileId, failed, (newer, old) -> old.then(newer));
+        }
+    }
+
+    private boolean hasHooks(Transition transition) {
+        Status from = transition.from();
+        for (int step = 0; step < transition.steps(); step++) {
+            Status to = transition.step(step);
+            if (statusTransitionHooks.hasHooks(from, to)) {
+                return true;
+            }
+            from = to;
+        }
+        return false;
+    }
+
+    // Хуки каждого шага пути, в порядке шагов, только для фактически обновленных строк
+    private void fireHooks(Transition transition, List<UUID> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        Status from = transition.from();
+        for (int step = 0; step < transition.steps(); step++) {
+            Status to = transition.step(step);
+            statusTransitionHooks.fire(fileIds, from, to);
+            from = to;
+        }
+    }
+
+    private Status statusOutsideBuffer(UUID fileId) {
+        PendingStatus flushing = inFlight.get(fileId);
+        if (flushing != null) {
+            return flushing.latest();
+        }
+        return fileMetadataRepository.findStatusById(fileId)
+                .orElseThrow(() -> new EntityNotFoundException("File not found with id: " + fileId));
+    }
+
+    // Граф переходов ациклический, поэтому путь не длиннее STATUSES.length - 1 шагов и помещается в long
+    private record PendingStatus(Status base, Status latest, long path, int steps, long enqueuedAtNanos) {
+
+        static PendingStatus start(Status base, Status next, long enqueuedAtNanos) {
+            return new PendingStatus(base, next, next.ordinal(), 1, enqueuedAtNanos);
+        }
+
+        PendingStatus then(Status next) {
+            return new PendingStatus(base, next, path | ((long) next.ordinal() << (steps * STEP_BITS)),
+                    steps + 1, enqueuedAtNanos);
+        }
+
+        // Продолжение пути более свежим отчетом (его base равен latest этого)
+        PendingStatus then(PendingStatus newer) {
+            return new PendingStatus(base, newer.latest(), path | (newer.path() << (steps * STEP_BITS)),
+                    steps + newer.steps(), enqueuedAtNanos);
+        }
+
+        Transition transition() {
+            return new Transition(base, latest, path, steps);
+        }
+    }
+
+    private record Transition(Status from, Status to, long path, int steps) {
+
+        Status step(int index) {
+            return STATUSES[(int) ((path >>> (index * STEP_BITS)) & STEP_MASK)];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.yaser.metadata_service.service;
+
+import java.util.UUID;
+
+public interface StorageQuotaService {
+
+    /**
+     * Резервирование объема под новый файл в текущей транзакции; освобождается при удалении файла
+     */
+    void reserve(UUID ownerId, long bytes);
+
+    long getUsedBytes(UUID ownerId);
+
+    long getLimitBytes(UUID ownerId);
+
+    /**
+     * null - сброс индивидуальной квоты (действуют квоты ролей)
+     */
+    void setUserQuota(UUID userId, Long limitBytes);
+
+    void setRoleQuota(String roleName, Long limitBytes);
+}
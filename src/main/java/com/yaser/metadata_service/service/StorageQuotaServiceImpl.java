@@ -0,0 +1,111 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.OwnerQuotaUsage;
+import com.yaser.metadata_service.entity.Role;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.exception.QuotaExceededException;
+import com.yaser.metadata_service.repository.OwnerQuotaUsageRepository;
+import com.yaser.metadata_service.repository.RoleRepository;
+import com.yaser.metadata_service.repository.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Service
+@Transactional
+public class StorageQuotaServiceImpl implements StorageQuotaService {
+
+    private final OwnerQuotaUsageRepository quotaUsageRepository;
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final QuotaLeaseManager leaseManager;
+    private final long defaultLimitBytes;
+
+    @Autowired
+    public StorageQuotaServiceImpl(
+            OwnerQuotaUsageRepository quotaUsageRepository,
+            UserRepository userRepository,
+            RoleRepository roleRepository,
+            ObjectProvider<QuotaLeaseManager> leaseManager,
+            @Value("${metadata.quota.default-bytes}") long defaultLimitBytes) {
+        this.quotaUsageRepository = quotaUsageRepository;
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.leaseManager = leaseManager.getIfAvailable();
+        this.defaultLimitBytes = defaultLimitBytes;
+    }
+
+    @Override
+    public void reserve(UUID ownerId, long bytes) {
+        // Быстрый путь: списание из локальной аренды без обращения к строке владельца
+        if (leaseManager != null && leaseManager.tryConsume(ownerId, bytes)) {
+            return;
+        }
+
+        // "Горячий" владелец: тем же запросом резервируется аренда, если на нее хватает квоты
+        long leaseBytes = leaseManager != null ? leaseManager.leaseBytesFor(ownerId) : 0;
+        if (leaseBytes > 0 && quotaUsageRepository.reserve(ownerId, bytes + leaseBytes, defaultLimitBytes).isPresent()) {
+            leaseManager.grantAfterCommit(ownerId, leaseBytes);
+            return;
+        }
+
+        boolean reserved = quotaUsageRepository.reserve(ownerId, bytes, defaultLimitBytes).isPresent();
+        if (!reserved && leaseManager != null && leaseManager.returnLease(ownerId)) {
+            // Часть квоты могла оставаться в аренде - повторяем после ее возврата
+            reserved = quotaUsageRepository.reserve(ownerId, bytes, defaultLimitBytes).isPresent();
+        }
+
+        if (!reserved) {
+            // Путь ошибки: отличаем отсутствие владельца от превышения квоты
+            long limit = getLimitBytes(ownerId);
+            throw new QuotaExceededException(String.format(
+                    "Storage quota exceeded: %d of %d bytes used, %d bytes requested",
+                    getUsedBytes(ownerId), limit, bytes));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUsedBytes(UUID ownerId) {
+        return quotaUsageRepository.findByOwnerId(ownerId)
+                .map(OwnerQuotaUsage::getUsedBytes)
+                .orElse(0L);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getLimitBytes(UUID ownerId) {
+        return quotaUsageRepository.findLimitByOwnerId(ownerId, defaultLimitBytes)
+                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + ownerId));
+    }
+
+    @Override
+    public void setUserQuota(UUID userId, Long limitBytes) {
+        validateLimit(limitBytes);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
+        user.setStorageQuotaBytes(limitBytes);
+    }
+
+    @Override
+    public void setRoleQuota(String roleName, Long limitBytes) {
+        validateLimit(limitBytes);
+        Role role = roleRepository.findByName(roleName)
+                .orElseThrow(() -> new EntityNotFoundException("Role not found: " + roleName));
+        role.setStorageQuotaBytes(limitBytes);
+    }
+
+    /**
+     * Бизнес-правило: квота неотрицательна (уменьшение ниже занятого объема запрещает только новые загрузки)
+     */
+    private static void validateLimit(Long limitBytes) {
+        if (limitBytes != null && limitBytes < 0) {
+            throw new IllegalArgumentException("Storage quota cannot be negative");
+        }
+    }
+}
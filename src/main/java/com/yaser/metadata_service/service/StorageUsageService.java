@@ -0,0 +1,29 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.OwnerStorageUsage;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.StorageUsageRepository.DailyGrowthView;
+import com.yaser.metadata_service.repository.StorageUsageRepository.UsageTotalsView;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Объем хранилища из инкрементально поддерживаемых агрегатов (без сканирования file_metadata)
+ */
+public interface StorageUsageService {
+
+    List<OwnerStorageUsage> getTopOwnersByBytes(int limit);
+
+    List<UsageTotalsView> getContentTypeBreakdown();
+
+    Map<Status, UsageTotalsView> getStatusBreakdown();
+
+    /**
+     * Корзина k содержит файлы размером [2^k, 2^(k+1)), индекс массива - номер корзины
+     */
+    UsageTotalsView[] getSizeHistogram();
+
+    List<DailyGrowthView> getDailyGrowth(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,163 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.OwnerStorageUsage;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.repository.StorageUsageRepository;
+import com.yaser.metadata_service.repository.StorageUsageRepository.DailyGrowthView;
+import com.yaser.metadata_service.repository.StorageUsageRepository.UsageTotalsView;
+import com.yaser.metadata_service.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты ведутся на каждом шарде отдельно; при шардировании запрос уходит на все шарды, суммы объединяются здесь.
+ * Транзакции открывает ShardRouter на каждом шарде, поэтому сервис выполняется вне транзакции вызывающего
+ */
+@Service
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StorageUsageServiceImpl implements StorageUsageService {
+
+    private static final int MAX_DAYS = 366;
+    private static final int BUCKETS = 63;
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public StorageUsageServiceImpl(StorageUsageRepository storageUsageRepository, ShardRouter shardRouter) {
+        this.storageUsageRepository = storageUsageRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public List<OwnerStorageUsage> getTopOwnersByBytes(int limit) {
+        List<List<OwnerStorageUsage>> perShard = shardRouter.onAllShards(() -> storageUsageRepository.findTopByTotalBytes(limit));
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+        // Владелец целиком на одном шарде, поэтому top-N всех шардов - top-N объединения
+        return perShard.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(OwnerStorageUsage::getTotalBytes).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<UsageTotalsView> getContentTypeBreakdown() {
+        List<List<UsageTotalsView>> perShard = shardRouter.onAllShards(storageUsageRepository::sumByContentType);
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+        return mergeTotals(perShard).values().stream()
+                .sorted(Comparator.comparingLong(UsageTotalsView::getBytes).reversed())
+                .toList();
+    }
+
+    @Override
+    public Map<Status, UsageTotalsView> getStatusBreakdown() {
+        Map<Status, UsageTotalsView> breakdown = new EnumMap<>(Status.class);
+        mergeTotals(shardRouter.onAllShards(storageUsageRepository::sumByStatus))
+                .forEach((key, totals) -> breakdown.put(Status.valueOf(key), totals));
+        return breakdown;
+    }
+
+    @Override
+    public UsageTotalsView[] getSizeHistogram() {
+        UsageTotalsView[] histogram = new UsageTotalsView[BUCKETS];
+        mergeTotals(shardRouter.onAllShards(storageUsageRepository::sumBySizeBucket))
+                .forEach((key, totals) -> histogram[Integer.parseInt(key)] = totals);
+        return histogram;
+    }
+
+    @Override
+    public List<DailyGrowthView> getDailyGrowth(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_DAYS + " days");
+        }
+        List<List<DailyGrowthView>> perShard = shardRouter.onAllShards(() -> storageUsageRepository.sumDailyGrowth(from, to));
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+
+        Map<LocalDate, DailyGrowthView> byDay = new TreeMap<>();
+        for (List<DailyGrowthView> days : perShard) {
+            for (DailyGrowthView day : days) {
+                byDay.merge(day.getDay(), day, (a, b) -> new DailyGrowth(a.getDay(),
+                        a.getFilesAdded() + b.getFilesAdded(), a.getBytesAdded() + b.getBytesAdded(),
+                        a.getFilesRemoved() + b.getFilesRemoved(), a.getBytesRemoved() + b.getBytesRemoved()));
+            }
+        }
+        return List.copyOf(byDay.values());
+    }
+
+    private static Map<String, UsageTotalsView> mergeTotals(List<List<UsageTotalsView>> perShard) {
+        Map<String, UsageTotalsView> merged = new LinkedHashMap<>();
+        for (List<UsageTotalsView> totals : perShard) {
+            for (UsageTotalsView row : totals) {
+                merged.merge(row.getKey(), row, (a, b) ->
+                        new UsageTotals(a.getKey(), a.getFiles() + b.getFiles(), a.getBytes() + b.getBytes()));
+            }
+        }
+        return merged;
+    }
+
+    private record UsageTotals(String key, long files, long bytes) implements UsageTotalsView {
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public long getFiles() {
+            return files;
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    private record DailyGrowth(LocalDate day, long filesAdded, long bytesAdded, long filesRemoved, long bytesRemoved)
+            implements DailyGrowthView {
+        @Override
+        public LocalDate getDay() {
+            return day;
+        }
+
+        @Override
+        public long getFilesAdded() {
+            return filesAdded;
+        }
+
+        @Override
+        public long getBytesAdded() {
+            return bytesAdded;
+        }
+
+        @Override
+        public long getFilesRemoved() {
+            return filesRemoved;
+        }
+
+        @Override
+        public long getBytesRemoved() {
+            return bytesRemoved;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.yaser.metadata_service.shard;
+
+/**
+ * Шард текущего потока. Читается ShardRoutingDataSource при получении соединения, то есть при старте транзакции;
+ * null - шард по умолчанию (ShardRouter.DIRECTORY_SHARD).
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
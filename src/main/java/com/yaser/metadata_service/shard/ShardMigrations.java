@@ -0,0 +1,41 @@
+package com.yaser.metadata_service.shard;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Миграции остальных шардов; шард 0 мигрирует стандартная автоконфигурация Liquibase
+ * (через DataSource приложения без контекста шарда)
+ */
+public class ShardMigrations implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardMigrations.class);
+
+    private final ShardRoutingDataSource dataSource;
+    private final String changeLog;
+    private final ResourceLoader resourceLoader;
+
+    public ShardMigrations(ShardRoutingDataSource dataSource, String changeLog, ResourceLoader resourceLoader) {
+        this.dataSource = dataSource;
+        this.changeLog = changeLog;
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        for (int shard = 0; shard < dataSource.shardCount(); shard++) {
+            if (shard == ShardRouter.DIRECTORY_SHARD) {
+                continue;
+            }
+            log.info("ShardMigrations: Migrating shard {}", shard);
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource.shard(shard));
+            liquibase.setChangeLog(changeLog);
+            liquibase.setResourceLoader(resourceLoader);
+            liquibase.afterPropertiesSet();
+        }
+    }
+}
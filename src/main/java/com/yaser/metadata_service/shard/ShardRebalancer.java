@@ -0,0 +1,174 @@
+package com.yaser.metadata_service.shard;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Перенос всех строк одного владельца между шардами.
+ * <p>
+ * Порядок: строка пользователя на источнике блокируется FOR UPDATE (триггер поколения файлов берет ту же
+ * блокировку, поэтому запись файлов владельца ждет), данные копируются на целевой шард в отдельной транзакции,
+ * затем удаляются с источника, и только после этого перенос записывается в каталог на шарде 0.
+ * Каждый шаг можно повторить: остатки прошлой попытки на целевом шарде удаляются перед копированием,
+ * а если на источнике владельца уже нет, но он есть на целевом шарде, дописывается только каталог.
+ * Запросы, пришедшие на старый шард до обновления каталога в других экземплярах, получают "не найден"
+ * или нарушение внешнего ключа - данные не теряются и не раздваиваются.
+ * Агрегаты объема не копируются: их пересчитывают триггеры file_metadata на обоих шардах.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.sharding", name = "enabled", havingValue = "true")
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final int COPY_CHUNK = 5000;
+    // Postgres сравнивает uuid побайтово без знака, поэтому минимум - нулевой uuid
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public ShardRebalancer(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    public OwnerMove moveOwner(UUID ownerId, int targetShard) {
+        if (targetShard < 0 || targetShard >= shardRouter.shardCount()) {
+            throw new IllegalArgumentException("Target shard must be between 0 and " + (shardRouter.shardCount() - 1));
+        }
+        int sourceShard = shardRouter.shardOf(ownerId);
+        if (sourceShard == targetShard) {
+            return new OwnerMove(ownerId, sourceShard, targetShard, 0);
+        }
+        log.info("ShardRebalancer: Moving owner {} from shard {} to shard {}", ownerId, sourceShard, targetShard);
+
+        JdbcTemplate source = jdbc(sourceShard);
+        JdbcTemplate target = jdbc(targetShard);
+
+        Long movedFiles = transaction(sourceShard).execute(status -> {
+            List<Map<String, Object>> user = source.queryForList("SELECT * FROM users WHERE id = ? FOR UPDATE", ownerId);
+            if (user.isEmpty()) {
+                if (target.queryForObject("SELECT count(*) FROM users WHERE id = ?", Long.class, ownerId) == 0) {
+                    throw new EntityNotFoundException("User not found with id: " + ownerId);
+                }
+                // Повтор после сбоя между удалением на источнике и записью каталога
+                return 0L;
+            }
+            long files = transaction(targetShard).execute(copy -> copyOwner(source, target, ownerId, user));
+            deleteOwner(source, ownerId);
+            return files;
+        });
+
+        recordRelocation(ownerId, targetShard);
+        log.info("ShardRebalancer: Owner {} moved to shard {} ({} files)", ownerId, targetShard, movedFiles);
+        return new OwnerMove(ownerId, sourceShard, targetShard, movedFiles != null ? movedFiles : 0);
+    }
+
+    private long copyOwner(JdbcTemplate source, JdbcTemplate target, UUID ownerId, List<Map<String, Object>> user) {
+        deleteOwner(target, ownerId);
+        insertRows(target, "users", user);
+
+        // id ролей на шардах разные (генерируются миграцией), роли сопоставляются по имени
+        List<String> roles = source.queryForList("SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id " +
+                "WHERE ur.user_id = ?", String.class, ownerId);
+        for (String role : roles) {
+            int inserted = target.update("INSERT INTO user_roles (user_id, role_id) SELECT ?, id FROM roles WHERE name = ?",
+                    ownerId, role);
+            if (inserted == 0) {
+                throw new IllegalStateException("Role " + role + " does not exist on the target shard");
+            }
+        }
+
+        // По пути: родительская папка вставляется раньше дочерних
+        insertRows(target, "folders",
+                source.queryForList("SELECT * FROM folders WHERE owner_id = ? ORDER BY path", ownerId));
+
+        long files = 0;
+        UUID after = MIN_UUID;
+        while (true) {
+            List<Map<String, Object>> chunk = source.queryForList(
+                    "SELECT * FROM file_metadata WHERE owner_id = ? AND id > ? ORDER BY id LIMIT ?",
+                    ownerId, after, COPY_CHUNK);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            insertRows(target, "file_metadata", chunk);
+            // id результатов генерируется последовательностью шарда и не копируется
+            insertRows(target, "file_processing_results", source.queryForList(
+                    "SELECT file_id, processor, success, detail, duration_ms, processed_at " +
+                            "FROM file_processing_results WHERE file_id IN (" +
+                            String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                    chunk.stream().map(row -> row.get("id")).toArray()));
+            insertRows(target, "file_access_stats", source.queryForList(
+                    "SELECT * FROM file_access_stats WHERE file_id IN (" +
+                            String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                    chunk.stream().map(row -> row.get("id")).toArray()));
+            files += chunk.size();
+            after = (UUID) chunk.get(chunk.size() - 1).get("id");
+        }
+
+        insertRows(target, "owner_quota_usage",
+                source.queryForList("SELECT * FROM owner_quota_usage WHERE owner_id = ?", ownerId));
+        insertRows(target, "owner_purge_jobs",
+                source.queryForList("SELECT * FROM owner_purge_jobs WHERE owner_id = ?", ownerId));
+        return files;
+    }
+
+    // owner_quota_usage и storage_usage_by_owner удаляются каскадом вместе с пользователем
+    private static void deleteOwner(JdbcTemplate jdbc, UUID ownerId) {
+        jdbc.update("DELETE FROM owner_purge_jobs WHERE owner_id = ?", ownerId);
+        jdbc.update("DELETE FROM file_metadata WHERE owner_id = ?", ownerId);
+        jdbc.update("DELETE FROM folders WHERE owner_id = ?", ownerId);
+        jdbc.update("DELETE FROM user_roles WHERE user_id = ?", ownerId);
+        jdbc.update("DELETE FROM users WHERE id = ?", ownerId);
+    }
+
+    private static void insertRows(JdbcTemplate jdbc, String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+                String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        List<Object[]> values = rows.stream()
+                .map(row -> columns.stream().map(row::get).toArray())
+                .toList();
+        jdbc.batchUpdate(sql, values);
+    }
+
+    private void recordRelocation(UUID ownerId, int shard) {
+        JdbcTemplate directory = jdbc(ShardRouter.DIRECTORY_SHARD);
+        if (shard == shardRouter.homeShardOf(ownerId)) {
+            directory.update("DELETE FROM owner_shard_overrides WHERE owner_id = ?", ownerId);
+        } else {
+            directory.update("INSERT INTO owner_shard_overrides (owner_id, shard, moved_at) VALUES (?, ?, now()) " +
+                    "ON CONFLICT (owner_id) DO UPDATE SET shard = EXCLUDED.shard, moved_at = EXCLUDED.moved_at",
+                    ownerId, shard);
+        }
+        shardRouter.relocate(ownerId, shard);
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return new JdbcTemplate(shardRouter.dataSource().shard(shard));
+    }
+
+    private TransactionTemplate transaction(int shard) {
+        return new TransactionTemplate(new DataSourceTransactionManager(shardRouter.dataSource().shard(shard)));
+    }
+
+    public record OwnerMove(UUID ownerId, int fromShard, int toShard, long movedFiles) {
+    }
+}
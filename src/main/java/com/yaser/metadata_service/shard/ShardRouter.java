@@ -0,0 +1,296 @@
+package com.yaser.metadata_service.shard;
+
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Маршрутизация по шардам (metadata.sharding.enabled).
+ * <p>
+ * Все данные владельца (пользователь, его файлы, квота, задачи удаления) живут на одном шарде:
+ * jump consistent hash от owner_id, либо шард из каталога owner_shard_overrides, если владельца перенес ShardRebalancer.
+ * Глобальные операции выполняются на всех шардах параллельно, результаты объединяет вызывающий.
+ * Параллельный обход вызывается только вне транзакции: иначе вызывающий держит соединение, пока ждет соединения
+ * шардов, и при занятом пуле запросы ждут друг друга. Одновременно на шард уходит не больше
+ * metadata.sharding.fan-out-per-shard задач, остаток пула шарда остается обычным запросам.
+ * Без шардирования все методы выполняют работу сразу в текущем потоке и транзакции.
+ */
+@Component
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    public static final int DIRECTORY_SHARD = 0;
+
+    private final ShardRoutingDataSource dataSource;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final TransactionTemplate shardTransaction;
+    private final TransactionTemplate localTransaction;
+    private final ExecutorService fanOut;
+    private final Semaphore[] fanOutPermits;
+    private final Map<UUID, Integer> relocatedOwners = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ShardRouter(
+            ObjectProvider<ShardRoutingDataSource> dataSource,
+            FileMetadataRepository fileMetadataRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${metadata.sharding.max-pool-size:10}") int maxPoolSize,
+            @Value("${metadata.sharding.fan-out-per-shard:4}") int fanOutPerShard) {
+        this.dataSource = dataSource.getIfAvailable();
+        this.fileMetadataRepository = fileMetadataRepository;
+
+        this.shardTransaction = new TransactionTemplate(transactionManager);
+        this.shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.localTransaction = new TransactionTemplate(transactionManager);
+
+        if (this.dataSource == null) {
+            this.fanOut = null;
+            this.fanOutPermits = null;
+            return;
+        }
+        if (fanOutPerShard < 1 || fanOutPerShard >= maxPoolSize) {
+            throw new IllegalArgumentException("metadata.sharding.fan-out-per-shard must be between 1 and max-pool-size - 1: "
+                    + fanOutPerShard);
+        }
+        // Задачи ждут соединения, а не вычисляют: поток на задачу, ограничение - семафор шарда
+        this.fanOut = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-fan-out-", 0).factory());
+        this.fanOutPermits = new Semaphore[this.dataSource.shardCount()];
+        for (int shard = 0; shard < fanOutPermits.length; shard++) {
+            fanOutPermits[shard] = new Semaphore(fanOutPerShard);
+        }
+    }
+
+    public boolean isEnabled() {
+        return dataSource != null;
+    }
+
+    public int shardCount() {
+        return dataSource != null ? dataSource.shardCount() : 1;
+    }
+
+    public int shardOf(UUID ownerId) {
+        if (dataSource == null) {
+            return DIRECTORY_SHARD;
+        }
+        Integer relocated = relocatedOwners.get(ownerId);
+        return relocated != null ? relocated : homeShardOf(ownerId);
+    }
+
+    /**
+     * Шард по хэшу, без учета каталога. При добавлении шарда меняется только у ~1/N владельцев.
+     */
+    public int homeShardOf(UUID ownerId) {
+        return jumpHash(ownerId.getMostSignificantBits() ^ ownerId.getLeastSignificantBits(), shardCount());
+    }
+
+    /**
+     * Работа на заданном шарде. Если в потоке уже идет транзакция на другом шарде, она приостанавливается
+     * на время работы (REQUIRES_NEW), иначе транзакции внутри work открываются уже на нужном шарде.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (dataSource == null) {
+            return work.get();
+        }
+        Integer previous = ShardContext.current();
+        if ((previous != null ? previous : DIRECTORY_SHARD) == shard) {
+            return work.get();
+        }
+        ShardContext.set(shard);
+        try {
+            return TransactionSynchronizationManager.isActualTransactionActive()
+                    ? shardTransaction.execute(status -> work.get())
+                    : work.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public <T> T onOwnerShard(UUID ownerId, Supplier<T> work) {
+        return onShard(shardOf(ownerId), work);
+    }
+
+    /**
+     * Работа в транзакции на шарде, где хранится файл; шард ищется параллельным запросом ко всем шардам,
+     * поэтому вызывается вне транзакции
+     */
+    public <T> T onFileShard(UUID fileId, Supplier<T> work) {
+        if (dataSource == null) {
+            return inTransaction(work);
+        }
+        int shard = onAllShards(() -> fileMetadataRepository.existsById(fileId)).indexOf(Boolean.TRUE);
+        if (shard < 0) {
+            throw new EntityNotFoundException("File not found with id: " + fileId);
+        }
+        Integer previous = ShardContext.current();
+        ShardContext.set(shard);
+        try {
+            return shardTransaction.execute(status -> work.get());
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    /**
+     * Первый найденный результат поиска по всем шардам
+     */
+    public <T> Optional<T> findOnAnyShard(Supplier<Optional<T>> lookup) {
+        for (Optional<T> result : onAllShards(lookup)) {
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Scatter-gather: work выполняется на каждом шарде параллельно, в отдельной транзакции.
+     * Результаты в порядке номеров шардов; исключение любого шарда пробрасывается вызывающему.
+     * Вызов внутри транзакции при шардировании - IllegalStateException (точки входа - Propagation.NOT_SUPPORTED).
+     */
+    public <T> List<T> onAllShards(Supplier<T> work) {
+        if (dataSource == null) {
+            return Collections.singletonList(inTransaction(work));
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Shard fan-out must not run inside a transaction");
+        }
+        List<Future<T>> futures = new ArrayList<>(dataSource.shardCount());
+        for (int shard = 0; shard < dataSource.shardCount(); shard++) {
+            int target = shard;
+            futures.add(fanOut.submit(() -> {
+                Semaphore permits = fanOutPermits[target];
+                permits.acquire();
+                ShardContext.set(target);
+                try {
+                    return shardTransaction.execute(status -> work.get());
+                } finally {
+                    ShardContext.clear();
+                    permits.release();
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    /**
+     * Последовательный обход шардов для фоновых задач
+     */
+    public void forEachShard(Runnable work) {
+        for (int shard = 0; shard < shardCount(); shard++) {
+            onShard(shard, () -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Запись каталога о переносе владельца в этом экземпляре; остальные экземпляры увидят ее при обновлении каталога
+     */
+    void relocate(UUID ownerId, int shard) {
+        if (shard == homeShardOf(ownerId)) {
+            relocatedOwners.remove(ownerId);
+        } else {
+            relocatedOwners.put(ownerId, shard);
+        }
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                ? work.get()
+                : localTransaction.execute(status -> work.get());
+    }
+
+    ShardRoutingDataSource dataSource() {
+        return dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${metadata.sharding.directory-refresh-ms:5000}")
+    public void refreshDirectory() {
+        if (dataSource == null) {
+            return;
+        }
+        Map<UUID, Integer> directory = new HashMap<>();
+        new JdbcTemplate(dataSource.shard(DIRECTORY_SHARD)).query(
+                "SELECT owner_id, shard FROM owner_shard_overrides",
+                row -> {
+                    directory.put(row.getObject("owner_id", UUID.class), row.getInt("shard"));
+                });
+        relocatedOwners.keySet().retainAll(directory.keySet());
+        relocatedOwners.putAll(directory);
+        log.debug("ShardRouter: Directory refreshed, {} relocated owners", directory.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOut != null) {
+            fanOut.shutdownNow();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Shard operation failed", e.getCause());
+        }
+    }
+
+    // Jump consistent hash (Lamping, Veach): равномерно и с минимальными переносами при изменении числа шардов
+    static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
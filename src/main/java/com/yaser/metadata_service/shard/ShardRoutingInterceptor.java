@@ -0,0 +1,52 @@
+package com.yaser.metadata_service.shard;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.UUID;
+
+/**
+ * Запрос выполняется на шарде текущего пользователя (X-User-Id): его файлы, квота и строка users лежат там.
+ * Операции над чужими данными переключаются явно через ShardRouter.
+ * Потоковые ответы дописываются в другом потоке: контекст снимается с потока, как только началась
+ * асинхронная обработка, и работа с БД в потоке записи переключается на шард явно.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.sharding", name = "enabled", havingValue = "true")
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public ShardRoutingInterceptor(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String userId = request.getHeader("X-User-Id");
+        if (userId != null) {
+            try {
+                ShardContext.set(shardRouter.shardOf(UUID.fromString(userId)));
+            } catch (IllegalArgumentException e) {
+                // Некорректный заголовок отклонит привязка параметров контроллера
+                ShardContext.clear();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ShardContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ShardContext.clear();
+    }
+}
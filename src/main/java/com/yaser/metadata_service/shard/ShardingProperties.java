@@ -0,0 +1,19 @@
+package com.yaser.metadata_service.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * metadata.sharding: полный список шардов; шард 0 хранит каталог перенесенных владельцев и журнал аудита
+ */
+@ConfigurationProperties(prefix = "metadata.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        List<Shard> shards,
+        @DefaultValue("10") int maxPoolSize) {
+
+    public record Shard(String url, String username, String password) {
+    }
+}
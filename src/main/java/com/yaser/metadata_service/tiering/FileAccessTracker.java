@@ -0,0 +1,150 @@
+package com.yaser.metadata_service.tiering;
+
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учет чтений содержимого для переноса между hot и cold хранилищем (включается metadata.storage.tiering.enabled).
+ * <p>
+ * Чтение не пишет в БД: учитывается одно из sample-rate чтений, счетчик файла - LongAdder в ConcurrentHashMap
+ * (для уже известного файла без блокировок). Раз в flush-interval-ms накопленные счетчики каждого шарда
+ * одним пакетом пишутся в file_access_stats: время последнего чтения и оценка числа чтений
+ * с экспоненциальным затуханием (half-life-ms). Счетчики - оценка: инкременты, попавшие в таблицу в момент
+ * ее замены, и накопленное при аварийной остановке теряются.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.storage.tiering", name = "enabled", havingValue = "true")
+public class FileAccessTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(FileAccessTracker.class);
+
+    // Файл мог быть удален после чтения: строка без файла не вставляется. Сортировка по file_id в пакете
+    // исключает взаимные блокировки между экземплярами
+    private static final String UPSERT = "INSERT INTO file_access_stats AS s (file_id, last_accessed_at, access_score) " +
+            "SELECT f.id, now(), ? FROM file_metadata f WHERE f.id = ? " +
+            "ON CONFLICT (file_id) DO UPDATE SET " +
+            "access_score = s.access_score * power(0.5, extract(epoch FROM now() - s.last_accessed_at) / ?) " +
+            "+ EXCLUDED.access_score, last_accessed_at = EXCLUDED.last_accessed_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int sampleRate;
+    private final int batchSize;
+    private final double halfLifeSeconds;
+
+    // Счетчики по шардам; при записи таблица шарда заменяется пустой
+    private final AtomicReferenceArray<ConcurrentHashMap<UUID, LongAdder>> pending;
+
+    private final Counter sampled;
+    private final Counter flushed;
+
+    @Autowired
+    public FileAccessTracker(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.storage.tiering.sample-rate:4}") int sampleRate,
+            @Value("${metadata.storage.tiering.flush-batch-size:1000}") int batchSize,
+            @Value("${metadata.storage.tiering.half-life-ms:86400000}") long halfLifeMillis) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("metadata.storage.tiering.sample-rate must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.sampleRate = sampleRate;
+        this.batchSize = batchSize;
+        this.halfLifeSeconds = halfLifeMillis / 1000.0;
+
+        this.pending = new AtomicReferenceArray<>(shardRouter.shardCount());
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            pending.set(shard, new ConcurrentHashMap<>());
+        }
+
+        this.sampled = Counter.builder("metadata.tiering.access.sampled")
+                .description("Content reads counted by the access tracker")
+                .register(meterRegistry);
+        this.flushed = Counter.builder("metadata.tiering.access.flushed")
+                .description("Per-file access counters written to file_access_stats")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Чтение содержимого файла владельца ownerId; вызывается на каждое чтение
+     */
+    public void recordAccess(UUID fileId, UUID ownerId) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        ConcurrentHashMap<UUID, LongAdder> counters = pending.get(shardRouter.shardOf(ownerId));
+        LongAdder counter = counters.get(fileId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(fileId, id -> new LongAdder());
+        }
+        counter.increment();
+        sampled.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${metadata.storage.tiering.flush-interval-ms:10000}",
+            initialDelayString = "${metadata.storage.tiering.flush-interval-ms:10000}")
+    public void flush() {
+        for (int shard = 0; shard < pending.length(); shard++) {
+            ConcurrentHashMap<UUID, LongAdder> counters = pending.getAndSet(shard, new ConcurrentHashMap<>());
+            if (counters.isEmpty()) {
+                continue;
+            }
+            List<Object[]> rows = new ArrayList<>(counters.size());
+            counters.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> rows.add(new Object[]{
+                            (double) entry.getValue().sum() * sampleRate, entry.getKey(), halfLifeSeconds}));
+            try {
+                write(shard, rows);
+                flushed.increment(rows.size());
+            } catch (DataAccessException e) {
+                // Счетчики не копятся до восстановления БД: оценка чтений допускает потери
+                log.warn("FileAccessTracker: Failed to flush {} access counters on shard {}: {}",
+                        rows.size(), shard, e.getMessage());
+            }
+        }
+    }
+
+    private void write(int shard, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Object[]> batch = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(UPSERT, batch);
+                return null;
+            }));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
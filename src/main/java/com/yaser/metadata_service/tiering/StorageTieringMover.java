@@ -0,0 +1,228 @@
+package com.yaser.metadata_service.tiering;
+
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.StorageKeyView;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.service.FileMetadataService.StorageKeyChange;
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Перенос содержимого между hot (metadata.storage.root) и cold (metadata.storage.cold-root) хранилищем
+ * (включается metadata.storage.tiering.enabled).
+ * <p>
+ * В cold уходят файлы в финальном статусе, которые не читались cold-after-ms (по данным FileAccessTracker);
+ * обратно в hot возвращаются файлы из cold, оценка чтений которых достигла promote-score.
+ * <p>
+ * Порция выбирается короткой транзакцией (строки, занятые другим экземпляром, пропускаются), объекты копируются
+ * под новым ключом вне транзакции, затем storage_key всей порции меняется одним условным UPDATE (updateStorageKeys):
+ * строка меняется, только если по-прежнему ссылается на старый ключ. Копия файла, который за время копирования
+ * изменили или перенесли, удаляется, если на ее ключ не ссылается ни одна строка.
+ * Старые объекты удаляются отдельной транзакцией под повторной блокировкой строк - только у файлов, которые
+ * по-прежнему ссылаются на новый ключ, поэтому удаление не гонится с обратным переносом.
+ * Чтение, начатое до удаления, дочитывает открытый файл; не успевшее открыть объект повторяется по новому ключу.
+ * Нагрузка ограничена: не больше max-batches-per-run порций за проход с паузой batch-pause-ms между ними.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.storage.tiering", name = "enabled", havingValue = "true")
+public class StorageTieringMover {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageTieringMover.class);
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileMetadataService fileMetadataService;
+    private final ContentStore contentStore;
+    private final StatusTransitions statusTransitions;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    private final Duration coldAfter;
+    private final double halfLifeSeconds;
+    private final double promoteScore;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long batchPauseMillis;
+
+    private final Counter demoted;
+    private final Counter promoted;
+    private final Counter skipped;
+
+    @Autowired
+    public StorageTieringMover(
+            FileMetadataRepository fileMetadataRepository,
+            FileMetadataService fileMetadataService,
+            ContentStore contentStore,
+            StatusTransitions statusTransitions,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${metadata.storage.tiering.cold-after-ms:604800000}") long coldAfterMillis,
+            @Value("${metadata.storage.tiering.half-life-ms:86400000}") long halfLifeMillis,
+            @Value("${metadata.storage.tiering.promote-score:5}") double promoteScore,
+            @Value("${metadata.storage.tiering.batch-size:100}") int batchSize,
+            @Value("${metadata.storage.tiering.max-batches-per-run:10}") int maxBatchesPerRun,
+            @Value("${metadata.storage.tiering.batch-pause-ms:500}") long batchPauseMillis) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.fileMetadataService = fileMetadataService;
+        this.contentStore = contentStore;
+        this.statusTransitions = statusTransitions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.coldAfter = Duration.ofMillis(coldAfterMillis);
+        this.halfLifeSeconds = halfLifeMillis / 1000.0;
+        this.promoteScore = promoteScore;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPauseMillis = batchPauseMillis;
+
+        this.demoted = Counter.builder("metadata.tiering.moved").tag("tier", "cold").register(meterRegistry);
+        this.promoted = Counter.builder("metadata.tiering.moved").tag("tier", "hot").register(meterRegistry);
+        this.skipped = Counter.builder("metadata.tiering.skipped")
+                .description("Files left in place because the object was missing or the target key was taken")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${metadata.storage.tiering.move-interval-ms:60000}",
+            initialDelayString = "${metadata.storage.tiering.move-interval-ms:60000}")
+    public void run() {
+        shardRouter.forEachShard(() -> {
+            // Возврат в hot первым: он влияет на задержку чтений, перенос в cold - только на стоимость
+            moveAll(this::lockPromotionCandidates, ContentStore::hotKey, promoted);
+            moveAll(this::lockDemotionCandidates, ContentStore::coldKey, demoted);
+        });
+    }
+
+    private List<StorageKeyView> lockDemotionCandidates() {
+        return fileMetadataRepository.lockDemotionCandidates(
+                OffsetDateTime.now().minus(coldAfter), statusTransitions.finalNames(), batchSize);
+    }
+
+    private List<StorageKeyView> lockPromotionCandidates() {
+        return fileMetadataRepository.lockPromotionCandidates(
+                OffsetDateTime.now().minus(coldAfter), halfLifeSeconds, promoteScore, batchSize);
+    }
+
+    private void moveAll(Supplier<List<StorageKeyView>> candidates, UnaryOperator<String> targetKey, Counter moved) {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<StorageKeyView> files = transactionTemplate.execute(status -> candidates.get());
+            if (files == null || files.isEmpty()) {
+                return;
+            }
+            BatchResult result = moveBatch(files, targetKey);
+            if (result.moved().isEmpty()) {
+                // Пустая или целиком пропущенная порция: повтор вернул бы те же файлы
+                return;
+            }
+            deleteSources(result.moved());
+            moved.increment(result.moved().size());
+            log.info("StorageTiering: Moved {} of {} files", result.moved().size(), result.selected());
+            if (result.selected() < batchSize) {
+                return;
+            }
+            pause();
+        }
+    }
+
+    private BatchResult moveBatch(List<StorageKeyView> files, UnaryOperator<String> targetKey) {
+        List<StorageKeyChange> changes = new ArrayList<>(files.size());
+        for (StorageKeyView file : files) {
+            String newKey = targetKey.apply(file.getStorageKey());
+            try {
+                // Объект без ссылки из file_metadata - остаток прерванного переноса, его можно заменить
+                if (contentStore.exists(newKey) && fileMetadataRepository.existsByStorageKey(newKey)) {
+                    log.warn("StorageTiering: Target key {} of file {} is already in use", newKey, file.getId());
+                    skipped.increment();
+                    continue;
+                }
+                contentStore.copy(file.getStorageKey(), newKey);
+                changes.add(new StorageKeyChange(file.getId(), file.getStorageKey(), newKey));
+            } catch (NoSuchFileException e) {
+                log.warn("StorageTiering: Content of file {} is missing at {}", file.getId(), file.getStorageKey());
+                skipped.increment();
+            } catch (IOException e) {
+                log.error("StorageTiering: Failed to copy file {} to {}: {}", file.getId(), newKey, e.getMessage());
+                skipped.increment();
+            }
+        }
+
+        Set<UUID> updated;
+        try {
+            updated = Set.copyOf(fileMetadataService.updateStorageKeys(changes));
+        } catch (RuntimeException e) {
+            changes.forEach(change -> deleteUnreferenced(change.newKey()));
+            throw e;
+        }
+        // Файл изменили, удалили или перенес другой экземпляр: его копия по новому ключу может уже использоваться
+        changes.stream()
+                .filter(change -> !updated.contains(change.fileId()))
+                .forEach(change -> {
+                    deleteUnreferenced(change.newKey());
+                    skipped.increment();
+                });
+        return new BatchResult(files.size(), changes.stream().filter(change -> updated.contains(change.fileId())).toList());
+    }
+
+    private void deleteSources(List<StorageKeyChange> moved) {
+        Map<String, StorageKeyChange> byNewKey = moved.stream()
+                .collect(Collectors.toMap(StorageKeyChange::newKey, Function.identity()));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (StorageKeyView file : fileMetadataRepository.lockByStorageKeys(byNewKey.keySet())) {
+                StorageKeyChange change = byNewKey.get(file.getStorageKey());
+                if (change != null && change.fileId().equals(file.getId())) {
+                    deleteQuietly(change.oldKey());
+                }
+            }
+        });
+    }
+
+    private void deleteUnreferenced(String storageKey) {
+        if (!fileMetadataRepository.existsByStorageKey(storageKey)) {
+            deleteQuietly(storageKey);
+        }
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            contentStore.delete(storageKey);
+        } catch (IOException e) {
+            log.warn("StorageTiering: Failed to delete {}: {}", storageKey, e.getMessage());
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record BatchResult(int selected, List<StorageKeyChange> moved) {
+    }
+}
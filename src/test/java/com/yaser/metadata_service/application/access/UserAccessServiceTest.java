@@ -0,0 +1,88 @@
+package com.yaser.metadata_service.application.access;
+
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserAccessServiceTest {
+
+    private final UUID adminId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    private UserRepository userRepository;
+    private UserAccessService userAccessService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.existsByIdAndRoles_Name(any(), any())).thenReturn(false);
+        when(userRepository.existsByIdAndRoles_Name(adminId, "ROLE_ADMIN")).thenReturn(true);
+        userAccessService = new UserAccessService(userRepository, 30_000);
+    }
+
+    @Test
+    void adminPassesAdminCheck() {
+        assertThatCode(() -> userAccessService.validateIsAdmin(new User(adminId)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void userWithoutAdminRoleIsRejected() {
+        assertThatThrownBy(() -> userAccessService.validateIsAdmin(new User(userId)))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessageContaining(userId.toString());
+    }
+
+    @Test
+    void missingOrUnsavedUserIsRejected() {
+        assertThatThrownBy(() -> userAccessService.validateIsAdmin(null))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> userAccessService.validateIsAdmin(new User()))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void processingRoleCheckIsCachedAfterSuccess() {
+        UUID processingId = UUID.randomUUID();
+        when(userRepository.existsByIdAndRoles_NameIn(eq(processingId), any())).thenReturn(true);
+
+        userAccessService.validateIsProcessing(processingId);
+        userAccessService.validateIsProcessing(processingId);
+        userAccessService.validateIsProcessing(processingId);
+
+        verify(userRepository, times(1)).existsByIdAndRoles_NameIn(eq(processingId), any());
+    }
+
+    @Test
+    void processingRejectionIsNotCached() {
+        when(userRepository.existsByIdAndRoles_NameIn(eq(userId), any())).thenReturn(false, true);
+
+        assertThatThrownBy(() -> userAccessService.validateIsProcessing(userId))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatCode(() -> userAccessService.validateIsProcessing(userId))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void expiredProcessingGrantIsCheckedAgain() {
+        UserAccessService noCache = new UserAccessService(userRepository, 0);
+        when(userRepository.existsByIdAndRoles_NameIn(eq(userId), any())).thenReturn(true, false);
+
+        noCache.validateIsProcessing(userId);
+        assertThatThrownBy(() -> noCache.validateIsProcessing(userId))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+}
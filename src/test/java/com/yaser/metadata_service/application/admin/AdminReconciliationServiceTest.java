@@ -0,0 +1,41 @@
+package com.yaser.metadata_service.application.admin;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.audit.AuditLog;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.job.StorageReconciliationJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AdminReconciliationServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void nonAdminCannotStartOrReadReconciliation() {
+        UUID currentUserId = UUID.randomUUID();
+        User currentUser = new User(currentUserId);
+        UserAccessService userAccessService = mock(UserAccessService.class);
+        when(userAccessService.getUserOrThrow(currentUserId)).thenReturn(currentUser);
+        doThrow(new AccessDeniedException("not an administrator")).when(userAccessService).validateIsAdmin(currentUser);
+
+        StorageReconciliationJob job = mock(StorageReconciliationJob.class);
+        ObjectProvider<StorageReconciliationJob> jobProvider = mock(ObjectProvider.class);
+        when(jobProvider.getIfAvailable()).thenReturn(job);
+        AuditLog auditLog = mock(AuditLog.class);
+
+        AdminReconciliationService service = new AdminReconciliationService(userAccessService, jobProvider, auditLog);
+
+        assertThatThrownBy(() -> service.start(currentUserId)).isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> service.getLastReport(currentUserId)).isInstanceOf(AccessDeniedException.class);
+        verifyNoInteractions(job, auditLog);
+    }
+}
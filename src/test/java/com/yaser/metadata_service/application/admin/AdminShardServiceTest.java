@@ -0,0 +1,48 @@
+package com.yaser.metadata_service.application.admin;
+
+import com.yaser.metadata_service.application.access.UserAccessService;
+import com.yaser.metadata_service.audit.AuditLog;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import com.yaser.metadata_service.shard.ShardRebalancer;
+import com.yaser.metadata_service.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AdminShardServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void nonAdminCannotMoveOwner() {
+        UUID currentUserId = UUID.randomUUID();
+        User currentUser = new User(currentUserId);
+        UserAccessService userAccessService = mock(UserAccessService.class);
+        when(userAccessService.getUserOrThrow(currentUserId)).thenReturn(currentUser);
+        doThrow(new AccessDeniedException("not an administrator")).when(userAccessService).validateIsAdmin(currentUser);
+
+        ShardRebalancer rebalancer = mock(ShardRebalancer.class);
+        ObjectProvider<ShardRebalancer> rebalancerProvider = mock(ObjectProvider.class);
+        when(rebalancerProvider.getIfAvailable()).thenReturn(rebalancer);
+        AuditLog auditLog = mock(AuditLog.class);
+
+        AdminShardService service = new AdminShardService(userAccessService, mock(ShardRouter.class),
+                rebalancerProvider, auditLog);
+
+        assertThatThrownBy(() -> service.moveOwner(UUID.randomUUID(), 1, currentUserId))
+                .isInstanceOf(AccessDeniedException.class);
+        verify(rebalancer, never()).moveOwner(any(), anyInt());
+        verifyNoInteractions(auditLog);
+    }
+}
@@ -0,0 +1,125 @@
+package com.yaser.metadata_service.application.user;
+
+import com.yaser.metadata_service.content.CompressionPolicy;
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.entity.User;
+import com.yaser.metadata_service.service.FileMetadataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserFileContentServiceTest {
+
+    private static final String STORAGE_KEY = "files/object";
+    private static final byte[] CONTENT = "new content".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private final FileMetadataService fileMetadataService = mock(FileMetadataService.class);
+    private final UUID ownerId = UUID.randomUUID();
+    private final UUID fileId = UUID.randomUUID();
+    private ContentStore contentStore;
+    private UserFileContentService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        contentStore = new ContentStore(root.resolve("hot").toString(), root.resolve("cold").toString());
+        service = new UserFileContentService(fileMetadataService, mock(UserFileMetadataService.class), contentStore,
+                new CompressionPolicy(null), mock(ObjectProvider.class), mock(ObjectProvider.class),
+                mock(ObjectProvider.class), mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void uploadIsRejectedUnlessFileIsUploaded() {
+        file(Status.PROCESSING);
+
+        assertThatThrownBy(() -> service.uploadContent(fileId, new ByteArrayInputStream(CONTENT), ownerId))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(contentStore.exists(STORAGE_KEY)).isFalse();
+        verify(fileMetadataService, never()).recordStoredContent(any(), any(), anyLong(), anyString());
+    }
+
+    @Test
+    void contentIsPublishedOnlyAfterMetadataUpdate() throws IOException {
+        file(Status.UPLOADED);
+        doAnswer(invocation -> {
+            assertThat(contentStore.exists(STORAGE_KEY)).isFalse();
+            return null;
+        }).when(fileMetadataService).recordStoredContent(fileId, ownerId, CONTENT.length, "identity");
+
+        service.uploadContent(fileId, new ByteArrayInputStream(CONTENT), ownerId);
+
+        assertThat(Files.readAllBytes(contentStore.resolve(STORAGE_KEY))).isEqualTo(CONTENT);
+        assertThat(stagedObjects()).isZero();
+    }
+
+    @Test
+    void statusChangedDuringUploadKeepsPublishedContent() throws IOException {
+        file(Status.UPLOADED);
+        contentStore.write(STORAGE_KEY, "processed".getBytes(StandardCharsets.UTF_8));
+        doThrow(new IllegalStateException("Content can only be uploaded while the file is UPLOADED"))
+                .when(fileMetadataService).recordStoredContent(any(), any(), anyLong(), anyString());
+
+        assertThatThrownBy(() -> service.uploadContent(fileId, new ByteArrayInputStream(CONTENT), ownerId))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(Files.readString(contentStore.resolve(STORAGE_KEY))).isEqualTo("processed");
+        assertThat(stagedObjects()).isZero();
+    }
+
+    @Test
+    void wrongLengthIsRejectedBeforeMetadataUpdate() throws IOException {
+        file(Status.UPLOADED);
+
+        assertThatThrownBy(() -> service.uploadContent(fileId, new ByteArrayInputStream(new byte[3]), ownerId))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(fileMetadataService, never()).recordStoredContent(any(), any(), anyLong(), anyString());
+        assertThat(stagedObjects()).isZero();
+    }
+
+    private void file(Status status) {
+        User owner = new User();
+        owner.setId(ownerId);
+        FileMetadata file = new FileMetadata("notes.txt", "text/plain", (long) CONTENT.length, owner, status, STORAGE_KEY);
+        file.setId(fileId);
+        when(fileMetadataService.getFileById(fileId)).thenReturn(file);
+    }
+
+    private long stagedObjects() throws IOException {
+        Path directory = contentStore.resolve(STORAGE_KEY).getParent();
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(".write-")).count();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.yaser.metadata_service.application.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserFileExportServiceTest {
+
+    private static final UUID FILE_ID = UUID.fromString("7d444840-9dc0-11d1-b245-5ffdce74fad2");
+    private static final String PREFIX = "files/" + FILE_ID + "/";
+
+    @Test
+    void plainNameIsKeptUnderFileDirectory() {
+        assertThat(UserFileExportService.entryName(FILE_ID, "report 2024.pdf"))
+                .isEqualTo(PREFIX + "report 2024.pdf");
+    }
+
+    @Test
+    void pathSeparatorsAreReplaced() {
+        assertThat(UserFileExportService.entryName(FILE_ID, "../../etc/passwd"))
+                .isEqualTo(PREFIX + ".._.._etc_passwd");
+        assertThat(UserFileExportService.entryName(FILE_ID, "..\\windows\\system.ini"))
+                .isEqualTo(PREFIX + ".._windows_system.ini");
+        assertThat(UserFileExportService.entryName(FILE_ID, "/absolute"))
+                .isEqualTo(PREFIX + "_absolute");
+    }
+
+    @Test
+    void dotNamesAndEmptyNameAreReplaced() {
+        assertThat(UserFileExportService.entryName(FILE_ID, "")).isEqualTo(PREFIX + "_");
+        assertThat(UserFileExportService.entryName(FILE_ID, ".")).isEqualTo(PREFIX + "_");
+        assertThat(UserFileExportService.entryName(FILE_ID, "..")).isEqualTo(PREFIX + "_");
+        assertThat(UserFileExportService.entryName(FILE_ID, ".hidden")).isEqualTo(PREFIX + ".hidden");
+    }
+
+    @Test
+    void entryNeverEscapesFileDirectory() {
+        for (String name : new String[]{"..", "../", "a/../../b", "\\..\\", "./.", "x/"}) {
+            String entry = UserFileExportService.entryName(FILE_ID, name);
+
+            assertThat(entry).startsWith(PREFIX);
+            String last = entry.substring(PREFIX.length());
+            assertThat(last).doesNotContain("/", "\\").isNotIn("", ".", "..");
+        }
+    }
+}
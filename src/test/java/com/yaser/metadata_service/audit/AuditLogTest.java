@@ -0,0 +1,77 @@
+package com.yaser.metadata_service.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class AuditLogTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void dropModeCountsEventsThatDoNotFit() {
+        AuditLog auditLog = new AuditLog(jdbcTemplate, meterRegistry, 2, 10, 10, "drop", 1000);
+
+        for (int i = 0; i < 5; i++) {
+            auditLog.record(AuditAction.DELETE_FILE, UUID.randomUUID(), UUID.randomUUID(), null, null);
+        }
+
+        assertThat(meterRegistry.get("metadata.audit.dropped").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("metadata.audit.pending").gauge().value()).isEqualTo(2);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void blockModeDropsAfterTimeout() {
+        AuditLog auditLog = new AuditLog(jdbcTemplate, meterRegistry, 2, 10, 10, "block", 5);
+
+        for (int i = 0; i < 3; i++) {
+            auditLog.record(AuditAction.VIEW_STATISTICS, UUID.randomUUID(), null, null, null);
+        }
+
+        assertThat(meterRegistry.get("metadata.audit.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stopFlushesBufferedEventsInOrder() throws InterruptedException {
+        List<AuditEvent> written = new ArrayList<>();
+        // Пакет очищается после записи, поэтому содержимое копируется в момент вызова
+        doAnswer(invocation -> {
+            written.addAll((Collection<AuditEvent>) invocation.getArgument(1));
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        AuditLog auditLog = new AuditLog(jdbcTemplate, meterRegistry, 16, 2, 10_000, "drop", 1000);
+        UUID actorId = UUID.randomUUID();
+        UUID fileId = UUID.randomUUID();
+
+        auditLog.record(AuditAction.UPDATE_FILE_STATUS, actorId, fileId, null, "READY");
+        auditLog.record(AuditAction.DELETE_FILE, actorId, fileId, null, null);
+        auditLog.record(AuditAction.SET_USER_QUOTA, actorId, null, UUID.randomUUID(), "1024");
+        auditLog.startWriter();
+        auditLog.stop();
+
+        assertThat(written)
+                .extracting(AuditEvent::action)
+                .containsExactly(AuditAction.UPDATE_FILE_STATUS, AuditAction.DELETE_FILE, AuditAction.SET_USER_QUOTA);
+        assertThat(written.getFirst().detail()).isEqualTo("READY");
+        assertThat(meterRegistry.get("metadata.audit.written").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("metadata.audit.pending").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,33 @@
+package com.yaser.metadata_service.content;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ThumbnailProcessorTest {
+
+    private final ThumbnailProcessor processor = new ThumbnailProcessor(mock(ContentStore.class), 256, 40_000_000);
+
+    @Test
+    void supportsImageTypesRegardlessOfParametersAndCase() {
+        assertThat(processor.supports(target("image/png"))).isTrue();
+        assertThat(processor.supports(target("IMAGE/PNG"))).isTrue();
+        assertThat(processor.supports(target("image/jpeg; charset=binary"))).isTrue();
+        assertThat(processor.supports(target(" image/png ;q=1"))).isTrue();
+    }
+
+    @Test
+    void rejectsOtherAndMalformedTypes() {
+        assertThat(processor.supports(target("application/pdf"))).isFalse();
+        assertThat(processor.supports(target("image"))).isFalse();
+        assertThat(processor.supports(target(""))).isFalse();
+        assertThat(processor.supports(target(null))).isFalse();
+    }
+
+    private static ProcessingTarget target(String contentType) {
+        return new ProcessingTarget(UUID.randomUUID(), "file", contentType, 10, "key");
+    }
+}
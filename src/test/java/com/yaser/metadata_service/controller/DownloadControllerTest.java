@@ -0,0 +1,96 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.user.UserFileContentService;
+import com.yaser.metadata_service.download.DownloadToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DownloadControllerTest {
+
+    private static final String TOKEN = "token";
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path directory;
+
+    private final UserFileContentService contentService = mock(UserFileContentService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path path = Files.writeString(directory.resolve("object"), CONTENT);
+        DownloadToken token = new DownloadToken(UUID.randomUUID(), UUID.randomUUID(), 3, "object", "text/plain", null,
+                CONTENT.length(), CONTENT.length(), Instant.now().plusSeconds(600));
+        when(contentService.openSignedContent(eq(TOKEN), any()))
+                .thenAnswer(invocation -> new UserFileContentService.SignedContent(token, path, null, CONTENT.length(), null));
+        mockMvc = MockMvcBuilders.standaloneSetup(new DownloadController(contentService)).build();
+    }
+
+    @Test
+    void wholeContentWithoutRange() throws Exception {
+        download(null)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v3\""))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void suffixRangeReturnsLastBytes() throws Exception {
+        download("bytes=-3")
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void multipleRangesAreSentAsMultipart() throws Exception {
+        download("bytes=0-1,4-5")
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")))
+                .andExpect(content().string(allOf(
+                        containsString("Content-Range: bytes 0-1/10"),
+                        containsString("Content-Range: bytes 4-5/10"))));
+    }
+
+    @Test
+    void unsatisfiableOrMalformedRangeIsRejected() throws Exception {
+        for (String range : new String[]{"bytes=20-30", "bytes=abc"}) {
+            download(range)
+                    .andExpect(status().isRequestedRangeNotSatisfiable())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+        }
+    }
+
+    private ResultActions download(String range) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/downloads/{token}", TOKEN);
+        if (range != null) {
+            builder.header(HttpHeaders.RANGE, range);
+        }
+        return mockMvc.perform(builder);
+    }
+}
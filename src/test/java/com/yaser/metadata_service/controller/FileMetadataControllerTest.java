@@ -0,0 +1,101 @@
+package com.yaser.metadata_service.controller;
+
+import com.yaser.metadata_service.application.user.UserFileContentService;
+import com.yaser.metadata_service.application.user.UserFileExportService;
+import com.yaser.metadata_service.application.user.UserFileMetadataService;
+import com.yaser.metadata_service.mapper.FileMetadataMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FileMetadataControllerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    private final UserFileContentService contentService = mock(UserFileContentService.class);
+    private final UUID fileId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new FileMetadataController(mock(UserFileMetadataService.class),
+                contentService, mock(UserFileExportService.class), mock(FileMetadataMapper.class))).build();
+    }
+
+    @Test
+    void decodedContentIsStreamedWhole() throws Exception {
+        content(null);
+
+        download(null)
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void storedEncodingIsPassedThrough() throws Exception {
+        content("zstd");
+
+        download(null)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "zstd"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /**
+     * Диапазоны отдаются только по токену скачивания (/api/downloads): здесь поток может быть распакован на лету,
+     * поэтому Range любого вида игнорируется и ответ - полное содержимое, без 416
+     */
+    @Test
+    void rangeHeadersAreIgnored() throws Exception {
+        for (String range : new String[]{"bytes=-3", "bytes=0-1,4-5", "bytes=9-2", "items=0-1", "bytes=abc"}) {
+            content(null);
+
+            download(range)
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                    .andExpect(content().string(CONTENT));
+        }
+    }
+
+    private void content(String encoding) throws Exception {
+        when(contentService.openContent(eq(fileId), eq(userId), any())).thenReturn(new UserFileContentService.FileContent(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), "text/plain",
+                CONTENT.length(), encoding));
+    }
+
+    private ResultActions download(String range) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/files/{fileId}/content", fileId)
+                .header("X-User-Id", userId.toString())
+                .header(HttpHeaders.ACCEPT_ENCODING, "zstd");
+        if (range != null) {
+            builder.header(HttpHeaders.RANGE, range);
+        }
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
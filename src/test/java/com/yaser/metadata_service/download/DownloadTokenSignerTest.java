@@ -0,0 +1,148 @@
+package com.yaser.metadata_service.download;
+
+import com.yaser.metadata_service.exception.AccessDeniedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownloadTokenSignerTest {
+
+    private static final String KEY_1 = key((byte) 1);
+    private static final String KEY_2 = key((byte) 2);
+
+    @Test
+    void issuedTokenVerifiesToSameContent() {
+        DownloadTokenSigner signer = signer("k1", Map.of("k1", KEY_1));
+        DownloadToken token = token(Instant.now().plusSeconds(60), "gzip");
+
+        DownloadToken verified = signer.verify(signer.issue(token));
+
+        assertThat(verified).isEqualTo(token);
+    }
+
+    @Test
+    void missingContentEncodingRoundTripsAsNull() {
+        DownloadTokenSigner signer = signer("k1", Map.of("k1", KEY_1));
+
+        DownloadToken verified = signer.verify(signer.issue(token(Instant.now().plusSeconds(60), null)));
+
+        assertThat(verified.contentEncoding()).isNull();
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        DownloadTokenSigner signer = signer("k1", Map.of("k1", KEY_1));
+        String token = signer.issue(token(Instant.now().plusSeconds(60), null));
+        String[] parts = token.split("\\.");
+
+        // Тот же формат, но другой владелец - подпись не совпадет
+        String forged = signer.issue(new DownloadToken(UUID.randomUUID(), UUID.randomUUID(), 1, "files/x",
+                "text/plain", null, 1, 1, Instant.now().plusSeconds(60)));
+        String forgedPayload = forged.split("\\.")[1];
+
+        assertThatThrownBy(() -> signer.verify(parts[0] + "." + forgedPayload + "." + parts[2]))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessageContaining("signature");
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        DownloadTokenSigner signer = signer("k1", Map.of("k1", KEY_1));
+        String token = signer.issue(token(Instant.now().plusSeconds(60), null));
+        // Первый символ подписи: младшие биты последнего символа base64 декодер может игнорировать
+        int at = token.lastIndexOf('.') + 1;
+        char original = token.charAt(at);
+        String tampered = token.substring(0, at) + (original == 'A' ? 'B' : 'A') + token.substring(at + 1);
+
+        assertThatThrownBy(() -> signer.verify(tampered))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        DownloadTokenSigner issuer = signer("k1", Map.of("k1", KEY_2));
+        DownloadTokenSigner verifier = signer("k1", Map.of("k1", KEY_1));
+
+        String token = issuer.issue(token(Instant.now().plusSeconds(60), null));
+
+        assertThatThrownBy(() -> verifier.verify(token))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessageContaining("signature");
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        DownloadTokenSigner signer = signer("k1", Map.of("k1", KEY_1));
+        String token = signer.issue(token(Instant.now().minusSeconds(1), null));
+
+        assertThatThrownBy(() -> signer.verify(token))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessageContaining("expired");
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        DownloadTokenSigner signer = signer("k1", Map.of("k1", KEY_1));
+
+        assertThatThrownBy(() -> signer.verify("no-dots"))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> signer.verify("k1.only-one-dot"))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> signer.verify("k1.!!!.!!!"))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void rotationKeepsOldTokensValidWhileOldKeyIsConfigured() {
+        DownloadTokenSigner beforeRotation = signer("k1", Map.of("k1", KEY_1));
+        DownloadTokenSigner afterRotation = signer("k2", Map.of("k1", KEY_1, "k2", KEY_2));
+        DownloadTokenSigner oldKeyRemoved = signer("k2", Map.of("k2", KEY_2));
+
+        String oldToken = beforeRotation.issue(token(Instant.now().plusSeconds(60), null));
+        String newToken = afterRotation.issue(token(Instant.now().plusSeconds(60), null));
+
+        assertThat(afterRotation.verify(oldToken)).isNotNull();
+        assertThat(newToken).startsWith("k2.");
+        assertThat(oldKeyRemoved.verify(newToken)).isNotNull();
+        assertThatThrownBy(() -> oldKeyRemoved.verify(oldToken))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessageContaining("unknown key");
+    }
+
+    @Test
+    void shortOrUnknownActiveKeysAreRejectedAtStartup() {
+        String shortKey = Base64.getEncoder().encodeToString(new byte[16]);
+
+        assertThatThrownBy(() -> signer("k1", Map.of("k1", shortKey)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> signer("k2", Map.of("k1", KEY_1)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> signer("k.1", Map.of("k.1", KEY_1)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static DownloadTokenSigner signer(String activeKey, Map<String, String> keys) {
+        return new DownloadTokenSigner(new DownloadTokenProperties(activeKey, keys, 60_000L));
+    }
+
+    // Срок действия хранится с точностью до секунды
+    private static DownloadToken token(Instant expiresAt, String contentEncoding) {
+        return new DownloadToken(UUID.randomUUID(), UUID.randomUUID(), 7, "files/" + UUID.randomUUID(),
+                "image/png", contentEncoding, 1024, 512, expiresAt.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static String key(byte seed) {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
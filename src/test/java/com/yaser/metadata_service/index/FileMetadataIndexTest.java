@@ -0,0 +1,116 @@
+package com.yaser.metadata_service.index;
+
+import com.yaser.metadata_service.entity.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileMetadataIndexTest {
+
+    // Емкость 16 дает хеш-таблицу на 32 слота
+    private static final int TABLE_MASK = 31;
+
+    private final UUID ownerId = UUID.randomUUID();
+    private final Random random = new Random(42);
+
+    @Test
+    void backwardShiftDeleteKeepsChainsAcrossWraparound() {
+        FileMetadataIndex index = new FileMetadataIndex(16);
+        // Три id с домашним последним слотом занимают слоты 31, 0, 1; id с домашним слотом 0 - слот 2
+        List<UUID> lastSlot = idsWithHome(TABLE_MASK, 3);
+        UUID firstSlot = idsWithHome(0, 1).get(0);
+        lastSlot.forEach(id -> add(index, id));
+        add(index, firstSlot);
+
+        index.remove(lastSlot.get(0));
+
+        assertThat(index.contains(lastSlot.get(0))).isFalse();
+        assertThat(index.contains(lastSlot.get(1))).isTrue();
+        assertThat(index.contains(lastSlot.get(2))).isTrue();
+        assertThat(index.contains(firstSlot)).isTrue();
+        assertThat(index.size()).isEqualTo(3);
+
+        // Сдвинутые записи удаляются и находятся заново
+        index.remove(lastSlot.get(2));
+        assertThat(index.contains(lastSlot.get(1))).isTrue();
+        assertThat(index.contains(firstSlot)).isTrue();
+        add(index, lastSlot.get(0));
+        assertThat(index.contains(lastSlot.get(0))).isTrue();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void growthKeepsEveryRowAndReusesFreedRows() {
+        FileMetadataIndex index = new FileMetadataIndex(16);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            UUID id = randomId();
+            ids.add(id);
+            index.upsert(id, ownerId, i % 2 == 0 ? Status.READY : Status.UPLOADED, i, "text/plain");
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            index.remove(ids.get(i));
+        }
+        long memory = index.approximateMemoryBytes();
+        for (int i = 0; i < ids.size(); i += 2) {
+            index.upsert(ids.get(i), ownerId, Status.READY, i, "text/plain");
+        }
+
+        assertThat(index.size()).isEqualTo(ids.size());
+        assertThat(ids).allMatch(index::contains);
+        assertThat(index.countByStatus()[Status.READY.ordinal()]).isEqualTo(2_500);
+        // Освобожденные строки заняты повторно: колонки не выросли
+        assertThat(index.approximateMemoryBytes()).isEqualTo(memory);
+    }
+
+    @Test
+    void randomInsertsAndRemovesMatchHashSet() {
+        FileMetadataIndex index = new FileMetadataIndex(16);
+        Set<UUID> expected = new HashSet<>();
+        List<UUID> pool = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            pool.add(randomId());
+        }
+        for (int step = 0; step < 20_000; step++) {
+            UUID id = pool.get(random.nextInt(pool.size()));
+            if (random.nextBoolean()) {
+                add(index, id);
+                expected.add(id);
+            } else {
+                index.remove(id);
+                expected.remove(id);
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(expected.size());
+        for (UUID id : pool) {
+            assertThat(index.contains(id)).as("id %s", id).isEqualTo(expected.contains(id));
+        }
+    }
+
+    private void add(FileMetadataIndex index, UUID id) {
+        index.upsert(id, ownerId, Status.READY, 1, "text/plain");
+    }
+
+    private List<UUID> idsWithHome(int slot, int count) {
+        List<UUID> ids = new ArrayList<>();
+        while (ids.size() < count) {
+            UUID id = randomId();
+            if ((FileMetadataIndex.hash(id.getMostSignificantBits(), id.getLeastSignificantBits()) & TABLE_MASK) == slot) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private UUID randomId() {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+}
@@ -0,0 +1,77 @@
+package com.yaser.metadata_service.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScalableBloomFilterTest {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long ABSENT_OFFSET = 1L << 40;
+
+    @Test
+    void addedElementsAreAlwaysFound() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1024, 0.01);
+        for (long i = 0; i < 20_000; i++) {
+            put(filter, i);
+        }
+
+        for (long i = 0; i < 20_000; i++) {
+            assertThat(mightContain(filter, i)).as("element %d", i).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysWithinTargetWhileGrowing() {
+        double target = 0.01;
+        // Начальная емкость в 50 раз меньше числа элементов: фильтр проходит через несколько слоев
+        ScalableBloomFilter filter = new ScalableBloomFilter(2_000, target);
+        int inserted = 100_000;
+        for (long i = 0; i < inserted; i++) {
+            put(filter, i);
+        }
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (long i = 0; i < probes; i++) {
+            if (mightContain(filter, ABSENT_OFFSET + i)) {
+                falsePositives++;
+            }
+        }
+
+        double observed = (double) falsePositives / probes;
+        assertThat(observed).isLessThanOrEqualTo(target);
+        assertThat(filter.estimatedFalsePositiveRate()).isLessThanOrEqualTo(target);
+    }
+
+    @Test
+    void duplicatesDoNotConsumeCapacity() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1024, 0.01);
+        for (int round = 0; round < 5; round++) {
+            for (long i = 0; i < 500; i++) {
+                put(filter, i);
+            }
+        }
+
+        assertThat(filter.approximateCount()).isLessThanOrEqualTo(500);
+    }
+
+    @Test
+    void rejectsInvalidFalsePositiveRate() {
+        assertThatThrownBy(() -> new ScalableBloomFilter(1024, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ScalableBloomFilter(1024, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void put(ScalableBloomFilter filter, long value) {
+        long hash = ScalableBloomFilter.mix(value);
+        filter.put(hash, ScalableBloomFilter.mix(hash ^ GOLDEN_GAMMA));
+    }
+
+    private static boolean mightContain(ScalableBloomFilter filter, long value) {
+        long hash = ScalableBloomFilter.mix(value);
+        return filter.mightContain(hash, ScalableBloomFilter.mix(hash ^ GOLDEN_GAMMA));
+    }
+}
@@ -0,0 +1,65 @@
+package com.yaser.metadata_service.job;
+
+import com.yaser.metadata_service.content.ContentStore;
+import com.yaser.metadata_service.repository.StorageKeyView;
+import com.yaser.metadata_service.service.FileMetadataService;
+import com.yaser.metadata_service.shard.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrashPurgeJobTest {
+
+    private final UUID ownerId = UUID.randomUUID();
+    private final FileMetadataService fileMetadataService = mock(FileMetadataService.class);
+    private final ContentStore contentStore = mock(ContentStore.class);
+    private final TrashPurgeJob job = new TrashPurgeJob(fileMetadataService, contentStore, mock(ShardRouter.class),
+            new SimpleMeterRegistry(), 60_000, 2, 20);
+
+    @Test
+    void purgedFilesLoseContentAfterRowsAreDeleted() throws Exception {
+        StorageKeyView file = purged("a/b");
+        when(fileMetadataService.purgeTrashOfOwner(ownerId, List.of(file.getId()))).thenReturn(List.of(file));
+
+        assertThat(job.purgeOwnerFiles(ownerId, List.of(file.getId()))).containsExactly(file.getId());
+
+        InOrder order = inOrder(fileMetadataService, contentStore);
+        order.verify(fileMetadataService).purgeTrashOfOwner(ownerId, List.of(file.getId()));
+        order.verify(contentStore).delete("a/b");
+        order.verify(contentStore).delete(ContentStore.DERIVED_PREFIX + "a/b.png");
+    }
+
+    @Test
+    void emptyTrashRunsBatchesUntilShortBatch() throws Exception {
+        when(fileMetadataService.purgeTrashBatchOfOwner(ownerId, 2))
+                .thenReturn(List.of(purged("k1"), purged("k2")))
+                .thenReturn(List.of(purged("k3")));
+
+        assertThat(job.emptyOwnerTrash(ownerId)).isEqualTo(3);
+        verify(contentStore).delete("k3");
+    }
+
+    private static StorageKeyView purged(String storageKey) {
+        UUID id = UUID.randomUUID();
+        return new StorageKeyView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getStorageKey() {
+                return storageKey;
+            }
+        };
+    }
+}
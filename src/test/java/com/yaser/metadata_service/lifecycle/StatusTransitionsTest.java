@@ -0,0 +1,91 @@
+package com.yaser.metadata_service.lifecycle;
+
+import com.yaser.metadata_service.entity.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatusTransitionsTest {
+
+    @Test
+    void defaultsAllowConfiguredTransitionsOnly() {
+        StatusTransitions transitions = StatusTransitions.defaults();
+
+        assertThat(transitions.isAllowed(Status.UPLOADED, Status.PROCESSING)).isTrue();
+        assertThat(transitions.isAllowed(Status.SCANNING, Status.QUARANTINED)).isTrue();
+        assertThat(transitions.isAllowed(Status.PROCESSING, Status.UPLOADED)).isFalse();
+        assertThat(transitions.isAllowed(Status.UPLOADED, Status.READY)).isFalse();
+    }
+
+    @Test
+    void statusesWithoutOutgoingTransitionsAreFinal() {
+        StatusTransitions transitions = StatusTransitions.defaults();
+
+        assertThat(transitions.isFinal(Status.READY)).isTrue();
+        assertThat(transitions.isFinal(Status.FAILED)).isTrue();
+        assertThat(transitions.isFinal(Status.QUARANTINED)).isTrue();
+        assertThat(transitions.isFinal(Status.UPLOADED)).isFalse();
+        assertThat(transitions.finalNames()).containsExactlyInAnyOrder("READY", "FAILED", "QUARANTINED");
+    }
+
+    @Test
+    void sourceNamesListEveryStatusThatMayMoveIntoTarget() {
+        StatusTransitions transitions = StatusTransitions.defaults();
+
+        assertThat(transitions.sourceNames(Status.READY)).containsExactlyInAnyOrder("PROCESSING", "THUMBNAILING");
+        assertThat(transitions.sourceNames(Status.UPLOADED)).isEmpty();
+    }
+
+    @Test
+    void validateDescribesRejectedTransition() {
+        StatusTransitions transitions = StatusTransitions.defaults();
+
+        assertThatThrownBy(() -> transitions.validate(Status.READY, Status.PROCESSING))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("final status");
+        assertThatThrownBy(() -> transitions.validate(Status.UPLOADED, Status.READY))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not to READY");
+    }
+
+    @Test
+    void selfLoopIsRejected() {
+        Map<Status, Set<Status>> config = new EnumMap<>(Status.class);
+        config.put(Status.UPLOADED, EnumSet.of(Status.PROCESSING));
+        config.put(Status.PROCESSING, EnumSet.of(Status.PROCESSING, Status.READY));
+
+        assertThatThrownBy(() -> StatusTransitions.of(config))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("itself");
+    }
+
+    @Test
+    void cycleIsRejected() {
+        Map<Status, Set<Status>> config = new EnumMap<>(Status.class);
+        config.put(Status.UPLOADED, EnumSet.of(Status.PROCESSING));
+        config.put(Status.PROCESSING, EnumSet.of(Status.THUMBNAILING));
+        config.put(Status.THUMBNAILING, EnumSet.of(Status.UPLOADED, Status.READY));
+
+        assertThatThrownBy(() -> StatusTransitions.of(config))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("cycle");
+    }
+
+    @Test
+    void diamondIsNotACycle() {
+        Map<Status, Set<Status>> config = new EnumMap<>(Status.class);
+        config.put(Status.UPLOADED, EnumSet.of(Status.SCANNING, Status.PROCESSING));
+        config.put(Status.SCANNING, EnumSet.of(Status.PROCESSING));
+        config.put(Status.PROCESSING, EnumSet.of(Status.READY));
+
+        StatusTransitions transitions = StatusTransitions.of(config);
+
+        assertThat(transitions.targetsOf(Status.UPLOADED)).containsExactlyInAnyOrder(Status.SCANNING, Status.PROCESSING);
+    }
+}
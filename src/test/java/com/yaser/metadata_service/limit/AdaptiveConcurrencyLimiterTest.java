@@ -0,0 +1,93 @@
+package com.yaser.metadata_service.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void limitGrowsWhileLatencyIsStable() {
+        // Большой tolerance: задержка всегда "стабильна", шум таймера на результат не влияет
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 1000.0);
+
+        for (int round = 0; round < 20; round++) {
+            releaseAll(acquire(limiter, limiter.getLimit()));
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(20).isLessThanOrEqualTo(200);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyGrows() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 2.0);
+        // Быстрые запросы при малой нагрузке задают долгосрочную задержку, не меняя лимит
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire().release(false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(20);
+
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 20);
+        Thread.sleep(50);
+        permits.get(permits.size() - 1).release(false);
+
+        assertThat(limiter.getLimit()).isLessThan(20);
+    }
+
+    @Test
+    void poolExhaustionCutsLimitButNotBelowMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20, 2.0);
+
+        limiter.tryAcquire().release(true);
+        assertThat(limiter.getLimit()).isEqualTo(18);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire().release(true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void acquireFailsAtLimitAndPermitIsReleasedOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 2.0);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, 4);
+
+        assertThat(limiter.tryAcquire()).isNull();
+
+        permits.get(0).release(false);
+        permits.get(0).release(false);
+        assertThat(limiter.getInFlight()).isEqualTo(3);
+    }
+
+    @Test
+    void inconsistentBoundsAreRejected() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), 2, 4, 200, 2.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, double tolerance) {
+        return new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), initialLimit, 4, 200, tolerance);
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquire(AdaptiveConcurrencyLimiter limiter, int count) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            assertThat(permit).isNotNull();
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+    // Последним освобождается разрешение, взятое при максимальной нагрузке
+    private static void releaseAll(List<AdaptiveConcurrencyLimiter.Permit> permits) {
+        for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+            permit.release(false);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.yaser.metadata_service.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLimitInterceptorTest {
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private RequestLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(meterRegistry, 20, 4, 200, 2.0);
+        UserRateLimiter userRateLimiter = new UserRateLimiter(meterRegistry, 1000, 1000, 1000, 1000);
+        interceptor = new RequestLimitInterceptor(concurrencyLimiter, userRateLimiter, meterRegistry, 1);
+    }
+
+    @Test
+    void permitIsReleasedOnNormalCompletion() {
+        MockHttpServletRequest request = request();
+
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), handler("list"))).isTrue();
+        assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), handler("list"), null);
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void permitIsReleasedOnceOnException() {
+        MockHttpServletRequest request = request();
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler("list"));
+
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), handler("list"),
+                new CannotCreateTransactionException("pool exhausted"));
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), handler("list"), null);
+
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+        // Исчерпание пула - сигнал перегрузки: лимит снижается
+        assertThat(concurrencyLimiter.getLimit()).isLessThan(20);
+    }
+
+    @Test
+    void permitIsReleasedWhenAsyncHandlingStartsAndNotAgainOnAsyncDispatch() {
+        MockHttpServletRequest request = request();
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler("list"));
+
+        interceptor.afterConcurrentHandlingStarted(request, new MockHttpServletResponse(), handler("list"));
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), handler("list"))).isTrue();
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), handler("list"), null);
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void streamSlotIsHeldUntilAsyncDispatchCompletes() {
+        MockHttpServletRequest first = request();
+        assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), handler("download"))).isTrue();
+        interceptor.afterConcurrentHandlingStarted(first, new MockHttpServletResponse(), handler("download"));
+        // Адаптивное разрешение уже свободно, но поток еще пишется
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request(), rejected, handler("download"))).isFalse();
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+        // Обычные запросы слот потока не занимают
+        assertThat(interceptor.preHandle(request(), new MockHttpServletResponse(), handler("list"))).isTrue();
+
+        first.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(first, new MockHttpServletResponse(), handler("download"));
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), handler("download"), null);
+
+        assertThat(interceptor.preHandle(request(), new MockHttpServletResponse(), handler("download"))).isTrue();
+    }
+
+    @Test
+    void streamSlotIsReleasedWhenHandlerAnswersWithoutStreaming() {
+        MockHttpServletRequest notModified = request();
+        interceptor.preHandle(notModified, new MockHttpServletResponse(), handler("download"));
+        interceptor.afterCompletion(notModified, new MockHttpServletResponse(), handler("download"), null);
+
+        assertThat(interceptor.preHandle(request(), new MockHttpServletResponse(), handler("download"))).isTrue();
+    }
+
+    @Test
+    void requestsOverConcurrencyLimitAreRejected() {
+        for (int i = 0; i < concurrencyLimiter.getLimit(); i++) {
+            assertThat(interceptor.preHandle(request(), new MockHttpServletResponse(), handler("list"))).isTrue();
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request(), response, handler("list"))).isFalse();
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/my");
+        request.addHeader("X-User-Id", UUID.randomUUID().toString());
+        return request;
+    }
+
+    private static HandlerMethod handler(String name) {
+        try {
+            return new HandlerMethod(new Handlers(), Handlers.class.getMethod(name));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static class Handlers {
+
+        public String list() {
+            return "[]";
+        }
+
+        public ResponseEntity<StreamingResponseBody> download() {
+            return ResponseEntity.ok(out -> {
+            });
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.yaser.metadata_service.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserRateLimiterTest {
+
+    @Test
+    void burstIsAllowedThenRequestsWait() {
+        UserRateLimiter limiter = new UserRateLimiter(new SimpleMeterRegistry(), 1, 3, 1, 3);
+        UUID userId = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(userId)).isZero();
+        }
+        assertThat(limiter.tryAcquire(userId)).isPositive();
+        // Корзины пользователей независимы
+        assertThat(limiter.tryAcquire(UUID.randomUUID())).isZero();
+    }
+
+    @Test
+    void processingBudgetIsSeparateFromUserBudget() {
+        UserRateLimiter limiter = new UserRateLimiter(new SimpleMeterRegistry(), 1, 1, 1, 5);
+        UUID serviceAccount = UUID.randomUUID();
+
+        assertThat(limiter.tryAcquire(serviceAccount)).isZero();
+        assertThat(limiter.tryAcquire(serviceAccount)).isPositive();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquireProcessing(serviceAccount)).isZero();
+        }
+        assertThat(limiter.tryAcquireProcessing(serviceAccount)).isPositive();
+    }
+}
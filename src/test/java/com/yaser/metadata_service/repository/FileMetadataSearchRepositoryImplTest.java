@@ -0,0 +1,44 @@
+package com.yaser.metadata_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class FileMetadataSearchRepositoryImplTest {
+
+    private final UUID ownerId = UUID.randomUUID();
+    private final UUID afterId = new UUID(0L, 0L);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FileMetadataSearchRepositoryImpl repository = new FileMetadataSearchRepositoryImpl(jdbcTemplate);
+
+    @Test
+    void queryWithoutFiltersHasNoOptionalPredicates() {
+        repository.findPageByAttributes(ownerId, null, null, null, afterId, 11);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertThat(sql.getValue()).doesNotContain("IS NULL", "@>", "content_type =", "status =");
+        assertThat(args.getValue()).containsExactly(ownerId, afterId, 11);
+    }
+
+    @Test
+    void queryContainsOnlyGivenFilters() {
+        repository.findPageByAttributes(ownerId, "{\"a\":\"1\"}", null, "READY", afterId, 11);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertThat(sql.getValue()).contains("f.attributes @> CAST(? AS jsonb)", "f.status = ?")
+                .doesNotContain("IS NULL", "content_type =");
+        assertThat(args.getValue()).containsExactly(ownerId, afterId, "{\"a\":\"1\"}", "READY", 11);
+    }
+}
@@ -0,0 +1,73 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.index.FileExistenceFilter;
+import com.yaser.metadata_service.lifecycle.StatusTransitionHooks;
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.UserRepository;
+import com.yaser.metadata_service.shard.ShardRouter;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileMetadataServiceImplTest {
+
+    private final FileMetadataRepository fileMetadataRepository = mock(FileMetadataRepository.class);
+    private final FileExistenceFilter existenceFilter = mock(FileExistenceFilter.class);
+    private FileMetadataServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<FileExistenceFilter> filterProvider = mock(ObjectProvider.class);
+        when(filterProvider.getIfAvailable()).thenReturn(existenceFilter);
+        // Фильтр еще не знает о файлах другого экземпляра
+        when(existenceFilter.mightContainFile(any())).thenReturn(false);
+        service = new FileMetadataServiceImpl(fileMetadataRepository, mock(UserRepository.class),
+                mock(StorageQuotaService.class), mock(ApplicationEventPublisher.class), StatusTransitions.defaults(),
+                mock(StatusTransitionHooks.class), mock(ShardRouter.class), filterProvider);
+    }
+
+    @Test
+    void filterMissStillReadsFileFromDatabase() {
+        UUID fileId = UUID.randomUUID();
+        FileMetadata file = new FileMetadata();
+        file.setId(fileId);
+        when(fileMetadataRepository.findById(fileId)).thenReturn(Optional.of(file));
+
+        assertThat(service.getFileById(fileId)).isSameAs(file);
+        verify(existenceFilter).recordFileLookup(fileId, true);
+    }
+
+    @Test
+    void existsByIdIsAnsweredByDatabase() {
+        UUID fileId = UUID.randomUUID();
+        when(fileMetadataRepository.existsById(fileId)).thenReturn(true);
+
+        assertThat(service.existsById(fileId)).isTrue();
+        verify(existenceFilter).recordFileLookup(fileId, true);
+    }
+
+    @Test
+    void missingFileIsReportedAfterDatabaseLookup() {
+        UUID fileId = UUID.randomUUID();
+        when(fileMetadataRepository.findById(fileId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.getFileById(fileId)).isInstanceOf(EntityNotFoundException.class);
+        verify(fileMetadataRepository).findById(fileId);
+        verify(existenceFilter).recordFileLookup(fileId, false);
+    }
+}
@@ -0,0 +1,122 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.FileMetadata;
+import com.yaser.metadata_service.entity.Folder;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.FolderRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FolderServiceImplTest {
+
+    private final UUID ownerId = UUID.randomUUID();
+    private final FolderRepository folderRepository = mock(FolderRepository.class);
+    private final FileMetadataRepository fileMetadataRepository = mock(FileMetadataRepository.class);
+    private final FolderServiceImpl service = new FolderServiceImpl(folderRepository, fileMetadataRepository,
+            mock(ApplicationEventPublisher.class), 32);
+
+    @Test
+    void moveIntoOwnSubfolderIsRejected() {
+        Folder parent = new Folder(ownerId, null, "a");
+        Folder child = new Folder(ownerId, parent, "b");
+        when(folderRepository.findById(parent.getId())).thenReturn(Optional.of(parent));
+        when(folderRepository.findById(child.getId())).thenReturn(Optional.of(child));
+
+        assertThatThrownBy(() -> service.moveFolder(parent.getId(), ownerId, child.getId(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.moveFolder(parent.getId(), ownerId, parent.getId(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(folderRepository, never()).moveSubtree(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void folderCursorRoundTripsToTheSamePosition() {
+        List<Folder> page = List.of(new Folder(ownerId, null, "a"), new Folder(ownerId, null, "b c"));
+        when(folderRepository.findTopLevelPage(ownerId, "", 2)).thenReturn(page);
+
+        FolderService.FolderChildren first = service.listChildren(ownerId, null, null, 1);
+        assertThat(first.folders()).containsExactly(page.get(0));
+        assertThat(first.nextCursor()).isNotNull();
+
+        when(folderRepository.findTopLevelPage(ownerId, "a", 2)).thenReturn(List.of(page.get(1)));
+        FolderService.FolderChildren second = service.listChildren(ownerId, null, first.nextCursor(), 1);
+        assertThat(second.folders()).containsExactly(page.get(1));
+    }
+
+    @Test
+    void fileCursorKeepsNameWithLineBreaks() {
+        UUID fileId = UUID.randomUUID();
+        String cursor = FolderServiceImpl.encodeCursor("f", fileId.toString(), "report\nfinal.txt");
+
+        assertThat(FolderServiceImpl.decodeCursor(cursor))
+                .containsExactly("f", fileId.toString(), "report\nfinal.txt");
+    }
+
+    @Test
+    void fileCursorContinuesAfterLastFile() {
+        FileMetadata last = new FileMetadata();
+        last.setId(UUID.randomUUID());
+        last.setFileName("z.txt");
+        when(folderRepository.findTopLevelPage(ownerId, "", 2)).thenReturn(List.of());
+        when(fileMetadataRepository.findRootFilePage(eq(ownerId), eq(""), any(), eq(2)))
+                .thenReturn(List.of(last, new FileMetadata()));
+
+        FolderService.FolderChildren first = service.listChildren(ownerId, null, null, 1);
+        service.listChildren(ownerId, null, first.nextCursor(), 1);
+
+        verify(fileMetadataRepository).findRootFilePage(ownerId, "z.txt", last.getId(), 2);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> service.listChildren(ownerId, null, "not a cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void controlCharactersInFolderNameAreRejected() {
+        assertThatThrownBy(() -> service.createFolder(ownerId, null, "a\nb"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(folderRepository, never()).save(any());
+    }
+
+    @Test
+    void moveFilesLocksOwnerTreeBeforeCheckingTarget() {
+        Folder target = new Folder(ownerId, null, "a");
+        UUID fileId = UUID.randomUUID();
+        when(folderRepository.findById(target.getId())).thenReturn(Optional.of(target));
+        when(fileMetadataRepository.moveToFolder(any(), any(), any())).thenReturn(List.of(fileId));
+
+        assertThat(service.moveFiles(ownerId, List.of(fileId), target.getId())).containsExactly(fileId);
+
+        InOrder order = inOrder(folderRepository);
+        order.verify(folderRepository).lockOwnerTree(ownerId);
+        order.verify(folderRepository).findById(target.getId());
+    }
+
+    @Test
+    void moveFilesIntoDeletedFolderFailsWithNotFound() {
+        UUID deleted = UUID.randomUUID();
+        when(folderRepository.findById(deleted)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.moveFiles(ownerId, List.of(UUID.randomUUID()), deleted))
+                .isInstanceOf(EntityNotFoundException.class);
+        verify(fileMetadataRepository, never()).moveToFolder(any(), any(), any());
+    }
+}
@@ -0,0 +1,109 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.OwnerPurgeJob;
+import com.yaser.metadata_service.entity.PurgeJobStatus;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import com.yaser.metadata_service.repository.FolderRepository;
+import com.yaser.metadata_service.repository.OwnerPurgeJobRepository;
+import com.yaser.metadata_service.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OwnerPurgeServiceImplTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    private OwnerPurgeJobRepository purgeJobRepository;
+    private FileMetadataRepository fileMetadataRepository;
+    private FolderRepository folderRepository;
+    private UserRepository userRepository;
+    private OwnerPurgeServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        purgeJobRepository = mock(OwnerPurgeJobRepository.class);
+        fileMetadataRepository = mock(FileMetadataRepository.class);
+        folderRepository = mock(FolderRepository.class);
+        userRepository = mock(UserRepository.class);
+        service = new OwnerPurgeServiceImpl(purgeJobRepository, fileMetadataRepository, folderRepository,
+                userRepository, mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class),
+                CHUNK_SIZE, 3);
+    }
+
+    @Test
+    void noUnclaimedJobMeansNoWork() {
+        when(purgeJobRepository.lockNextActiveJob()).thenReturn(Optional.empty());
+
+        assertThat(service.processNextChunk()).isFalse();
+        verify(fileMetadataRepository, never()).deleteChunkByOwnerId(any(), anyInt());
+    }
+
+    @Test
+    void lastChunkDeletesDependentRowsBeforeOwner() {
+        UUID ownerId = UUID.randomUUID();
+        OwnerPurgeJob job = new OwnerPurgeJob(ownerId, true, 1);
+        when(purgeJobRepository.lockNextActiveJob()).thenReturn(Optional.of(job));
+        when(fileMetadataRepository.deleteChunkByOwnerId(ownerId, CHUNK_SIZE)).thenReturn(List.of(UUID.randomUUID()));
+        when(fileMetadataRepository.deleteChunkByOwnerId(ownerId, Integer.MAX_VALUE)).thenReturn(List.of());
+        when(userRepository.lockById(ownerId)).thenReturn(Optional.of(ownerId));
+
+        assertThat(service.processNextChunk()).isTrue();
+
+        InOrder order = inOrder(userRepository, fileMetadataRepository, folderRepository);
+        order.verify(userRepository).lockById(ownerId);
+        order.verify(fileMetadataRepository).deleteChunkByOwnerId(ownerId, Integer.MAX_VALUE);
+        order.verify(folderRepository).deleteByOwnerId(ownerId);
+        order.verify(userRepository).deleteRolesByUserId(ownerId);
+        order.verify(userRepository).purgeById(ownerId);
+        assertThat(job.getStatus()).isEqualTo(PurgeJobStatus.COMPLETED);
+        assertThat(job.getDeletedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    void fullChunkKeepsJobActiveAndOwner() {
+        UUID ownerId = UUID.randomUUID();
+        OwnerPurgeJob job = new OwnerPurgeJob(ownerId, true, 10);
+        when(purgeJobRepository.lockNextActiveJob()).thenReturn(Optional.of(job));
+        when(fileMetadataRepository.deleteChunkByOwnerId(ownerId, CHUNK_SIZE))
+                .thenReturn(List.of(UUID.randomUUID(), UUID.randomUUID()));
+
+        assertThat(service.processNextChunk()).isTrue();
+
+        assertThat(job.isActive()).isTrue();
+        verify(userRepository, never()).purgeById(any());
+    }
+
+    @Test
+    void failedChunkIsRecordedOnClaimedJob() {
+        UUID jobId = UUID.randomUUID();
+        UUID ownerId = UUID.randomUUID();
+        OwnerPurgeJob job = mock(OwnerPurgeJob.class);
+        when(job.getId()).thenReturn(jobId);
+        when(job.getOwnerId()).thenReturn(ownerId);
+        when(purgeJobRepository.lockNextActiveJob()).thenReturn(Optional.of(job));
+        when(purgeJobRepository.lockById(jobId)).thenReturn(Optional.of(job));
+        when(fileMetadataRepository.deleteChunkByOwnerId(ownerId, CHUNK_SIZE))
+                .thenThrow(new IllegalStateException("boom"));
+
+        assertThat(service.processNextChunk()).isFalse();
+
+        verify(job).recordFailure("boom", 3);
+        verify(purgeJobRepository).save(job);
+    }
+}
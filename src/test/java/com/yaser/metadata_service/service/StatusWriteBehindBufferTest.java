@@ -0,0 +1,203 @@
+package com.yaser.metadata_service.service;
+
+import com.yaser.metadata_service.entity.Status;
+import com.yaser.metadata_service.lifecycle.StatusTransitionHook;
+import com.yaser.metadata_service.lifecycle.StatusTransitionHooks;
+import com.yaser.metadata_service.lifecycle.StatusTransitions;
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusWriteBehindBufferTest {
+
+    // Статусы файлов "в БД": bulkUpdateStatus обновляет только строки с ожидаемым исходным статусом
+    private final ConcurrentHashMap<UUID, Status> db = new ConcurrentHashMap<>();
+
+    private FileMetadataRepository repository;
+    private TransactionTemplate transactionTemplate;
+    private StatusTransitionHooks hooks;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(FileMetadataRepository.class);
+        when(repository.findStatusById(any())).thenAnswer(inv -> Optional.ofNullable(db.get(inv.<UUID>getArgument(0))));
+        when(repository.bulkUpdateStatus(anyCollection(), anyString(), anyString())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            Status from = Status.valueOf(inv.getArgument(1));
+            Status to = Status.valueOf(inv.getArgument(2));
+            int updated = 0;
+            for (UUID id : ids) {
+                if (db.replace(id, from, to)) {
+                    updated++;
+                }
+            }
+            return updated;
+        });
+
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        ObjectProvider<StatusTransitionHook> noHooks = mock(ObjectProvider.class);
+        when(noHooks.orderedStream()).thenReturn(Stream.empty());
+        hooks = new StatusTransitionHooks(noHooks, StatusTransitions.defaults());
+
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void intermediateStatusesAreCoalescedIntoSingleUpdate() {
+        StatusWriteBehindBuffer buffer = buffer(100, 100);
+        UUID fileId = file(Status.UPLOADED);
+
+        buffer.submit(fileId, Status.PROCESSING);
+        buffer.submit(fileId, Status.THUMBNAILING);
+        buffer.submit(fileId, Status.READY);
+
+        verify(repository, never()).bulkUpdateStatus(anyCollection(), anyString(), anyString());
+        assertThat(pending()).isEqualTo(1);
+
+        buffer.flush();
+
+        verify(repository, times(1)).bulkUpdateStatus(anyCollection(), anyString(), anyString());
+        verify(repository).bulkUpdateStatus(eq(List.of(fileId)), eq("UPLOADED"), eq("READY"));
+        // Следующие отчеты валидируются от буферизованного статуса, без чтения из БД
+        verify(repository, times(1)).findStatusById(fileId);
+        assertThat(db.get(fileId)).isEqualTo(Status.READY);
+        assertThat(pending()).isZero();
+        assertThat(counter("metadata.status.write_behind.flushed")).isEqualTo(1);
+        assertThat(counter("metadata.status.write_behind.conflicts")).isZero();
+    }
+
+    @Test
+    void invalidTransitionIsRejectedOnSubmit() {
+        StatusWriteBehindBuffer buffer = buffer(100, 100);
+        UUID fileId = file(Status.UPLOADED);
+
+        assertThatThrownBy(() -> buffer.submit(fileId, Status.READY))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(pending()).isZero();
+
+        buffer.submit(fileId, Status.PROCESSING);
+        assertThatThrownBy(() -> buffer.submit(fileId, Status.UPLOADED))
+                .isInstanceOf(IllegalStateException.class);
+
+        buffer.flush();
+        assertThat(db.get(fileId)).isEqualTo(Status.PROCESSING);
+    }
+
+    @Test
+    void statusChangedOutsideBufferIsCountedAsConflict() {
+        StatusWriteBehindBuffer buffer = buffer(100, 100);
+        UUID untouched = file(Status.UPLOADED);
+        UUID changedElsewhere = file(Status.UPLOADED);
+
+        buffer.submit(untouched, Status.PROCESSING);
+        buffer.submit(changedElsewhere, Status.PROCESSING);
+        db.put(changedElsewhere, Status.SCANNING);
+        buffer.flush();
+
+        assertThat(db.get(untouched)).isEqualTo(Status.PROCESSING);
+        assertThat(db.get(changedElsewhere)).isEqualTo(Status.SCANNING);
+        assertThat(counter("metadata.status.write_behind.flushed")).isEqualTo(1);
+        assertThat(counter("metadata.status.write_behind.conflicts")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentSubmitsWithFlushOnFullBufferLoseNoUpdates() throws Exception {
+        // Маленький буфер - сбросы из потоков писателей идут параллельно с приемом новых отчетов
+        StatusWriteBehindBuffer buffer = buffer(8, 3);
+        int threads = 4;
+        int filesPerThread = 250;
+
+        List<List<UUID>> partitions = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<UUID> files = new ArrayList<>();
+            for (int i = 0; i < filesPerThread; i++) {
+                files.add(file(Status.UPLOADED));
+            }
+            partitions.add(files);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<UUID> files : partitions) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Каждый файл меняет только свой поток, поэтому переходы одного файла упорядочены
+                    for (UUID fileId : files) {
+                        buffer.submit(fileId, Status.PROCESSING);
+                    }
+                    for (UUID fileId : files) {
+                        buffer.submit(fileId, Status.READY);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        buffer.flush();
+
+        assertThat(db.values()).hasSize(threads * filesPerThread).containsOnly(Status.READY);
+        assertThat(pending()).isZero();
+        assertThat(counter("metadata.status.write_behind.conflicts")).isZero();
+    }
+
+    private StatusWriteBehindBuffer buffer(int maxPending, int batchSize) {
+        return new StatusWriteBehindBuffer(repository, transactionTemplate, mock(ApplicationEventPublisher.class),
+                StatusTransitions.defaults(), hooks, meterRegistry, maxPending, batchSize);
+    }
+
+    private UUID file(Status status) {
+        UUID fileId = UUID.randomUUID();
+        db.put(fileId, status);
+        return fileId;
+    }
+
+    private double pending() {
+        return meterRegistry.get("metadata.status.write_behind.pending").gauge().value();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
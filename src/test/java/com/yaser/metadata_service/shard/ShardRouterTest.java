@@ -0,0 +1,136 @@
+package com.yaser.metadata_service.shard;
+
+import com.yaser.metadata_service.repository.FileMetadataRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardRouterTest {
+
+    private final FileMetadataRepository fileMetadataRepository = mock(FileMetadataRepository.class);
+
+    @AfterEach
+    void clearContext() {
+        ShardContext.clear();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void jumpHashStaysInRangeAndMovesKeysOnlyToNewShard() {
+        Random random = new Random(42);
+        long[] keys = new long[2_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        for (int buckets = 1; buckets <= 64; buckets++) {
+            int[] counts = new int[buckets];
+            for (long key : keys) {
+                int bucket = ShardRouter.jumpHash(key, buckets);
+                assertThat(bucket).isBetween(0, buckets - 1);
+                counts[bucket]++;
+                // При добавлении шарда ключ либо остается, либо уходит на новый шард
+                int grown = ShardRouter.jumpHash(key, buckets + 1);
+                assertThat(grown).isIn(bucket, buckets);
+            }
+            if (buckets <= 8) {
+                int expected = keys.length / buckets;
+                for (int count : counts) {
+                    assertThat(count).isBetween(expected / 2, expected * 3 / 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    void homeShardIsStableForOwner() {
+        ShardRouter router = router(4);
+        UUID ownerId = UUID.randomUUID();
+
+        int shard = router.homeShardOf(ownerId);
+        assertThat(router.homeShardOf(ownerId)).isEqualTo(shard);
+        assertThat(router.shardOf(ownerId)).isEqualTo(shard);
+
+        int relocated = (shard + 1) % 4;
+        router.relocate(ownerId, relocated);
+        assertThat(router.shardOf(ownerId)).isEqualTo(relocated);
+        router.relocate(ownerId, shard);
+        assertThat(router.shardOf(ownerId)).isEqualTo(shard);
+    }
+
+    @Test
+    void onFileShardRunsWorkOnShardThatHoldsFile() {
+        ShardRouter router = router(4);
+        UUID fileId = UUID.randomUUID();
+        when(fileMetadataRepository.existsById(fileId)).thenAnswer(invocation -> Integer.valueOf(2).equals(ShardContext.current()));
+
+        Integer shard = router.onFileShard(fileId, ShardContext::current);
+
+        assertThat(shard).isEqualTo(2);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void onFileShardThrowsWhenNoShardHoldsFile() {
+        ShardRouter router = router(4);
+        when(fileMetadataRepository.existsById(any())).thenReturn(false);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> router.onFileShard(UUID.randomUUID(), calls::incrementAndGet))
+                .isInstanceOf(EntityNotFoundException.class);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void onAllShardsReturnsResultsInShardOrder() {
+        ShardRouter router = router(3);
+
+        assertThat(router.onAllShards(ShardContext::current)).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void onAllShardsRejectsCallerTransaction() {
+        ShardRouter router = router(2);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThatThrownBy(() -> router.onAllShards(ShardContext::current))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void fanOutPerShardMustLeaveConnectionsForRequests() {
+        assertThatThrownBy(() -> router(2, 10, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router(2, 10, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ShardRouter router(int shards) {
+        return router(shards, 10, 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ShardRouter router(int shards, int maxPoolSize, int fanOutPerShard) {
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            dataSources.add(mock(DataSource.class));
+        }
+        ObjectProvider<ShardRoutingDataSource> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(new ShardRoutingDataSource(dataSources));
+        return new ShardRouter(provider, fileMetadataRepository, mock(PlatformTransactionManager.class),
+                maxPoolSize, fanOutPerShard);
+    }
+}
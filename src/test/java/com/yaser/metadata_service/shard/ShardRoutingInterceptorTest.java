@@ -0,0 +1,64 @@
+package com.yaser.metadata_service.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardRoutingInterceptorTest {
+
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final ShardRoutingInterceptor interceptor = new ShardRoutingInterceptor(shardRouter);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void clearContext() {
+        ShardContext.clear();
+    }
+
+    @Test
+    void requestRunsOnUserShardAndContextIsClearedAfterCompletion() {
+        UUID userId = UUID.randomUUID();
+        when(shardRouter.shardOf(userId)).thenReturn(3);
+        MockHttpServletRequest request = request(userId.toString());
+
+        interceptor.preHandle(request, response, new Object());
+        assertThat(ShardContext.current()).isEqualTo(3);
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void contextIsClearedWhenAsyncHandlingStarts() {
+        UUID userId = UUID.randomUUID();
+        when(shardRouter.shardOf(userId)).thenReturn(1);
+        MockHttpServletRequest request = request(userId.toString());
+
+        interceptor.preHandle(request, response, new Object());
+        interceptor.afterConcurrentHandlingStarted(request, response, new Object());
+
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void invalidUserHeaderLeavesDefaultShard() {
+        ShardContext.set(2);
+
+        interceptor.preHandle(request("not-a-uuid"), response, new Object());
+
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    private static MockHttpServletRequest request(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files");
+        request.addHeader("X-User-Id", userId);
+        return request;
+    }
+}